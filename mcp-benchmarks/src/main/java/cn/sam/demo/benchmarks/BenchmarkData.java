@@ -0,0 +1,43 @@
+package cn.sam.demo.benchmarks;
+
+/**
+ * 基准测试使用的示例数据
+ *
+ * @author Administrator
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static final String PARAM_SCHEMA = """
+            {"type":"object","properties":{\
+            "city":{"type":"string","description":"城市名称"},\
+            "days":{"type":"integer","description":"预报天数","minimum":1,"maximum":7},\
+            "unit":{"type":"string","enum":["celsius","fahrenheit"],"description":"温度单位"}},\
+            "required":["city"]}""";
+
+    static final String SIMPLE_CONFIG = """
+            {"tool_name":"get_weather","tool_type":"REMOTE",\
+            "transport":{"type":"sse","url":"http://127.0.0.1:9899"}}""";
+
+    static final String REPLICA_CONFIG = """
+            {"tool_name":"get_weather","tool_type":"REMOTE","idempotent":true,\
+            "transport":{"type":"sse","url":"http://127.0.0.1:9899",\
+            "urls":["http://127.0.0.1:9899","http://127.0.0.1:9900","http://127.0.0.1:9901"]}}""";
+
+    static final String DISCOVERED_CONFIG = """
+            {"tool_name":"get_weather","tool_type":"REMOTE",\
+            "transport":{"type":"streamable-http","url":"http://127.0.0.1:9899",\
+            "headers":{"Authorization":"Bearer benchmark-token","X-Tenant":"demo"}},\
+            "function":{"name":"get_weather","description":"查询指定城市未来几天的天气预报，包括温度、湿度、风力和空气质量",\
+            "parameters":{"type":"object","properties":{\
+            "city":{"type":"string","description":"城市名称，支持中文或拼音"},\
+            "days":{"type":"integer","description":"预报天数","minimum":1,"maximum":7},\
+            "unit":{"type":"string","enum":["celsius","fahrenheit"],"description":"温度单位"},\
+            "fields":{"type":"array","items":{"type":"string","enum":["temperature","humidity","wind","aqi"]},\
+            "description":"需要返回的字段"},\
+            "location":{"type":"object","properties":{"lat":{"type":"number"},"lng":{"type":"number"}},\
+            "description":"经纬度，优先于城市名称"}},\
+            "required":["city"]}}}""";
+}
@@ -0,0 +1,44 @@
+package cn.sam.demo.benchmarks;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * 基准测试辅助方法
+ *
+ * <p>被测服务不启动 Spring 容器，直接实例化后通过反射注入依赖、调用私有方法。
+ * 反射句柄在 @Setup 中准备好，基准方法里只有一次 Method.invoke 的固定开销。</p>
+ *
+ * @author Administrator
+ */
+public final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 为 @Resource 字段注入依赖
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException("字段不存在: " + target.getClass().getSimpleName() + "." + fieldName);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    /**
+     * 获取可调用的私有方法
+     */
+    public static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+        Method method = ReflectionUtils.findMethod(type, name, parameterTypes);
+        if (method == null) {
+            throw new IllegalArgumentException("方法不存在: " + type.getSimpleName() + "." + name);
+        }
+        ReflectionUtils.makeAccessible(method);
+        return method;
+    }
+}
@@ -0,0 +1,52 @@
+package cn.sam.demo.benchmarks;
+
+import org.springaicommunity.mcp.annotation.McpTool;
+import org.springaicommunity.mcp.annotation.McpToolParam;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试用的本地 MCP 工具
+ * 覆盖 McpToolInvokeService 的几类参数绑定：原样传递、数值转换、字符串解析、Jackson 转换为对象
+ *
+ * @author Administrator
+ */
+public class BenchmarkTools {
+
+    @McpTool(name = "bench_echo", description = "原样返回文本")
+    public String echo(@McpToolParam(description = "文本") String text) {
+        return text;
+    }
+
+    @McpTool(name = "bench_add", description = "两个整数相加")
+    public int add(@McpToolParam(description = "第一个数") int a,
+                   @McpToolParam(description = "第二个数") int b) {
+        return a + b;
+    }
+
+    @McpTool(name = "bench_mixed", description = "多个需要从字符串解析的参数")
+    public String mixed(@McpToolParam(description = "数量") long count,
+                        @McpToolParam(description = "比例") double ratio,
+                        @McpToolParam(description = "开关") boolean enabled,
+                        @McpToolParam(description = "备注", required = false) String remark) {
+        return count + ":" + ratio + ":" + enabled + ":" + remark;
+    }
+
+    @McpTool(name = "bench_order", description = "参数为对象，经 Jackson 转换")
+    public int order(@McpToolParam(description = "订单") Order order) {
+        return order.items().size();
+    }
+
+    /**
+     * 订单参数
+     */
+    public record Order(String orderNo, String customer, List<Item> items, Map<String, String> tags) {
+    }
+
+    /**
+     * 订单项
+     */
+    public record Item(String sku, int quantity, double price) {
+    }
+}
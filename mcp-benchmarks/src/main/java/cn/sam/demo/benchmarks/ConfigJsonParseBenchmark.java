@@ -0,0 +1,69 @@
+package cn.sam.demo.benchmarks;
+
+import cn.sam.demo.mcpclient.service.McpToolCallbackService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * config_json 解析基准
+ *
+ * <p>service：McpToolCallbackService.parseConfig 的实际路径（每次按 TypeReference 解析为 Map）；
+ * 另外两项作为对照：预先构建的 ObjectReader 解析为 Map，以及只解析为 JsonNode 树。</p>
+ *
+ * @author Administrator
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigJsonParseBenchmark {
+
+    /**
+     * small：只有 transport；large：包含完整 function 定义和参数 schema（自动发现生成的配置）
+     */
+    @Param({"small", "large"})
+    public String size;
+
+    private String configJson;
+
+    private McpToolCallbackService callbackService;
+
+    private Method parseConfig;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ObjectReader mapReader;
+
+    @Setup
+    public void setup() {
+        configJson = "large".equals(size) ? BenchmarkData.DISCOVERED_CONFIG : BenchmarkData.SIMPLE_CONFIG;
+        callbackService = new McpToolCallbackService();
+        parseConfig = BenchmarkSupport.method(McpToolCallbackService.class, "parseConfig", String.class);
+        mapReader = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {
+        });
+    }
+
+    @Benchmark
+    public Object service() throws Exception {
+        return parseConfig.invoke(callbackService, configJson);
+    }
+
+    @Benchmark
+    public Map<String, Object> objectReader() throws Exception {
+        return mapReader.readValue(configJson);
+    }
+
+    @Benchmark
+    public JsonNode tree() throws Exception {
+        return objectMapper.readTree(configJson);
+    }
+}
@@ -0,0 +1,57 @@
+package cn.sam.demo.benchmarks;
+
+import cn.sam.demo.mcpclient.entity.McpToolData;
+import cn.sam.demo.mcpclient.service.McpReplicaBalancer;
+import cn.sam.demo.mcpclient.service.McpToolCallbackService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * McpToolCallbackService.createToolCallback 基准：解析 config_json、登记副本、构建 FunctionToolCallback
+ *
+ * @author Administrator
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolCallbackBenchmark {
+
+    /**
+     * simple：单个地址；replicas：配置了 urls 副本列表
+     */
+    @Param({"simple", "replicas"})
+    public String config;
+
+    private McpToolCallbackService callbackService;
+
+    private Method createToolCallback;
+
+    private McpToolData tool;
+
+    @Setup
+    public void setup() {
+        callbackService = new McpToolCallbackService();
+        BenchmarkSupport.inject(callbackService, "replicaBalancer", new McpReplicaBalancer());
+        createToolCallback = BenchmarkSupport.method(McpToolCallbackService.class, "createToolCallback",
+                McpToolData.class);
+
+        tool = new McpToolData();
+        tool.setId(1L);
+        tool.setName("get_weather");
+        tool.setDescription("查询指定城市的天气");
+        tool.setType(McpToolData.Type.REMOTE);
+        tool.setStatus(McpToolData.Status.ENABLED);
+        tool.setParamSchema(BenchmarkData.PARAM_SCHEMA);
+        tool.setConfigJson("replicas".equals(config) ? BenchmarkData.REPLICA_CONFIG : BenchmarkData.SIMPLE_CONFIG);
+    }
+
+    @Benchmark
+    public Object createToolCallback() throws Exception {
+        return createToolCallback.invoke(callbackService, tool);
+    }
+}
@@ -0,0 +1,95 @@
+package cn.sam.demo.benchmarks;
+
+import cn.sam.demo.mcpclient.service.McpMetrics;
+import cn.sam.demo.mcpclient.service.McpToolInvokeService;
+import cn.sam.demo.mcpclient.service.McpToolStatsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * McpToolInvokeService.invokeTool 基准：工具查找、参数绑定与类型转换、反射调用
+ *
+ * @author Administrator
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolInvokeBenchmark {
+
+    private GenericApplicationContext applicationContext;
+
+    private McpToolInvokeService invokeService;
+
+    private Map<String, Object> echoParams;
+
+    private Map<String, Object> addParams;
+
+    private Map<String, Object> mixedParams;
+
+    private Map<String, Object> orderParams;
+
+    @Setup
+    public void setup() {
+        applicationContext = new GenericApplicationContext();
+        applicationContext.registerBean(BenchmarkTools.class);
+        applicationContext.refresh();
+
+        invokeService = new McpToolInvokeService();
+        BenchmarkSupport.inject(invokeService, "applicationContext", applicationContext);
+        // 与线上一致，调用计时和工具调用统计计入基准
+        McpMetrics metrics = new McpMetrics();
+        BenchmarkSupport.inject(metrics, "meterRegistry", new SimpleMeterRegistry());
+        BenchmarkSupport.inject(invokeService, "mcpMetrics", metrics);
+        McpToolStatsService toolStatsService = new McpToolStatsService();
+        BenchmarkSupport.inject(toolStatsService, "enabled", true);
+        BenchmarkSupport.inject(invokeService, "toolStatsService", toolStatsService);
+        invokeService.scanLocalTools();
+
+        echoParams = Map.of("text", "hello mcp");
+        // JSON 数字反序列化为 Integer/Long，需要转换为 int
+        addParams = Map.of("a", 12L, "b", 30L);
+        // 模型常把数字和布尔值作为字符串传入
+        mixedParams = Map.of("count", "42", "ratio", "0.75", "enabled", "true");
+        orderParams = Map.of("order", Map.of(
+                "orderNo", "SO-20250101-0001",
+                "customer", "sam",
+                "items", List.of(
+                        Map.of("sku", "A-1", "quantity", 2, "price", 9.9),
+                        Map.of("sku", "B-2", "quantity", 1, "price", 19.9),
+                        Map.of("sku", "C-3", "quantity", 5, "price", 1.5)),
+                "tags", Map.of("channel", "web", "region", "cn")));
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public Object passThrough() {
+        return invokeService.invokeTool("bench_echo", echoParams);
+    }
+
+    @Benchmark
+    public Object numberConversion() {
+        return invokeService.invokeTool("bench_add", addParams);
+    }
+
+    @Benchmark
+    public Object stringParsing() {
+        return invokeService.invokeTool("bench_mixed", mixedParams);
+    }
+
+    @Benchmark
+    public Object jacksonConversion() {
+        return invokeService.invokeTool("bench_order", orderParams);
+    }
+}
@@ -0,0 +1,71 @@
+package cn.sam.demo.benchmarks;
+
+import cn.sam.demo.mcpclient.service.UniversalMcpClientService;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UniversalMcpClientService.extractToolResult 基准：从 CallToolResult 提取文本结果
+ *
+ * @author Administrator
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolResultExtractBenchmark {
+
+    private UniversalMcpClientService clientService;
+
+    private Method extractToolResult;
+
+    private McpSchema.CallToolResult singleText;
+
+    private McpSchema.CallToolResult multiText;
+
+    private McpSchema.CallToolResult mixedContent;
+
+    @Setup
+    public void setup() {
+        clientService = new UniversalMcpClientService();
+        extractToolResult = BenchmarkSupport.method(UniversalMcpClientService.class, "extractToolResult",
+                McpSchema.CallToolResult.class);
+
+        singleText = McpSchema.CallToolResult.builder()
+                .addTextContent("{\"city\":\"北京\",\"weather\":\"晴\",\"temperature\":26}")
+                .build();
+
+        McpSchema.CallToolResult.Builder multi = McpSchema.CallToolResult.builder();
+        for (int i = 0; i < 20; i++) {
+            multi.addTextContent("第 " + i + " 条搜索结果：MCP 协议与 Spring AI 集成示例");
+        }
+        multiText = multi.build();
+
+        mixedContent = McpSchema.CallToolResult.builder()
+                .addTextContent("生成的图表如下")
+                .addContent(new McpSchema.ImageContent(null, "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk",
+                        "image/png"))
+                .addTextContent("数据来源：示例")
+                .build();
+    }
+
+    @Benchmark
+    public Object singleText() throws Exception {
+        return extractToolResult.invoke(clientService, singleText);
+    }
+
+    @Benchmark
+    public Object multiText() throws Exception {
+        return extractToolResult.invoke(clientService, multiText);
+    }
+
+    @Benchmark
+    public Object mixedContent() throws Exception {
+        return extractToolResult.invoke(clientService, mixedContent);
+    }
+}
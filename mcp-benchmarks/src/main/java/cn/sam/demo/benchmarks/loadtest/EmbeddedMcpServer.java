@@ -0,0 +1,111 @@
+package cn.sam.demo.benchmarks.loadtest;
+
+import cn.sam.demo.mcpservice.tool.LocalMcpTools;
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.server.transport.HttpServletSseServerTransportProvider;
+import io.modelcontextprotocol.server.transport.HttpServletStreamableServerTransportProvider;
+import jakarta.servlet.http.HttpServlet;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.springframework.ai.mcp.annotation.spring.SyncMcpAnnotationProviders;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * 进程内 MCP 服务
+ *
+ * <p>复用 mcp-service-demo 的 LocalMcpTools，通过 Spring AI 的注解扫描生成工具定义，
+ * 用 MCP SDK 的 Servlet 传输层挂在独立端口的内嵌 Tomcat 上，与被测客户端的 Tomcat 互不占用线程。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+public class EmbeddedMcpServer implements AutoCloseable {
+
+    private final String transportType;
+
+    private Tomcat tomcat;
+
+    private McpSyncServer mcpServer;
+
+    private int port;
+
+    /**
+     * @param transportType sse 或 streamable-http
+     */
+    public EmbeddedMcpServer(String transportType) {
+        this.transportType = transportType;
+    }
+
+    /**
+     * 启动服务（随机端口）
+     */
+    public void start() throws Exception {
+        HttpServlet servlet;
+        if ("sse".equalsIgnoreCase(transportType)) {
+            HttpServletSseServerTransportProvider provider = HttpServletSseServerTransportProvider.builder()
+                    .sseEndpoint("/sse")
+                    .messageEndpoint("/mcp/message")
+                    .build();
+            mcpServer = McpServer.sync(provider)
+                    .serverInfo("loadtest-mcp-server", "1.0.0")
+                    .tools(SyncMcpAnnotationProviders.toolSpecifications(List.of(new LocalMcpTools())))
+                    .build();
+            servlet = provider;
+        } else {
+            HttpServletStreamableServerTransportProvider provider = HttpServletStreamableServerTransportProvider.builder()
+                    .mcpEndpoint("/mcp")
+                    .build();
+            mcpServer = McpServer.sync(provider)
+                    .serverInfo("loadtest-mcp-server", "1.0.0")
+                    .tools(SyncMcpAnnotationProviders.toolSpecifications(List.of(new LocalMcpTools())))
+                    .build();
+            servlet = provider;
+        }
+
+        File baseDir = Files.createTempDirectory("loadtest-mcp-tomcat").toFile();
+        baseDir.deleteOnExit();
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+        Connector connector = new Connector();
+        connector.setPort(0);
+        tomcat.setConnector(connector);
+
+        Context context = tomcat.addContext("", baseDir.getAbsolutePath());
+        Wrapper wrapper = Tomcat.addServlet(context, "mcp", servlet);
+        wrapper.setAsyncSupported(true);
+        context.addServletMappingDecoded("/*", "mcp");
+        tomcat.start();
+
+        port = connector.getLocalPort();
+        log.info("内嵌 MCP 服务已启动: {} ({})", getUrl(), transportType);
+    }
+
+    /**
+     * 服务地址（不含端点路径）
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + port;
+    }
+
+    public String getTransportType() {
+        return transportType;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (mcpServer != null) {
+            mcpServer.closeGracefully();
+        }
+        if (tomcat != null) {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+}
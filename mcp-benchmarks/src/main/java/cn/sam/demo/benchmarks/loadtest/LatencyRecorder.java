@@ -0,0 +1,93 @@
+package cn.sam.demo.benchmarks.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 单个接口的延迟与结果统计
+ *
+ * @author Administrator
+ */
+public class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+
+    private int count;
+
+    private long errors;
+
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    /**
+     * 记录一次完成的请求
+     *
+     * @param latencyNanos 从计划发送时间算起的延迟（包含排队，避免协调遗漏）
+     * @param outcome      结果：HTTP 状态码或异常类型
+     * @param success      是否成功
+     */
+    public synchronized void record(long latencyNanos, String outcome, boolean success) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+        outcomes.merge(outcome, 1L, Long::sum);
+    }
+
+    /**
+     * 汇总统计
+     *
+     * @param measureSeconds 测量时长（秒），用于计算吞吐量
+     * @param dropped        因超过最大并发而未发送的请求数
+     */
+    public synchronized Map<String, Object> summarize(double measureSeconds, long dropped) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("errors", errors);
+        summary.put("dropped", dropped);
+        summary.put("throughput", measureSeconds > 0 ? round(count / measureSeconds) : 0);
+        summary.put("meanMs", count > 0 ? round(Arrays.stream(sorted).average().orElse(0) / 1e6) : 0);
+        summary.put("p50Ms", percentileMs(sorted, 50));
+        summary.put("p90Ms", percentileMs(sorted, 90));
+        summary.put("p99Ms", percentileMs(sorted, 99));
+        summary.put("p999Ms", percentileMs(sorted, 99.9));
+        summary.put("maxMs", count > 0 ? round(sorted[count - 1] / 1e6) : 0);
+        summary.put("outcomes", new TreeMap<>(outcomes));
+        return summary;
+    }
+
+    /**
+     * 合并多个统计（用于计算总体）
+     */
+    public synchronized void mergeFrom(LatencyRecorder other) {
+        synchronized (other) {
+            for (int i = 0; i < other.count; i++) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = other.latencies[i];
+            }
+            errors += other.errors;
+            other.outcomes.forEach((k, v) -> outcomes.merge(k, v, Long::sum));
+        }
+    }
+
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return round(sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
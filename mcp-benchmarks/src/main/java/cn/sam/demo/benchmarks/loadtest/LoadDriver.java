@@ -0,0 +1,173 @@
+package cn.sam.demo.benchmarks.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开环压测驱动
+ *
+ * <p>按目标速率在固定时间点发出请求（不等待上一个请求返回），依次轮询各接口。
+ * 延迟从计划发送时间算起，服务变慢导致的排队会体现在延迟里。
+ * 进行中的请求超过上限时本次请求不发送，计为 dropped。预热期内的请求不计入统计。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+public class LoadDriver {
+
+    /**
+     * 压测参数
+     *
+     * @param baseUrl     被测客户端地址
+     * @param endpoints   压测的接口（/api/ai/ 下的路径，如 generate、generateWithTools、generateStreamWithTools）
+     * @param rate        目标速率（请求/秒）
+     * @param warmup      预热时长
+     * @param duration    测量时长
+     * @param maxInFlight 最大进行中请求数
+     * @param message     请求消息
+     */
+    public record Settings(String baseUrl, List<String> endpoints, double rate, Duration warmup,
+                           Duration duration, int maxInFlight, String message) {
+    }
+
+    private final Settings settings;
+
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+
+    private final Map<String, AtomicLong> dropped = new LinkedHashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public LoadDriver(Settings settings) {
+        this.settings = settings;
+        settings.endpoints().forEach(endpoint -> {
+            recorders.put(endpoint, new LatencyRecorder());
+            dropped.put(endpoint, new AtomicLong());
+        });
+    }
+
+    /**
+     * 执行压测
+     *
+     * @return 各接口及总体的统计
+     */
+    public Map<String, Object> run() throws InterruptedException {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "loadtest-http-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        long intervalNanos = (long) (1e9 / settings.rate());
+        long warmupNanos = settings.warmup().toNanos();
+        long totalNanos = warmupNanos + settings.duration().toNanos();
+        long start = System.nanoTime();
+        log.info("开始压测: {} req/s，预热 {}s，测量 {}s，接口 {}", settings.rate(),
+                settings.warmup().toSeconds(), settings.duration().toSeconds(), settings.endpoints());
+
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * intervalNanos;
+            if (scheduled - start >= totalNanos) {
+                break;
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String endpoint = settings.endpoints().get((int) (i % settings.endpoints().size()));
+            boolean measured = scheduled - start >= warmupNanos;
+            if (inFlight.get() >= settings.maxInFlight()) {
+                if (measured) {
+                    dropped.get(endpoint).incrementAndGet();
+                }
+                continue;
+            }
+            send(httpClient, endpoint, scheduled, measured);
+        }
+
+        // 等待进行中的请求完成
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        if (inFlight.get() > 0) {
+            log.warn("仍有 {} 个请求未完成，不计入统计", inFlight.get());
+        }
+        executor.shutdownNow();
+        return summarize();
+    }
+
+    private void send(HttpClient httpClient, String endpoint, long scheduled, boolean measured) {
+        boolean stream = endpoint.toLowerCase().contains("stream");
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(settings.baseUrl() + "/api/ai/" + endpoint + "?message="
+                        + URLEncoder.encode(settings.message(), StandardCharsets.UTF_8)))
+                .header("Accept", stream ? "text/event-stream" : "text/plain")
+                .timeout(Duration.ofSeconds(120))
+                .GET()
+                .build();
+        inFlight.incrementAndGet();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .whenComplete((response, error) -> {
+                    long latency = System.nanoTime() - scheduled;
+                    inFlight.decrementAndGet();
+                    if (!measured) {
+                        return;
+                    }
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        recorders.get(endpoint).record(latency, cause.getClass().getSimpleName(), false);
+                        return;
+                    }
+                    recorders.get(endpoint).record(latency, String.valueOf(response.statusCode()),
+                            isSuccess(response, stream));
+                });
+    }
+
+    /**
+     * 判断响应是否成功：流式接口以收到 done 事件为准，普通接口出错时返回 200 和“对话失败”文本
+     */
+    private boolean isSuccess(HttpResponse<String> response, boolean stream) {
+        if (response.statusCode() != 200) {
+            return false;
+        }
+        String body = response.body();
+        return stream ? body.contains("event:done") : !body.startsWith("对话失败");
+    }
+
+    private Map<String, Object> summarize() {
+        double measureSeconds = settings.duration().toMillis() / 1000.0;
+        Map<String, Object> result = new LinkedHashMap<>();
+        LatencyRecorder total = new LatencyRecorder();
+        long totalDropped = 0;
+        for (Map.Entry<String, LatencyRecorder> entry : recorders.entrySet()) {
+            long endpointDropped = dropped.get(entry.getKey()).get();
+            result.put(entry.getKey(), entry.getValue().summarize(measureSeconds, endpointDropped));
+            total.mergeFrom(entry.getValue());
+            totalDropped += endpointDropped;
+        }
+        result.put("total", total.summarize(measureSeconds, totalDropped));
+        return result;
+    }
+}
@@ -0,0 +1,183 @@
+package cn.sam.demo.benchmarks.loadtest;
+
+import cn.sam.demo.mcpclient.McpClientApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 端到端压测入口
+ *
+ * <p>在同一进程内启动：内嵌 MCP 服务（LocalMcpTools）、使用 H2 内存库和模拟 ChatModel 的 mcp-client-demo，
+ * 等启动编排完成（远程工具已发现并注册）后，按目标速率压测 /api/ai/generate* 接口，输出吞吐量和延迟分位数。</p>
+ *
+ * <p>运行：{@code java -cp target/benchmarks.jar cn.sam.demo.benchmarks.loadtest.LoadTestApplication
+ * --loadtest.rate=50 --loadtest.duration-seconds=30}。参数均为 --key=value，
+ * 除下面的 loadtest.* 外也可以覆盖客户端的任意配置（如 --mcp.client.hedging.enabled=false）。</p>
+ * <ul>
+ *     <li>loadtest.rate：目标速率（请求/秒），默认 20</li>
+ *     <li>loadtest.warmup-seconds / loadtest.duration-seconds：预热和测量时长，默认 5 / 30</li>
+ *     <li>loadtest.endpoints：压测接口，逗号分隔，默认 generate,generateWithTools,generateStreamWithTools</li>
+ *     <li>loadtest.max-in-flight：最大进行中请求数，默认 500</li>
+ *     <li>loadtest.mcp-transport：内嵌 MCP 服务的传输方式 sse 或 streamable-http，默认 streamable-http</li>
+ *     <li>loadtest.report-file：结果另存为 JSON 文件</li>
+ *     <li>loadtest.chat.*：模拟模型参数，见 {@link LoadTestConfig}</li>
+ * </ul>
+ *
+ * @author Administrator
+ */
+@Slf4j
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+
+        try (EmbeddedMcpServer mcpServer = new EmbeddedMcpServer(
+                options.getOrDefault("loadtest.mcp-transport", "streamable-http"))) {
+            mcpServer.start();
+
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                    McpClientApplication.class, LoadTestConfig.class)
+                    .run(toArgs(clientProperties(mcpServer, options)));
+            int exitCode = 0;
+            try {
+                String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+                awaitStartup(baseUrl);
+
+                LoadDriver driver = new LoadDriver(new LoadDriver.Settings(
+                        baseUrl,
+                        Arrays.stream(options.getOrDefault("loadtest.endpoints",
+                                        "generate,generateWithTools,generateStreamWithTools").split(","))
+                                .map(String::trim).filter(s -> !s.isEmpty()).toList(),
+                        Double.parseDouble(options.getOrDefault("loadtest.rate", "20")),
+                        Duration.ofSeconds(Long.parseLong(options.getOrDefault("loadtest.warmup-seconds", "5"))),
+                        Duration.ofSeconds(Long.parseLong(options.getOrDefault("loadtest.duration-seconds", "30"))),
+                        Integer.parseInt(options.getOrDefault("loadtest.max-in-flight", "500")),
+                        options.getOrDefault("loadtest.message", "现在几点了？")));
+                Map<String, Object> report = driver.run();
+                printReport(report);
+
+                String reportFile = options.get("loadtest.report-file");
+                if (reportFile != null && !reportFile.isEmpty()) {
+                    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                            .writeValue(new File(reportFile), report);
+                    log.warn("压测结果已保存: {}", reportFile);
+                }
+            } catch (Exception e) {
+                log.error("压测失败", e);
+                exitCode = 1;
+            } finally {
+                SpringApplication.exit(context);
+            }
+            if (exitCode != 0) {
+                System.exit(exitCode);
+            }
+        }
+    }
+
+    /**
+     * 客户端配置：H2 内存库、指向内嵌 MCP 服务、排除 DeepSeek；命令行参数可覆盖
+     * 以命令行参数传入，优先级高于客户端自带的 application.yaml
+     */
+    private static Map<String, String> clientProperties(EmbeddedMcpServer mcpServer, Map<String, String> options) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.profiles.active", "loadtest");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.url",
+                "jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.sql.init.mode", "always");
+        properties.put("spring.sql.init.schema-locations", "classpath:loadtest/schema.sql");
+        properties.put("spring.autoconfigure.exclude",
+                "org.springframework.ai.model.deepseek.autoconfigure.DeepSeekChatAutoConfiguration");
+        properties.put("mybatis-plus.mapper-locations", "classpath:mapper/*.xml");
+        properties.put("mybatis-plus.type-aliases-package", "cn.sam.demo.mcpclient.entity");
+        properties.put("mcp.client.remote.url", mcpServer.getUrl());
+        properties.put("mcp.client.remote.transport-type", mcpServer.getTransportType());
+        properties.put("mcp.client.market.refresh.enabled", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.cn.sam.demo.benchmarks", "INFO");
+        options.forEach((key, value) -> {
+            if (!key.startsWith("loadtest.") || key.startsWith("loadtest.chat.")) {
+                properties.put(key, value);
+            }
+        });
+        return properties;
+    }
+
+    /**
+     * 等待启动编排完成（工具扫描、发现、注册），最多 60 秒
+     */
+    private static void awaitStartup(String baseUrl) throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/mcp/startup/status")).build();
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (System.currentTimeMillis() < deadline) {
+            Map<?, ?> status = objectMapper.readValue(
+                    httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body(), Map.class);
+            Map<?, ?> data = (Map<?, ?>) status.get("data");
+            if (Boolean.TRUE.equals(status.get("ready"))) {
+                log.info("客户端启动完成: {}", data.get("state"));
+                if (!"READY".equals(data.get("state"))) {
+                    log.warn("启动编排未完全成功: {}", data.get("stages"));
+                }
+                return;
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("等待客户端启动编排超时");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printReport(Map<String, Object> report) {
+        StringBuilder builder = new StringBuilder("\n");
+        builder.append(String.format("%-26s %9s %7s %8s %9s %9s %9s %9s %9s %9s%n", "endpoint", "requests",
+                "errors", "dropped", "req/s", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)"));
+        report.forEach((endpoint, value) -> {
+            Map<String, Object> summary = (Map<String, Object>) value;
+            builder.append(String.format("%-26s %9s %7s %8s %9s %9s %9s %9s %9s %9s%n", endpoint,
+                    summary.get("requests"), summary.get("errors"), summary.get("dropped"),
+                    summary.get("throughput"), summary.get("p50Ms"), summary.get("p90Ms"),
+                    summary.get("p99Ms"), summary.get("p999Ms"), summary.get("maxMs")));
+        });
+        builder.append("outcomes: ").append(((Map<String, Object>) report.get("total")).get("outcomes"));
+        System.out.println(builder);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            } else {
+                throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            }
+        }
+        return options;
+    }
+
+    private static String[] toArgs(Map<String, String> properties) {
+        List<String> args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toList();
+        return args.toArray(new String[0]);
+    }
+}
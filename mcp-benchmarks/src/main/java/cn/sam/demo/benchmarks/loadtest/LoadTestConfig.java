@@ -0,0 +1,39 @@
+package cn.sam.demo.benchmarks.loadtest;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 压测时追加到客户端应用的配置：用模拟模型替代 DeepSeek（DeepSeek 自动配置已排除）
+ *
+ * @author Administrator
+ */
+@Configuration
+public class LoadTestConfig {
+
+    @Value("${loadtest.chat.first-token-ms:200}")
+    private long firstTokenMs;
+
+    @Value("${loadtest.chat.token-ms:10}")
+    private long tokenMs;
+
+    @Value("${loadtest.chat.tokens:50}")
+    private int tokens;
+
+    @Value("${loadtest.chat.tool-call-ratio:1.0}")
+    private double toolCallRatio;
+
+    @Value("${loadtest.chat.tool-name:get_current_time}")
+    private String toolName;
+
+    @Value("${loadtest.chat.tool-arguments:{\"format\":\"datetime\"}}")
+    private String toolArguments;
+
+    @Bean
+    public ChatModel stubChatModel() {
+        return new StubChatModel(new StubChatModel.Settings(
+                firstTokenMs, tokenMs, tokens, toolCallRatio, toolName, toolArguments));
+    }
+}
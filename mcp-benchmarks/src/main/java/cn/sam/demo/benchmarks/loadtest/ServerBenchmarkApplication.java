@@ -0,0 +1,99 @@
+package cn.sam.demo.benchmarks.loadtest;
+
+import cn.sam.demo.mcpclient.service.McpServerBenchmarkService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.client.transport.HttpClientStreamableHttpTransport;
+import io.modelcontextprotocol.client.transport.customizer.McpSyncHttpClientRequestCustomizer;
+import io.modelcontextprotocol.spec.McpClientTransport;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MCP 服务器压测命令行入口
+ *
+ * <p>不启动 Spring 容器，直接用 MCP SDK 的客户端压测指定服务器上的某个工具，逻辑与
+ * POST /api/mcp/test/benchmark 相同（{@link McpServerBenchmarkService}）。</p>
+ *
+ * <p>运行：{@code java -cp target/benchmarks.jar cn.sam.demo.benchmarks.loadtest.ServerBenchmarkApplication
+ * --url=http://127.0.0.1:9899 --tool=calculator_add --arguments={"a":"${i}","b":1}}。参数均为 --key=value：</p>
+ * <ul>
+ *     <li>url、tool：服务器地址和工具名称，必填</li>
+ *     <li>transport：sse、streamable-http，逗号分隔时依次压测并对比，默认 sse,streamable-http</li>
+ *     <li>arguments：工具参数 JSON，支持 ${i}、${worker}、${random}、${uuid}、${timestamp} 占位符</li>
+ *     <li>concurrency / connections：并发数和连接数，默认 10 / 1</li>
+ *     <li>warmup-seconds / duration-seconds：预热和测量时长，默认 2 / 10</li>
+ *     <li>header.名称：附加请求头，如 --header.Authorization=Bearer xxx</li>
+ *     <li>report-file：结果另存为 JSON 文件</li>
+ * </ul>
+ *
+ * @author Administrator
+ */
+public class ServerBenchmarkApplication {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Map<String, Object> arguments = options.containsKey("arguments")
+                ? objectMapper.readValue(options.get("arguments"), new TypeReference<Map<String, Object>>() {
+                })
+                : Map.of();
+        Map<String, String> headers = new LinkedHashMap<>();
+        options.forEach((key, value) -> {
+            if (key.startsWith("header.")) {
+                headers.put(key.substring("header.".length()), value);
+            }
+        });
+        List<String> transportTypes = Arrays.stream(options.getOrDefault("transport", "sse,streamable-http")
+                        .split(","))
+                .map(String::trim).filter(s -> !s.isEmpty()).toList();
+
+        McpServerBenchmarkService.Settings settings = new McpServerBenchmarkService.Settings(
+                options.get("url"),
+                transportTypes,
+                options.get("tool"),
+                arguments,
+                headers,
+                Integer.parseInt(options.getOrDefault("concurrency", "10")),
+                Integer.parseInt(options.getOrDefault("connections", "1")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-seconds", "2"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-seconds", "10"))));
+        Map<String, Object> report = new McpServerBenchmarkService()
+                .run(settings, ServerBenchmarkApplication::createClient);
+
+        String json = objectMapper.writeValueAsString(report);
+        System.out.println(json);
+        String reportFile = options.get("report-file");
+        if (reportFile != null && !reportFile.isEmpty()) {
+            objectMapper.writeValue(new File(reportFile), report);
+        }
+    }
+
+    private static McpSyncClient createClient(String url, String transportType, Map<String, String> headers) {
+        McpSyncHttpClientRequestCustomizer customizer = (builder, method, endpoint, body, context) ->
+                headers.forEach(builder::header);
+        McpClientTransport transport = "sse".equalsIgnoreCase(transportType)
+                ? HttpClientSseClientTransport.builder(url).sseEndpoint("/sse").httpRequestCustomizer(customizer).build()
+                : HttpClientStreamableHttpTransport.builder(url).httpRequestCustomizer(customizer).build();
+        McpSyncClient client = McpClient.sync(transport).build();
+        client.initialize();
+        return client;
+    }
+}
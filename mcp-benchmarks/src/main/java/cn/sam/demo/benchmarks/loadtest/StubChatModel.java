@@ -0,0 +1,149 @@
+package cn.sam.demo.benchmarks.loadtest;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * 压测用的模拟 ChatModel
+ *
+ * <p>不访问真实模型：按配置的首 token 延迟和每 token 延迟生成固定长度的回复。
+ * 请求带有工具时按比例发起一次工具调用（通过 ToolCallingManager 执行，走真实的 MCP 调用链路），
+ * 再基于工具结果生成最终回复。</p>
+ *
+ * @author Administrator
+ */
+public class StubChatModel implements ChatModel {
+
+    /**
+     * 模拟参数
+     *
+     * @param firstTokenMs  首 token 延迟（毫秒）
+     * @param tokenMs       每个 token 的延迟（毫秒）
+     * @param tokens        回复的 token 数
+     * @param toolCallRatio 带工具的请求中发起工具调用的比例（0~1）
+     * @param toolName      优先调用的工具名称，请求中没有该工具时调用第一个工具
+     * @param toolArguments 调用 toolName 时的参数 JSON
+     */
+    public record Settings(long firstTokenMs, long tokenMs, int tokens, double toolCallRatio,
+                           String toolName, String toolArguments) {
+    }
+
+    private final Settings settings;
+
+    private final ToolCallingManager toolCallingManager = ToolCallingManager.builder().build();
+
+    public StubChatModel(Settings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        Prompt current = executeTools(prompt);
+        sleep(settings.firstTokenMs() + settings.tokenMs() * settings.tokens());
+        return response(String.join("", reply(current)));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        // 在操作符中执行工具调用，链路上下文随响应式流恢复（Hooks 自动传播只作用于操作符回调）
+        return Mono.just(prompt)
+                .publishOn(Schedulers.boundedElastic())
+                .map(this::executeTools)
+                .flatMapMany(current -> {
+                    Flux<String> chunks = Flux.fromIterable(reply(current));
+                    if (settings.tokenMs() > 0) {
+                        chunks = chunks.delayElements(Duration.ofMillis(settings.tokenMs()));
+                    }
+                    return chunks.delaySubscription(Duration.ofMillis(settings.firstTokenMs()));
+                })
+                .map(this::response);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        // 返回 ToolCallingChatOptions，ChatClient 才会把 toolCallbacks 放进请求
+        return ToolCallingChatOptions.builder().build();
+    }
+
+    /**
+     * 按比例发起一次工具调用，返回带工具结果的新 Prompt；不调用工具时返回原 Prompt
+     */
+    private Prompt executeTools(Prompt prompt) {
+        AssistantMessage.ToolCall toolCall = chooseToolCall(prompt);
+        if (toolCall == null) {
+            return prompt;
+        }
+        ChatResponse toolCallResponse = new ChatResponse(List.of(new Generation(
+                AssistantMessage.builder().content("").toolCalls(List.of(toolCall)).build())));
+        ToolExecutionResult result = toolCallingManager.executeToolCalls(prompt, toolCallResponse);
+        return new Prompt(result.conversationHistory(), prompt.getOptions());
+    }
+
+    private AssistantMessage.ToolCall chooseToolCall(Prompt prompt) {
+        if (!(prompt.getOptions() instanceof ToolCallingChatOptions options)
+                || options.getToolCallbacks() == null || options.getToolCallbacks().isEmpty()
+                || ThreadLocalRandom.current().nextDouble() >= settings.toolCallRatio()) {
+            return null;
+        }
+        List<ToolCallback> callbacks = options.getToolCallbacks();
+        ToolCallback callback = callbacks.stream()
+                .filter(c -> c.getToolDefinition().name().equals(settings.toolName()))
+                .findFirst()
+                .orElse(callbacks.get(0));
+        String name = callback.getToolDefinition().name();
+        String arguments = name.equals(settings.toolName()) ? settings.toolArguments() : "{}";
+        return new AssistantMessage.ToolCall(UUID.randomUUID().toString(), "function", name, arguments);
+    }
+
+    /**
+     * 生成回复：工具结果摘要 + 固定数量的 token
+     */
+    private List<String> reply(Prompt prompt) {
+        List<Message> messages = prompt.getInstructions();
+        String prefix = "";
+        if (!messages.isEmpty() && messages.get(messages.size() - 1) instanceof ToolResponseMessage toolResponse) {
+            StringBuilder builder = new StringBuilder();
+            toolResponse.getResponses().forEach(r -> builder.append('[').append(r.name()).append(" => ")
+                    .append(r.responseData()).append("] "));
+            prefix = builder.toString();
+        }
+        String first = prefix;
+        return IntStream.range(0, Math.max(1, settings.tokens()))
+                .mapToObj(i -> i == 0 ? first + "token0" : " token" + i)
+                .toList();
+    }
+
+    private ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
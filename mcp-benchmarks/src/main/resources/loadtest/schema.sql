@@ -0,0 +1,90 @@
+-- 压测使用的 H2 表结构（MySQL 兼容模式），与 mcp-client-demo/src/main/resources/db 下的表结构保持一致
+
+CREATE TABLE IF NOT EXISTS `chat_history` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `session_id` VARCHAR(64) NOT NULL,
+  `user_message` TEXT NOT NULL,
+  `ai_response` TEXT NOT NULL,
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`)
+);
+CREATE INDEX IF NOT EXISTS `idx_session_id` ON `chat_history` (`session_id`);
+
+CREATE TABLE IF NOT EXISTS `mcp_tool` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `name` VARCHAR(100) NOT NULL,
+  `display_name` VARCHAR(200) DEFAULT NULL,
+  `description` VARCHAR(1000) DEFAULT NULL,
+  `param_schema` TEXT DEFAULT NULL,
+  `schema_hash` VARCHAR(32) DEFAULT NULL,
+  `type` VARCHAR(20) NOT NULL DEFAULT 'LOCAL',
+  `server_key` VARCHAR(500) NOT NULL DEFAULT '',
+  `status` VARCHAR(20) NOT NULL DEFAULT 'ENABLED',
+  `config_json` TEXT DEFAULT NULL,
+  `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  CONSTRAINT `uk_server_name` UNIQUE (`server_key`, `name`)
+);
+CREATE INDEX IF NOT EXISTS `idx_type_status` ON `mcp_tool` (`type`, `status`);
+
+CREATE TABLE IF NOT EXISTS `mcp_market` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `name` VARCHAR(100) NOT NULL,
+  `url` VARCHAR(500) NOT NULL,
+  `description` TEXT,
+  `auth_config` TEXT,
+  `refresh_interval` INT DEFAULT NULL,
+  `status` VARCHAR(20) NOT NULL DEFAULT 'ENABLED',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  CONSTRAINT `uk_market_name` UNIQUE (`name`)
+);
+
+CREATE TABLE IF NOT EXISTS `mcp_market_tool` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `market_id` BIGINT NOT NULL,
+  `tool_name` VARCHAR(100) NOT NULL,
+  `tool_description` TEXT,
+  `tool_version` VARCHAR(50),
+  `tool_metadata` TEXT,
+  `is_loaded` TINYINT NOT NULL DEFAULT 0,
+  `local_tool_id` BIGINT,
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `mcp_market_refresh_log` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `market_id` BIGINT NOT NULL,
+  `trigger_type` VARCHAR(20) NOT NULL,
+  `status` VARCHAR(20) NOT NULL,
+  `fetched_count` INT NOT NULL DEFAULT 0,
+  `inserted_count` INT NOT NULL DEFAULT 0,
+  `updated_count` INT NOT NULL DEFAULT 0,
+  `duration_ms` BIGINT NOT NULL DEFAULT 0,
+  `error_message` VARCHAR(1000),
+  `start_time` DATETIME NOT NULL,
+  `end_time` DATETIME,
+  PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `mcp_tool_stats` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `server_key` VARCHAR(500) NOT NULL DEFAULT '',
+  `tool_name` VARCHAR(100) NOT NULL,
+  `call_count` BIGINT NOT NULL DEFAULT 0,
+  `error_count` BIGINT NOT NULL DEFAULT 0,
+  `error_rate` DOUBLE NOT NULL DEFAULT 0,
+  `p50_ms` DOUBLE,
+  `p95_ms` DOUBLE,
+  `p99_ms` DOUBLE,
+  `max_ms` DOUBLE,
+  `window_start` DATETIME,
+  `window_end` DATETIME,
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  CONSTRAINT `uk_server_tool` UNIQUE (`server_key`, `tool_name`)
+);
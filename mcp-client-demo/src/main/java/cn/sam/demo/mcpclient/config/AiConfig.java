@@ -1,18 +1,15 @@
 package cn.sam.demo.mcpclient.config;
 
-
-import cn.sam.demo.mcpclient.service.McpToolCallbackService;
+import io.micrometer.observation.ObservationRegistry;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.deepseek.DeepSeekChatModel;
-import org.springframework.ai.tool.function.FunctionToolCallback;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Lazy;
-
-import java.util.List;
 
 /**
  * AI配置类 - 使用 Spring AI 1.1.0 新特性
+ * 依赖 ChatModel 接口（默认由 DeepSeek 自动配置提供），便于替换为其他模型或压测用的模拟模型
+ * ChatClient 接入 ObservationRegistry，对话链路中记录 ChatClient 和 Advisor 的 span
  *
  * @author Administrator
  */
@@ -24,8 +21,8 @@ public class AiConfig {
      * 用于普通对话
      */
     @Bean
-    public ChatClient chatClient(DeepSeekChatModel chatModel) {
-        return ChatClient.builder(chatModel)
+    public ChatClient chatClient(ChatModel chatModel, ObservationRegistry observationRegistry) {
+        return ChatClient.builder(chatModel, observationRegistry, null, null)
                 .defaultSystem("你是一个有用的AI助手，能够理解上下文并提供准确的回答。")
                 .build();
     }
@@ -33,24 +30,14 @@ public class AiConfig {
     /**
      * 配置带工具的 ChatClient
      * 支持调用 MCP 工具
-     * 使用 @Lazy 延迟加载，避免启动时工具未就绪
+     * 工具不在这里固定注册，由对话接口每次请求时传入当前可用的工具（排除熔断中的服务器）
      */
     @Bean
-    @Lazy
-    public ChatClient toolChatClient(DeepSeekChatModel chatModel, McpToolCallbackService mcpToolCallbackService) {
-        // 获取所有启用的 MCP 工具
-        List<FunctionToolCallback> tools = mcpToolCallbackService.getEnabledToolCallbacks();
-
-        ChatClient.Builder builder = ChatClient.builder(chatModel)
+    public ChatClient toolChatClient(ChatModel chatModel, ObservationRegistry observationRegistry) {
+        return ChatClient.builder(chatModel, observationRegistry, null, null)
                 .defaultSystem("你是一个有用的AI助手，能够理解上下文并提供准确的回答。" +
-                        "当用户的请求需要使用工具时，请调用相应的工具来完成任务。");
-
-        // 如果有工具，则添加（Spring AI 1.1.0 使用 toolCallbacks 而非 tools）
-        if (!tools.isEmpty()) {
-            builder.defaultToolCallbacks(tools.toArray(new FunctionToolCallback[0]));
-        }
-
-        return builder.build();
+                        "当用户的请求需要使用工具时，请调用相应的工具来完成任务。")
+                .build();
     }
 }
 
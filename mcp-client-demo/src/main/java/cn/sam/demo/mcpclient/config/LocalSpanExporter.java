@@ -0,0 +1,181 @@
+package cn.sam.demo.mcpclient.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地链路导出器
+ *
+ * <p>Spring Boot 会把容器中的 SpanExporter 接入 OpenTelemetry 的批量处理器。这里把结束的 span 保存在内存环形缓冲区中
+ * （通过 /api/traces 查询），并可选地按行追加到 JSON 文件，便于在没有链路追踪后端的环境中排查慢对话：
+ * 一次对话的 span 依次为 http 请求、mcp.chat、模型调用、mcp.tool.callback、mcp.client.tool，
+ * 以及服务端同一 traceId 下的 mcp.server.tool。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Component
+public class LocalSpanExporter implements SpanExporter {
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 内存中保留的 span 数
+     */
+    @Value("${mcp.client.tracing.exporter.buffer-size:2000}")
+    private int bufferSize;
+
+    /**
+     * 追加写入的文件（每行一个 span 的 JSON），为空时不写文件
+     */
+    @Value("${mcp.client.tracing.exporter.file:}")
+    private String file;
+
+    private final Deque<SpanRecord> buffer = new ArrayDeque<>();
+
+    private BufferedWriter writer;
+
+    /**
+     * 导出的 span
+     *
+     * @param parentSpanId 根 span 为空
+     * @param attributes   span 属性（含低/高基数标签）
+     */
+    public record SpanRecord(String traceId, String spanId, String parentSpanId, String name, String service,
+                             String kind, long startEpochMicros, long durationMicros, String status,
+                             Map<String, String> attributes) {
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        List<SpanRecord> records = new ArrayList<>(spans.size());
+        for (SpanData span : spans) {
+            records.add(toRecord(span));
+        }
+        synchronized (buffer) {
+            for (SpanRecord record : records) {
+                if (buffer.size() >= Math.max(1, bufferSize)) {
+                    buffer.pollFirst();
+                }
+                buffer.addLast(record);
+            }
+        }
+        if (!file.isEmpty()) {
+            writeToFile(records);
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * 查询某条链路的全部 span，按开始时间排序
+     */
+    public List<SpanRecord> getTrace(String traceId) {
+        synchronized (buffer) {
+            return buffer.stream()
+                    .filter(record -> record.traceId().equals(traceId))
+                    .sorted((a, b) -> Long.compare(a.startEpochMicros(), b.startEpochMicros()))
+                    .toList();
+        }
+    }
+
+    /**
+     * 最近导出的 span，最新的在前
+     */
+    public List<SpanRecord> getRecent(int limit) {
+        List<SpanRecord> result = new ArrayList<>();
+        synchronized (buffer) {
+            var iterator = buffer.descendingIterator();
+            while (iterator.hasNext() && result.size() < limit) {
+                result.add(iterator.next());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        synchronized (this) {
+            if (writer != null) {
+                try {
+                    writer.flush();
+                } catch (IOException e) {
+                    return CompletableResultCode.ofFailure();
+                }
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.debug("关闭链路文件失败: {}", file, e);
+            }
+            writer = null;
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    private synchronized void writeToFile(List<SpanRecord> records) {
+        try {
+            if (writer == null) {
+                Path path = Path.of(file);
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (SpanRecord record : records) {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            log.warn("写入链路文件失败: {}", file, e);
+        }
+    }
+
+    private SpanRecord toRecord(SpanData span) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        String parentSpanId = span.getParentSpanContext().isValid() ? span.getParentSpanId() : null;
+        return new SpanRecord(
+                span.getTraceId(),
+                span.getSpanId(),
+                parentSpanId,
+                span.getName(),
+                span.getResource().getAttribute(SERVICE_NAME),
+                span.getKind().name(),
+                TimeUnit.NANOSECONDS.toMicros(span.getStartEpochNanos()),
+                TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()),
+                span.getStatus().getStatusCode().name(),
+                attributes);
+    }
+}
@@ -0,0 +1,100 @@
+package cn.sam.demo.mcpclient.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MCP 传输层共享 HttpClient 配置
+ *
+ * <p>所有 MCP 客户端（SSE 和 Streamable HTTP）共用一个 HttpClient，共享连接池和执行线程，
+ * 同一服务器的多个工具调用复用保活连接。</p>
+ *
+ * <p>默认使用 HTTP/1.1。HTTP/2 需显式开启（mcp.client.http.version=HTTP_2）：https 通过 ALPN 协商，
+ * 明文 http 要在首个请求上做 h2c 升级，部分服务端和代理处理不了带请求体的升级请求；
+ * 同一服务器的所有 SSE 长连接和工具调用也会挤在一条连接上，确认服务端支持后再开启。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Configuration
+public class McpHttpClientConfig {
+
+    /**
+     * HTTP 版本：HTTP_1_1（默认）或 HTTP_2
+     */
+    @Value("${mcp.client.http.version:HTTP_1_1}")
+    private HttpClient.Version version;
+
+    /**
+     * 连接超时（毫秒）
+     */
+    @Value("${mcp.client.http.connect-timeout-ms:10000}")
+    private long connectTimeoutMs;
+
+    /**
+     * 共享执行线程数
+     */
+    @Value("${mcp.client.http.executor-threads:8}")
+    private int executorThreads;
+
+    /**
+     * 空闲连接保活时间（秒），对应 jdk.httpclient.keepalive.timeout
+     */
+    @Value("${mcp.client.http.keep-alive-seconds:300}")
+    private int keepAliveSeconds;
+
+    /**
+     * 每个 HttpClient 最多保留的空闲 HTTP/1.1 连接数，对应 jdk.httpclient.connectionPoolSize（0 表示不限制）
+     */
+    @Value("${mcp.client.http.max-idle-connections:64}")
+    private int maxIdleConnections;
+
+    /**
+     * MCP 传输层共享执行线程池
+     */
+    @Bean(name = "mcpHttpExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService mcpHttpExecutor() {
+        AtomicInteger index = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, executorThreads), r -> {
+            Thread thread = new Thread(r, "mcp-http-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * MCP 传输层共享 HttpClient
+     */
+    @Bean(name = "mcpHttpClient")
+    public HttpClient mcpHttpClient() {
+        // 保活和连接池大小只能通过系统属性配置，且在 JDK 连接池类首次加载时读取；
+        // 已通过 -D 指定时以启动参数为准
+        setPropertyIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(keepAliveSeconds));
+        setPropertyIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(maxIdleConnections));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(version)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(mcpHttpExecutor())
+                .build();
+        log.info("MCP 共享 HttpClient 已创建: version={}, executorThreads={}, keepAlive={}s, maxIdleConnections={}",
+                version, executorThreads, System.getProperty("jdk.httpclient.keepalive.timeout"),
+                System.getProperty("jdk.httpclient.connectionPoolSize"));
+        return client;
+    }
+
+    private void setPropertyIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package cn.sam.demo.mcpclient.config;
+
+import cn.sam.demo.mcpclient.service.McpToolInvokeService;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MCP 启动编排
+ *
+ * <p>应用就绪后在后台线程按依赖顺序执行启动任务，主线程不再等待网络和数据库操作，HTTP 端口立即可用：</p>
+ * <ol>
+ *   <li>本地工具扫描（LOCAL_SCAN）与远程工具发现（DISCOVERY）并行执行</li>
+ *   <li>远程工具注册（REGISTRATION）在发现完成后执行，发现失败时仍按数据库中已有的工具注册</li>
+ * </ol>
+ *
+ * <p>全部完成前状态为 STARTING，依赖工具的接口返回 503 + Retry-After（见 {@link McpStartupReadinessInterceptor}）；
+ * 完成后为 READY，有阶段失败时为 DEGRADED（不再拦截请求，失败原因见阶段状态）。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Component
+public class McpStartupOrchestrator implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Resource
+    private McpToolInvokeService mcpToolInvokeService;
+
+    @Resource
+    private McpToolStartupListener mcpToolStartupListener;
+
+    @Resource
+    private RemoteMcpToolStartupListener remoteMcpToolStartupListener;
+
+    /**
+     * 启动状态
+     */
+    public static class State {
+        public static final String STARTING = "STARTING";
+        public static final String READY = "READY";
+        public static final String DEGRADED = "DEGRADED";
+    }
+
+    /**
+     * 启动阶段
+     */
+    public static class Stage {
+        public static final String LOCAL_SCAN = "LOCAL_SCAN";
+        public static final String DISCOVERY = "DISCOVERY";
+        public static final String REGISTRATION = "REGISTRATION";
+    }
+
+    /**
+     * 阶段状态
+     */
+    public static class StageStatus {
+        public static final String PENDING = "PENDING";
+        public static final String RUNNING = "RUNNING";
+        public static final String SUCCESS = "SUCCESS";
+        public static final String FAILED = "FAILED";
+    }
+
+    /**
+     * 阶段执行情况
+     */
+    public record StageInfo(String status, LocalDateTime startTime, Long durationMs, String errorMessage) {
+    }
+
+    private volatile String state = State.STARTING;
+
+    private volatile LocalDateTime readyTime;
+
+    private final LocalDateTime startTime = LocalDateTime.now();
+
+    private final Map<String, StageInfo> stages = new ConcurrentHashMap<>();
+
+    private final AtomicInteger threadIndex = new AtomicInteger();
+
+    private final ExecutorService startupExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "mcp-startup-" + threadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!stages.isEmpty()) {
+            return;
+        }
+        for (String stage : new String[]{Stage.LOCAL_SCAN, Stage.DISCOVERY, Stage.REGISTRATION}) {
+            stages.put(stage, new StageInfo(StageStatus.PENDING, null, null, null));
+        }
+        log.info("启动编排开始：工具扫描、发现与注册在后台执行");
+
+        CompletableFuture<Void> localScan = CompletableFuture.runAsync(
+                () -> runStage(Stage.LOCAL_SCAN, mcpToolInvokeService::scanLocalTools), startupExecutor);
+
+        CompletableFuture<Void> discovery = CompletableFuture.runAsync(
+                () -> runStage(Stage.DISCOVERY, mcpToolStartupListener::discoverTools), startupExecutor);
+
+        CompletableFuture<Void> registration = discovery.thenRunAsync(
+                () -> runStage(Stage.REGISTRATION, remoteMcpToolStartupListener::registerEnabledTools), startupExecutor);
+
+        CompletableFuture.allOf(localScan, registration).whenComplete((r, e) -> {
+            boolean failed = stages.values().stream().anyMatch(s -> !StageStatus.SUCCESS.equals(s.status()));
+            readyTime = LocalDateTime.now();
+            state = failed ? State.DEGRADED : State.READY;
+            log.info("启动编排完成，状态: {}, 阶段: {}", state, stages);
+            startupExecutor.shutdown();
+        });
+    }
+
+    /**
+     * 执行一个阶段，异常记录到阶段状态中而不中断后续阶段
+     */
+    private void runStage(String stage, StageTask task) {
+        LocalDateTime stageStart = LocalDateTime.now();
+        long startNanos = System.nanoTime();
+        stages.put(stage, new StageInfo(StageStatus.RUNNING, stageStart, null, null));
+        try {
+            task.run();
+            stages.put(stage, new StageInfo(StageStatus.SUCCESS, stageStart, elapsedMs(startNanos), null));
+        } catch (Exception e) {
+            log.error("启动阶段 {} 失败", stage, e);
+            stages.put(stage, new StageInfo(StageStatus.FAILED, stageStart, elapsedMs(startNanos), e.getMessage()));
+        }
+    }
+
+    private long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @FunctionalInterface
+    private interface StageTask {
+        void run() throws Exception;
+    }
+
+    /**
+     * 启动任务是否已全部结束（READY 或 DEGRADED）
+     */
+    public boolean isReady() {
+        return !State.STARTING.equals(state);
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * 启动状态详情
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("startTime", startTime);
+        status.put("readyTime", readyTime);
+        Map<String, StageInfo> orderedStages = new LinkedHashMap<>();
+        for (String stage : new String[]{Stage.LOCAL_SCAN, Stage.DISCOVERY, Stage.REGISTRATION}) {
+            StageInfo info = stages.get(stage);
+            if (info != null) {
+                orderedStages.put(stage, info);
+            }
+        }
+        status.put("stages", orderedStages);
+        return status;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        startupExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,58 @@
+package cn.sam.demo.mcpclient.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 启动就绪拦截器
+ * 启动编排未完成时，依赖工具的接口返回 503 和 Retry-After，客户端稍后重试
+ *
+ * @author Administrator
+ */
+@Component
+public class McpStartupReadinessInterceptor implements HandlerInterceptor {
+
+    @Resource
+    private McpStartupOrchestrator startupOrchestrator;
+
+    /**
+     * 建议客户端重试的间隔（秒）
+     */
+    @Value("${mcp.client.startup.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (startupOrchestrator.isReady()) {
+            return true;
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("retryable", true);
+        result.put("state", startupOrchestrator.getState());
+        result.put("message", "工具正在初始化，请稍后重试");
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(objectMapper.writeValueAsString(result));
+        return false;
+    }
+}
@@ -1,43 +1,40 @@
 package cn.sam.demo.mcpclient.config;
 
 import cn.sam.demo.mcpclient.entity.McpToolData;
-import cn.sam.demo.mcpclient.service.McpToolService;
+import cn.sam.demo.mcpclient.service.McpToolRegistryService;
 import cn.sam.demo.mcpclient.service.UniversalMcpClientService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.modelcontextprotocol.spec.McpSchema;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.ApplicationListener;
-import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
- * MCP 工具启动监听器
- * 在应用启动时自动从远程 MCP 服务发现并注册工具到数据库
+ * MCP 工具启动发现
+ * 在应用启动时自动从远程 MCP 服务发现并注册工具到数据库（由 {@link McpStartupOrchestrator} 在后台调用）
  * 
  * 核心改进：工具列表从远端 MCP 服务自动获取，而非手动硬编码
  *
+ * <p>支持配置多个远程服务（mcp.client.remote.servers），各服务并发发现、单独超时，
+ * 一个服务缓慢或不可用不会阻塞其他服务；所有结果在一次批量比对中与 mcp_tool 对账，
+ * 并在一个事务中批量写入。</p>
+ *
  * @author Administrator
  */
 @Slf4j
 @Component
-@Order(1) // 确保在 McpConfigMigration 之前执行
-public class McpToolStartupListener implements ApplicationListener<ApplicationReadyEvent> {
-
-    @Resource
-    private McpToolService mcpToolService;
+public class McpToolStartupListener {
 
     @Resource
     private UniversalMcpClientService universalMcpClientService;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Resource
+    private McpToolRegistryService mcpToolRegistryService;
 
     /**
      * 是否启用自动发现
@@ -46,206 +43,185 @@ public class McpToolStartupListener implements ApplicationListener<ApplicationRe
     private boolean autoDiscoveryEnabled;
 
     /**
-     * 远程 MCP 服务地址
+     * 远程 MCP 服务地址（未配置 servers 时使用）
      */
     @Value("${mcp.client.remote.url:http://127.0.0.1:9899}")
     private String remoteUrl;
 
     /**
-     * 传输类型：sse 或 streamable-http
+     * 传输类型：sse 或 streamable-http（未配置 servers 时使用，也是 servers 中未指定传输类型时的默认值）
      */
     @Value("${mcp.client.remote.transport-type:sse}")
     private String transportType;
 
-    @Override
-    public void onApplicationEvent(ApplicationReadyEvent event) {
+    /**
+     * 远程 MCP 服务列表，逗号分隔，每项为 url 或 url|传输类型
+     */
+    @Value("${mcp.client.remote.servers:}")
+    private String[] servers;
+
+    /**
+     * 单个服务的发现超时时间（毫秒）
+     */
+    @Value("${mcp.client.remote.discovery-timeout-ms:10000}")
+    private long discoveryTimeoutMs;
+
+    /**
+     * 并发发现的最大线程数
+     */
+    @Value("${mcp.client.remote.discovery-parallelism:8}")
+    private int discoveryParallelism;
+
+    /**
+     * 远程服务
+     */
+    private record RemoteServer(String url, String transportType, String serverKey) {
+    }
+
+    /**
+     * 从所有远程服务发现工具并与数据库对账
+     *
+     * @throws Exception 对账写库失败
+     */
+    public void discoverTools() throws Exception {
         if (!autoDiscoveryEnabled) {
             log.info("MCP 工具自动发现已禁用，跳过");
             return;
         }
 
+        List<RemoteServer> remoteServers = resolveServers();
+
         log.info("========================================");
-        log.info("开始从远程 MCP 服务发现工具...");
-        log.info("远程服务地址: {}", remoteUrl);
-        log.info("传输类型: {}", transportType);
+        log.info("开始从 {} 个远程 MCP 服务发现工具...", remoteServers.size());
+        remoteServers.forEach(server -> log.info("远程服务: {} ({})", server.url(), server.transportType()));
         log.info("========================================");
 
-        try {
-            // 从远端获取工具列表
-            List<McpSchema.Tool> remoteTools = discoverRemoteTools();
-
-            if (remoteTools == null || remoteTools.isEmpty()) {
-                log.warn("未从远程服务发现任何工具，请检查远程服务是否启动");
-                return;
-            }
-
-            log.info("从远程服务发现 {} 个工具", remoteTools.size());
+        long startNanos = System.nanoTime();
 
-            int successCount = 0;
-            int updateCount = 0;
-            int failCount = 0;
+        // 并发从各远端获取工具列表
+        Map<RemoteServer, List<McpSchema.Tool>> discovered = discoverRemoteTools(remoteServers);
 
-            // 注册每个工具
-            for (McpSchema.Tool tool : remoteTools) {
-                try {
-                    boolean isNew = registerOrUpdateTool(tool);
-                    if (isNew) {
-                        successCount++;
-                    } else {
-                        updateCount++;
-                    }
-                } catch (Exception e) {
-                    failCount++;
-                    log.error("注册工具失败: {}", tool.name(), e);
-                }
-            }
-
-            log.info("========================================");
-            log.info("远程 MCP 工具同步完成！");
-            log.info("新增: {}, 更新: {}, 失败: {}", successCount, updateCount, failCount);
-            log.info("========================================");
-
-        } catch (Exception e) {
-            log.error("从远程 MCP 服务发现工具失败", e);
-            log.warn("提示: 请确保远程 MCP 服务 ({}) 已启动，传输类型 ({}) 配置正确", remoteUrl, transportType);
+        if (discovered.isEmpty()) {
+            log.warn("未从远程服务发现任何工具，请检查远程服务是否启动");
+            return;
         }
-    }
-
-    /**
-     * 从远端发现工具列表
-     */
-    private List<McpSchema.Tool> discoverRemoteTools() {
-        try {
-            log.info("正在连接远程 MCP 服务: {} ({})", remoteUrl, transportType);
-            
-            // 先检查连接
-            boolean connected = universalMcpClientService.ping(remoteUrl, transportType, null);
-            if (!connected) {
-                log.warn("无法连接到远程 MCP 服务: {}", remoteUrl);
-                return null;
-            }
 
-            // 获取工具列表
-            List<McpSchema.Tool> tools = universalMcpClientService.listTools(remoteUrl, transportType, null);
-            
-            if (tools != null) {
-                log.info("成功获取远程工具列表，共 {} 个工具", tools.size());
-                tools.forEach(tool -> log.debug("  - {} ({})", tool.name(), tool.description()));
-            }
-            
-            return tools;
+        // 一次批量对账
+        reconcile(discovered);
 
-        } catch (Exception e) {
-            log.error("获取远程工具列表失败: {}", e.getMessage());
-            throw e;
-        }
+        log.info("远程 MCP 工具同步完成！成功服务 {}/{}, 耗时 {} ms", discovered.size(), remoteServers.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        log.info("========================================");
     }
 
     /**
-     * 注册或更新工具
-     * 
-     * @param remoteTool 远程工具信息
-     * @return true 表示新增，false 表示更新
+     * 解析远程服务列表（按服务器标识去重），未配置 servers 时使用单个 url/transport-type
      */
-    private boolean registerOrUpdateTool(McpSchema.Tool remoteTool) {
-        String toolName = remoteTool.name();
-        String description = remoteTool.description();
-
-        // 根据名称查找是否已存在
-        List<McpToolData> existingTools = mcpToolService.searchByName(toolName);
-        McpToolData tool = null;
-
-        // 查找完全匹配的工具
-        for (McpToolData t : existingTools) {
-            if (toolName.equals(t.getName())) {
-                tool = t;
-                break;
+    private List<RemoteServer> resolveServers() {
+        Map<String, RemoteServer> result = new LinkedHashMap<>();
+        for (String entry : servers) {
+            String value = entry.trim();
+            if (value.isEmpty()) {
+                continue;
             }
+            int separator = value.lastIndexOf('|');
+            String url = separator > 0 ? value.substring(0, separator).trim() : value;
+            String type = separator > 0 ? value.substring(separator + 1).trim() : transportType;
+            String serverKey = UniversalMcpClientService.buildServerKey(url, type);
+            result.putIfAbsent(serverKey, new RemoteServer(url, type, serverKey));
         }
-
-        boolean isNew = (tool == null);
-        
-        // 构建配置 JSON
-        String configJson = buildToolConfig(remoteTool);
-
-        if (isNew) {
-            // 创建新工具
-            tool = McpToolData.builder()
-                    .name(toolName)
-                    .displayName(toolName) // 可以后续通过配置自定义显示名称
-                    .description(description)
-                    .type(McpToolData.Type.REMOTE)
-                    .status(McpToolData.Status.ENABLED)
-                    .configJson(configJson)
-                    .paramSchema(extractParamSchema(remoteTool))
-                    .createTime(LocalDateTime.now())
-                    .updateTime(LocalDateTime.now())
-                    .build();
-            log.info("发现新工具: {} - {}", toolName, description);
-        } else {
-            // 更新现有工具
-            tool.setDescription(description);
-            tool.setConfigJson(configJson);
-            tool.setParamSchema(extractParamSchema(remoteTool));
-            tool.setUpdateTime(LocalDateTime.now());
-            // 确保类型为 REMOTE
-            if (!McpToolData.Type.REMOTE.equals(tool.getType())) {
-                tool.setType(McpToolData.Type.REMOTE);
-            }
-            log.debug("更新工具: {} - {}", toolName, description);
+        if (result.isEmpty()) {
+            String serverKey = UniversalMcpClientService.buildServerKey(remoteUrl, transportType);
+            result.put(serverKey, new RemoteServer(remoteUrl, transportType, serverKey));
         }
-
-        mcpToolService.saveOrUpdateInfo(tool);
-        return isNew;
+        return new ArrayList<>(result.values());
     }
 
     /**
-     * 构建工具配置 JSON
-     * 包含 transport 和 function 定义
+     * 并发从各远端发现工具列表
+     *
+     * <p>超时从提交时开始计算，服务数量超过并发线程数时排队的服务也会计入等待时间。
+     * 超时或失败的服务不参与对账，其已有工具保持不变。</p>
+     *
+     * @return 成功的服务 -> 工具列表
      */
-    private String buildToolConfig(McpSchema.Tool tool) {
+    private Map<RemoteServer, List<McpSchema.Tool>> discoverRemoteTools(List<RemoteServer> remoteServers) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(discoveryParallelism, remoteServers.size())), r -> {
+                    Thread thread = new Thread(r, "mcp-discovery-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
         try {
-            Map<String, Object> config = new HashMap<>();
-            config.put("tool_name", tool.name());
-            config.put("tool_type", "REMOTE");
-            
-            // 传输配置 - 使用配置的传输类型和地址
-            config.put("transport", Map.of(
-                    "type", transportType,
-                    "url", remoteUrl
-            ));
-
-            // 函数定义 - 从远端工具信息获取
-            Map<String, Object> function = new HashMap<>();
-            function.put("name", tool.name());
-            function.put("description", tool.description());
-            
-            // 参数 schema - 从远端获取
-            if (tool.inputSchema() != null) {
-                function.put("parameters", tool.inputSchema());
+            Map<RemoteServer, CompletableFuture<List<McpSchema.Tool>>> futures = new LinkedHashMap<>();
+            for (RemoteServer server : remoteServers) {
+                futures.put(server, CompletableFuture
+                        .supplyAsync(() -> universalMcpClientService.listTools(server.url(), server.transportType(), null),
+                                executor)
+                        .orTimeout(discoveryTimeoutMs, TimeUnit.MILLISECONDS));
             }
-            
-            config.put("function", function);
 
-            return objectMapper.writeValueAsString(config);
-        } catch (Exception e) {
-            log.error("构建工具配置失败: {}", tool.name(), e);
-            return "{}";
+            Map<RemoteServer, List<McpSchema.Tool>> discovered = new LinkedHashMap<>();
+            futures.forEach((server, future) -> {
+                try {
+                    List<McpSchema.Tool> tools = future.join();
+                    log.info("成功获取远程工具列表: {}，共 {} 个工具", server.url(), tools != null ? tools.size() : 0);
+                    if (tools != null) {
+                        discovered.put(server, tools);
+                    }
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof TimeoutException) {
+                        log.warn("获取远程工具列表超时（{} ms）: {}", discoveryTimeoutMs, server.url());
+                    } else {
+                        log.warn("获取远程工具列表失败: {} - {}", server.url(),
+                                e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                    }
+                    log.warn("提示: 请确保远程 MCP 服务 ({}) 已启动，传输类型 ({}) 配置正确",
+                            server.url(), server.transportType());
+                }
+            });
+            return discovered;
+        } finally {
+            // 中断仍在等待的慢服务
+            executor.shutdownNow();
         }
     }
 
     /**
-     * 提取参数 Schema
+     * 将所有服务的工具列表与数据库对账，在一个事务中批量写入
      */
-    private String extractParamSchema(McpSchema.Tool tool) {
-        try {
-            if (tool.inputSchema() != null) {
-                return objectMapper.writeValueAsString(tool.inputSchema());
-            }
-            return null;
-        } catch (Exception e) {
-            log.warn("提取参数 Schema 失败: {}", tool.name());
-            return null;
+    private void reconcile(Map<RemoteServer, List<McpSchema.Tool>> discovered) throws Exception {
+        Set<String> serverKeys = discovered.keySet().stream()
+                .map(RemoteServer::serverKey)
+                .collect(Collectors.toSet());
+
+        // 一次查询所有相关服务器的快照，未标记服务器的旧数据按名称归属
+        Map<String, List<McpToolData>> dbToolsByServer = mcpToolRegistryService.getRemoteToolSnapshots(serverKeys)
+                .stream()
+                .collect(Collectors.groupingBy(McpToolData::getServerKey));
+        Map<String, McpToolData> legacyTools = mcpToolRegistryService.getLegacyRemoteToolSnapshots().stream()
+                .collect(Collectors.toMap(McpToolData::getName, tool -> tool, (a, b) -> a, HashMap::new));
+
+        List<McpToolData> inserts = new ArrayList<>();
+        List<McpToolData> updates = new ArrayList<>();
+        int disabledCount = 0;
+
+        for (Map.Entry<RemoteServer, List<McpSchema.Tool>> entry : discovered.entrySet()) {
+            RemoteServer server = entry.getKey();
+            McpToolRegistryService.ToolDiff diff = mcpToolRegistryService.diffServerTools(server.serverKey(),
+                    server.url(), server.transportType(), entry.getValue(),
+                    dbToolsByServer.getOrDefault(server.serverKey(), List.of()), legacyTools);
+            inserts.addAll(diff.inserts());
+            updates.addAll(diff.updates());
+            disabledCount += diff.disabledCount();
         }
+
+        if (!inserts.isEmpty() || !updates.isEmpty()) {
+            mcpToolRegistryService.applyToolChanges(inserts, updates);
+        }
+
+        log.info("新增: {}, 更新: {}, 禁用: {}", inserts.size(), updates.size() - disabledCount, disabledCount);
     }
 }
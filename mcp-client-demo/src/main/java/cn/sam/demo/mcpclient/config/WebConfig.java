@@ -1,11 +1,14 @@
 package cn.sam.demo.mcpclient.config;
 
+import jakarta.annotation.Resource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  * Web 配置类
@@ -13,7 +16,10 @@ import org.springframework.web.filter.CorsFilter;
  * @author Administrator
  */
 @Configuration
-public class WebConfig {
+public class WebConfig implements WebMvcConfigurer {
+
+    @Resource
+    private McpStartupReadinessInterceptor startupReadinessInterceptor;
 
     @Bean
     public RestTemplate restTemplate() {
@@ -34,4 +40,18 @@ public class WebConfig {
         source.registerCorsConfiguration("/**", config);
         return new CorsFilter(source);
     }
+
+    /**
+     * 启动编排完成前，拦截依赖工具的接口（带工具的对话、工具测试）
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(startupReadinessInterceptor)
+                .addPathPatterns(
+                        "/api/ai/generateWithTools",
+                        "/api/ai/generateStreamWithTools",
+                        "/api/ai/generateWithSpecificTools",
+                        "/api/mcp/tools/test/**",
+                        "/api/mcp/tools/info/**");
+    }
 }
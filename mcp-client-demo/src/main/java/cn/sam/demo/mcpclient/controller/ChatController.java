@@ -2,7 +2,10 @@ package cn.sam.demo.mcpclient.controller;
 
 import cn.sam.demo.mcpclient.entity.ChatHistory;
 import cn.sam.demo.mcpclient.service.ChatHistoryService;
+import cn.sam.demo.mcpclient.service.McpMetrics;
 import cn.sam.demo.mcpclient.service.McpToolCallbackService;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
@@ -10,6 +13,7 @@ import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.tool.function.FunctionToolCallback;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
@@ -23,6 +27,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 聊天控制器
@@ -47,6 +53,12 @@ public class ChatController {
     @Resource
     private McpToolCallbackService mcpToolCallbackService;
 
+    @Resource
+    private McpMetrics mcpMetrics;
+
+    @Resource
+    private ObservationRegistry observationRegistry;
+
     /**
      * 生成AI回复（带历史记录）
      * 使用 Spring AI 1.1.0 的新特性优化：
@@ -67,28 +79,36 @@ public class ChatController {
             sessionId = UUID.randomUUID().toString().replace("-", "");
         }
 
-        // 获取历史记录（使用记忆压缩，只保留最近20条对话）
-        List<ChatHistory> histories = chatHistoryService.getRecentHistoryBySessionId(sessionId, 20);
-        List<Message> messageList = buildContext(histories);
-        
-        // 使用 Spring AI 1.1.0 改进的 API 调用
-        String aiResponse = chatClient.prompt()
-                .messages(messageList)
-                .user(message)
-                .call()
-                .content();
-
-        // 保存历史记录
-        ChatHistory chatHistory = ChatHistory.builder()
-                .sessionId(sessionId)
-                .userMessage(message)
-                .aiResponse(aiResponse)
-                .createTime(LocalDateTime.now())
-                .updateTime(LocalDateTime.now())
-                .build();
-        chatHistoryService.saveInfo(chatHistory);
-
-        return aiResponse;
+        ChatTurn turn = new ChatTurn("generate", sessionId);
+        boolean success = false;
+        try (Observation.Scope scope = turn.openScope()) {
+            // 获取历史记录（使用记忆压缩，只保留最近20条对话）
+            List<ChatHistory> histories = chatHistoryService.getRecentHistoryBySessionId(sessionId, 20);
+            List<Message> messageList = buildContext(histories);
+
+            // 使用 Spring AI 1.1.0 改进的 API 调用
+            String aiResponse = callModel(turn, chatClient.prompt()
+                    .messages(messageList)
+                    .user(message));
+
+            // 保存历史记录
+            ChatHistory chatHistory = ChatHistory.builder()
+                    .sessionId(sessionId)
+                    .userMessage(message)
+                    .aiResponse(aiResponse)
+                    .createTime(LocalDateTime.now())
+                    .updateTime(LocalDateTime.now())
+                    .build();
+            chatHistoryService.saveInfo(chatHistory);
+
+            success = true;
+            return aiResponse;
+        } catch (RuntimeException e) {
+            turn.error(e);
+            throw e;
+        } finally {
+            turn.complete(success);
+        }
     }
 
     /**
@@ -112,12 +132,13 @@ public class ChatController {
             sessionId = UUID.randomUUID().toString().replace("-", "");
         }
 
+        ChatTurn turn = new ChatTurn("generateStream", sessionId);
+
         // 创建 SSE Emitter，设置超时时间为 5 分钟
         SseEmitter emitter = new SseEmitter(300000L);
 
         // 获取历史记录（使用记忆压缩，只保留最近20条对话）
-        List<ChatHistory> histories = chatHistoryService.getRecentHistoryBySessionId(sessionId, 20);
-        List<Message> messageList = buildContext(histories);
+        List<Message> messageList = loadContext(turn, sessionId);
 
         // 用于收集完整的AI响应
         StringBuilder fullResponse = new StringBuilder();
@@ -126,16 +147,15 @@ public class ChatController {
 
         // 异步处理流式响应
         CompletableFuture.runAsync(() -> {
-            try {
+            // 异步线程上恢复本轮对话的链路上下文，并通过 contextCapture 带入响应式流
+            try (Observation.Scope scope = turn.openScope()) {
                 // 获取流式响应
-                Flux<String> flux = chatClient.prompt()
+                Flux<String> flux = streamModel(turn, chatClient.prompt()
                         .messages(messageList)
-                        .user(message)
-                        .stream()
-                        .content();
+                        .user(message));
 
                 // 订阅流式数据
-                flux.subscribe(
+                flux.contextCapture().subscribe(
                         chunk -> {
                             try {
                                 // 发送 SSE 数据
@@ -148,6 +168,7 @@ public class ChatController {
                             }
                         },
                         error -> {
+                            turn.fail(error);
                             // 错误处理：即使出错也尝试保存已收集的内容
                             String partialResponse = fullResponse.toString();
                             if (!partialResponse.isEmpty()) {
@@ -159,7 +180,7 @@ public class ChatController {
                                             .createTime(LocalDateTime.now())
                                             .updateTime(LocalDateTime.now())
                                             .build();
-                                    chatHistoryService.saveInfo(chatHistory);
+                                    turn.saveHistory(chatHistory);
                                 } catch (Exception e) {
                                     // 忽略保存错误
                                 }
@@ -178,7 +199,7 @@ public class ChatController {
                                             .createTime(LocalDateTime.now())
                                             .updateTime(LocalDateTime.now())
                                             .build();
-                                    chatHistoryService.saveInfo(chatHistory);
+                                    turn.saveHistory(chatHistory);
                                 } catch (Exception e) {
                                     // 忽略保存错误
                                 }
@@ -189,18 +210,22 @@ public class ChatController {
                                         .name("done")
                                         .data(""));
                                 emitter.complete();
+                                turn.complete(true);
                             } catch (IOException e) {
+                                turn.fail(e);
                                 emitter.completeWithError(e);
                             }
                         }
                 );
             } catch (Exception e) {
+                turn.fail(e);
                 emitter.completeWithError(e);
             }
         });
 
         // 处理客户端断开连接
         emitter.onTimeout(() -> {
+            turn.complete(false);
             String partialResponse = fullResponse.toString();
             if (!partialResponse.isEmpty()) {
                 try {
@@ -211,7 +236,7 @@ public class ChatController {
                             .createTime(LocalDateTime.now())
                             .updateTime(LocalDateTime.now())
                             .build();
-                    chatHistoryService.saveInfo(chatHistory);
+                    turn.saveHistory(chatHistory);
                 } catch (Exception e) {
                     // 忽略保存错误
                 }
@@ -219,6 +244,7 @@ public class ChatController {
         });
 
         emitter.onError((ex) -> {
+            turn.fail(ex);
             String partialResponse = fullResponse.toString();
             if (!partialResponse.isEmpty()) {
                 try {
@@ -229,7 +255,7 @@ public class ChatController {
                             .createTime(LocalDateTime.now())
                             .updateTime(LocalDateTime.now())
                             .build();
-                    chatHistoryService.saveInfo(chatHistory);
+                    turn.saveHistory(chatHistory);
                 } catch (Exception e) {
                     // 忽略保存错误
                 }
@@ -282,17 +308,18 @@ public class ChatController {
 
         log.info("收到带工具的聊天请求, sessionId: {}, message: {}", sessionId, message);
 
-        // 获取历史记录
-        List<ChatHistory> histories = chatHistoryService.getRecentHistoryBySessionId(sessionId, 20);
-        List<Message> messageList = buildContext(histories);
+        ChatTurn turn = new ChatTurn("generateWithTools", sessionId);
+        boolean success = false;
+        try (Observation.Scope scope = turn.openScope()) {
+            // 获取历史记录
+            List<ChatHistory> histories = chatHistoryService.getRecentHistoryBySessionId(sessionId, 20);
+            List<Message> messageList = buildContext(histories);
 
-        try {
             // 使用带工具的 ChatClient 进行对话
-            String aiResponse = toolChatClient.prompt()
+            String aiResponse = callModel(turn, toolChatClient.prompt()
                     .messages(messageList)
                     .user(message)
-                    .call()
-                    .content();
+                    .toolCallbacks(availableToolCallbacks()));
 
             log.info("AI 回复: {}", aiResponse);
 
@@ -306,11 +333,15 @@ public class ChatController {
                     .build();
             chatHistoryService.saveInfo(chatHistory);
 
+            success = true;
             return aiResponse;
 
         } catch (Exception e) {
             log.error("带工具的对话失败", e);
+            turn.error(e);
             return "对话失败: " + e.getMessage();
+        } finally {
+            turn.complete(success);
         }
     }
 
@@ -332,29 +363,30 @@ public class ChatController {
             sessionId = UUID.randomUUID().toString().replace("-", "");
         }
 
+        ChatTurn turn = new ChatTurn("generateStreamWithTools", sessionId);
+
         log.info("收到带工具的流式聊天请求, sessionId: {}, message: {}", sessionId, message);
 
         // 创建 SSE Emitter
         SseEmitter emitter = new SseEmitter(300000L);
 
         // 获取历史记录
-        List<ChatHistory> histories = chatHistoryService.getRecentHistoryBySessionId(sessionId, 20);
-        List<Message> messageList = buildContext(histories);
+        List<Message> messageList = loadContext(turn, sessionId);
 
         StringBuilder fullResponse = new StringBuilder();
         final String finalSessionId = sessionId;
         final String finalMessage = message;
 
         CompletableFuture.runAsync(() -> {
-            try {
+            // 异步线程上恢复本轮对话的链路上下文，并通过 contextCapture 带入响应式流
+            try (Observation.Scope scope = turn.openScope()) {
                 // 使用带工具的 ChatClient 进行流式对话
-                Flux<String> flux = toolChatClient.prompt()
+                Flux<String> flux = streamModel(turn, toolChatClient.prompt()
                         .messages(messageList)
                         .user(message)
-                        .stream()
-                        .content();
+                        .toolCallbacks(availableToolCallbacks()));
 
-                flux.subscribe(
+                flux.contextCapture().subscribe(
                         chunk -> {
                             try {
                                 fullResponse.append(chunk);
@@ -367,6 +399,7 @@ public class ChatController {
                         },
                         error -> {
                             log.error("流式对话错误", error);
+                            turn.fail(error);
                             emitter.completeWithError(error);
                         },
                         () -> {
@@ -381,7 +414,7 @@ public class ChatController {
                                             .createTime(LocalDateTime.now())
                                             .updateTime(LocalDateTime.now())
                                             .build();
-                                    chatHistoryService.saveInfo(chatHistory);
+                                    turn.saveHistory(chatHistory);
                                 } catch (Exception e) {
                                     log.warn("保存历史记录失败", e);
                                 }
@@ -389,17 +422,23 @@ public class ChatController {
                             try {
                                 emitter.send(SseEmitter.event().name("done").data(""));
                                 emitter.complete();
+                                turn.complete(true);
                             } catch (IOException e) {
+                                turn.fail(e);
                                 emitter.completeWithError(e);
                             }
                         }
                 );
             } catch (Exception e) {
                 log.error("流式对话失败", e);
+                turn.fail(e);
                 emitter.completeWithError(e);
             }
         });
 
+        emitter.onTimeout(() -> turn.complete(false));
+        emitter.onError(turn::fail);
+
         return emitter;
     }
 
@@ -424,10 +463,12 @@ public class ChatController {
 
         log.info("收到指定工具的聊天请求, sessionId: {}, tools: {}, message: {}", sessionId, toolNames, message);
 
-        List<ChatHistory> histories = chatHistoryService.getRecentHistoryBySessionId(sessionId, 20);
-        List<Message> messageList = buildContext(histories);
+        ChatTurn turn = new ChatTurn("generateWithSpecificTools", sessionId);
+        boolean success = false;
+        try (Observation.Scope scope = turn.openScope()) {
+            List<ChatHistory> histories = chatHistoryService.getRecentHistoryBySessionId(sessionId, 20);
+            List<Message> messageList = buildContext(histories);
 
-        try {
             // 构建带指定工具的请求
             ChatClient.ChatClientRequestSpec requestSpec = chatClient.prompt()
                     .messages(messageList)
@@ -451,7 +492,7 @@ public class ChatController {
                 }
             }
 
-            String aiResponse = requestSpec.call().content();
+            String aiResponse = callModel(turn, requestSpec);
 
             log.info("AI 回复: {}", aiResponse);
 
@@ -465,12 +506,131 @@ public class ChatController {
                     .build();
             chatHistoryService.saveInfo(chatHistory);
 
+            success = true;
             return aiResponse;
 
         } catch (Exception e) {
             log.error("对话失败", e);
+            turn.error(e);
             return "对话失败: " + e.getMessage();
+        } finally {
+            turn.complete(success);
+        }
+    }
+
+    /**
+     * 在本轮对话的链路中读取历史记录并构建上下文
+     */
+    private List<Message> loadContext(ChatTurn turn, String sessionId) {
+        try (Observation.Scope scope = turn.openScope()) {
+            return buildContext(chatHistoryService.getRecentHistoryBySessionId(sessionId, 20));
+        }
+    }
+
+    /**
+     * 同步调用模型并记录 token 用量
+     */
+    private String callModel(ChatTurn turn, ChatClient.ChatClientRequestSpec requestSpec) {
+        ChatResponse response = requestSpec.call().chatResponse();
+        mcpMetrics.recordTokens(turn.endpoint, response);
+        return textOf(response);
+    }
+
+    /**
+     * 流式调用模型，记录首个输出耗时，并保留最后一个带用量的响应用于记录 token 数
+     */
+    private Flux<String> streamModel(ChatTurn turn, ChatClient.ChatClientRequestSpec requestSpec) {
+        return requestSpec.stream()
+                .chatResponse()
+                .doOnNext(turn::onResponse)
+                .map(this::textOf)
+                .filter(text -> !text.isEmpty())
+                .doOnNext(text -> turn.onFirstToken());
+    }
+
+    private String textOf(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return "";
+        }
+        String text = response.getResult().getOutput().getText();
+        return text != null ? text : "";
+    }
+
+    /**
+     * 一轮对话的指标与链路 span（mcp.chat）
+     * 首个输出只记录一次；完成、出错、超时、断开只记录一次，流式对话在任一线程上结束均可
+     */
+    private class ChatTurn {
+
+        private final String endpoint;
+        private final long startNanos = System.nanoTime();
+        private final Observation observation;
+        private final AtomicBoolean firstToken = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private final AtomicReference<ChatResponse> lastResponse = new AtomicReference<>();
+
+        ChatTurn(String endpoint, String sessionId) {
+            this.endpoint = endpoint;
+            this.observation = Observation.createNotStarted("mcp.chat", observationRegistry)
+                    .contextualName("chat " + endpoint)
+                    .lowCardinalityKeyValue("endpoint", endpoint)
+                    .highCardinalityKeyValue("session.id", sessionId)
+                    .start();
+        }
+
+        Observation.Scope openScope() {
+            return observation.openScope();
         }
+
+        /**
+         * 在本轮对话的链路中保存历史记录（流式对话的回调不在请求线程上）
+         */
+        void saveHistory(ChatHistory chatHistory) {
+            try (Observation.Scope scope = observation.openScope()) {
+                chatHistoryService.saveInfo(chatHistory);
+            }
+        }
+
+        void onResponse(ChatResponse response) {
+            if (response.getMetadata() != null && response.getMetadata().getUsage() != null
+                    && response.getMetadata().getUsage().getTotalTokens() != null
+                    && response.getMetadata().getUsage().getTotalTokens() > 0) {
+                lastResponse.set(response);
+            }
+        }
+
+        void onFirstToken() {
+            if (firstToken.compareAndSet(false, true)) {
+                mcpMetrics.recordFirstToken(endpoint, startNanos);
+                observation.event(Observation.Event.of("first-token"));
+            }
+        }
+
+        void error(Throwable error) {
+            if (!completed.get()) {
+                observation.error(error);
+            }
+        }
+
+        void fail(Throwable error) {
+            error(error);
+            complete(false);
+        }
+
+        void complete(boolean success) {
+            if (completed.compareAndSet(false, true)) {
+                mcpMetrics.recordTokens(endpoint, lastResponse.get());
+                mcpMetrics.recordChatTurn(endpoint, startNanos, success);
+                observation.stop();
+            }
+        }
+    }
+
+    /**
+     * 当前可用的工具回调（排除熔断中的服务器）
+     */
+    private FunctionToolCallback[] availableToolCallbacks() {
+        return mcpToolCallbackService.getAvailableToolCallbacks().toArray(new FunctionToolCallback[0]);
     }
 
     /**
@@ -1,5 +1,6 @@
 package cn.sam.demo.mcpclient.controller;
 
+import cn.sam.demo.mcpclient.service.McpServerBenchmarkService;
 import cn.sam.demo.mcpclient.service.UniversalMcpClientService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.modelcontextprotocol.spec.McpSchema;
@@ -8,6 +9,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +28,9 @@ public class McpConnectionTestController {
     @Resource
     private UniversalMcpClientService universalMcpClientService;
 
+    @Resource
+    private McpServerBenchmarkService serverBenchmarkService;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -188,5 +193,51 @@ public class McpConnectionTestController {
             return ResponseEntity.ok(result);
         }
     }
-}
 
+    /**
+     * 压测 MCP 服务器：按并发数在指定时长内循环调用某个工具，返回吞吐量、延迟分位数、延迟分布和错误分类
+     * transportType 为 both 时依次压测 SSE 和 Streamable HTTP 并给出对比
+     *
+     * @param request url、transportType、toolName、arguments（支持 ${i} 等占位符）、headers、
+     *                concurrency、connections、warmupSeconds、durationSeconds
+     * @return 压测报告
+     */
+    @PostMapping("/benchmark")
+    public ResponseEntity<Map<String, Object>> benchmark(@RequestBody Map<String, Object> request) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            String transportType = (String) request.getOrDefault("transportType", "streamable-http");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> arguments = (Map<String, Object>) request.get("arguments");
+            @SuppressWarnings("unchecked")
+            Map<String, String> headers = (Map<String, String>) request.get("headers");
+
+            McpServerBenchmarkService.Settings settings = new McpServerBenchmarkService.Settings(
+                    (String) request.get("url"),
+                    "both".equalsIgnoreCase(transportType) ? List.of("sse", "streamable-http") : List.of(transportType),
+                    (String) request.get("toolName"),
+                    arguments != null ? arguments : Map.of(),
+                    headers,
+                    ((Number) request.getOrDefault("concurrency", 10)).intValue(),
+                    ((Number) request.getOrDefault("connections", 1)).intValue(),
+                    Duration.ofSeconds(((Number) request.getOrDefault("warmupSeconds", 2)).longValue()),
+                    Duration.ofSeconds(((Number) request.getOrDefault("durationSeconds", 10)).longValue()));
+
+            result.put("success", true);
+            result.put("data", serverBenchmarkService.run(settings));
+            return ResponseEntity.ok(result);
+
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            result.put("success", false);
+            result.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        } catch (Exception e) {
+            log.error("压测 MCP 服务器失败", e);
+            result.put("success", false);
+            result.put("error", e.getMessage());
+            result.put("errorType", e.getClass().getSimpleName());
+            return ResponseEntity.ok(result);
+        }
+    }
+}
@@ -4,9 +4,14 @@ import cn.sam.demo.mcpclient.entity.McpMarket;
 import cn.sam.demo.mcpclient.entity.McpMarketTool;
 import cn.sam.demo.mcpclient.service.McpMarketService;
 import jakarta.annotation.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,23 +29,40 @@ public class McpMarketController {
     private McpMarketService mcpMarketService;
 
     /**
-     * 获取市场列表
+     * 分页接口每页最大条数
+     */
+    private static final int MAX_PAGE_SIZE = 200;
+
+    /**
+     * 获取市场列表（分页、排序、精简字段）
+     * 指定 keyword 时走全文检索索引，按相关度排序并分页；详情通过 /{id} 获取
+     * 支持 If-None-Match，数据未变化时返回 304
      */
     @GetMapping
     public ResponseEntity<Map<String, Object>> list(
             @RequestParam(required = false) String status,
-            @RequestParam(required = false) String keyword) {
-        List<McpMarket> markets = keyword != null && !keyword.isEmpty()
-                ? mcpMarketService.searchByName(keyword)
-                : status != null && !status.isEmpty()
-                ? mcpMarketService.listByStatus(status)
-                : mcpMarketService.listAll();
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "1") Integer page,
+            @RequestParam(defaultValue = "20") Integer size,
+            @RequestParam(defaultValue = "createTime") String sort,
+            @RequestParam(defaultValue = "desc") String order,
+            WebRequest webRequest) {
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        String etag = "\"" + DigestUtils.md5DigestAsHex(String.join("|",
+                mcpMarketService.getListVersion(), String.valueOf(status), String.valueOf(keyword),
+                String.valueOf(page), String.valueOf(size), sort, order)
+                .getBytes(StandardCharsets.UTF_8)) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
 
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("data", markets);
-        result.put("total", markets.size());
-        return ResponseEntity.ok(result);
+        Map<String, Object> result = keyword != null && !keyword.isBlank()
+                ? mcpMarketService.search(keyword, status, page, size)
+                : mcpMarketService.listPage(status, page, size, sort, order);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(result);
     }
 
     /**
@@ -61,14 +83,18 @@ public class McpMarketController {
     }
 
     /**
-     * 获取市场工具列表（支持分页）
+     * 获取市场工具列表（支持分页和关键字检索）
      */
     @GetMapping("/{id}/tools")
     public ResponseEntity<Map<String, Object>> getMarketTools(
             @PathVariable Long id,
+            @RequestParam(required = false) String keyword,
             @RequestParam(defaultValue = "1") Integer page,
             @RequestParam(defaultValue = "10") Integer size) {
-        Map<String, Object> result = mcpMarketService.getMarketToolsWithPage(id, page, size);
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Map<String, Object> result = keyword != null && !keyword.isBlank()
+                ? mcpMarketService.searchMarketTools(id, keyword, page, size)
+                : mcpMarketService.getMarketToolsWithPage(id, page, size);
         return ResponseEntity.ok(result);
     }
 
@@ -172,7 +198,9 @@ public class McpMarketController {
                 result.put("message", "刷新成功");
             } else {
                 result.put("success", false);
-                result.put("message", "刷新失败，请检查市场URL和网络连接");
+                result.put("message", mcpMarketService.isRefreshing(id)
+                        ? "市场正在刷新中，请稍后再试"
+                        : "刷新失败，请检查市场URL和网络连接");
             }
             return ResponseEntity.ok(result);
         } catch (Exception e) {
@@ -182,6 +210,17 @@ public class McpMarketController {
         }
     }
 
+    /**
+     * 获取市场刷新记录（分页）
+     */
+    @GetMapping("/{id}/refresh-logs")
+    public ResponseEntity<Map<String, Object>> getRefreshLogs(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "1") Integer page,
+            @RequestParam(defaultValue = "10") Integer size) {
+        return ResponseEntity.ok(mcpMarketService.getRefreshLogsWithPage(id, page, size));
+    }
+
     /**
      * 加载市场工具到本地
      */
@@ -0,0 +1,154 @@
+package cn.sam.demo.mcpclient.controller;
+
+import cn.sam.demo.mcpclient.service.McpEndpointCircuitBreaker;
+import cn.sam.demo.mcpclient.service.McpReplicaBalancer;
+import cn.sam.demo.mcpclient.service.McpRequestHedgingService;
+import cn.sam.demo.mcpclient.service.McpServerCatalogCacheService;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MCP 服务器资源与提示词控制器（读取缓存）
+ *
+ * @author Administrator
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/mcp/servers")
+public class McpServerCatalogController {
+
+    @Resource
+    private McpServerCatalogCacheService catalogCacheService;
+
+    @Resource
+    private McpEndpointCircuitBreaker circuitBreaker;
+
+    @Resource
+    private McpRequestHedgingService hedgingService;
+
+    @Resource
+    private McpReplicaBalancer replicaBalancer;
+
+    /**
+     * 已缓存的服务器概览及资源内容缓存统计
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> list() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", catalogCacheService.getServerSummaries());
+        result.put("contentCache", catalogCacheService.getContentCacheStats());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 各服务器的熔断状态、失败率与当前自适应超时
+     */
+    @GetMapping("/circuit-breakers")
+    public ResponseEntity<Map<String, Object>> circuitBreakers() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", circuitBreaker.getSnapshot());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 各服务器的对冲统计（可对冲调用数、对冲数、对冲胜出数、被限流数、当前对冲延迟）
+     */
+    @GetMapping("/hedging")
+    public ResponseEntity<Map<String, Object>> hedging() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", hedgingService.getSnapshot());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 各服务器的副本状态（进行中请求数、是否被摘除、请求与失败计数）
+     */
+    @GetMapping("/replicas")
+    public ResponseEntity<Map<String, Object>> replicas() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", replicaBalancer.getSnapshot());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 获取资源列表（来自缓存）
+     */
+    @GetMapping("/resources")
+    public ResponseEntity<Map<String, Object>> resources(@RequestParam(required = false) String serverKey) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", catalogCacheService.getResources(serverKey));
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 获取提示词列表（来自缓存）
+     */
+    @GetMapping("/prompts")
+    public ResponseEntity<Map<String, Object>> prompts(@RequestParam(required = false) String serverKey) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", catalogCacheService.getPrompts(serverKey));
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 读取资源内容
+     */
+    @GetMapping("/resources/read")
+    public ResponseEntity<Map<String, Object>> readResource(@RequestParam String serverKey,
+                                                            @RequestParam String uri) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            McpSchema.ReadResourceResult content = catalogCacheService.readResource(serverKey, uri);
+            result.put("success", true);
+            result.put("data", content.contents());
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("读取资源失败: {} -> {}", serverKey, uri, e);
+            result.put("success", false);
+            result.put("message", "读取资源失败: " + e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+
+    /**
+     * 获取提示词内容
+     * 请求体：{"serverKey": "...", "name": "...", "arguments": {...}}
+     */
+    @PostMapping("/prompts/get")
+    public ResponseEntity<Map<String, Object>> getPrompt(@RequestBody Map<String, Object> request) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            String serverKey = (String) request.get("serverKey");
+            String name = (String) request.get("name");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> arguments = (Map<String, Object>) request.get("arguments");
+            if (serverKey == null || name == null) {
+                result.put("success", false);
+                result.put("message", "serverKey 和 name 不能为空");
+                return ResponseEntity.badRequest().body(result);
+            }
+
+            McpSchema.GetPromptResult prompt = catalogCacheService.getPrompt(serverKey, name, arguments);
+            result.put("success", true);
+            result.put("data", prompt);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("获取提示词失败", e);
+            result.put("success", false);
+            result.put("message", "获取提示词失败: " + e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cn.sam.demo.mcpclient.controller;
+
+import cn.sam.demo.mcpclient.config.McpStartupOrchestrator;
+import jakarta.annotation.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 启动状态控制器
+ *
+ * @author Administrator
+ */
+@RestController
+@RequestMapping("/api/mcp/startup")
+public class McpStartupController {
+
+    @Resource
+    private McpStartupOrchestrator startupOrchestrator;
+
+    /**
+     * 获取启动编排状态（STARTING / READY / DEGRADED 及各阶段耗时）
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> status() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("ready", startupOrchestrator.isReady());
+        result.put("data", startupOrchestrator.getStatus());
+        return ResponseEntity.ok(result);
+    }
+}
@@ -1,11 +1,22 @@
 package cn.sam.demo.mcpclient.controller;
 
+import cn.sam.demo.mcpclient.dto.McpToolListItem;
 import cn.sam.demo.mcpclient.entity.McpToolData;
+import cn.sam.demo.mcpclient.entity.McpToolStats;
+import cn.sam.demo.mcpclient.service.McpToolCatalogPushService;
 import cn.sam.demo.mcpclient.service.McpToolService;
+import cn.sam.demo.mcpclient.service.McpToolStatsService;
 import jakarta.annotation.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -24,32 +35,84 @@ public class McpToolController {
     @Resource
     private McpToolService mcpToolService;
 
+    @Resource
+    private McpToolCatalogPushService catalogPushService;
+
+    @Resource
+    private McpToolStatsService toolStatsService;
+
     /**
-     * 获取工具列表
+     * 分页接口每页最大条数
+     */
+    private static final int MAX_PAGE_SIZE = 200;
+
+    /**
+     * 获取工具列表（分页、排序、精简字段）
+     * 指定 keyword 时走全文检索索引，按相关度排序并分页；详情通过 /{id} 获取
+     * 每个工具附带调用统计（stats）
+     * 支持 If-None-Match，数据和调用统计未变化时返回 304
      */
     @GetMapping
     public ResponseEntity<Map<String, Object>> list(
             @RequestParam(required = false) String type,
             @RequestParam(required = false) String status,
-            @RequestParam(required = false) String keyword) {
-        List<McpToolData> tools;
-        if (keyword != null && !keyword.isEmpty()) {
-            tools = mcpToolService.searchByName(keyword);
-        } else if (type != null && !type.isEmpty()) {
-            tools = mcpToolService.listByType(type);
-        } else if (status != null && !status.isEmpty()) {
-            tools = mcpToolService.listByStatus(status);
-        } else {
-            tools = mcpToolService.listAll();
+            @RequestParam(required = false) String keyword,
+            @RequestParam(defaultValue = "1") Integer page,
+            @RequestParam(defaultValue = "20") Integer size,
+            @RequestParam(defaultValue = "createTime") String sort,
+            @RequestParam(defaultValue = "desc") String order,
+            WebRequest webRequest) {
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        String etag = "\"" + DigestUtils.md5DigestAsHex(String.join("|",
+                mcpToolService.getListVersion(), String.valueOf(toolStatsService.getVersion()),
+                String.valueOf(type), String.valueOf(status), String.valueOf(keyword), String.valueOf(page), String.valueOf(size), sort, order)
+                .getBytes(StandardCharsets.UTF_8)) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
         }
 
+        Map<String, Object> result = keyword != null && !keyword.isBlank()
+                ? mcpToolService.search(keyword, type, status, page, size)
+                : mcpToolService.listPage(type, status, page, size, sort, order);
+        if (result.get("data") instanceof List<?> items) {
+            for (Object item : items) {
+                if (item instanceof McpToolListItem listItem) {
+                    listItem.setStats(toolStatsService.getStats(listItem.getServerKey(), listItem.getName()));
+                }
+            }
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(result);
+    }
+
+    /**
+     * 工具调用统计排行，按指定指标从高到低排列，用于找出慢工具和易失败工具
+     *
+     * @param sort p50 / p95 / p99 / max / errorRate / callCount
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats(@RequestParam(defaultValue = "p95") String sort,
+                                                     @RequestParam(defaultValue = "20") Integer limit) {
+        List<McpToolStats> stats = toolStatsService.listStats(sort, limit);
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
-        result.put("data", tools);
-        result.put("total", tools.size());
+        result.put("data", stats);
+        result.put("total", stats.size());
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 订阅工具目录变更（SSE）
+     * 断线重连时浏览器自动携带 Last-Event-ID；首次连接也可通过 since 指定上次收到的版本
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestParam(required = false) String since,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return catalogPushService.subscribe(lastEventId != null ? lastEventId : since);
+    }
+
     /**
      * 根据ID获取工具
      */
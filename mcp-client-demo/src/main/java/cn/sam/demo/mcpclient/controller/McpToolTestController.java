@@ -1,14 +1,19 @@
 package cn.sam.demo.mcpclient.controller;
 
+import cn.sam.demo.mcpclient.dto.McpToolBatchTestRequest;
 import cn.sam.demo.mcpclient.entity.McpToolData;
+import cn.sam.demo.mcpclient.service.McpToolBatchTestService;
 import cn.sam.demo.mcpclient.service.McpToolInvokeService;
 import cn.sam.demo.mcpclient.service.McpToolService;
+import cn.sam.demo.mcpclient.service.McpToolStatsService;
 import cn.sam.demo.mcpclient.service.RemoteMcpToolInvokeService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -34,6 +39,12 @@ public class McpToolTestController {
     @Resource
     private RemoteMcpToolInvokeService remoteMcpToolInvokeService;
 
+    @Resource
+    private McpToolStatsService toolStatsService;
+
+    @Resource
+    private McpToolBatchTestService batchTestService;
+
     /**
      * 测试工具调用
      *
@@ -69,7 +80,7 @@ public class McpToolTestController {
             Object toolResult;
             try {
                 if (McpToolData.Type.REMOTE.equals(tool.getType())) {
-                    // 远程工具调用 - 先进行健康检查
+                    // 远程工具调用 - 先检查端点熔断状态（不发起 ping）
                     if (!remoteMcpToolInvokeService.isToolAvailable(tool)) {
                         // 解析配置以获取详细信息
                         String configInfo = "未配置";
@@ -90,7 +101,7 @@ public class McpToolTestController {
                         result.put("success", false);
                         result.put("error", "远程 MCP 工具不可用");
                         result.put("details", String.format(
-                            "无法连接到远程 MCP 服务器。\n" +
+                            "远程 MCP 服务器近期调用失败过多，已熔断，稍后会自动探测恢复。\n" +
                             "工具配置: %s\n\n" +
                             "可能原因：\n" +
                             "1. 远程 MCP 服务器未启动\n" +
@@ -163,6 +174,18 @@ public class McpToolTestController {
         }
     }
 
+    /**
+     * 批量测试工具调用（SSE 流式返回）
+     * 按限定并发同时测试，同一远程端点只做一次健康检查，每个工具完成后立即推送 result 事件，最后推送 done 汇总
+     *
+     * @param request 待测试的工具及参数、并发数、是否做健康检查
+     * @return SSE 连接
+     */
+    @PostMapping(value = "/test/batch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter testBatch(@RequestBody McpToolBatchTestRequest request) {
+        return batchTestService.run(request);
+    }
+
     /**
      * 获取工具信息（包括参数定义）
      *
@@ -189,6 +212,8 @@ public class McpToolTestController {
             toolInfo.put("type", tool.getType());
             toolInfo.put("status", tool.getStatus());
             toolInfo.put("config", parseConfig(tool.getConfigJson()));
+            // 调用统计（滚动窗口），未被调用过时为空
+            toolInfo.put("stats", toolStatsService.getStats(tool.getServerKey(), tool.getName()));
 
             // 如果工具已注册，添加方法参数信息
             if (mcpToolInvokeService.hasTool(tool.getName())) {
@@ -0,0 +1,56 @@
+package cn.sam.demo.mcpclient.controller;
+
+import cn.sam.demo.mcpclient.config.LocalSpanExporter;
+import jakarta.annotation.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 链路查询控制器（读取本地链路导出器的内存缓冲区）
+ *
+ * @author Administrator
+ */
+@RestController
+@RequestMapping("/api/traces")
+public class McpTraceController {
+
+    @Resource
+    private LocalSpanExporter localSpanExporter;
+
+    /**
+     * 最近导出的 span，最新的在前
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> recent(@RequestParam(value = "limit", defaultValue = "100") Integer limit) {
+        List<LocalSpanExporter.SpanRecord> spans = localSpanExporter.getRecent(Math.max(1, limit));
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", spans);
+        result.put("total", spans.size());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 某条链路的全部 span（客户端侧），按开始时间排序
+     */
+    @GetMapping("/{traceId}")
+    public ResponseEntity<Map<String, Object>> trace(@PathVariable String traceId) {
+        List<LocalSpanExporter.SpanRecord> spans = localSpanExporter.getTrace(traceId);
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", !spans.isEmpty());
+        result.put("data", spans);
+        result.put("total", spans.size());
+        if (spans.isEmpty()) {
+            result.put("error", "链路不存在或已被淘汰");
+        }
+        return ResponseEntity.ok(result);
+    }
+}
@@ -0,0 +1,42 @@
+package cn.sam.demo.mcpclient.dto;
+
+import cn.sam.demo.mcpclient.entity.McpMarket;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * MCP 市场列表项（精简视图）
+ * 不包含 auth_config 字段，详情通过 /api/mcp/markets/{id} 获取
+ *
+ * @author Administrator
+ */
+@Data
+public class McpMarketListItem {
+
+    private Long id;
+
+    private String name;
+
+    private String url;
+
+    private String description;
+
+    private String status;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+
+    public static McpMarketListItem from(McpMarket market) {
+        McpMarketListItem item = new McpMarketListItem();
+        item.setId(market.getId());
+        item.setName(market.getName());
+        item.setUrl(market.getUrl());
+        item.setDescription(market.getDescription());
+        item.setStatus(market.getStatus());
+        item.setCreateTime(market.getCreateTime());
+        item.setUpdateTime(market.getUpdateTime());
+        return item;
+    }
+}
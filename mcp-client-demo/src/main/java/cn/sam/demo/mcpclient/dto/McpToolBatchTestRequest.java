@@ -0,0 +1,44 @@
+package cn.sam.demo.mcpclient.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量工具测试请求
+ * items 与 toolIds 二选一：items 指定每个工具的参数，toolIds 以空参数测试
+ *
+ * @author Administrator
+ */
+@Data
+public class McpToolBatchTestRequest {
+
+    /**
+     * 待测试的工具及参数
+     */
+    private List<Item> items;
+
+    /**
+     * 待测试的工具ID（空参数）
+     */
+    private List<Long> toolIds;
+
+    /**
+     * 并发数，为空或超过上限时使用 mcp.client.batch-test.max-parallelism
+     */
+    private Integer parallelism;
+
+    /**
+     * 是否先对每个远程端点 ping 一次，端点不健康时其下的工具直接判定失败
+     */
+    private Boolean healthCheck;
+
+    @Data
+    public static class Item {
+
+        private Long toolId;
+
+        private Map<String, Object> params;
+    }
+}
@@ -0,0 +1,57 @@
+package cn.sam.demo.mcpclient.dto;
+
+import cn.sam.demo.mcpclient.entity.McpToolData;
+import cn.sam.demo.mcpclient.entity.McpToolStats;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * MCP 工具列表项（精简视图）
+ * 不包含 param_schema、config_json 等大字段，详情通过 /api/mcp/tools/{id} 获取
+ *
+ * @author Administrator
+ */
+@Data
+public class McpToolListItem {
+
+    private Long id;
+
+    private String name;
+
+    private String displayName;
+
+    private String description;
+
+    private String type;
+
+    /**
+     * 所属服务器标识（url|传输类型），本地工具为空
+     */
+    private String serverKey;
+
+    private String status;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+
+    /**
+     * 调用统计（滚动窗口内的调用次数、错误率、耗时分位数），未被调用过的工具为空
+     */
+    private McpToolStats stats;
+
+    public static McpToolListItem from(McpToolData tool) {
+        McpToolListItem item = new McpToolListItem();
+        item.setId(tool.getId());
+        item.setName(tool.getName());
+        item.setDisplayName(tool.getDisplayName());
+        item.setDescription(tool.getDescription());
+        item.setType(tool.getType());
+        item.setServerKey(tool.getServerKey());
+        item.setStatus(tool.getStatus());
+        item.setCreateTime(tool.getCreateTime());
+        item.setUpdateTime(tool.getUpdateTime());
+        return item;
+    }
+}
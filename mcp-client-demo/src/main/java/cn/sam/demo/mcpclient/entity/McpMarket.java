@@ -53,6 +53,12 @@ public class McpMarket {
     @TableField("auth_config")
     private String authConfig;
 
+    /**
+     * 自动刷新间隔（分钟），为空时使用全局默认值，小于等于 0 表示不自动刷新
+     */
+    @TableField("refresh_interval")
+    private Integer refreshInterval;
+
     /**
      * 状态：ENABLED-启用, DISABLED-禁用
      */
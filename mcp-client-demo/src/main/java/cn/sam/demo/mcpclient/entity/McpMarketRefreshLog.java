@@ -0,0 +1,108 @@
+package cn.sam.demo.mcpclient.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * MCP 市场刷新记录实体类
+ *
+ * @author Administrator
+ */
+@TableName("mcp_market_refresh_log")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class McpMarketRefreshLog {
+
+    /**
+     * 主键ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 市场ID
+     */
+    @TableField("market_id")
+    private Long marketId;
+
+    /**
+     * 触发方式：MANUAL-手动, SCHEDULED-定时
+     */
+    @TableField("trigger_type")
+    private String triggerType;
+
+    /**
+     * 执行结果：SUCCESS-成功, FAILED-失败, SKIPPED-上一次刷新未结束而跳过
+     */
+    @TableField("status")
+    private String status;
+
+    /**
+     * 拉取到的服务器条数
+     */
+    @TableField("fetched_count")
+    private Integer fetchedCount;
+
+    /**
+     * 新增条数
+     */
+    @TableField("inserted_count")
+    private Integer insertedCount;
+
+    /**
+     * 更新条数
+     */
+    @TableField("updated_count")
+    private Integer updatedCount;
+
+    /**
+     * 耗时（毫秒）
+     */
+    @TableField("duration_ms")
+    private Long durationMs;
+
+    /**
+     * 错误信息
+     */
+    @TableField("error_message")
+    private String errorMessage;
+
+    /**
+     * 开始时间
+     */
+    @TableField("start_time")
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间
+     */
+    @TableField("end_time")
+    private LocalDateTime endTime;
+
+    /**
+     * 触发方式枚举
+     */
+    public static class Trigger {
+        public static final String MANUAL = "MANUAL";
+        public static final String SCHEDULED = "SCHEDULED";
+    }
+
+    /**
+     * 执行结果枚举
+     */
+    public static class Status {
+        public static final String SUCCESS = "SUCCESS";
+        public static final String FAILED = "FAILED";
+        public static final String SKIPPED = "SKIPPED";
+    }
+}
@@ -53,12 +53,25 @@ public class McpToolData {
     @TableField("param_schema")
     private String paramSchema;
 
+    /**
+     * 参数结构摘要（param_schema 的 MD5），变更通知同步时用于比对，避免加载和比较完整 JSON
+     */
+    @TableField("schema_hash")
+    private String schemaHash;
+
     /**
      * 工具类型：LOCAL-本地, REMOTE-远程
      */
     @TableField("type")
     private String type;
 
+    /**
+     * 所属 MCP 服务器标识（url|传输类型），本地工具为空字符串
+     * 与 name 组成唯一键，变更通知同步只处理发出通知的服务器的工具
+     */
+    @TableField("server_key")
+    private String serverKey;
+
     /**
      * 状态：ENABLED-启用, DISABLED-禁用
      */
@@ -0,0 +1,119 @@
+package cn.sam.demo.mcpclient.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * MCP 工具调用统计实体类（滚动窗口内的调用次数、错误率和耗时分位数，定期由内存快照写入）
+ *
+ * @author Administrator
+ */
+@TableName("mcp_tool_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class McpToolStats {
+
+    /**
+     * 主键ID
+     */
+    @JsonIgnore
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 服务器标识（对应 mcp_tool.server_key，url|传输类型，本地工具为空）
+     */
+    @TableField("server_key")
+    private String serverKey;
+
+    /**
+     * 工具名称（对应 mcp_tool.name）
+     */
+    @TableField("tool_name")
+    private String toolName;
+
+    /**
+     * 窗口内调用次数
+     */
+    @TableField("call_count")
+    private Long callCount;
+
+    /**
+     * 窗口内失败次数（含被熔断拒绝的调用）
+     */
+    @TableField("error_count")
+    private Long errorCount;
+
+    /**
+     * 错误率（0 ~ 1）
+     */
+    @TableField("error_rate")
+    private Double errorRate;
+
+    /**
+     * 耗时 p50（毫秒）
+     */
+    @TableField("p50_ms")
+    private Double p50Ms;
+
+    /**
+     * 耗时 p95（毫秒）
+     */
+    @TableField("p95_ms")
+    private Double p95Ms;
+
+    /**
+     * 耗时 p99（毫秒）
+     */
+    @TableField("p99_ms")
+    private Double p99Ms;
+
+    /**
+     * 最大耗时（毫秒）
+     */
+    @TableField("max_ms")
+    private Double maxMs;
+
+    /**
+     * 窗口开始时间
+     */
+    @TableField("window_start")
+    private LocalDateTime windowStart;
+
+    /**
+     * 窗口结束时间
+     */
+    @TableField("window_end")
+    private LocalDateTime windowEnd;
+
+    /**
+     * 数据来源：MEMORY-内存实时统计, SNAPSHOT-数据库快照（重启后尚无新调用时）
+     */
+    @TableField(exist = false)
+    private String source;
+
+    /**
+     * 更新时间
+     */
+    @TableField("update_time")
+    private LocalDateTime updateTime;
+
+    /**
+     * 数据来源枚举
+     */
+    public static class Source {
+        public static final String MEMORY = "MEMORY";
+        public static final String SNAPSHOT = "SNAPSHOT";
+    }
+}
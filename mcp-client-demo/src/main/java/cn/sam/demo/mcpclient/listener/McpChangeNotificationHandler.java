@@ -1,19 +1,26 @@
 package cn.sam.demo.mcpclient.listener;
 
 import cn.sam.demo.mcpclient.entity.McpToolData;
+import cn.sam.demo.mcpclient.service.McpServerCatalogCacheService;
 import cn.sam.demo.mcpclient.service.McpToolRegistryService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.modelcontextprotocol.spec.McpSchema;
 import lombok.extern.slf4j.Slf4j;
 import org.springaicommunity.mcp.annotation.McpPromptListChanged;
 import org.springaicommunity.mcp.annotation.McpResourceListChanged;
 import org.springaicommunity.mcp.annotation.McpToolListChanged;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
-import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * MCP 服务端变更通知处理器
@@ -55,7 +62,50 @@ public class McpChangeNotificationHandler {
     @Resource
     private McpToolRegistryService mcpToolRegistryService;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Resource
+    private McpServerCatalogCacheService catalogCacheService;
+
+    /**
+     * 去抖窗口（毫秒）：窗口内同一服务器的多次通知合并为一次同步
+     */
+    @Value("${mcp.client.notification.debounce-ms:500}")
+    private long debounceMs;
+
+    /**
+     * 最长等待（毫秒）：持续收到通知时，距第一次通知超过该时间也会执行同步
+     */
+    @Value("${mcp.client.notification.max-wait-ms:5000}")
+    private long maxWaitMs;
+
+    /**
+     * 通过 Spring AI 自动配置的 MCP 客户端收到的通知无法区分来源服务器，统一归属到该标识
+     */
+    public static final String SPRING_AI_CLIENTS_SERVER_KEY = "spring-ai-clients";
+
+    /**
+     * 工具同步专用线程（单线程，保证同步串行执行，不占用 MCP 传输线程）
+     */
+    private ScheduledExecutorService toolSyncExecutor;
+
+    /**
+     * 等待执行的同步任务，按服务器合并
+     */
+    private final Map<String, PendingToolSync> pendingToolSyncs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        toolSyncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mcp-tool-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        toolSyncExecutor.shutdownNow();
+        pendingToolSyncs.clear();
+    }
 
     /**
      * 处理工具列表变更通知
@@ -79,35 +129,92 @@ public class McpChangeNotificationHandler {
      *   <li>修改：自动更新工具的描述和参数</li>
      * </ul>
      * 
+     * <p>该方法运行在 MCP 传输线程上，只登记最新的工具列表，
+     * 实际同步在去抖窗口结束后由专用线程执行。</p>
+     * 
+     * <p>注解方式（clients = "*"）收到的通知不携带来源服务器，
+     * 这些工具归属到 {@link #SPRING_AI_CLIENTS_SERVER_KEY}，不会影响其他服务器的工具。</p>
+     * 
      * @param updatedTools 更新后的完整工具列表
      */
     @McpToolListChanged(clients = "*")  // clients = "*" 表示监听所有 MCP 服务器
     public void handleToolListChanged(List<McpSchema.Tool> updatedTools) {
+        log.info("收到工具列表变更通知，工具数量: {}", updatedTools.size());
+        submitToolListChanged(new McpToolListChangedEvent(SPRING_AI_CLIENTS_SERVER_KEY, null, null, updatedTools));
+    }
+
+    /**
+     * 处理 UniversalMcpClientService 创建的客户端发布的工具列表变更事件（携带来源服务器）
+     * 
+     * @param event 工具列表变更事件
+     */
+    @EventListener
+    public void onToolListChanged(McpToolListChangedEvent event) {
+        log.info("收到工具列表变更通知: 服务器 {}, 工具数量: {}", event.serverKey(), event.tools().size());
+        submitToolListChanged(event);
+    }
+
+    /**
+     * 登记工具列表变更，按服务器去抖合并
+     * 
+     * <p>窗口内同一服务器的多次通知只保留最新的工具列表；
+     * 窗口从最后一次通知重新计时，但不超过第一次通知后的最长等待时间。</p>
+     * 
+     * @param event 工具列表变更事件
+     */
+    public void submitToolListChanged(McpToolListChangedEvent event) {
+        long now = System.currentTimeMillis();
+        pendingToolSyncs.compute(event.serverKey(), (key, pending) -> {
+            if (pending == null) {
+                pending = new PendingToolSync(now);
+            }
+            pending.latestEvent = event;
+            pending.notificationCount++;
+
+            // 已开始执行的任务会在移除登记后读取最新列表，无需重新调度
+            if (pending.future == null || pending.future.cancel(false)) {
+                long delay = Math.max(0, Math.min(now + debounceMs, pending.firstNotifiedAt + maxWaitMs) - now);
+                PendingToolSync scheduled = pending;
+                pending.future = toolSyncExecutor.schedule(
+                        () -> flushToolSync(key, scheduled), delay, TimeUnit.MILLISECONDS);
+            }
+            return pending;
+        });
+    }
+
+    /**
+     * 执行合并后的工具同步
+     * 
+     * @param serverKey 服务器标识
+     * @param pending   合并的通知
+     */
+    private void flushToolSync(String serverKey, PendingToolSync pending) {
+        if (!pendingToolSyncs.remove(serverKey, pending)) {
+            return;
+        }
+        McpToolListChangedEvent event = pending.latestEvent;
+        List<McpSchema.Tool> updatedTools = event.tools();
+
         log.info("========================================");
-        log.info("收到工具列表变更通知！");
+        log.info("处理工具列表变更: 服务器 {}, 合并 {} 次通知", serverKey, pending.notificationCount);
         log.info("========================================");
         log.info("更新后的工具数量: {}", updatedTools.size());
         
         try {
             // 打印工具详情
-            if (log.isInfoEnabled()) {
+            if (log.isDebugEnabled()) {
                 for (McpSchema.Tool tool : updatedTools) {
-                    log.info("  工具: {} - {}", tool.name(), 
+                    log.debug("  工具: {} - {}", tool.name(), 
                             tool.description() != null ? tool.description() : "无描述");
                 }
             }
             
             // 增量更新数据库中的工具列表
             log.info("开始同步工具列表到数据库...");
-            syncToolsToDatabase(updatedTools);
+            syncToolsToDatabase(event);
             log.info("工具列表同步完成！");
             
-            // TODO: 可选的后续操作
-            // 1. 清除工具调用缓存
-            // toolInvocationCache.clear();
-            
-            // 2. 通知前端刷新工具列表（通过 WebSocket）
-            // webSocketService.notifyToolListChanged(updatedTools);
+            // 前端刷新：事务提交后发布 McpToolCatalogChangedEvent，由 McpToolCatalogPushService 通过 SSE 推送变更
             
             log.info("工具列表已更新！无需重启客户端。");
             log.info("========================================");
@@ -149,8 +256,8 @@ public class McpChangeNotificationHandler {
             }
         }
         
-        // TODO: 实现资源缓存更新逻辑
-        // resourceCache.update(updatedResources);
+        // Spring AI 自动配置的客户端不携带服务器身份，统一归入同一个缓存键
+        catalogCacheService.updateResources(SPRING_AI_CLIENTS_SERVER_KEY, updatedResources);
         
         log.info("资源列表已更新！");
         log.info("========================================");
@@ -186,8 +293,7 @@ public class McpChangeNotificationHandler {
             }
         }
         
-        // TODO: 实现提示词缓存更新逻辑
-        // promptCache.update(updatedPrompts);
+        catalogCacheService.updatePrompts(SPRING_AI_CLIENTS_SERVER_KEY, updatedPrompts);
         
         log.info("提示词列表已更新！");
         log.info("========================================");
@@ -200,67 +306,37 @@ public class McpChangeNotificationHandler {
      * 
      * <p>策略：</p>
      * <ol>
-     *   <li>获取数据库中所有远程工具</li>
-     *   <li>对比服务端推送的工具列表</li>
+     *   <li>获取数据库中该服务器下远程工具的比对快照（不含大字段），其他服务器的工具不受影响</li>
+     *   <li>每个服务端工具只序列化一次 inputSchema，通过摘要与数据库比对</li>
      *   <li>新增：添加新工具到数据库</li>
      *   <li>删除：标记已删除的工具为 DISABLED</li>
      *   <li>修改：更新工具的描述和参数</li>
+     *   <li>所有变更在一个事务中批量写入，失败时整体回滚</li>
      * </ol>
      * 
-     * @param serverTools 服务端推送的工具列表
+     * @param event 工具列表变更事件（来源服务器 + 完整工具列表）
      */
-    private void syncToolsToDatabase(List<McpSchema.Tool> serverTools) {
+    private void syncToolsToDatabase(McpToolListChangedEvent event) {
         try {
-            // 1. 获取数据库中所有远程工具
-            List<McpToolData> dbTools = mcpToolRegistryService.getAllRemoteTools();
-            
-            // 构建服务端工具的名称集合
-            Set<String> serverToolNames = serverTools.stream()
-                    .map(McpSchema.Tool::name)
-                    .collect(Collectors.toSet());
-            
-            // 构建数据库工具的名称映射
-            Map<String, McpToolData> dbToolMap = dbTools.stream()
-                    .collect(Collectors.toMap(McpToolData::getName, tool -> tool));
+            long startNanos = System.nanoTime();
+            List<McpSchema.Tool> serverTools = event.tools();
+
+            // 1. 获取数据库中该服务器的远程工具
+            List<McpToolData> dbTools = mcpToolRegistryService.getRemoteToolSnapshots(event.serverKey());
             
-            int addedCount = 0;
-            int updatedCount = 0;
-            int disabledCount = 0;
+            // 2. 计算差异（新增、更新、禁用已移除的工具）
+            McpToolRegistryService.ToolDiff diff = mcpToolRegistryService.diffServerTools(event.serverKey(),
+                    event.url(), event.transportType(), serverTools, dbTools, new HashMap<>());
             
-            // 2. 处理服务端的工具（新增或更新）
-            for (McpSchema.Tool serverTool : serverTools) {
-                String toolName = serverTool.name();
-                McpToolData dbTool = dbToolMap.get(toolName);
-                
-                if (dbTool == null) {
-                    // 新增工具
-                    log.info("  [新增] 工具: {}", toolName);
-                    addToolToDatabase(serverTool);
-                    addedCount++;
-                } else {
-                    // 更新工具（如果描述或参数有变化）
-                    if (shouldUpdateTool(dbTool, serverTool)) {
-                        log.info("  [更新] 工具: {}", toolName);
-                        updateToolInDatabase(dbTool, serverTool);
-                        updatedCount++;
-                    } else {
-                        log.debug("  [跳过] 工具无变化: {}", toolName);
-                    }
-                }
-            }
-            
-            // 3. 处理已删除的工具（在数据库中存在但服务端没有）
-            for (McpToolData dbTool : dbTools) {
-                if (!serverToolNames.contains(dbTool.getName())) {
-                    log.info("  [禁用] 工具已从服务端移除: {}", dbTool.getName());
-                    disableToolInDatabase(dbTool);
-                    disabledCount++;
-                }
+            // 3. 在一个事务中批量写入
+            if (!diff.isEmpty()) {
+                mcpToolRegistryService.applyToolChanges(diff.inserts(), diff.updates());
             }
             
             // 4. 输出同步结果
-            log.info("同步统计: 新增 {} 个, 更新 {} 个, 禁用 {} 个, 总计 {} 个工具",
-                    addedCount, updatedCount, disabledCount, serverTools.size());
+            log.info("同步统计: 新增 {} 个, 更新 {} 个, 禁用 {} 个, 总计 {} 个工具, 耗时 {} ms",
+                    diff.inserts().size(), diff.updates().size() - diff.disabledCount(), diff.disabledCount(),
+                    serverTools.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
             
         } catch (Exception e) {
             log.error("同步工具列表到数据库失败", e);
@@ -269,147 +345,20 @@ public class McpChangeNotificationHandler {
     }
     
     /**
-     * 添加新工具到数据库
-     * 
-     * @param serverTool 服务端工具
-     */
-    private void addToolToDatabase(McpSchema.Tool serverTool) {
-        try {
-            McpToolData newTool = new McpToolData();
-            newTool.setName(serverTool.name());
-            newTool.setDisplayName(serverTool.name());
-            newTool.setDescription(serverTool.description());
-            newTool.setType(McpToolData.Type.REMOTE);
-            newTool.setStatus(McpToolData.Status.ENABLED);
-            
-            // 将工具的 inputSchema 保存为 paramSchema
-            if (serverTool.inputSchema() != null) {
-                String paramSchemaJson = objectMapper.writeValueAsString(serverTool.inputSchema());
-                newTool.setParamSchema(paramSchemaJson);
-            }
-            
-            // 设置配置信息（暂时留空，后续可以从上下文获取）
-            newTool.setConfigJson("{}");
-            
-            newTool.setCreateTime(LocalDateTime.now());
-            newTool.setUpdateTime(LocalDateTime.now());
-            
-            // 保存到数据库
-            mcpToolRegistryService.saveTool(newTool);
-            
-        } catch (Exception e) {
-            log.error("添加工具到数据库失败: {}", serverTool.name(), e);
-        }
-    }
-    
-    /**
-     * 更新数据库中的工具
-     * 
-     * @param dbTool 数据库中的工具
-     * @param serverTool 服务端工具
-     */
-    private void updateToolInDatabase(McpToolData dbTool, McpSchema.Tool serverTool) {
-        try {
-            boolean updated = false;
-            
-            // 更新描述
-            if (!Objects.equals(dbTool.getDescription(), serverTool.description())) {
-                dbTool.setDescription(serverTool.description());
-                updated = true;
-            }
-            
-            // 更新参数 schema
-            if (serverTool.inputSchema() != null) {
-                String newParamSchema = objectMapper.writeValueAsString(serverTool.inputSchema());
-                if (!Objects.equals(dbTool.getParamSchema(), newParamSchema)) {
-                    dbTool.setParamSchema(newParamSchema);
-                    updated = true;
-                }
-            }
-            
-            // 如果工具之前被禁用，重新启用
-            if (dbTool.getStatus() == McpToolData.Status.DISABLED) {
-                dbTool.setStatus(McpToolData.Status.ENABLED);
-                updated = true;
-                log.info("  工具 {} 已重新启用", dbTool.getName());
-            }
-            
-            if (updated) {
-                dbTool.setUpdateTime(LocalDateTime.now());
-                mcpToolRegistryService.updateTool(dbTool);
-            }
-            
-        } catch (Exception e) {
-            log.error("更新工具失败: {}", dbTool.getName(), e);
-        }
-    }
-    
-    /**
-     * 禁用数据库中的工具（不删除，只标记为 DISABLED）
-     * 
-     * @param dbTool 数据库中的工具
-     */
-    private void disableToolInDatabase(McpToolData dbTool) {
-        try {
-            if (dbTool.getStatus() != McpToolData.Status.DISABLED) {
-                dbTool.setStatus(McpToolData.Status.DISABLED);
-                dbTool.setUpdateTime(LocalDateTime.now());
-                mcpToolRegistryService.updateTool(dbTool);
-            }
-        } catch (Exception e) {
-            log.error("禁用工具失败: {}", dbTool.getName(), e);
-        }
-    }
-    
-    /**
-     * 判断工具是否需要更新
-     * 
-     * @param dbTool 数据库中的工具
-     * @param serverTool 服务端工具
-     * @return 是否需要更新
+     * 等待执行的工具同步（同一服务器的多次通知合并到一起）
      */
-    private boolean shouldUpdateTool(McpToolData dbTool, McpSchema.Tool serverTool) {
-        try {
-            // 检查描述是否变化
-            if (!Objects.equals(dbTool.getDescription(), serverTool.description())) {
-                return true;
-            }
-            
-            // 检查参数 schema 是否变化
-            if (serverTool.inputSchema() != null) {
-                String newParamSchema = objectMapper.writeValueAsString(serverTool.inputSchema());
-                if (!Objects.equals(dbTool.getParamSchema(), newParamSchema)) {
-                    return true;
-                }
-            }
-            
-            // 检查状态（如果被禁用，需要重新启用）
-            if (dbTool.getStatus() == McpToolData.Status.DISABLED) {
-                return true;
-            }
-            
-            return false;
-            
-        } catch (Exception e) {
-            log.error("判断工具是否需要更新失败: {}", dbTool.getName(), e);
-            return false;
+    private static final class PendingToolSync {
+
+        private final long firstNotifiedAt;
+
+        private volatile McpToolListChangedEvent latestEvent;
+
+        private volatile int notificationCount;
+
+        private volatile ScheduledFuture<?> future;
+
+        private PendingToolSync(long firstNotifiedAt) {
+            this.firstNotifiedAt = firstNotifiedAt;
         }
     }
-    
-    // ========== 可选的辅助方法 ==========
-    
-    /**
-     * 通知前端刷新（通过 WebSocket）
-     * 
-     * @param updatedTools 更新后的工具列表
-     */
-    private void notifyFrontendToRefresh(List<McpSchema.Tool> updatedTools) {
-        // TODO: 实现 WebSocket 推送
-        // 1. 构建 WebSocket 消息
-        // 2. 推送到所有在线客户端
-        // 3. 前端收到消息后自动刷新工具列表 UI
-        
-        log.debug("通知前端刷新工具列表...");
-    }
 }
-
@@ -0,0 +1,17 @@
+package cn.sam.demo.mcpclient.listener;
+
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.util.List;
+
+/**
+ * MCP 服务器提示词列表变更事件
+ *
+ * <p>客户端连接成功时以及收到 prompts/list_changed 通知后发布，携带服务器的完整提示词列表。</p>
+ *
+ * @param serverKey 服务器标识（url|传输类型）
+ * @param prompts   服务器当前的完整提示词列表
+ * @author Administrator
+ */
+public record McpPromptListChangedEvent(String serverKey, List<McpSchema.Prompt> prompts) {
+}
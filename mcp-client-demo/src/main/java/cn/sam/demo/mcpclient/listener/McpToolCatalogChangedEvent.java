@@ -0,0 +1,47 @@
+package cn.sam.demo.mcpclient.listener;
+
+import cn.sam.demo.mcpclient.entity.McpToolData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 工具目录变更事件
+ *
+ * <p>工具数据写入数据库（事务提交）后发布，由
+ * {@link cn.sam.demo.mcpclient.service.McpToolCatalogPushService} 推送给前端。</p>
+ *
+ * @param added    新增的工具ID
+ * @param updated  更新的工具ID（不含被禁用的）
+ * @param disabled 被禁用的工具ID
+ * @param removed  被删除的工具ID
+ * @author Administrator
+ */
+public record McpToolCatalogChangedEvent(List<Long> added, List<Long> updated, List<Long> disabled,
+                                         List<Long> removed) {
+
+    /**
+     * 根据新增和更新的工具构建事件，状态为禁用的更新归入 disabled
+     */
+    public static McpToolCatalogChangedEvent of(List<McpToolData> inserts, List<McpToolData> updates) {
+        List<Long> added = inserts.stream().map(McpToolData::getId).toList();
+        List<Long> updated = new ArrayList<>();
+        List<Long> disabled = new ArrayList<>();
+        for (McpToolData tool : updates) {
+            if (McpToolData.Status.DISABLED.equals(tool.getStatus())) {
+                disabled.add(tool.getId());
+            } else {
+                updated.add(tool.getId());
+            }
+        }
+        return new McpToolCatalogChangedEvent(added, updated, disabled, List.of());
+    }
+
+    public static McpToolCatalogChangedEvent removed(List<Long> ids) {
+        return new McpToolCatalogChangedEvent(List.of(), List.of(), List.of(), List.copyOf(ids));
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && updated.isEmpty() && disabled.isEmpty() && removed.isEmpty();
+    }
+}
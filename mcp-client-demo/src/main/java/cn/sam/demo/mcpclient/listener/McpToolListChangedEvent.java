@@ -0,0 +1,21 @@
+package cn.sam.demo.mcpclient.listener;
+
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.util.List;
+
+/**
+ * MCP 服务器工具列表变更事件
+ *
+ * <p>由 {@link cn.sam.demo.mcpclient.service.UniversalMcpClientService} 创建的客户端在收到
+ * tools/list_changed 通知后发布，携带发出通知的服务器标识，便于只同步该服务器的工具。</p>
+ *
+ * @param serverKey     服务器标识（url|传输类型）
+ * @param url           服务器地址，无法确定时为 null
+ * @param transportType 传输类型，无法确定时为 null
+ * @param tools         服务器当前的完整工具列表
+ * @author Administrator
+ */
+public record McpToolListChangedEvent(String serverKey, String url, String transportType,
+                                      List<McpSchema.Tool> tools) {
+}
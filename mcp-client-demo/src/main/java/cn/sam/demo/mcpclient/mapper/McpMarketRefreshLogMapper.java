@@ -0,0 +1,14 @@
+package cn.sam.demo.mcpclient.mapper;
+
+import cn.sam.demo.mcpclient.entity.McpMarketRefreshLog;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * MCP 市场刷新记录 Mapper 接口
+ *
+ * @author Administrator
+ */
+@Mapper
+public interface McpMarketRefreshLogMapper extends BaseMapper<McpMarketRefreshLog> {
+}
@@ -0,0 +1,14 @@
+package cn.sam.demo.mcpclient.mapper;
+
+import cn.sam.demo.mcpclient.entity.McpToolStats;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * MCP 工具调用统计 Mapper 接口
+ *
+ * @author Administrator
+ */
+@Mapper
+public interface McpToolStatsMapper extends BaseMapper<McpToolStats> {
+}
@@ -0,0 +1,426 @@
+package cn.sam.demo.mcpclient.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MCP 端点熔断器（按服务器标识）
+ *
+ * <ul>
+ *   <li>CLOSED：正常放行，按最近 window-size 次调用统计失败率，达到阈值后熔断</li>
+ *   <li>OPEN：直接快速失败，open-duration 之后进入半开</li>
+ *   <li>HALF_OPEN：只放行一个探测调用，成功则恢复，失败则重新熔断</li>
+ * </ul>
+ *
+ * <p>超时时间按同一服务器上同一操作（工具名称，或 tools/list、ping）最近调用耗时的分位数 * 倍数自适应，
+ * 限制在 [min-ms, max-ms]；样本不足时使用 max-ms。耗时按操作分别统计，慢工具不会以同服务器上快工具的耗时为基准；
+ * 超时的调用以超时时间作为耗时样本，持续超时时超时时间随之放宽。
+ * 服务端返回的协议错误（McpError）说明端点可用，不计为失败。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Service
+public class McpEndpointCircuitBreaker {
+
+    @Value("${mcp.client.circuit-breaker.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 统计失败率的滑动窗口（调用次数）
+     */
+    @Value("${mcp.client.circuit-breaker.window-size:20}")
+    private int windowSize;
+
+    /**
+     * 窗口内至少多少次调用才计算失败率
+     */
+    @Value("${mcp.client.circuit-breaker.minimum-calls:5}")
+    private int minimumCalls;
+
+    /**
+     * 失败率阈值（百分比）
+     */
+    @Value("${mcp.client.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    /**
+     * 熔断持续时间（毫秒），之后进入半开
+     */
+    @Value("${mcp.client.circuit-breaker.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    /**
+     * 自适应超时使用的耗时分位数
+     */
+    @Value("${mcp.client.circuit-breaker.timeout.percentile:99}")
+    private double timeoutPercentile;
+
+    /**
+     * 自适应超时 = 分位数耗时 * multiplier
+     */
+    @Value("${mcp.client.circuit-breaker.timeout.multiplier:3}")
+    private double timeoutMultiplier;
+
+    @Value("${mcp.client.circuit-breaker.timeout.min-ms:1000}")
+    private long minTimeoutMs;
+
+    @Value("${mcp.client.circuit-breaker.timeout.max-ms:20000}")
+    private long maxTimeoutMs;
+
+    /**
+     * 计算自适应超时所需的最少样本数
+     */
+    @Value("${mcp.client.circuit-breaker.timeout.min-samples:20}")
+    private int minLatencySamples;
+
+    /**
+     * 保留的耗时样本数
+     */
+    private static final int LATENCY_SAMPLES = 200;
+
+    private final Map<String, EndpointState> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * 熔断状态
+     */
+    public static class State {
+        public static final String CLOSED = "CLOSED";
+        public static final String OPEN = "OPEN";
+        public static final String HALF_OPEN = "HALF_OPEN";
+    }
+
+    /**
+     * 熔断中，调用被拒绝
+     */
+    public static class CircuitOpenException extends RuntimeException {
+        public CircuitOpenException(String serverKey) {
+            super("MCP 服务暂不可用（熔断中）: " + serverKey);
+        }
+    }
+
+    /**
+     * 申请调用许可，熔断中时抛出 {@link CircuitOpenException}
+     *
+     * <p>返回 true 时本次调用是半开探测，调用方必须以 onSuccess / onFailure 记录结果，
+     * 或在未得出结果（被中断、被取消）时调用 {@link #releaseProbe(String)} 归还探测名额。</p>
+     *
+     * @param serverKey 服务器标识
+     * @return 本次调用是否为半开探测
+     */
+    public boolean acquirePermission(String serverKey) {
+        if (!enabled) {
+            return false;
+        }
+        Boolean probe = state(serverKey).tryAcquire(System.currentTimeMillis());
+        if (probe == null) {
+            throw new CircuitOpenException(serverKey);
+        }
+        return probe;
+    }
+
+    /**
+     * 归还半开探测名额，不记录调用结果（探测调用被中断或取消时使用），下一个调用继续探测
+     *
+     * @param serverKey 服务器标识
+     */
+    public void releaseProbe(String serverKey) {
+        EndpointState endpoint = endpoints.get(serverKey);
+        if (endpoint != null) {
+            endpoint.releaseProbe();
+        }
+    }
+
+    /**
+     * 是否允许调用（不占用半开探测名额），用于可用性判断
+     *
+     * @param serverKey 服务器标识
+     * @return 未熔断或已到半开探测时间时返回 true
+     */
+    public boolean isCallPermitted(String serverKey) {
+        if (!enabled) {
+            return true;
+        }
+        EndpointState endpoint = endpoints.get(serverKey);
+        return endpoint == null || endpoint.isCallPermitted(System.currentTimeMillis());
+    }
+
+    /**
+     * 当前调用超时时间
+     *
+     * @param serverKey 服务器标识
+     * @param operation 操作（工具名称，或 tools/list、ping）
+     * @return 自适应超时
+     */
+    public Duration getTimeout(String serverKey, String operation) {
+        EndpointState endpoint = endpoints.get(serverKey);
+        LatencyWindow window = endpoint != null ? endpoint.operations.get(operation) : null;
+        return Duration.ofMillis(window != null ? window.timeoutMs : maxTimeoutMs);
+    }
+
+    /**
+     * 记录成功调用
+     *
+     * @param serverKey    服务器标识
+     * @param operation    操作（工具名称，或 tools/list、ping）
+     * @param elapsedNanos 耗时（纳秒）
+     */
+    public void onSuccess(String serverKey, String operation, long elapsedNanos) {
+        EndpointState endpoint = state(serverKey);
+        endpoint.window(operation).record(TimeUnit.NANOSECONDS.toMillis(elapsedNanos), false);
+        endpoint.onSuccess();
+    }
+
+    /**
+     * 记录超时调用的耗时样本（实际耗时不低于超时时间），使持续超时的操作放宽超时；
+     * 超时是否计为失败由调用方另行通过 {@link #onFailure(String)} 记录
+     *
+     * @param serverKey    服务器标识
+     * @param operation    操作（工具名称，或 tools/list、ping）
+     * @param elapsedNanos 已等待的时间（纳秒）
+     */
+    public void onTimeout(String serverKey, String operation, long elapsedNanos) {
+        state(serverKey).window(operation).record(TimeUnit.NANOSECONDS.toMillis(elapsedNanos), true);
+    }
+
+    /**
+     * 记录失败调用
+     *
+     * @param serverKey 服务器标识
+     * @return 本次失败是否导致熔断（状态变为 OPEN）
+     */
+    public boolean onFailure(String serverKey) {
+        boolean opened = state(serverKey).onFailure(System.currentTimeMillis());
+        if (opened) {
+            log.warn("MCP 服务熔断: {}，{} ms 后尝试半开探测", serverKey, openDurationMs);
+        }
+        return opened;
+    }
+
+    /**
+     * 所有端点的熔断状态
+     */
+    public Map<String, Map<String, Object>> getSnapshot() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        endpoints.forEach((serverKey, endpoint) -> snapshot.put(serverKey, endpoint.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * 最近调用耗时的分位数
+     *
+     * @param serverKey  服务器标识
+     * @param operation  操作（工具名称，或 tools/list、ping）
+     * @param percentile 分位数（0-100）
+     * @return 耗时（毫秒），样本不足时返回 null
+     */
+    public Long getLatencyPercentileMs(String serverKey, String operation, double percentile) {
+        EndpointState endpoint = endpoints.get(serverKey);
+        LatencyWindow window = endpoint != null ? endpoint.operations.get(operation) : null;
+        long[] sorted = window != null ? window.sortedLatencies : null;
+        return sorted != null ? percentileOf(sorted, percentile) : null;
+    }
+
+    /**
+     * 服务器上已有耗时统计的操作
+     *
+     * @param serverKey 服务器标识
+     * @return 操作名称
+     */
+    public Set<String> getOperations(String serverKey) {
+        EndpointState endpoint = endpoints.get(serverKey);
+        return endpoint != null ? new TreeSet<>(endpoint.operations.keySet()) : Set.of();
+    }
+
+    private static long percentileOf(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private EndpointState state(String serverKey) {
+        return endpoints.computeIfAbsent(serverKey, key -> new EndpointState());
+    }
+
+    /**
+     * 单个端点的状态（方法均加锁，竞争只发生在同一端点的并发调用之间）
+     */
+    private final class EndpointState {
+
+        private String state = State.CLOSED;
+
+        private long openedAt;
+
+        private boolean probeInFlight;
+
+        private final boolean[] outcomes = new boolean[windowSize];
+
+        private int outcomeIndex;
+
+        private int outcomeCount;
+
+        private int failureCount;
+
+        /**
+         * 操作 -> 耗时窗口
+         */
+        private final Map<String, LatencyWindow> operations = new ConcurrentHashMap<>();
+
+        private long totalCalls;
+
+        private long totalFailures;
+
+        private long rejectedCalls;
+
+        /**
+         * @return false 为普通放行，true 为半开探测，null 为拒绝
+         */
+        synchronized Boolean tryAcquire(long now) {
+            if (State.OPEN.equals(state) && now - openedAt >= openDurationMs) {
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (State.CLOSED.equals(state)) {
+                return false;
+            }
+            if (State.HALF_OPEN.equals(state) && !probeInFlight) {
+                probeInFlight = true;
+                return true;
+            }
+            rejectedCalls++;
+            return null;
+        }
+
+        synchronized void releaseProbe() {
+            if (State.HALF_OPEN.equals(state)) {
+                probeInFlight = false;
+            }
+        }
+
+        synchronized boolean isCallPermitted(long now) {
+            return State.CLOSED.equals(state)
+                    || (State.OPEN.equals(state) && now - openedAt >= openDurationMs)
+                    || (State.HALF_OPEN.equals(state) && !probeInFlight);
+        }
+
+        LatencyWindow window(String operation) {
+            return operations.computeIfAbsent(operation, key -> new LatencyWindow());
+        }
+
+        synchronized void onSuccess() {
+            totalCalls++;
+            recordOutcome(false);
+            if (!State.CLOSED.equals(state)) {
+                log.info("MCP 服务恢复: 半开探测成功");
+                state = State.CLOSED;
+                probeInFlight = false;
+                resetOutcomes();
+            }
+        }
+
+        synchronized boolean onFailure(long now) {
+            totalCalls++;
+            totalFailures++;
+            recordOutcome(true);
+            if (State.HALF_OPEN.equals(state)) {
+                open(now);
+                return true;
+            }
+            if (State.CLOSED.equals(state) && outcomeCount >= minimumCalls
+                    && failureCount * 100 >= failureRateThreshold * outcomeCount) {
+                open(now);
+                return true;
+            }
+            return false;
+        }
+
+        private void open(long now) {
+            state = State.OPEN;
+            openedAt = now;
+            probeInFlight = false;
+        }
+
+        private void recordOutcome(boolean failure) {
+            if (outcomeCount == outcomes.length && outcomes[outcomeIndex]) {
+                failureCount--;
+            }
+            outcomes[outcomeIndex] = failure;
+            if (failure) {
+                failureCount++;
+            }
+            outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+            outcomeCount = Math.min(outcomeCount + 1, outcomes.length);
+        }
+
+        private void resetOutcomes() {
+            Arrays.fill(outcomes, false);
+            outcomeIndex = 0;
+            outcomeCount = 0;
+            failureCount = 0;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("state", state);
+            snapshot.put("failureRate", outcomeCount == 0 ? 0 : failureCount * 100 / outcomeCount);
+            snapshot.put("windowCalls", outcomeCount);
+            Map<String, Long> timeouts = new TreeMap<>();
+            operations.forEach((operation, window) -> timeouts.put(operation, window.timeoutMs));
+            snapshot.put("timeoutMs", timeouts);
+            snapshot.put("totalCalls", totalCalls);
+            snapshot.put("totalFailures", totalFailures);
+            snapshot.put("rejectedCalls", rejectedCalls);
+            return snapshot;
+        }
+    }
+
+    /**
+     * 单个操作的耗时样本和自适应超时
+     */
+    private final class LatencyWindow {
+
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+
+        private int latencyIndex;
+
+        private int latencyCount;
+
+        private volatile long timeoutMs = maxTimeoutMs;
+
+        /**
+         * 最近一次计算超时时的耗时样本（已排序），供分位数查询
+         */
+        private volatile long[] sortedLatencies;
+
+        /**
+         * @param timedOut 是否为超时样本，超时样本立即重新计算超时
+         */
+        synchronized void record(long elapsedMs, boolean timedOut) {
+            latencies[latencyIndex] = elapsedMs;
+            latencyIndex = (latencyIndex + 1) % latencies.length;
+            latencyCount = Math.min(latencyCount + 1, latencies.length);
+            // 每 10 个样本重新计算一次超时，避免每次调用都排序
+            if (latencyCount >= minLatencySamples && (timedOut || latencyIndex % 10 == 0)) {
+                timeoutMs = computeTimeout();
+            }
+        }
+
+        private long computeTimeout() {
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            sortedLatencies = sorted;
+            long percentile = percentileOf(sorted, timeoutPercentile);
+            return Math.max(minTimeoutMs, Math.min(maxTimeoutMs, (long) (percentile * timeoutMultiplier)));
+        }
+    }
+}
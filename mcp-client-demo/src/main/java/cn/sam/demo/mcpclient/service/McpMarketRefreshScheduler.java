@@ -0,0 +1,154 @@
+package cn.sam.demo.mcpclient.service;
+
+import cn.sam.demo.mcpclient.entity.McpMarket;
+import cn.sam.demo.mcpclient.entity.McpMarketRefreshLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MCP 市场定时刷新调度器
+ *
+ * <p>按市场各自的刷新间隔（{@link McpMarket#getRefreshInterval()}，为空时使用默认值）刷新所有启用的市场：
+ * 首次发现的市场在一个间隔内随机错开首次执行时间，之后每次在间隔基础上叠加随机抖动，避免多个市场同时刷新；
+ * 上一次刷新尚未结束的市场直接跳过。每次刷新的耗时和条数记录到 mcp_market_refresh_log。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Component
+public class McpMarketRefreshScheduler {
+
+    @Resource
+    private McpMarketService mcpMarketService;
+
+    /**
+     * 是否启用定时刷新
+     */
+    @Value("${mcp.market.refresh.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 默认刷新间隔（分钟），市场未配置 refresh_interval 时使用
+     */
+    @Value("${mcp.market.refresh.default-interval-minutes:360}")
+    private int defaultIntervalMinutes;
+
+    /**
+     * 抖动比例，实际间隔在 interval * (1 ± jitterRatio) 之间
+     */
+    @Value("${mcp.market.refresh.jitter-ratio:0.1}")
+    private double jitterRatio;
+
+    /**
+     * 同时执行刷新的最大市场数
+     */
+    @Value("${mcp.market.refresh.pool-size:2}")
+    private int poolSize;
+
+    /**
+     * 每个市场下一次刷新的时间（毫秒时间戳）
+     */
+    private final Map<Long, Long> nextRunAt = new ConcurrentHashMap<>();
+
+    private ExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        refreshExecutor = Executors.newFixedThreadPool(Math.max(1, poolSize), r -> {
+            Thread thread = new Thread(r, "market-refresh-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 定时检查到期的市场并提交刷新任务
+     */
+    @Scheduled(initialDelayString = "${mcp.market.refresh.initial-delay-ms:60000}",
+            fixedDelayString = "${mcp.market.refresh.check-interval-ms:60000}")
+    public void checkDueMarkets() {
+        if (!enabled) {
+            return;
+        }
+
+        List<McpMarket> markets;
+        try {
+            markets = mcpMarketService.listByStatus(McpMarket.Status.ENABLED);
+        } catch (Exception e) {
+            log.warn("查询启用的市场失败，跳过本轮定时刷新", e);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Set<Long> activeIds = new HashSet<>();
+        for (McpMarket market : markets) {
+            long intervalMs = resolveIntervalMs(market);
+            if (intervalMs <= 0) {
+                continue;
+            }
+            Long marketId = market.getId();
+            activeIds.add(marketId);
+
+            Long next = nextRunAt.get(marketId);
+            if (next == null) {
+                // 首次发现的市场：在一个间隔内随机错开首次刷新时间
+                nextRunAt.put(marketId, now + ThreadLocalRandom.current().nextLong(intervalMs));
+                continue;
+            }
+            if (now < next) {
+                continue;
+            }
+
+            nextRunAt.put(marketId, now + jitter(intervalMs));
+            if (mcpMarketService.isRefreshing(marketId)) {
+                log.info("市场 {} 上一次刷新尚未结束，跳过本次定时刷新", market.getName());
+                continue;
+            }
+            refreshExecutor.execute(() -> {
+                try {
+                    mcpMarketService.refreshMarketTools(marketId, McpMarketRefreshLog.Trigger.SCHEDULED);
+                } catch (Exception e) {
+                    log.error("定时刷新市场失败: {}", marketId, e);
+                }
+            });
+        }
+
+        // 移除已禁用、已删除或关闭自动刷新的市场
+        nextRunAt.keySet().retainAll(activeIds);
+    }
+
+    private long resolveIntervalMs(McpMarket market) {
+        int minutes = market.getRefreshInterval() != null ? market.getRefreshInterval() : defaultIntervalMinutes;
+        return minutes > 0 ? TimeUnit.MINUTES.toMillis(minutes) : 0;
+    }
+
+    private long jitter(long intervalMs) {
+        long range = (long) (intervalMs * Math.max(0, Math.min(jitterRatio, 1.0)));
+        if (range <= 0) {
+            return intervalMs;
+        }
+        return intervalMs - range + ThreadLocalRandom.current().nextLong(2 * range + 1);
+    }
+}
@@ -52,6 +52,36 @@ public interface McpMarketService {
      */
     List<McpMarket> searchByName(String name);
 
+    /**
+     * 全文检索市场（名称、描述），按相关度排序并分页
+     *
+     * @param keyword 关键字
+     * @param status  状态（可选）
+     * @param page    页码（从1开始）
+     * @param size    每页大小
+     * @return 分页结果，包含 data、scores、total、page、size、pages
+     */
+    Map<String, Object> search(String keyword, String status, Integer page, Integer size);
+
+    /**
+     * 分页查询市场列表（精简视图，不含认证配置）
+     *
+     * @param status 状态（可选）
+     * @param page   页码（从1开始）
+     * @param size   每页大小
+     * @param sort   排序字段：id、name、status、createTime、updateTime，默认 createTime
+     * @param order  排序方向：asc、desc，默认 desc
+     * @return 分页结果，包含 data、total、page、size、pages
+     */
+    Map<String, Object> listPage(String status, Integer page, Integer size, String sort, String order);
+
+    /**
+     * 获取市场表的数据版本（写入版本号 + 记录数 + 最大更新时间），用于列表接口生成 ETag
+     *
+     * @return 数据版本
+     */
+    String getListVersion();
+
     /**
      * 删除市场
      *
@@ -87,6 +117,17 @@ public interface McpMarketService {
      */
     Map<String, Object> getMarketToolsWithPage(Long marketId, Integer page, Integer size);
 
+    /**
+     * 全文检索市场工具（名称、标题、描述、作者、分类），按相关度排序并分页
+     *
+     * @param marketId 市场ID
+     * @param keyword  关键字
+     * @param page     页码（从1开始）
+     * @param size     每页大小
+     * @return 分页结果，包含 data、scores、total、page、size、pages
+     */
+    Map<String, Object> searchMarketTools(Long marketId, String keyword, Integer page, Integer size);
+
     /**
      * 刷新市场工具列表
      *
@@ -95,6 +136,34 @@ public interface McpMarketService {
      */
     boolean refreshMarketTools(Long marketId);
 
+    /**
+     * 刷新市场工具列表并记录刷新历史（耗时、条数）
+     * 同一市场上一次刷新尚未结束时直接跳过，返回 false
+     *
+     * @param marketId    市场ID
+     * @param triggerType 触发方式，见 {@link cn.sam.demo.mcpclient.entity.McpMarketRefreshLog.Trigger}
+     * @return 是否刷新成功
+     */
+    boolean refreshMarketTools(Long marketId, String triggerType);
+
+    /**
+     * 市场是否正在刷新
+     *
+     * @param marketId 市场ID
+     * @return 是否正在刷新
+     */
+    boolean isRefreshing(Long marketId);
+
+    /**
+     * 分页查询市场刷新记录（按开始时间倒序）
+     *
+     * @param marketId 市场ID
+     * @param page     页码（从1开始）
+     * @param size     每页大小
+     * @return 分页结果，包含 data、total、page、size、pages
+     */
+    Map<String, Object> getRefreshLogsWithPage(Long marketId, Integer page, Integer size);
+
     /**
      * 加载市场工具到本地
      *
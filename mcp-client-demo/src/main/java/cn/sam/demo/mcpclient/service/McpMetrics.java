@@ -0,0 +1,175 @@
+package cn.sam.demo.mcpclient.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * MCP 客户端指标
+ *
+ * <p>集中定义对话、工具调用、客户端连接池、历史记录写入和市场刷新的 Micrometer 指标，
+ * 通过 /actuator/prometheus 暴露。指标名统一以 mcp. 开头，分位数直方图在 application.yaml 中按前缀开启。</p>
+ *
+ * <ul>
+ *     <li>mcp.chat.turn：一次对话的总耗时，标签 endpoint、outcome</li>
+ *     <li>mcp.chat.first_token：流式对话的首个输出耗时，标签 endpoint</li>
+ *     <li>mcp.chat.tokens：每次对话的 token 数，标签 endpoint、type（prompt/completion）</li>
+ *     <li>mcp.tool.call：工具调用耗时，标签 tool、server（远程为 url|传输类型，本地为 local）、outcome</li>
+ *     <li>mcp.client.pool.*：客户端连接池状态</li>
+ *     <li>mcp.chat.history.write：历史记录写入耗时，标签 outcome</li>
+ *     <li>mcp.market.refresh：市场刷新耗时，标签 trigger、outcome</li>
+ * </ul>
+ *
+ * @author Administrator
+ */
+@Component
+public class McpMetrics {
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_ERROR = "error";
+    /**
+     * 调用被熔断拒绝，未真正发出
+     */
+    public static final String OUTCOME_REJECTED = "rejected";
+
+    /**
+     * 本地工具的 server 标签
+     */
+    public static final String LOCAL_SERVER = "local";
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 记录一次对话的总耗时（从收到请求到响应完成）
+     *
+     * @param endpoint   对话接口，如 generateWithTools
+     * @param startNanos 开始时间（System.nanoTime()）
+     * @param success    是否成功
+     */
+    public void recordChatTurn(String endpoint, long startNanos, boolean success) {
+        Timer.builder("mcp.chat.turn")
+                .description("对话总耗时")
+                .tag("endpoint", endpoint)
+                .tag("outcome", success ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录流式对话的首个输出耗时
+     */
+    public void recordFirstToken(String endpoint, long startNanos) {
+        Timer.builder("mcp.chat.first_token")
+                .description("流式对话首个输出耗时")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录模型返回的 token 用量，模型未返回用量时忽略
+     */
+    public void recordTokens(String endpoint, ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null) {
+            return;
+        }
+        recordTokens(endpoint, "prompt", usage.getPromptTokens());
+        recordTokens(endpoint, "completion", usage.getCompletionTokens());
+    }
+
+    private void recordTokens(String endpoint, String type, Integer tokens) {
+        if (tokens == null || tokens <= 0) {
+            return;
+        }
+        DistributionSummary.builder("mcp.chat.tokens")
+                .description("每次对话的 token 数")
+                .baseUnit("tokens")
+                .tag("endpoint", endpoint)
+                .tag("type", type)
+                .register(meterRegistry)
+                .record(tokens);
+    }
+
+    /**
+     * 记录一次工具调用
+     *
+     * @param tool       工具名称
+     * @param server     服务器标识，本地工具为 {@link #LOCAL_SERVER}
+     * @param startNanos 开始时间（System.nanoTime()）
+     * @param outcome    success / error / rejected
+     */
+    public void recordToolCall(String tool, String server, long startNanos, String outcome) {
+        Timer.builder("mcp.tool.call")
+                .description("工具调用耗时")
+                .tag("tool", tool)
+                .tag("server", server)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次历史记录写入
+     */
+    public void recordHistoryWrite(long startNanos, boolean success) {
+        Timer.builder("mcp.chat.history.write")
+                .description("对话历史记录写入耗时")
+                .tag("outcome", success ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次市场刷新
+     *
+     * @param trigger 触发方式，见 McpMarketRefreshLog.Trigger
+     * @param status  刷新结果，见 McpMarketRefreshLog.Status
+     */
+    public void recordMarketRefresh(String trigger, String status, long durationNanos) {
+        Timer.builder("mcp.market.refresh")
+                .description("市场刷新耗时")
+                .tag("trigger", trigger)
+                .tag("outcome", status)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录客户端连接池事件（created / closed / reclaimed）
+     */
+    public void countClientEvent(String event) {
+        Counter.builder("mcp.client.pool.events")
+                .description("MCP 客户端创建与回收次数")
+                .tag("event", event)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 注册一个按需取值的仪表
+     *
+     * @param name        指标名
+     * @param description 描述
+     * @param value       取值函数，抓取指标时调用
+     */
+    public void gauge(String name, String description, Supplier<Number> value) {
+        Gauge.builder(name, value)
+                .description(description)
+                .strongReference(true)
+                .register(meterRegistry);
+    }
+}
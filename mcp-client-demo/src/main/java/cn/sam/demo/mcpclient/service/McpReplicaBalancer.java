@@ -0,0 +1,281 @@
+package cn.sam.demo.mcpclient.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * MCP 服务副本负载均衡
+ *
+ * <p>transport 配置中的 urls 为同一 MCP 服务的多个副本（按服务器标识归组，工具仍以主 url 标识，
+ * 同一服务器的工具共享副本列表）。
+ * 每次调用用两次随机选择（power of two choices）挑出两个健康副本，取进行中请求较少的一个。</p>
+ *
+ * <p>被动健康检查：副本连续失败 eject-after-failures 次后摘除 eject-duration-ms，到期自动恢复；
+ * 所有副本都被摘除时退化为在全部副本中选择，避免整体不可用。
+ * 请求在副本上连接失败时由 {@link #chooseFailover} 换一个健康副本重试一次，单个副本故障不会计入服务器熔断。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Service
+public class McpReplicaBalancer {
+
+    /**
+     * 连续失败多少次后摘除副本
+     */
+    @Value("${mcp.client.replica.eject-after-failures:3}")
+    private int ejectAfterFailures;
+
+    /**
+     * 摘除时长（毫秒）
+     */
+    @Value("${mcp.client.replica.eject-duration-ms:30000}")
+    private long ejectDurationMs;
+
+    private final Map<String, List<Replica>> replicaSets = new ConcurrentHashMap<>();
+
+    /**
+     * 更新服务器的副本列表（同一服务器的所有工具共享，后配置的覆盖先配置的）
+     *
+     * @param url           主地址（服务器标识）
+     * @param transportType 传输类型
+     * @param replicaUrls   副本地址列表，为空或只有主地址时取消负载均衡
+     */
+    public void updateReplicas(String url, String transportType, List<String> replicaUrls) {
+        String serverKey = UniversalMcpClientService.buildServerKey(url, transportType);
+        LinkedHashSet<String> urls = new LinkedHashSet<>();
+        if (replicaUrls != null) {
+            replicaUrls.stream().filter(u -> u != null && !u.isBlank()).map(String::trim).forEach(urls::add);
+        }
+        if (urls.isEmpty() || (urls.size() == 1 && urls.contains(url))) {
+            replicaSets.remove(serverKey);
+            return;
+        }
+
+        List<Replica> existing = replicaSets.get(serverKey);
+        if (existing != null && existing.stream().map(r -> r.url).toList().equals(new ArrayList<>(urls))) {
+            return;
+        }
+        // 保留已有副本的统计
+        Map<String, Replica> previous = new HashMap<>();
+        if (existing != null) {
+            existing.forEach(r -> previous.put(r.url, r));
+        }
+        List<Replica> replicas = urls.stream().map(u -> previous.getOrDefault(u, new Replica(u))).toList();
+        replicaSets.put(serverKey, replicas);
+        log.info("MCP 服务副本已更新: {} -> {}", serverKey, urls);
+    }
+
+    /**
+     * 按工具的 transport 配置登记副本
+     *
+     * @param transport config_json 中的 transport 配置（type、url、urls）
+     * @return 服务器主地址：url，未配置时取 urls 的第一个
+     */
+    public String registerTransport(Map<String, Object> transport) {
+        String url = (String) transport.get("url");
+        List<String> urls = new ArrayList<>();
+        if (transport.get("urls") instanceof Collection<?> values) {
+            values.forEach(value -> {
+                if (value != null) {
+                    urls.add(value.toString());
+                }
+            });
+        }
+        if ((url == null || url.isEmpty()) && !urls.isEmpty()) {
+            url = urls.get(0).trim();
+        }
+        // 只有显式配置 urls 的工具才更新副本列表，同一服务器下未配置 urls 的工具沿用已有副本
+        if (url != null && !url.isEmpty() && transport.containsKey("urls")) {
+            updateReplicas(url, (String) transport.get("type"), urls);
+        }
+        return url;
+    }
+
+    /**
+     * 选择一个副本
+     *
+     * @param serverKey  服务器标识
+     * @param defaultUrl 未配置副本时使用的地址
+     * @param exclude    需要排除的副本（对冲时排除主请求所用副本），可为 null
+     * @return 副本地址；排除后没有可选副本时返回 null
+     */
+    public String choose(String serverKey, String defaultUrl, String exclude) {
+        List<Replica> replicas = replicaSets.get(serverKey);
+        if (replicas == null) {
+            return exclude == null || !exclude.equals(defaultUrl) ? defaultUrl : null;
+        }
+
+        long now = System.currentTimeMillis();
+        List<Replica> candidates = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (!replica.url.equals(exclude) && replica.ejectedUntil <= now) {
+                candidates.add(replica);
+            }
+        }
+        if (candidates.isEmpty()) {
+            // 全部被摘除：在所有副本中选择
+            for (Replica replica : replicas) {
+                if (!replica.url.equals(exclude)) {
+                    candidates.add(replica);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0).url;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Replica a = candidates.get(first);
+        Replica b = candidates.get(second);
+        return (a.outstanding <= b.outstanding ? a : b).url;
+    }
+
+    /**
+     * 选择故障转移的副本：请求在某个副本上连接失败或传输失败后，换一个未被摘除的副本重试
+     *
+     * @param serverKey 服务器标识
+     * @param failedUrl 失败的副本
+     * @return 进行中请求最少的其他健康副本；未配置副本或没有其他健康副本时返回 null
+     */
+    public String chooseFailover(String serverKey, String failedUrl) {
+        List<Replica> replicas = replicaSets.get(serverKey);
+        if (replicas == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Replica best = null;
+        for (Replica replica : replicas) {
+            if (!replica.url.equals(failedUrl) && replica.ejectedUntil <= now
+                    && (best == null || replica.outstanding < best.outstanding)) {
+                best = replica;
+            }
+        }
+        return best != null ? best.url : null;
+    }
+
+    /**
+     * 请求开始
+     */
+    public void onStart(String serverKey, String url) {
+        Replica replica = find(serverKey, url);
+        if (replica != null) {
+            replica.onStart();
+        }
+    }
+
+    /**
+     * 请求结束
+     *
+     * @param success 是否成功，null 表示被取消（不计入健康统计）
+     * @return 本次失败是否导致副本被摘除
+     */
+    public boolean onComplete(String serverKey, String url, Boolean success) {
+        Replica replica = find(serverKey, url);
+        if (replica == null) {
+            return false;
+        }
+        boolean ejected = replica.onComplete(success, ejectAfterFailures, ejectDurationMs);
+        if (ejected) {
+            log.warn("MCP 服务副本连续失败，摘除 {} ms: {} ({})", ejectDurationMs, url, serverKey);
+        }
+        return ejected;
+    }
+
+    /**
+     * 各服务器的副本状态
+     */
+    public Map<String, List<Map<String, Object>>> getSnapshot() {
+        Map<String, List<Map<String, Object>>> snapshot = new TreeMap<>();
+        long now = System.currentTimeMillis();
+        replicaSets.forEach((serverKey, replicas) ->
+                snapshot.put(serverKey, replicas.stream().map(r -> r.snapshot(now)).toList()));
+        return snapshot;
+    }
+
+    private Replica find(String serverKey, String url) {
+        List<Replica> replicas = replicaSets.get(serverKey);
+        if (replicas == null) {
+            return null;
+        }
+        for (Replica replica : replicas) {
+            if (replica.url.equals(url)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 副本状态
+     */
+    private static final class Replica {
+
+        private final String url;
+
+        private volatile int outstanding;
+
+        private volatile long ejectedUntil;
+
+        private int consecutiveFailures;
+
+        private long totalRequests;
+
+        private long totalFailures;
+
+        private long ejections;
+
+        private Replica(String url) {
+            this.url = url;
+        }
+
+        synchronized void onStart() {
+            outstanding++;
+            totalRequests++;
+        }
+
+        synchronized boolean onComplete(Boolean success, int ejectAfterFailures, long ejectDurationMs) {
+            outstanding--;
+            if (success == null) {
+                return false;
+            }
+            if (success) {
+                consecutiveFailures = 0;
+                return false;
+            }
+            totalFailures++;
+            consecutiveFailures++;
+            if (consecutiveFailures >= ejectAfterFailures) {
+                consecutiveFailures = 0;
+                ejectedUntil = System.currentTimeMillis() + ejectDurationMs;
+                ejections++;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized Map<String, Object> snapshot(long now) {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("url", url);
+            snapshot.put("outstanding", outstanding);
+            snapshot.put("ejected", ejectedUntil > now);
+            snapshot.put("totalRequests", totalRequests);
+            snapshot.put("totalFailures", totalFailures);
+            snapshot.put("ejections", ejections);
+            return snapshot;
+        }
+    }
+}
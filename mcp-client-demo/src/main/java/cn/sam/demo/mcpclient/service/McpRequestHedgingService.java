@@ -0,0 +1,159 @@
+package cn.sam.demo.mcpclient.service;
+
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 远程工具调用对冲策略
+ *
+ * <p>幂等工具（config_json 中 "idempotent": true）的调用超过该工具在端点上观测到的 p95 耗时仍未返回时，
+ * 再发送一个重复请求，取先返回的结果。对冲次数受令牌桶限制：每次可对冲的调用积累 max-ratio 个令牌
+ * （上限 burst），每次对冲消耗一个，长期对冲比例不超过 max-ratio，避免端点变慢时请求量翻倍。</p>
+ *
+ * @author Administrator
+ */
+@Service
+public class McpRequestHedgingService {
+
+    @Resource
+    private McpEndpointCircuitBreaker circuitBreaker;
+
+    @Value("${mcp.client.hedging.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 触发对冲的耗时分位数
+     */
+    @Value("${mcp.client.hedging.percentile:95}")
+    private double percentile;
+
+    /**
+     * 对冲请求占可对冲调用的最大比例
+     */
+    @Value("${mcp.client.hedging.max-ratio:0.1}")
+    private double maxRatio;
+
+    /**
+     * 令牌桶容量（允许的突发对冲数）
+     */
+    @Value("${mcp.client.hedging.burst:5}")
+    private double burst;
+
+    /**
+     * 最小对冲延迟（毫秒），避免对极快的端点对冲
+     */
+    @Value("${mcp.client.hedging.min-delay-ms:20}")
+    private long minDelayMs;
+
+    private final Map<String, HedgeStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 获取对冲延迟
+     *
+     * @param serverKey 服务器标识
+     * @param toolName  工具名称
+     * @return 对冲延迟（毫秒），未启用或耗时样本不足时返回 null
+     */
+    public Long getHedgeDelayMs(String serverKey, String toolName) {
+        if (!enabled) {
+            return null;
+        }
+        Long latency = circuitBreaker.getLatencyPercentileMs(serverKey, toolName, percentile);
+        return latency != null ? Math.max(latency, minDelayMs) : null;
+    }
+
+    /**
+     * 记录一次可对冲的调用（积累令牌）
+     */
+    public void onEligibleCall(String serverKey) {
+        stats(serverKey).onEligibleCall();
+    }
+
+    /**
+     * 申请发送对冲请求
+     *
+     * @return 令牌充足时返回 true
+     */
+    public boolean tryAcquireHedge(String serverKey) {
+        return stats(serverKey).tryAcquire();
+    }
+
+    /**
+     * 记录对冲请求先于原请求返回
+     */
+    public void onHedgeWon(String serverKey) {
+        stats(serverKey).onHedgeWon();
+    }
+
+    /**
+     * 各端点的对冲统计
+     */
+    public Map<String, Map<String, Object>> getSnapshot() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        stats.forEach((serverKey, hedgeStats) -> {
+            Map<String, Object> item = hedgeStats.snapshot();
+            Map<String, Long> delays = new TreeMap<>();
+            for (String toolName : circuitBreaker.getOperations(serverKey)) {
+                Long delay = getHedgeDelayMs(serverKey, toolName);
+                if (delay != null) {
+                    delays.put(toolName, delay);
+                }
+            }
+            item.put("hedgeDelayMs", delays);
+            snapshot.put(serverKey, item);
+        });
+        return snapshot;
+    }
+
+    private HedgeStats stats(String serverKey) {
+        return stats.computeIfAbsent(serverKey, key -> new HedgeStats());
+    }
+
+    private final class HedgeStats {
+
+        private double tokens = burst;
+
+        private long eligibleCalls;
+
+        private long hedgesSent;
+
+        private long hedgesWon;
+
+        private long hedgesRejected;
+
+        synchronized void onEligibleCall() {
+            eligibleCalls++;
+            tokens = Math.min(burst, tokens + maxRatio);
+        }
+
+        synchronized boolean tryAcquire() {
+            if (tokens >= 1) {
+                tokens -= 1;
+                hedgesSent++;
+                return true;
+            }
+            hedgesRejected++;
+            return false;
+        }
+
+        synchronized void onHedgeWon() {
+            hedgesWon++;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("eligibleCalls", eligibleCalls);
+            snapshot.put("hedgesSent", hedgesSent);
+            snapshot.put("hedgesWon", hedgesWon);
+            snapshot.put("hedgesRejected", hedgesRejected);
+            snapshot.put("hedgeRate", eligibleCalls == 0 ? 0 : (double) hedgesSent / eligibleCalls);
+            return snapshot;
+        }
+    }
+}
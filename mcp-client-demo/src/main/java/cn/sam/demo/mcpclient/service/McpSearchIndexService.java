@@ -0,0 +1,619 @@
+package cn.sam.demo.mcpclient.service;
+
+import cn.sam.demo.mcpclient.dto.McpMarketListItem;
+import cn.sam.demo.mcpclient.dto.McpToolListItem;
+import cn.sam.demo.mcpclient.entity.McpMarket;
+import cn.sam.demo.mcpclient.entity.McpMarketTool;
+import cn.sam.demo.mcpclient.entity.McpToolData;
+import cn.sam.demo.mcpclient.mapper.McpMarketMapper;
+import cn.sam.demo.mcpclient.mapper.McpMarketToolMapper;
+import cn.sam.demo.mcpclient.mapper.McpToolMapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * MCP 全文检索索引服务
+ * 在内存中维护工具、市场工具、市场的倒排索引，替代 LIKE '%keyword%' 全表扫描
+ *
+ * <p>索引字段：名称、标题、描述、作者、分类；中文按单字 + 二元组切分，英文按单词切分并支持前缀匹配。
+ * 索引在首次检索时从数据库加载，之后由 CRUD、市场刷新、变更通知增量维护。
+ * 重建时在新的索引实例中加载，完成后整体替换，检索始终看到完整的索引；重建期间的增量变更在替换前重放到新索引。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Service
+public class McpSearchIndexService {
+
+    @Resource
+    private McpToolMapper mcpToolMapper;
+
+    @Resource
+    private McpMarketToolMapper marketToolMapper;
+
+    @Resource
+    private McpMarketMapper marketMapper;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 当前索引，首次加载完成前为 null
+     */
+    private volatile Indexes indexes;
+
+    /**
+     * 重建期间发生的增量变更，重建完成时重放到新索引；不在重建时为 null（由 pendingLock 保护）
+     */
+    private List<Consumer<Indexes>> pendingChanges;
+
+    private final Object pendingLock = new Object();
+
+    /**
+     * 字段权重：名称命中比描述命中更相关
+     */
+    private static final float WEIGHT_NAME = 3.0f;
+    private static final float WEIGHT_TITLE = 2.5f;
+    private static final float WEIGHT_CATEGORY = 1.5f;
+    private static final float WEIGHT_AUTHOR = 1.2f;
+    private static final float WEIGHT_DESCRIPTION = 1.0f;
+
+    /**
+     * 前缀命中的得分折扣
+     */
+    private static final float PREFIX_DISCOUNT = 0.5f;
+
+    /**
+     * 单次前缀展开的最大词项数，避免短前缀展开过多
+     */
+    private static final int MAX_PREFIX_EXPANSION = 64;
+
+    /**
+     * 文档至少需命中的查询词比例（中文按二元组切分，要求全部命中过于严格）
+     */
+    private static final double MIN_SHOULD_MATCH = 0.6;
+
+    // ========== 检索 ==========
+
+    /**
+     * 检索本地工具
+     *
+     * @param keyword 关键字
+     * @param type    工具类型（可选）
+     * @param status  状态（可选）
+     * @param page    页码（从1开始）
+     * @param size    每页大小
+     * @return 分页结果，包含 data、scores、total、page、size、pages
+     */
+    public Map<String, Object> searchTools(String keyword, String type, String status, int page, int size) {
+        Indexes current = ensureInitialized();
+        Predicate<Map<String, String>> filter = attrs ->
+                (type == null || type.isEmpty() || type.equals(attrs.get("type")))
+                        && (status == null || status.isEmpty() || status.equals(attrs.get("status")));
+        return toPageResult(current.tools().search(keyword, filter), page, size,
+                ids -> mcpToolMapper.selectList(new LambdaQueryWrapper<McpToolData>()
+                                .select(McpToolData::getId, McpToolData::getName, McpToolData::getDisplayName,
+                                        McpToolData::getDescription, McpToolData::getType, McpToolData::getServerKey,
+                                        McpToolData::getStatus, McpToolData::getCreateTime, McpToolData::getUpdateTime)
+                                .in(McpToolData::getId, ids))
+                        .stream().map(McpToolListItem::from).toList(),
+                McpToolListItem::getId);
+    }
+
+    /**
+     * 检索市场工具
+     *
+     * @param marketId 市场ID（可选，为空时跨市场检索）
+     * @param keyword  关键字
+     * @param page     页码（从1开始）
+     * @param size     每页大小
+     * @return 分页结果，包含 data、scores、total、page、size、pages
+     */
+    public Map<String, Object> searchMarketTools(Long marketId, String keyword, int page, int size) {
+        Indexes current = ensureInitialized();
+        Predicate<Map<String, String>> filter = attrs ->
+                marketId == null || String.valueOf(marketId).equals(attrs.get("marketId"));
+        return toPageResult(current.marketTools().search(keyword, filter), page, size,
+                ids -> marketToolMapper.selectBatchIds(ids), McpMarketTool::getId);
+    }
+
+    /**
+     * 检索市场
+     *
+     * @param keyword 关键字
+     * @param status  状态（可选）
+     * @param page    页码（从1开始）
+     * @param size    每页大小
+     * @return 分页结果，包含 data、scores、total、page、size、pages
+     */
+    public Map<String, Object> searchMarkets(String keyword, String status, int page, int size) {
+        Indexes current = ensureInitialized();
+        Predicate<Map<String, String>> filter = attrs ->
+                status == null || status.isEmpty() || status.equals(attrs.get("status"));
+        return toPageResult(current.markets().search(keyword, filter), page, size,
+                ids -> marketMapper.selectList(new LambdaQueryWrapper<McpMarket>()
+                                .select(McpMarket::getId, McpMarket::getName, McpMarket::getUrl,
+                                        McpMarket::getDescription, McpMarket::getStatus,
+                                        McpMarket::getCreateTime, McpMarket::getUpdateTime)
+                                .in(McpMarket::getId, ids))
+                        .stream().map(McpMarketListItem::from).toList(),
+                McpMarketListItem::getId);
+    }
+
+    /**
+     * 将排序后的命中结果分页，并按命中顺序回表加载实体
+     */
+    private <T> Map<String, Object> toPageResult(List<Hit> hits, int page, int size,
+                                                 Function<List<Long>, List<T>> loader, Function<T, Long> idGetter) {
+        int safeSize = Math.max(1, size);
+        int safePage = Math.max(1, page);
+        int from = Math.min((safePage - 1) * safeSize, hits.size());
+        int to = Math.min(from + safeSize, hits.size());
+        List<Hit> pageHits = hits.subList(from, to);
+
+        List<T> records = new ArrayList<>();
+        Map<Long, Float> scores = new LinkedHashMap<>();
+        if (!pageHits.isEmpty()) {
+            List<Long> ids = pageHits.stream().map(Hit::id).toList();
+            Map<Long, T> byId = loader.apply(ids).stream()
+                    .collect(Collectors.toMap(idGetter, e -> e, (a, b) -> a));
+            for (Hit hit : pageHits) {
+                T entity = byId.get(hit.id());
+                if (entity != null) {
+                    records.add(entity);
+                    scores.put(hit.id(), hit.score());
+                }
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", records);
+        result.put("scores", scores);
+        result.put("total", hits.size());
+        result.put("page", safePage);
+        result.put("size", safeSize);
+        result.put("pages", (hits.size() + safeSize - 1) / safeSize);
+        return result;
+    }
+
+    // ========== 索引维护 ==========
+
+    /**
+     * 索引（或重新索引）本地工具
+     */
+    public void indexTool(McpToolData tool) {
+        if (tool == null || tool.getId() == null) {
+            return;
+        }
+        List<Field> fields = toolFields(tool);
+        Map<String, String> attrs = toolAttrs(tool);
+        apply(current -> current.tools().put(tool.getId(), fields, attrs));
+    }
+
+    /**
+     * 从索引中移除本地工具
+     */
+    public void removeTool(Long toolId) {
+        if (toolId != null) {
+            apply(current -> current.tools().remove(toolId));
+        }
+    }
+
+    /**
+     * 索引（或重新索引）市场工具
+     */
+    public void indexMarketTool(McpMarketTool tool) {
+        if (tool == null || tool.getId() == null) {
+            return;
+        }
+        List<Field> fields = marketToolFields(tool);
+        Map<String, String> attrs = marketToolAttrs(tool);
+        apply(current -> current.marketTools().put(tool.getId(), fields, attrs));
+    }
+
+    /**
+     * 索引（或重新索引）市场
+     */
+    public void indexMarket(McpMarket market) {
+        if (market == null || market.getId() == null) {
+            return;
+        }
+        List<Field> fields = marketFields(market);
+        Map<String, String> attrs = Map.of("status", nullToEmpty(market.getStatus()));
+        apply(current -> current.markets().put(market.getId(), fields, attrs));
+    }
+
+    /**
+     * 移除市场及其下所有市场工具（数据库中为级联删除）
+     */
+    public void removeMarket(Long marketId) {
+        if (marketId == null) {
+            return;
+        }
+        apply(current -> {
+            current.markets().remove(marketId);
+            current.marketTools().removeIf(attrs -> String.valueOf(marketId).equals(attrs.get("marketId")));
+        });
+    }
+
+    /**
+     * 对当前索引执行增量变更；正在重建时同时记录下来，重建完成时重放到新索引
+     * 尚未加载索引时只记录（首次加载中）或忽略（加载时会从数据库读到）
+     */
+    private void apply(Consumer<Indexes> change) {
+        Indexes current;
+        synchronized (pendingLock) {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            current = indexes;
+        }
+        if (current != null) {
+            change.accept(current);
+        }
+    }
+
+    /**
+     * 从数据库全量重建索引：在新的索引实例中加载，完成后整体替换，重建期间检索仍使用旧索引
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (pendingLock) {
+            pendingChanges = new ArrayList<>();
+        }
+        Indexes built = new Indexes(new InvertedIndex(), new InvertedIndex(), new InvertedIndex());
+        try {
+            load(built);
+            synchronized (pendingLock) {
+                // 重放加载期间的增量变更（加载时读到的可能是变更前的数据），之后的变更直接作用于新索引
+                pendingChanges.forEach(change -> change.accept(built));
+                indexes = built;
+            }
+        } finally {
+            synchronized (pendingLock) {
+                pendingChanges = null;
+            }
+        }
+        log.info("检索索引构建完成: 工具 {} 个, 市场工具 {} 个, 市场 {} 个, 耗时 {}ms",
+                built.tools().size(), built.marketTools().size(), built.markets().size(),
+                System.currentTimeMillis() - start);
+    }
+
+    private void load(Indexes target) {
+
+        // 只加载索引需要的列，避免读取 config_json、param_schema 等大字段
+        List<McpToolData> tools = mcpToolMapper.selectList(new LambdaQueryWrapper<McpToolData>()
+                .select(McpToolData::getId, McpToolData::getName, McpToolData::getDisplayName,
+                        McpToolData::getDescription, McpToolData::getType, McpToolData::getStatus));
+        tools.forEach(tool -> target.tools().put(tool.getId(), toolFields(tool), toolAttrs(tool)));
+
+        List<McpMarketTool> marketTools = marketToolMapper.selectList(null);
+        marketTools.forEach(tool -> target.marketTools().put(tool.getId(), marketToolFields(tool),
+                marketToolAttrs(tool)));
+
+        List<McpMarket> markets = marketMapper.selectList(new LambdaQueryWrapper<McpMarket>()
+                .select(McpMarket::getId, McpMarket::getName, McpMarket::getDescription, McpMarket::getStatus));
+        markets.forEach(market -> target.markets().put(market.getId(), marketFields(market),
+                Map.of("status", nullToEmpty(market.getStatus()))));
+    }
+
+    /**
+     * 首次使用时加载索引
+     *
+     * @return 当前索引
+     */
+    private Indexes ensureInitialized() {
+        Indexes current = indexes;
+        if (current == null) {
+            synchronized (this) {
+                if (indexes == null) {
+                    rebuild();
+                }
+                current = indexes;
+            }
+        }
+        return current;
+    }
+
+    // ========== 字段提取 ==========
+
+    private List<Field> toolFields(McpToolData tool) {
+        return List.of(
+                new Field(WEIGHT_NAME, tool.getName()),
+                new Field(WEIGHT_TITLE, tool.getDisplayName()),
+                new Field(WEIGHT_DESCRIPTION, tool.getDescription()));
+    }
+
+    private Map<String, String> toolAttrs(McpToolData tool) {
+        return Map.of("type", nullToEmpty(tool.getType()), "status", nullToEmpty(tool.getStatus()));
+    }
+
+    private List<Field> marketToolFields(McpMarketTool tool) {
+        List<Field> fields = new ArrayList<>();
+        fields.add(new Field(WEIGHT_NAME, tool.getToolName()));
+        fields.add(new Field(WEIGHT_DESCRIPTION, tool.getToolDescription()));
+
+        Map<String, Object> metadata = parseMetadata(tool.getToolMetadata());
+        fields.add(new Field(WEIGHT_TITLE, joinNonEmpty(metadata.get("name"), metadata.get("title"))));
+        fields.add(new Field(WEIGHT_AUTHOR, joinNonEmpty(metadata.get("author"))));
+        if (metadata.get("category") instanceof Map<?, ?> category) {
+            fields.add(new Field(WEIGHT_CATEGORY, joinNonEmpty(category.get("name"), category.get("label"))));
+        }
+        return fields;
+    }
+
+    private Map<String, String> marketToolAttrs(McpMarketTool tool) {
+        return Map.of("marketId", String.valueOf(tool.getMarketId()));
+    }
+
+    private List<Field> marketFields(McpMarket market) {
+        return List.of(
+                new Field(WEIGHT_NAME, market.getName()),
+                new Field(WEIGHT_DESCRIPTION, market.getDescription()));
+    }
+
+    private Map<String, Object> parseMetadata(String json) {
+        if (json == null || json.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {
+            });
+        } catch (Exception e) {
+            log.debug("解析市场工具元数据失败: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static String joinNonEmpty(Object... values) {
+        return Arrays.stream(values)
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.joining(" "));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    // ========== 分词 ==========
+
+    /**
+     * 索引分词：英文/数字按连续字母数字切分并转小写，中日韩文字切分为单字与相邻二元组
+     */
+    static List<String> tokenize(String text) {
+        return tokenize(text, false);
+    }
+
+    /**
+     * 查询分词：与索引分词一致，但连续中文只取二元组（单字片段保留单字），使多字查询更精确
+     */
+    static List<String> tokenizeQuery(String text) {
+        return new ArrayList<>(new LinkedHashSet<>(tokenize(text, true)));
+    }
+
+    private static List<String> tokenize(String text, boolean query) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        List<String> cjkRun = new ArrayList<>();
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                cjkRun.add(new String(Character.toChars(cp)));
+            } else {
+                flushCjkRun(cjkRun, tokens, query);
+                if (Character.isLetterOrDigit(cp)) {
+                    word.appendCodePoint(Character.toLowerCase(cp));
+                } else {
+                    flushWord(word, tokens);
+                }
+            }
+        }
+        flushWord(word, tokens);
+        flushCjkRun(cjkRun, tokens, query);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjkRun(List<String> run, List<String> tokens, boolean query) {
+        if (run.isEmpty()) {
+            return;
+        }
+        if (!query || run.size() == 1) {
+            tokens.addAll(run);
+        }
+        for (int i = 1; i < run.size(); i++) {
+            tokens.add(run.get(i - 1) + run.get(i));
+        }
+        run.clear();
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    // ========== 倒排索引 ==========
+
+    /**
+     * 检索命中
+     */
+    public record Hit(Long id, float score) {
+    }
+
+    /**
+     * 一组完整的索引，重建时整体替换
+     */
+    record Indexes(InvertedIndex tools, InvertedIndex marketTools, InvertedIndex markets) {
+    }
+
+    /**
+     * 带权重的索引字段
+     */
+    record Field(float weight, String text) {
+    }
+
+    /**
+     * 简单的线程安全倒排索引
+     * 词项 -> (文档ID -> 加权词频)，词项按字典序存储以支持前缀展开
+     */
+    static class InvertedIndex {
+
+        private final ConcurrentSkipListMap<String, Map<Long, Float>> postings = new ConcurrentSkipListMap<>();
+        private final Map<Long, Set<String>> docTerms = new HashMap<>();
+        private final Map<Long, Map<String, String>> docAttrs = new HashMap<>();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void put(Long id, List<Field> fields, Map<String, String> attrs) {
+            Map<String, Float> termWeights = new HashMap<>();
+            for (Field field : fields) {
+                for (String token : tokenize(field.text())) {
+                    termWeights.merge(token, field.weight(), Float::sum);
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                removeInternal(id);
+                termWeights.forEach((term, weight) ->
+                        postings.computeIfAbsent(term, k -> new HashMap<>()).put(id, weight));
+                docTerms.put(id, termWeights.keySet());
+                docAttrs.put(id, attrs);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long id) {
+            lock.writeLock().lock();
+            try {
+                removeInternal(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removeIf(Predicate<Map<String, String>> attrsPredicate) {
+            lock.writeLock().lock();
+            try {
+                List<Long> ids = docAttrs.entrySet().stream()
+                        .filter(e -> attrsPredicate.test(e.getValue()))
+                        .map(Map.Entry::getKey)
+                        .toList();
+                ids.forEach(this::removeInternal);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return docTerms.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void removeInternal(Long id) {
+            Set<String> terms = docTerms.remove(id);
+            docAttrs.remove(id);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                Map<Long, Float> docs = postings.get(term);
+                if (docs != null) {
+                    docs.remove(id);
+                    if (docs.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 检索：至少命中 {@link #MIN_SHOULD_MATCH} 比例的查询词（精确或前缀），按 TF-IDF 加权得分降序
+         */
+        List<Hit> search(String query, Predicate<Map<String, String>> filter) {
+            List<String> queryTerms = tokenizeQuery(query);
+
+            lock.readLock().lock();
+            try {
+                Map<Long, Float> scores = new HashMap<>();
+
+                if (queryTerms.isEmpty()) {
+                    // 无关键字时返回全部（按ID倒序，接近创建时间倒序）
+                    docAttrs.keySet().forEach(id -> scores.put(id, 0f));
+                } else {
+                    int docCount = Math.max(1, docTerms.size());
+                    Map<Long, Integer> matchedTerms = new HashMap<>();
+                    for (String term : queryTerms) {
+                        Map<Long, Float> termScores = scoreTerm(term, docCount);
+                        termScores.forEach((id, score) -> {
+                            scores.merge(id, score, Float::sum);
+                            matchedTerms.merge(id, 1, Integer::sum);
+                        });
+                    }
+                    int required = Math.max(1, (int) Math.ceil(queryTerms.size() * MIN_SHOULD_MATCH));
+                    scores.keySet().removeIf(id -> matchedTerms.get(id) < required);
+                }
+
+                return scores.entrySet().stream()
+                        .filter(e -> filter == null || filter.test(docAttrs.get(e.getKey())))
+                        .map(e -> new Hit(e.getKey(), e.getValue()))
+                        .sorted(Comparator.comparing(Hit::score).reversed()
+                                .thenComparing(Hit::id, Comparator.reverseOrder()))
+                        .toList();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 计算单个查询词的命中得分，查询词同时作为前缀展开；同一文档取最高分的词项
+         */
+        private Map<Long, Float> scoreTerm(String term, int docCount) {
+            Map<Long, Float> termScores = new HashMap<>();
+            int expanded = 0;
+            for (Map.Entry<String, Map<Long, Float>> entry
+                    : postings.subMap(term, true, term + Character.MAX_VALUE, true).entrySet()) {
+                if (expanded++ >= MAX_PREFIX_EXPANSION) {
+                    break;
+                }
+                float discount = entry.getKey().equals(term) ? 1.0f : PREFIX_DISCOUNT;
+                Map<Long, Float> docs = entry.getValue();
+                float idf = (float) Math.log(1.0 + (double) docCount / docs.size());
+                docs.forEach((id, tf) -> termScores.merge(id, tf * idf * discount, Math::max));
+            }
+            return termScores;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package cn.sam.demo.mcpclient.service;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 远程 MCP 服务器压测服务
+ *
+ * <p>用指定并发数在给定时长内循环调用远程服务器上的某个工具（闭环：每个并发在上一次调用返回后立即发起下一次），
+ * 统计吞吐量、延迟分位数、延迟分布和错误分类。可依次压测多种传输方式（SSE、Streamable HTTP），
+ * 对比同一服务器在不同传输方式下的表现。压测使用独立客户端，不经过熔断、对冲和客户端缓存。</p>
+ *
+ * <p>工具参数支持模板占位符，每次调用时替换：{@code ${i}} 调用序号、{@code ${worker}} 并发编号、
+ * {@code ${random}} 0 ~ 999999 的随机数、{@code ${uuid}}、{@code ${timestamp}} 毫秒时间戳。
+ * 参数值恰好是单个占位符时替换为数字，否则按字符串拼接。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Service
+public class McpServerBenchmarkService {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{(\\w+)}");
+
+    /**
+     * 调用成功的结果分类
+     */
+    public static final String OUTCOME_SUCCESS = "success";
+
+    /**
+     * 工具返回 isError=true 的结果分类
+     */
+    public static final String OUTCOME_TOOL_ERROR = "tool_error";
+
+    @Resource
+    private UniversalMcpClientService universalMcpClientService;
+
+    /**
+     * 最大并发数
+     */
+    @Value("${mcp.client.server-benchmark.max-concurrency:200}")
+    private int maxConcurrency;
+
+    /**
+     * 最大客户端连接数
+     */
+    @Value("${mcp.client.server-benchmark.max-connections:50}")
+    private int maxConnections;
+
+    /**
+     * 最长压测时长（秒，含预热，多种传输方式时为合计）
+     */
+    @Value("${mcp.client.server-benchmark.max-duration-seconds:300}")
+    private int maxDurationSeconds;
+
+    /**
+     * 同一时间只运行一个压测，避免多个压测互相干扰
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 创建压测客户端
+     */
+    @FunctionalInterface
+    public interface ClientFactory {
+        McpSyncClient create(String url, String transportType, Map<String, String> headers);
+    }
+
+    /**
+     * 压测参数
+     *
+     * @param transportTypes 依次压测的传输方式
+     * @param arguments      工具参数模板
+     * @param concurrency    并发数
+     * @param connections    客户端连接数，并发按编号轮流使用，超过并发数时按并发数建立
+     */
+    public record Settings(String url, List<String> transportTypes, String toolName, Map<String, Object> arguments,
+                           Map<String, String> headers, int concurrency, int connections, Duration warmup,
+                           Duration duration) {
+    }
+
+    /**
+     * 使用应用内的客户端配置（共享 HttpClient、请求头）压测
+     *
+     * @throws IllegalArgumentException 参数超出限制
+     * @throws IllegalStateException    已有压测在运行
+     */
+    public Map<String, Object> run(Settings settings) {
+        if (settings.concurrency() > maxConcurrency) {
+            throw new IllegalArgumentException("并发数不能超过 " + maxConcurrency);
+        }
+        if (settings.connections() > maxConnections) {
+            throw new IllegalArgumentException("连接数不能超过 " + maxConnections);
+        }
+        // 每种传输方式都要预热并压测一轮
+        long totalSeconds = settings.warmup().plus(settings.duration()).getSeconds()
+                * Math.max(1, settings.transportTypes().size());
+        if (totalSeconds > maxDurationSeconds) {
+            throw new IllegalArgumentException("预热和压测时长合计（所有传输方式）不能超过 " + maxDurationSeconds + " 秒");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("已有压测在运行，请稍后再试");
+        }
+        try {
+            return run(settings, universalMcpClientService::createStandaloneClient);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 依次压测每种传输方式，返回各自的统计和对比
+     *
+     * @param settings      压测参数
+     * @param clientFactory 客户端创建方式（命令行模式下不依赖 Spring 容器）
+     */
+    public Map<String, Object> run(Settings settings, ClientFactory clientFactory) {
+        if (settings.url() == null || settings.url().isBlank()) {
+            throw new IllegalArgumentException("服务器地址不能为空");
+        }
+        if (settings.toolName() == null || settings.toolName().isBlank()) {
+            throw new IllegalArgumentException("工具名称不能为空");
+        }
+        if (settings.concurrency() <= 0 || settings.duration().isZero() || settings.duration().isNegative()) {
+            throw new IllegalArgumentException("并发数和压测时长必须大于 0");
+        }
+        if (settings.warmup().isNegative()) {
+            throw new IllegalArgumentException("预热时长不能为负数");
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("url", settings.url());
+        report.put("toolName", settings.toolName());
+        report.put("concurrency", settings.concurrency());
+        report.put("connections", connections(settings));
+        report.put("warmupSeconds", settings.warmup().getSeconds());
+        report.put("durationSeconds", settings.duration().getSeconds());
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String transportType : settings.transportTypes()) {
+            results.add(runTransport(settings, transportType, clientFactory));
+        }
+        report.put("results", results);
+        if (results.size() > 1) {
+            report.put("comparison", compare(results));
+        }
+        return report;
+    }
+
+    /**
+     * 压测一种传输方式
+     */
+    private Map<String, Object> runTransport(Settings settings, String transportType, ClientFactory clientFactory) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("transportType", transportType);
+
+        List<McpSyncClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < connections(settings); i++) {
+                clients.add(clientFactory.create(settings.url(), transportType, settings.headers()));
+            }
+        } catch (Exception e) {
+            log.warn("压测连接失败: {} ({})，{}", settings.url(), transportType, e.getMessage());
+            clients.forEach(McpSyncClient::closeGracefully);
+            result.put("success", false);
+            result.put("error", "连接失败: " + e.getMessage());
+            return result;
+        }
+
+        log.info("开始压测: {} ({}) 工具 {}，并发 {}，连接 {}，预热 {}s，时长 {}s", settings.url(), transportType,
+                settings.toolName(), settings.concurrency(), clients.size(), settings.warmup().getSeconds(),
+                settings.duration().getSeconds());
+        Recorder recorder = new Recorder(3);
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        AtomicLong sequence = new AtomicLong();
+        boolean templated = containsPlaceholder(settings.arguments());
+        long measureStartNanos = System.nanoTime() + settings.warmup().toNanos();
+        long endNanos = measureStartNanos + settings.duration().toNanos();
+        CountDownLatch done = new CountDownLatch(settings.concurrency());
+
+        try {
+            for (int worker = 0; worker < settings.concurrency(); worker++) {
+                McpSyncClient client = clients.get(worker % clients.size());
+                int workerId = worker;
+                Thread thread = new Thread(() -> {
+                    try {
+                        while (System.nanoTime() < endNanos) {
+                            long seq = sequence.getAndIncrement();
+                            @SuppressWarnings("unchecked")
+                            Map<String, Object> arguments = templated
+                                    ? (Map<String, Object>) expand(settings.arguments(), seq, workerId)
+                                    : settings.arguments();
+                            long startNanos = System.nanoTime();
+                            String outcome = call(client, settings.toolName(), arguments);
+                            long finishNanos = System.nanoTime();
+                            // 按开始时间归属：测量窗口内发起的调用无论何时结束都计入（结束前仍在执行的正是最慢的调用），
+                            // 预热期发起的调用不计入；结束时刻之后不再发起新调用
+                            if (startNanos >= measureStartNanos) {
+                                recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(finishNanos - startNanos));
+                                outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }, "mcp-server-benchmark-" + worker);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.put("success", false);
+            result.put("error", "压测被中断");
+            return result;
+        } finally {
+            clients.forEach(McpSyncClient::closeGracefully);
+        }
+
+        result.put("success", true);
+        result.putAll(summarize(recorder.getIntervalHistogram(), outcomes, settings.duration()));
+        log.info("压测完成: {} ({}) {}", settings.url(), transportType, result);
+        return result;
+    }
+
+    /**
+     * 实际建立的连接数：至少 1 个，多于并发数的连接用不上
+     */
+    private static int connections(Settings settings) {
+        return Math.max(1, Math.min(settings.connections(), settings.concurrency()));
+    }
+
+    /**
+     * 调用一次工具，返回结果分类：success、tool_error 或异常类型
+     */
+    private static String call(McpSyncClient client, String toolName, Map<String, Object> arguments) {
+        try {
+            McpSchema.CallToolResult result = client.callTool(McpSchema.CallToolRequest.builder()
+                    .name(toolName)
+                    .arguments(arguments != null ? arguments : Map.of())
+                    .build());
+            return Boolean.TRUE.equals(result.isError()) ? OUTCOME_TOOL_ERROR : OUTCOME_SUCCESS;
+        } catch (Exception e) {
+            Throwable cause = e;
+            while (cause.getCause() != null && cause.getCause() != cause) {
+                cause = cause.getCause();
+            }
+            return cause.getClass().getSimpleName();
+        }
+    }
+
+    private static Map<String, Object> summarize(Histogram histogram, Map<String, LongAdder> outcomes,
+                                                 Duration duration) {
+        long requests = outcomes.values().stream().mapToLong(LongAdder::sum).sum();
+        long success = outcomes.getOrDefault(OUTCOME_SUCCESS, new LongAdder()).sum();
+        Map<String, Long> errors = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> {
+            if (!OUTCOME_SUCCESS.equals(outcome)) {
+                errors.put(outcome, count.sum());
+            }
+        });
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", requests);
+        summary.put("errors", requests - success);
+        summary.put("errorRate", requests > 0 ? round((double) (requests - success) / requests, 10_000) : 0);
+        summary.put("throughput", round(requests * 1000.0 / Math.max(1, duration.toMillis()), 100));
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("meanMs", round(histogram.getMean() / 1000, 1000));
+        latency.put("p50Ms", toMillis(histogram.getValueAtPercentile(50)));
+        latency.put("p90Ms", toMillis(histogram.getValueAtPercentile(90)));
+        latency.put("p99Ms", toMillis(histogram.getValueAtPercentile(99)));
+        latency.put("p999Ms", toMillis(histogram.getValueAtPercentile(99.9)));
+        latency.put("maxMs", toMillis(histogram.getMaxValue()));
+        summary.put("latency", latency);
+        summary.put("histogram", buckets(histogram));
+        summary.put("errorBreakdown", errors);
+        return summary;
+    }
+
+    /**
+     * 延迟分布：以 1ms 起、按 2 倍递增的区间统计调用次数，leMs 为区间上限
+     */
+    private static List<Map<String, Object>> buckets(Histogram histogram) {
+        List<Map<String, Object>> buckets = new ArrayList<>();
+        if (histogram.getTotalCount() == 0) {
+            return buckets;
+        }
+        for (HistogramIterationValue value : histogram.logarithmicBucketValues(1000, 2.0)) {
+            if (value.getCountAddedInThisIterationStep() > 0) {
+                Map<String, Object> bucket = new LinkedHashMap<>();
+                bucket.put("leMs", toMillis(value.getValueIteratedTo()));
+                bucket.put("count", value.getCountAddedInThisIterationStep());
+                buckets.add(bucket);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * 多种传输方式的对比：以第一种成功的传输方式为基准，给出吞吐量和延迟的倍数
+     */
+    private static Map<String, Object> compare(List<Map<String, Object>> results) {
+        List<Map<String, Object>> succeeded = results.stream()
+                .filter(result -> Boolean.TRUE.equals(result.get("success")))
+                .toList();
+        Map<String, Object> comparison = new LinkedHashMap<>();
+        if (succeeded.size() < 2) {
+            return comparison;
+        }
+        Map<String, Object> baseline = succeeded.get(0);
+        comparison.put("baseline", baseline.get("transportType"));
+        for (Map<String, Object> result : succeeded.subList(1, succeeded.size())) {
+            Map<String, Object> ratio = new LinkedHashMap<>();
+            ratio.put("throughput", ratio(result.get("throughput"), baseline.get("throughput")));
+            ratio.put("p50Ms", ratio(latency(result, "p50Ms"), latency(baseline, "p50Ms")));
+            ratio.put("p99Ms", ratio(latency(result, "p99Ms"), latency(baseline, "p99Ms")));
+            comparison.put(String.valueOf(result.get("transportType")), ratio);
+        }
+        comparison.put("fastest", succeeded.stream()
+                .max((a, b) -> Double.compare(((Number) a.get("throughput")).doubleValue(),
+                        ((Number) b.get("throughput")).doubleValue()))
+                .map(result -> result.get("transportType"))
+                .orElse(null));
+        return comparison;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object latency(Map<String, Object> result, String key) {
+        return ((Map<String, Object>) result.get("latency")).get(key);
+    }
+
+    private static Double ratio(Object value, Object baseline) {
+        double base = ((Number) baseline).doubleValue();
+        return base > 0 ? round(((Number) value).doubleValue() / base, 1000) : null;
+    }
+
+    private static boolean containsPlaceholder(Object template) {
+        if (template instanceof String text) {
+            return PLACEHOLDER.matcher(text).find();
+        }
+        if (template instanceof Map<?, ?> map) {
+            return map.values().stream().anyMatch(McpServerBenchmarkService::containsPlaceholder);
+        }
+        if (template instanceof List<?> list) {
+            return list.stream().anyMatch(McpServerBenchmarkService::containsPlaceholder);
+        }
+        return false;
+    }
+
+    /**
+     * 替换参数模板中的占位符
+     */
+    private static Object expand(Object template, long seq, int worker) {
+        if (template instanceof String text) {
+            Matcher matcher = PLACEHOLDER.matcher(text);
+            if (matcher.matches()) {
+                Object value = placeholder(matcher.group(1), seq, worker);
+                return value != null ? value : text;
+            }
+            StringBuilder builder = new StringBuilder();
+            matcher.reset();
+            while (matcher.find()) {
+                Object value = placeholder(matcher.group(1), seq, worker);
+                matcher.appendReplacement(builder,
+                        Matcher.quoteReplacement(value != null ? String.valueOf(value) : matcher.group()));
+            }
+            matcher.appendTail(builder);
+            return builder.toString();
+        }
+        if (template instanceof Map<?, ?> map) {
+            Map<String, Object> expanded = new LinkedHashMap<>();
+            map.forEach((key, value) -> expanded.put(String.valueOf(key), expand(value, seq, worker)));
+            return expanded;
+        }
+        if (template instanceof List<?> list) {
+            return list.stream().map(value -> expand(value, seq, worker)).toList();
+        }
+        return template;
+    }
+
+    private static Object placeholder(String name, long seq, int worker) {
+        return switch (name) {
+            case "i" -> seq;
+            case "worker" -> worker;
+            case "random" -> ThreadLocalRandom.current().nextInt(1_000_000);
+            case "uuid" -> UUID.randomUUID().toString();
+            case "timestamp" -> System.currentTimeMillis();
+            default -> null;
+        };
+    }
+
+    private static double toMillis(long micros) {
+        return round(micros / 1000.0, 1000);
+    }
+
+    private static double round(double value, int scale) {
+        return Math.round(value * scale) / (double) scale;
+    }
+}
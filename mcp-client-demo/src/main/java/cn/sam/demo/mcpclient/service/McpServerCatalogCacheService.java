@@ -0,0 +1,277 @@
+package cn.sam.demo.mcpclient.service;
+
+import cn.sam.demo.mcpclient.listener.McpPromptListChangedEvent;
+import cn.sam.demo.mcpclient.listener.McpResourceListChangedEvent;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MCP 服务器资源与提示词缓存服务
+ *
+ * <p>按服务器缓存资源列表和提示词列表：客户端连接成功时填充，收到 list_changed 通知后整体替换。
+ * 可选的资源内容缓存按总大小做 LRU 淘汰，资源列表变更时清空对应服务器的内容缓存。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Service
+public class McpServerCatalogCacheService {
+
+    @Resource
+    private UniversalMcpClientService universalMcpClientService;
+
+    /**
+     * 是否启用资源内容缓存
+     */
+    @Value("${mcp.client.resource-cache.enabled:true}")
+    private boolean contentCacheEnabled;
+
+    /**
+     * 资源内容缓存的最大字节数（按文本字符数 * 2 和 base64 长度估算）
+     */
+    @Value("${mcp.client.resource-cache.max-bytes:16777216}")
+    private long contentCacheMaxBytes;
+
+    private final Map<String, CachedList<McpSchema.Resource>> resourceCache = new ConcurrentHashMap<>();
+
+    private final Map<String, CachedList<McpSchema.Prompt>> promptCache = new ConcurrentHashMap<>();
+
+    /**
+     * 资源内容缓存（访问顺序，最久未访问的先淘汰），键为 serverKey + "\n" + uri
+     */
+    private final LinkedHashMap<String, CachedContent> contentCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long contentCacheBytes = 0;
+
+    private long contentCacheHits = 0;
+
+    private long contentCacheMisses = 0;
+
+    /**
+     * 缓存的列表（不可变），替换时整体替换
+     */
+    public record CachedList<T>(List<T> items, LocalDateTime updateTime) {
+    }
+
+    private record CachedContent(McpSchema.ReadResourceResult result, long weight) {
+    }
+
+    // ========== 变更事件 ==========
+
+    @EventListener
+    public void onResourceListChanged(McpResourceListChangedEvent event) {
+        updateResources(event.serverKey(), event.resources());
+    }
+
+    @EventListener
+    public void onPromptListChanged(McpPromptListChangedEvent event) {
+        updatePrompts(event.serverKey(), event.prompts());
+    }
+
+    /**
+     * 替换服务器的资源列表，并清空该服务器的资源内容缓存
+     *
+     * @param serverKey 服务器标识
+     * @param resources 完整资源列表
+     */
+    public void updateResources(String serverKey, List<McpSchema.Resource> resources) {
+        resourceCache.put(serverKey, new CachedList<>(List.copyOf(resources), LocalDateTime.now()));
+        invalidateContents(serverKey);
+        log.info("资源缓存已更新: 服务器 {}, 资源数量 {}", serverKey, resources.size());
+    }
+
+    /**
+     * 替换服务器的提示词列表
+     *
+     * @param serverKey 服务器标识
+     * @param prompts   完整提示词列表
+     */
+    public void updatePrompts(String serverKey, List<McpSchema.Prompt> prompts) {
+        promptCache.put(serverKey, new CachedList<>(List.copyOf(prompts), LocalDateTime.now()));
+        log.info("提示词缓存已更新: 服务器 {}, 提示词数量 {}", serverKey, prompts.size());
+    }
+
+    /**
+     * 移除服务器的全部缓存
+     *
+     * @param serverKey 服务器标识
+     */
+    public void evictServer(String serverKey) {
+        resourceCache.remove(serverKey);
+        promptCache.remove(serverKey);
+        invalidateContents(serverKey);
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * 已缓存的服务器概览
+     *
+     * @return 每个服务器的资源数、提示词数和更新时间
+     */
+    public List<Map<String, Object>> getServerSummaries() {
+        Set<String> serverKeys = new TreeSet<>(resourceCache.keySet());
+        serverKeys.addAll(promptCache.keySet());
+
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (String serverKey : serverKeys) {
+            CachedList<McpSchema.Resource> resources = resourceCache.get(serverKey);
+            CachedList<McpSchema.Prompt> prompts = promptCache.get(serverKey);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("serverKey", serverKey);
+            summary.put("resourceCount", resources != null ? resources.items().size() : 0);
+            summary.put("resourcesUpdateTime", resources != null ? resources.updateTime() : null);
+            summary.put("promptCount", prompts != null ? prompts.items().size() : 0);
+            summary.put("promptsUpdateTime", prompts != null ? prompts.updateTime() : null);
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * 获取资源列表
+     *
+     * @param serverKey 服务器标识，为空时返回所有服务器的资源
+     * @return 服务器标识 -> 资源列表
+     */
+    public Map<String, List<McpSchema.Resource>> getResources(String serverKey) {
+        return snapshot(resourceCache, serverKey);
+    }
+
+    /**
+     * 获取提示词列表
+     *
+     * @param serverKey 服务器标识，为空时返回所有服务器的提示词
+     * @return 服务器标识 -> 提示词列表
+     */
+    public Map<String, List<McpSchema.Prompt>> getPrompts(String serverKey) {
+        return snapshot(promptCache, serverKey);
+    }
+
+    private <T> Map<String, List<T>> snapshot(Map<String, CachedList<T>> cache, String serverKey) {
+        Map<String, List<T>> result = new TreeMap<>();
+        if (serverKey != null && !serverKey.isEmpty()) {
+            CachedList<T> cached = cache.get(serverKey);
+            result.put(serverKey, cached != null ? cached.items() : List.of());
+        } else {
+            cache.forEach((key, cached) -> result.put(key, cached.items()));
+        }
+        return result;
+    }
+
+    // ========== 资源内容 ==========
+
+    /**
+     * 读取资源内容，启用内容缓存时优先从缓存读取
+     *
+     * @param serverKey 服务器标识
+     * @param uri       资源 URI
+     * @return 资源内容
+     */
+    public McpSchema.ReadResourceResult readResource(String serverKey, String uri) {
+        if (!contentCacheEnabled) {
+            return universalMcpClientService.readResource(serverKey, uri);
+        }
+
+        String cacheKey = serverKey + "\n" + uri;
+        synchronized (contentCache) {
+            CachedContent cached = contentCache.get(cacheKey);
+            if (cached != null) {
+                contentCacheHits++;
+                return cached.result();
+            }
+            contentCacheMisses++;
+        }
+
+        McpSchema.ReadResourceResult result = universalMcpClientService.readResource(serverKey, uri);
+        long weight = estimateWeight(result);
+        if (weight <= contentCacheMaxBytes) {
+            synchronized (contentCache) {
+                CachedContent previous = contentCache.put(cacheKey, new CachedContent(result, weight));
+                if (previous != null) {
+                    contentCacheBytes -= previous.weight();
+                }
+                contentCacheBytes += weight;
+                evictIfNecessary();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取提示词内容（带参数渲染，不缓存）
+     *
+     * @param serverKey 服务器标识
+     * @param name      提示词名称
+     * @param arguments 提示词参数
+     * @return 提示词结果
+     */
+    public McpSchema.GetPromptResult getPrompt(String serverKey, String name, Map<String, Object> arguments) {
+        return universalMcpClientService.getPrompt(serverKey, name, arguments);
+    }
+
+    /**
+     * 资源内容缓存统计
+     */
+    public Map<String, Object> getContentCacheStats() {
+        synchronized (contentCache) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", contentCacheEnabled);
+            stats.put("entries", contentCache.size());
+            stats.put("bytes", contentCacheBytes);
+            stats.put("maxBytes", contentCacheMaxBytes);
+            stats.put("hits", contentCacheHits);
+            stats.put("misses", contentCacheMisses);
+            return stats;
+        }
+    }
+
+    private void invalidateContents(String serverKey) {
+        String prefix = serverKey + "\n";
+        synchronized (contentCache) {
+            Iterator<Map.Entry<String, CachedContent>> it = contentCache.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, CachedContent> entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    contentCacheBytes -= entry.getValue().weight();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 超出容量时淘汰最久未访问的内容（调用方持有 contentCache 锁）
+     */
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<String, CachedContent>> it = contentCache.entrySet().iterator();
+        while (contentCacheBytes > contentCacheMaxBytes && it.hasNext()) {
+            contentCacheBytes -= it.next().getValue().weight();
+            it.remove();
+        }
+    }
+
+    private long estimateWeight(McpSchema.ReadResourceResult result) {
+        long weight = 0;
+        if (result == null || result.contents() == null) {
+            return weight;
+        }
+        for (McpSchema.ResourceContents contents : result.contents()) {
+            if (contents instanceof McpSchema.TextResourceContents text && text.text() != null) {
+                weight += text.text().length() * 2L;
+            } else if (contents instanceof McpSchema.BlobResourceContents blob && blob.blob() != null) {
+                weight += blob.blob().length();
+            }
+            weight += contents.uri() != null ? contents.uri().length() * 2L : 0;
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,335 @@
+package cn.sam.demo.mcpclient.service;
+
+import cn.sam.demo.mcpclient.dto.McpToolBatchTestRequest;
+import cn.sam.demo.mcpclient.entity.McpToolData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 批量工具测试服务
+ *
+ * <p>一次请求测试多个工具：按限定的并发数同时调用，同一远程端点只做一次健康检查（ping），
+ * 端点不健康时其下的工具直接判定失败而不再逐个调用；每个工具完成后立即以 SSE 事件推送结果，
+ * 便于部署后快速验证整个工具目录。</p>
+ *
+ * <p>事件类型：</p>
+ * <ul>
+ *   <li>start：开始测试，携带工具数和并发数</li>
+ *   <li>health：某个端点的健康检查结果</li>
+ *   <li>result：单个工具的测试结果（按完成顺序）</li>
+ *   <li>done：全部完成，携带成功、失败数和总耗时</li>
+ *   <li>error：请求无效</li>
+ * </ul>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Service
+public class McpToolBatchTestService {
+
+    @Resource
+    private McpToolService mcpToolService;
+
+    @Resource
+    private McpToolInvokeService mcpToolInvokeService;
+
+    @Resource
+    private RemoteMcpToolInvokeService remoteMcpToolInvokeService;
+
+    /**
+     * 单次批量测试的最大并发数，所有批量测试共享同样数量的线程
+     */
+    @Value("${mcp.client.batch-test.max-parallelism:16}")
+    private int maxParallelism;
+
+    /**
+     * 单次批量测试的最大工具数
+     */
+    @Value("${mcp.client.batch-test.max-tools:1000}")
+    private int maxTools;
+
+    /**
+     * SSE 连接超时时间（毫秒），超时后取消未完成的测试
+     */
+    @Value("${mcp.client.batch-test.timeout-ms:300000}")
+    private long timeoutMs;
+
+    /**
+     * 结果中响应内容的最大字符数，超出部分截断
+     */
+    @Value("${mcp.client.batch-test.max-response-chars:2000}")
+    private int maxResponseChars;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Scheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Schedulers.newBoundedElastic(Math.max(1, maxParallelism), Math.max(1, maxTools) * 4,
+                "tool-batch-test");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    /**
+     * 执行批量测试，结果通过 SSE 推送
+     *
+     * @param request 测试请求
+     * @return SSE 连接
+     */
+    public SseEmitter run(McpToolBatchTestRequest request) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        BatchSession session = new BatchSession(emitter);
+        List<McpToolBatchTestRequest.Item> items = toItems(request);
+        if (items.isEmpty() || items.size() > maxTools) {
+            session.send("error", Map.of("success", false, "error",
+                    items.isEmpty() ? "未指定待测试的工具" : "单次最多测试 " + maxTools + " 个工具"));
+            emitter.complete();
+            return emitter;
+        }
+
+        long startNanos = System.nanoTime();
+        int parallelism = request.getParallelism() == null || request.getParallelism() <= 0
+                ? maxParallelism : Math.min(request.getParallelism(), maxParallelism);
+        boolean healthCheck = request.getHealthCheck() == null || request.getHealthCheck();
+        Map<Long, McpToolData> tools = mcpToolService.getByIds(items.stream()
+                        .map(McpToolBatchTestRequest.Item::getToolId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(McpToolData::getId, Function.identity()));
+
+        // 同一端点共享一次健康检查
+        Map<String, Mono<Boolean>> healthChecks = new ConcurrentHashMap<>();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        // 连接断开、超时、结束或推送失败时取消未完成的测试，之后不再推送任何事件
+        emitter.onTimeout(session::cancel);
+        emitter.onError(e -> session.cancel());
+        emitter.onCompletion(session::cancel);
+
+        if (!session.send("start", Map.of("total", items.size(), "parallelism", parallelism,
+                "healthCheck", healthCheck))) {
+            return emitter;
+        }
+        Flux.fromIterable(items)
+                .flatMap(item -> testItem(item, tools.get(item.getToolId()), healthCheck, healthChecks, session),
+                        parallelism)
+                .takeUntilOther(session.cancelled.asMono())
+                .subscribe(result -> {
+                    (Boolean.TRUE.equals(result.get("success")) ? succeeded : failed).incrementAndGet();
+                    session.send("result", result);
+                }, error -> {
+                    log.error("批量测试工具失败", error);
+                    if (!session.isCancelled()) {
+                        emitter.completeWithError(error);
+                    }
+                }, () -> {
+                    if (session.isCancelled()) {
+                        return;
+                    }
+                    Map<String, Object> summary = new LinkedHashMap<>();
+                    summary.put("total", items.size());
+                    summary.put("success", succeeded.get());
+                    summary.put("failed", failed.get());
+                    summary.put("endpoints", healthChecks.size());
+                    summary.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                    log.info("批量测试工具完成: {}", summary);
+                    if (session.send("done", summary)) {
+                        emitter.complete();
+                    }
+                });
+        return emitter;
+    }
+
+    /**
+     * 测试单个工具：远程工具等待所在端点的健康检查，健康时才发起调用
+     */
+    private Mono<Map<String, Object>> testItem(McpToolBatchTestRequest.Item item, McpToolData tool,
+                                               boolean healthCheck, Map<String, Mono<Boolean>> healthChecks,
+                                               BatchSession session) {
+        if (tool == null) {
+            return Mono.just(failure(item.getToolId(), null, null, "工具不存在"));
+        }
+        if (!McpToolData.Status.ENABLED.equals(tool.getStatus())) {
+            return Mono.just(failure(tool.getId(), tool, null, "工具未启用"));
+        }
+        if (!McpToolData.Type.REMOTE.equals(tool.getType())) {
+            if (!mcpToolInvokeService.hasTool(tool.getName())) {
+                return Mono.just(failure(tool.getId(), tool, null, "本地工具未注册到 MCP 系统"));
+            }
+            return invoke(item, tool, null);
+        }
+
+        String serverKey = remoteMcpToolInvokeService.getServerKey(tool);
+        if (serverKey == null) {
+            return Mono.just(failure(tool.getId(), tool, null, "远程工具未注册"));
+        }
+        Mono<Boolean> health = healthCheck
+                ? healthChecks.computeIfAbsent(serverKey, key -> checkEndpoint(key, tool, session))
+                // 不做健康检查时只看端点熔断状态
+                : Mono.fromSupplier(() -> remoteMcpToolInvokeService.isToolAvailable(tool));
+        return health.flatMap(healthy -> healthy
+                ? invoke(item, tool, serverKey)
+                : Mono.just(failure(tool.getId(), tool, serverKey,
+                healthCheck ? "端点健康检查失败" : "端点熔断中")));
+    }
+
+    /**
+     * 端点健康检查，结果缓存供同一批次的其他工具复用
+     */
+    private Mono<Boolean> checkEndpoint(String serverKey, McpToolData tool, BatchSession session) {
+        return Mono.fromCallable(() -> {
+                    long startNanos = System.nanoTime();
+                    boolean healthy = remoteMcpToolInvokeService.pingEndpoint(tool);
+                    Map<String, Object> event = new LinkedHashMap<>();
+                    event.put("endpoint", serverKey);
+                    event.put("healthy", healthy);
+                    event.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                    session.send("health", event);
+                    return healthy;
+                })
+                .subscribeOn(scheduler)
+                .cache();
+    }
+
+    private Mono<Map<String, Object>> invoke(McpToolBatchTestRequest.Item item, McpToolData tool, String serverKey) {
+        Map<String, Object> params = item.getParams() != null ? item.getParams() : Map.of();
+        return Mono.fromCallable(() -> {
+            long startNanos = System.nanoTime();
+            Map<String, Object> result = baseResult(tool.getId(), tool, serverKey);
+            try {
+                Object toolResult = McpToolData.Type.REMOTE.equals(tool.getType())
+                        ? remoteMcpToolInvokeService.invokeRemoteTool(tool, tool.getName(), params)
+                        : mcpToolInvokeService.invokeTool(tool.getName(), params);
+                result.put("success", true);
+                result.put("response", truncate(toolResult instanceof String text
+                        ? text : objectMapper.writeValueAsString(toolResult)));
+            } catch (Exception e) {
+                log.debug("批量测试工具失败: {}", tool.getName(), e);
+                result.put("success", false);
+                result.put("error", e.getMessage());
+                result.put("errorType", e.getClass().getSimpleName());
+            }
+            result.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            return result;
+        }).subscribeOn(scheduler);
+    }
+
+    private List<McpToolBatchTestRequest.Item> toItems(McpToolBatchTestRequest request) {
+        List<McpToolBatchTestRequest.Item> items = new ArrayList<>();
+        if (request == null) {
+            return items;
+        }
+        if (request.getItems() != null) {
+            request.getItems().stream().filter(item -> item != null && item.getToolId() != null).forEach(items::add);
+        }
+        if (request.getToolIds() != null) {
+            for (Long toolId : request.getToolIds()) {
+                if (toolId != null) {
+                    McpToolBatchTestRequest.Item item = new McpToolBatchTestRequest.Item();
+                    item.setToolId(toolId);
+                    items.add(item);
+                }
+            }
+        }
+        return items;
+    }
+
+    private Map<String, Object> baseResult(Long toolId, McpToolData tool, String serverKey) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("toolId", toolId);
+        if (tool != null) {
+            result.put("toolName", tool.getName());
+            result.put("type", tool.getType());
+        }
+        if (serverKey != null) {
+            result.put("endpoint", serverKey);
+        }
+        return result;
+    }
+
+    private Map<String, Object> failure(Long toolId, McpToolData tool, String serverKey, String error) {
+        Map<String, Object> result = baseResult(toolId, tool, serverKey);
+        result.put("success", false);
+        result.put("error", error);
+        result.put("durationMs", 0L);
+        return result;
+    }
+
+    private String truncate(String text) {
+        if (text == null || text.length() <= maxResponseChars) {
+            return text;
+        }
+        return text.substring(0, maxResponseChars) + "...(已截断，共 " + text.length() + " 字符)";
+    }
+
+    /**
+     * 一次批量测试的 SSE 连接：取消后（超时、断开、结束或推送失败）不再推送事件，
+     * 工作线程上仍在执行的调用和健康检查完成后也不会再写入已关闭的连接
+     */
+    private static final class BatchSession {
+
+        private final SseEmitter emitter;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private final Sinks.Empty<Void> cancelled = Sinks.empty();
+
+        private BatchSession(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        boolean isCancelled() {
+            return closed.get();
+        }
+
+        void cancel() {
+            if (closed.compareAndSet(false, true)) {
+                cancelled.tryEmitEmpty();
+            }
+        }
+
+        /**
+         * 推送一个事件，已取消或推送失败时返回 false（推送失败时取消测试）
+         */
+        boolean send(String name, Object data) {
+            if (closed.get()) {
+                return false;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data));
+                return true;
+            } catch (Exception e) {
+                log.debug("推送批量测试事件失败: {}", e.getMessage());
+                cancel();
+                return false;
+            }
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package cn.sam.demo.mcpclient.service;
 
 import cn.sam.demo.mcpclient.entity.McpToolData;
+import cn.sam.demo.mcpclient.listener.McpToolCatalogChangedEvent;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.ai.tool.function.FunctionToolCallback;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 
 /**
@@ -31,25 +36,83 @@ public class McpToolCallbackService {
     @Resource
     private UniversalMcpClientService universalMcpClientService;
 
+    @Resource
+    private McpEndpointCircuitBreaker circuitBreaker;
+
+    @Resource
+    private McpReplicaBalancer replicaBalancer;
+
+    @Resource
+    private ObservationRegistry observationRegistry;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * 工具目录版本，目录变更时递增，使缓存的回调失效
+     */
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    private volatile CachedCallbacks cachedCallbacks;
+
+    /**
+     * 工具回调及其所属服务器
+     */
+    private record ToolCallbackEntry(String serverKey, FunctionToolCallback callback) {
+    }
+
+    private record CachedCallbacks(long version, List<ToolCallbackEntry> entries) {
+    }
+
+    @EventListener
+    public void onCatalogChanged(McpToolCatalogChangedEvent event) {
+        catalogVersion.incrementAndGet();
+    }
+
     /**
      * 获取所有启用的 MCP 工具作为 FunctionCallback
-     * 用于在 ChatClient 中注册工具
+     * 用于在 ChatClient 中注册工具；结果缓存到工具目录下一次变更
      *
      * @return FunctionCallback 列表
      */
     public List<FunctionToolCallback> getEnabledToolCallbacks() {
+        return loadCallbacks().stream().map(ToolCallbackEntry::callback).toList();
+    }
+
+    /**
+     * 获取当前可用的工具回调：排除所属端点正在熔断的远程工具
+     * 对话层据此不再向模型提供已宕机服务器上的工具
+     *
+     * @return FunctionCallback 列表
+     */
+    public List<FunctionToolCallback> getAvailableToolCallbacks() {
         List<FunctionToolCallback> callbacks = new ArrayList<>();
+        for (ToolCallbackEntry entry : loadCallbacks()) {
+            if (circuitBreaker.isCallPermitted(entry.serverKey())) {
+                callbacks.add(entry.callback());
+            } else {
+                log.debug("端点熔断中，暂不提供工具: {}", entry.callback().getToolDefinition().name());
+            }
+        }
+        return callbacks;
+    }
+
+    private List<ToolCallbackEntry> loadCallbacks() {
+        long version = catalogVersion.get();
+        CachedCallbacks cached = cachedCallbacks;
+        if (cached != null && cached.version() == version) {
+            return cached.entries();
+        }
+
+        List<ToolCallbackEntry> entries = new ArrayList<>();
 
         // 获取所有启用的工具
         List<McpToolData> tools = mcpToolService.listByStatus(McpToolData.Status.ENABLED);
 
         for (McpToolData tool : tools) {
             try {
-                FunctionToolCallback callback = createToolCallback(tool);
-                if (callback != null) {
-                    callbacks.add(callback);
+                ToolCallbackEntry entry = buildToolCallback(tool);
+                if (entry != null) {
+                    entries.add(entry);
                     log.debug("已创建工具回调: {}", tool.getName());
                 }
             } catch (Exception e) {
@@ -57,8 +120,10 @@ public class McpToolCallbackService {
             }
         }
 
-        log.info("共创建 {} 个工具回调", callbacks.size());
-        return callbacks;
+        log.info("共创建 {} 个工具回调", entries.size());
+        List<ToolCallbackEntry> result = List.copyOf(entries);
+        cachedCallbacks = new CachedCallbacks(version, result);
+        return result;
     }
 
     /**
@@ -84,6 +149,17 @@ public class McpToolCallbackService {
      * @return FunctionCallback
      */
     private FunctionToolCallback createToolCallback(McpToolData tool) {
+        ToolCallbackEntry entry = buildToolCallback(tool);
+        return entry != null ? entry.callback() : null;
+    }
+
+    /**
+     * 创建单个工具的 FunctionCallback，并记录其所属服务器
+     *
+     * @param tool 工具数据
+     * @return 回调及服务器标识，配置不完整时返回 null
+     */
+    private ToolCallbackEntry buildToolCallback(McpToolData tool) {
         try {
             // 解析配置获取传输信息
             Map<String, Object> config = parseConfig(tool.getConfigJson());
@@ -95,23 +171,33 @@ public class McpToolCallbackService {
                 return null;
             }
 
-            String url = (String) transport.get("url");
+            // 配置了 urls 时登记副本，url 缺省取第一个副本
+            String url = replicaBalancer.registerTransport(transport);
             String transportType = (String) transport.getOrDefault("type", "streamable-http");
+            // 幂等工具允许对冲请求
+            boolean idempotent = Boolean.TRUE.equals(config.get("idempotent"));
 
             if (url == null || url.isEmpty()) {
                 log.warn("工具配置缺少 URL: {}", tool.getName());
                 return null;
             }
+            String serverKey = UniversalMcpClientService.buildServerKey(url, transportType);
 
             // 创建工具调用函数（输入类型为 Map，Spring AI 会自动将 JSON 反序列化为 Map）
             @SuppressWarnings("unchecked")
             BiFunction<Map<String, Object>, ToolContext, String> toolFunction = (arguments, context) -> {
-                try {
+                // 工具回调 span，父 span 为模型的工具调用，子 span 为 mcp.client.tool
+                Observation observation = Observation.createNotStarted("mcp.tool.callback", observationRegistry)
+                        .contextualName("tool " + tool.getName())
+                        .lowCardinalityKeyValue("mcp.tool", tool.getName())
+                        .lowCardinalityKeyValue("mcp.server", serverKey)
+                        .start();
+                try (Observation.Scope scope = observation.openScope()) {
                     log.info("调用 MCP 工具: {} 参数: {}", tool.getName(), arguments);
 
                     // 调用 MCP 工具
                     Object result = universalMcpClientService.invokeToolSync(
-                            url, transportType, tool.getName(), arguments, null);
+                            url, transportType, tool.getName(), arguments, null, idempotent);
 
                     // 将结果转换为字符串
                     String resultStr;
@@ -126,16 +212,20 @@ public class McpToolCallbackService {
 
                 } catch (Exception e) {
                     log.error("调用 MCP 工具失败: {}", tool.getName(), e);
+                    observation.error(e);
                     return "工具调用失败: " + e.getMessage();
+                } finally {
+                    observation.stop();
                 }
             };
 
             // 构建 FunctionToolCallback（使用 Map 作为输入类型）
-            return FunctionToolCallback.builder(tool.getName(), toolFunction)
+            FunctionToolCallback callback = FunctionToolCallback.builder(tool.getName(), toolFunction)
                     .description(tool.getDescription() != null ? tool.getDescription() : tool.getName())
                     .inputType(Map.class)
                     .inputSchema(tool.getParamSchema() != null ? tool.getParamSchema() : "{}")
                     .build();
+            return new ToolCallbackEntry(serverKey, callback);
 
         } catch (Exception e) {
             log.error("创建工具回调失败: {}", tool.getName(), e);
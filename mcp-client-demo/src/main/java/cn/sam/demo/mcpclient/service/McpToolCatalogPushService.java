@@ -0,0 +1,228 @@
+package cn.sam.demo.mcpclient.service;
+
+import cn.sam.demo.mcpclient.listener.McpToolCatalogChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * 工具目录变更推送服务（SSE）
+ *
+ * <p>每次工具目录变更分配一个递增版本号，以 SSE 事件推送给订阅的前端，事件 ID 为 {@code 纪元:版本号}。
+ * 最近的变更保存在有限长度的历史中，客户端断线重连（EventSource 自动携带 Last-Event-ID）
+ * 或携带 since 参数订阅时补发遗漏的变更；历史已无法覆盖或服务重启（纪元不同）时发送 reset 事件，
+ * 由客户端重新加载列表。</p>
+ *
+ * <p>版本号和历史在锁内更新，发送在锁外进行：变更事件交给单独的推送线程按版本顺序发送，
+ * 单个卡住的连接不会阻塞写入工具的请求线程和新的订阅。新订阅的补发由订阅线程发送，
+ * 可能与同时发生的实时推送交错，客户端收到变更后重新加载列表，不依赖顺序。</p>
+ *
+ * <p>事件类型：</p>
+ * <ul>
+ *   <li>hello：订阅成功，携带当前版本号</li>
+ *   <li>catalog：目录变更（added / updated / disabled / removed 工具ID）</li>
+ *   <li>reset：无法补发，需全量刷新</li>
+ * </ul>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Service
+public class McpToolCatalogPushService {
+
+    /**
+     * 保留的历史变更数量（用于断线补发）
+     */
+    @Value("${mcp.client.catalog-push.history-size:1000}")
+    private int historySize;
+
+    /**
+     * 单个 SSE 连接的超时时间（毫秒），超时后由客户端自动重连并补发
+     */
+    @Value("${mcp.client.catalog-push.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    /**
+     * 服务启动纪元，重启后版本号从 0 开始，客户端据此判断是否需要全量刷新
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis());
+
+    /**
+     * 当前版本号与历史变更，均由 history 锁保护
+     */
+    private long version = 0;
+
+    private final Deque<CatalogDelta> history = new ArrayDeque<>();
+
+    private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 推送线程，变更事件按版本顺序发送
+     */
+    private final ExecutorService pushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mcp-catalog-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 目录变更
+     */
+    public record CatalogDelta(long version, List<Long> added, List<Long> updated, List<Long> disabled,
+                               List<Long> removed, LocalDateTime time) {
+    }
+
+    /**
+     * 订阅目录变更
+     *
+     * @param since 上次收到的事件 ID（纪元:版本号），为空时只发送 hello
+     * @return SSE 连接
+     */
+    public SseEmitter subscribe(String since) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+
+        // 锁内确定要补发的内容并登记订阅（之后的变更都会推送给它），锁外发送
+        List<SseEmitter.SseEventBuilder> initial = new ArrayList<>();
+        synchronized (history) {
+            Long sinceVersion = parseSince(since);
+            if (since == null || since.isBlank()) {
+                initial.add(SseEmitter.event().name("hello").id(eventId(version)).data(version));
+            } else if (sinceVersion == null || sinceVersion > version
+                    || (sinceVersion < version && !canReplayFrom(sinceVersion))) {
+                initial.add(SseEmitter.event().name("reset").id(eventId(version)).data(version));
+            } else {
+                for (CatalogDelta delta : history) {
+                    if (delta.version() > sinceVersion) {
+                        initial.add(toEvent(delta));
+                    }
+                }
+            }
+            emitters.add(emitter);
+        }
+        try {
+            for (SseEmitter.SseEventBuilder event : initial) {
+                emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        log.debug("工具目录订阅: since={}, 当前订阅数 {}", since, emitters.size());
+        return emitter;
+    }
+
+    @EventListener
+    public void onCatalogChanged(McpToolCatalogChangedEvent event) {
+        if (event.isEmpty()) {
+            return;
+        }
+        CatalogDelta delta;
+        List<SseEmitter> targets;
+        synchronized (history) {
+            delta = new CatalogDelta(++version, event.added(), event.updated(), event.disabled(),
+                    event.removed(), LocalDateTime.now());
+            history.addLast(delta);
+            while (history.size() > historySize) {
+                history.removeFirst();
+            }
+            targets = List.copyOf(emitters);
+        }
+        pushExecutor.execute(() -> broadcast(targets, () -> toEvent(delta)));
+        log.info("推送工具目录变更: 新增 {}, 更新 {}, 禁用 {}, 删除 {}, 订阅数 {}", event.added().size(),
+                event.updated().size(), event.disabled().size(), event.removed().size(), emitters.size());
+    }
+
+    /**
+     * 定时发送心跳，保持连接并清理已断开的订阅
+     */
+    @Scheduled(fixedDelayString = "${mcp.client.catalog-push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        List<SseEmitter> targets = List.copyOf(emitters);
+        pushExecutor.execute(() -> broadcast(targets, () -> SseEmitter.event().comment("ping")));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pushExecutor.shutdownNow();
+    }
+
+    /**
+     * 当前版本号（纪元:版本号）
+     */
+    public String getCurrentVersion() {
+        synchronized (history) {
+            return eventId(version);
+        }
+    }
+
+    /**
+     * 向订阅者发送事件（不持有 history 锁；SseEventBuilder 构建后不可复用，每个连接单独构建）
+     * 发送失败（连接已断开）的订阅被移除
+     */
+    private void broadcast(List<SseEmitter> targets, Supplier<SseEmitter.SseEventBuilder> event) {
+        for (SseEmitter emitter : targets) {
+            try {
+                emitter.send(event.get());
+            } catch (Exception e) {
+                emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private SseEmitter.SseEventBuilder toEvent(CatalogDelta delta) {
+        return SseEmitter.event().name("catalog").id(eventId(delta.version())).data(delta);
+    }
+
+    private String eventId(long v) {
+        return epoch + ":" + v;
+    }
+
+    /**
+     * 解析 since，纪元不一致或格式错误时返回 null
+     */
+    private Long parseSince(String since) {
+        if (since == null || since.isBlank()) {
+            return null;
+        }
+        int idx = since.indexOf(':');
+        if (idx < 0 || !epoch.equals(since.substring(0, idx))) {
+            return null;
+        }
+        try {
+            return Long.parseLong(since.substring(idx + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 历史中是否保留了 sinceVersion 之后的全部变更（调用方持有 history 锁）
+     */
+    private boolean canReplayFrom(long sinceVersion) {
+        return !history.isEmpty() && history.peekFirst().version() <= sinceVersion + 1;
+    }
+}
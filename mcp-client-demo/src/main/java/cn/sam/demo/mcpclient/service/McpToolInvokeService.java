@@ -5,9 +5,7 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springaicommunity.mcp.annotation.McpTool;
 import org.springaicommunity.mcp.annotation.McpToolParam;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationContext;
-import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Service;
 
 import java.lang.reflect.Method;
@@ -25,23 +23,34 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Slf4j
 @Service
-public class McpToolInvokeService implements ApplicationListener<ApplicationReadyEvent> {
+public class McpToolInvokeService {
 
     @Resource
     private ApplicationContext applicationContext;
 
+    @Resource
+    private McpMetrics mcpMetrics;
+
+    @Resource
+    private McpToolStatsService toolStatsService;
+
     // 工具名称 -> (Bean实例, 方法) 的映射
     private final Map<String, ToolMethodInfo> toolRegistry = new ConcurrentHashMap<>();
     
     private volatile boolean initialized = false;
 
-    @Override
-    public void onApplicationEvent(ApplicationReadyEvent event) {
-        // 在应用完全启动后再扫描工具，避免循环依赖
+    /**
+     * 扫描本地 MCP 工具（由启动编排在应用完全启动后调用，避免循环依赖）
+     */
+    public void scanLocalTools() {
         if (!initialized) {
-            scanMcpTools();
-            initialized = true;
-            log.info("MCP 工具扫描完成，共找到 {} 个工具", toolRegistry.size());
+            synchronized (this) {
+                if (!initialized) {
+                    scanMcpTools();
+                    initialized = true;
+                    log.info("MCP 工具扫描完成，共找到 {} 个工具", toolRegistry.size());
+                }
+            }
         }
     }
 
@@ -100,6 +109,8 @@ public class McpToolInvokeService implements ApplicationListener<ApplicationRead
         Method method = toolInfo.method;
         Object bean = toolInfo.bean;
 
+        long startNanos = System.nanoTime();
+        String outcome = McpMetrics.OUTCOME_ERROR;
         try {
             // 准备方法参数
             Object[] methodArgs = prepareMethodArguments(method, params);
@@ -111,6 +122,7 @@ public class McpToolInvokeService implements ApplicationListener<ApplicationRead
             Object result = method.invoke(bean, methodArgs);
 
             log.debug("工具调用成功: {}，结果: {}", toolName, result);
+            outcome = McpMetrics.OUTCOME_SUCCESS;
             return result;
 
         } catch (IllegalArgumentException e) {
@@ -123,6 +135,9 @@ public class McpToolInvokeService implements ApplicationListener<ApplicationRead
                 throw new RuntimeException("工具调用失败: " + cause.getMessage(), cause);
             }
             throw new RuntimeException("工具调用失败: " + e.getMessage(), e);
+        } finally {
+            mcpMetrics.recordToolCall(toolName, McpMetrics.LOCAL_SERVER, startNanos, outcome);
+            toolStatsService.record(McpMetrics.LOCAL_SERVER, toolName, startNanos, outcome);
         }
     }
 
@@ -1,18 +1,28 @@
 package cn.sam.demo.mcpclient.service;
 
 import cn.sam.demo.mcpclient.entity.McpToolData;
+import cn.sam.demo.mcpclient.listener.McpToolCatalogChangedEvent;
 import cn.sam.demo.mcpclient.mapper.McpToolMapper;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.toolkit.Db;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.spec.McpSchema;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
 
-import java.util.List;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
@@ -32,8 +42,25 @@ public class McpToolRegistryService {
     @Resource
     private McpToolMapper mcpToolMapper;
 
+    @Resource
+    private McpSearchIndexService searchIndexService;
+
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    @Resource
+    private McpReplicaBalancer replicaBalancer;
+
+    @Resource
+    private UniversalMcpClientService universalMcpClientService;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * 批量写入时每批的语句数
+     */
+    private static final int BATCH_SIZE = 200;
+
     // 存储已注册的工具 Bean 名称
     private final Map<Long, String> registeredTools = new ConcurrentHashMap<>();
 
@@ -121,7 +148,8 @@ public class McpToolRegistryService {
             }
 
             String transportType = (String) transport.get("type");
-            String url = (String) transport.get("url");
+            // 配置了 urls 时登记副本，url 缺省取第一个副本
+            String url = replicaBalancer.registerTransport(transport);
 
             if (url == null || url.isEmpty()) {
                 log.error("远程工具配置缺少 URL: {}", tool.getName());
@@ -130,6 +158,8 @@ public class McpToolRegistryService {
 
             // 提取请求头
             Map<String, String> headers = extractHeaders(transport);
+            // 登记服务器，之后可按服务器标识读取其资源和提示词
+            universalMcpClientService.registerEndpoint(url, transportType, headers);
 
             // 创建远程 MCP 客户端包装器
             // 注意：由于 Spring AI 1.1.0 的 MCP Client API 可能还在变化中，
@@ -182,6 +212,13 @@ public class McpToolRegistryService {
      */
     public record RemoteMcpClientWrapper(Long toolId, String toolName, String url, String transportType,
                                          Map<String, String> headers, Map<String, Object> config) {
+
+        /**
+         * 工具是否幂等（config_json 中 "idempotent": true），幂等工具允许对冲请求
+         */
+        public boolean isIdempotent() {
+            return config != null && Boolean.TRUE.equals(config.get("idempotent"));
+        }
     }
 
     /**
@@ -204,6 +241,280 @@ public class McpToolRegistryService {
         return mcpToolMapper.selectList(queryWrapper);
     }
 
+    /**
+     * 获取指定 MCP 服务器下远程工具的比对快照
+     * 只查询同步比对需要的列，不加载 param_schema、config_json 等大字段
+     *
+     * @param serverKey 服务器标识（url|传输类型）
+     * @return 远程工具列表（部分字段）
+     */
+    public List<McpToolData> getRemoteToolSnapshots(String serverKey) {
+        LambdaQueryWrapper<McpToolData> queryWrapper = new LambdaQueryWrapper<McpToolData>()
+                .select(McpToolData::getId, McpToolData::getName, McpToolData::getDisplayName,
+                        McpToolData::getDescription, McpToolData::getType, McpToolData::getStatus,
+                        McpToolData::getServerKey, McpToolData::getSchemaHash)
+                .eq(McpToolData::getType, McpToolData.Type.REMOTE)
+                .eq(McpToolData::getServerKey, serverKey);
+        return mcpToolMapper.selectList(queryWrapper);
+    }
+
+    /**
+     * 批量获取多个 MCP 服务器下远程工具的比对快照（一次查询）
+     *
+     * @param serverKeys 服务器标识集合
+     * @return 远程工具列表（部分字段）
+     */
+    public List<McpToolData> getRemoteToolSnapshots(Collection<String> serverKeys) {
+        if (serverKeys.isEmpty()) {
+            return List.of();
+        }
+        LambdaQueryWrapper<McpToolData> queryWrapper = new LambdaQueryWrapper<McpToolData>()
+                .select(McpToolData::getId, McpToolData::getName, McpToolData::getDisplayName,
+                        McpToolData::getDescription, McpToolData::getType, McpToolData::getStatus,
+                        McpToolData::getServerKey, McpToolData::getSchemaHash)
+                .eq(McpToolData::getType, McpToolData.Type.REMOTE)
+                .in(McpToolData::getServerKey, serverKeys);
+        return mcpToolMapper.selectList(queryWrapper);
+    }
+
+    /**
+     * 获取未标记服务器的远程工具快照（server_key 为空的旧数据）
+     *
+     * @return 远程工具列表（部分字段）
+     */
+    public List<McpToolData> getLegacyRemoteToolSnapshots() {
+        LambdaQueryWrapper<McpToolData> queryWrapper = new LambdaQueryWrapper<McpToolData>()
+                .select(McpToolData::getId, McpToolData::getName, McpToolData::getDisplayName,
+                        McpToolData::getDescription, McpToolData::getType, McpToolData::getStatus,
+                        McpToolData::getServerKey, McpToolData::getSchemaHash)
+                .eq(McpToolData::getType, McpToolData.Type.REMOTE)
+                .and(w -> w.isNull(McpToolData::getServerKey).or().eq(McpToolData::getServerKey, ""));
+        return mcpToolMapper.selectList(queryWrapper);
+    }
+
+    /**
+     * 服务器工具与数据库的差异
+     *
+     * @param inserts       待新增的工具
+     * @param updates       待更新的工具（含被禁用的）
+     * @param disabledCount 因服务端已移除而禁用的数量
+     */
+    public record ToolDiff(List<McpToolData> inserts, List<McpToolData> updates, int disabledCount) {
+
+        public boolean isEmpty() {
+            return inserts.isEmpty() && updates.isEmpty();
+        }
+    }
+
+    /**
+     * 计算某个服务器的工具列表与数据库快照的差异（不写库）
+     *
+     * <p>每个服务端工具只序列化一次 inputSchema，通过摘要与快照比对；
+     * 快照中存在但服务端已移除的工具标记为 DISABLED。
+     * 同名的旧数据（未标记服务器）会被归属到当前服务器，并从 legacyTools 中移除，避免被多个服务器重复认领。</p>
+     *
+     * @param serverKey     服务器标识
+     * @param url           服务器地址，未知时为 null（此时新增工具不写入传输配置）
+     * @param transportType 传输类型
+     * @param serverTools   服务端当前的完整工具列表
+     * @param dbTools       该服务器下的工具快照
+     * @param legacyTools   未标记服务器的旧数据（名称 -> 快照），可为空 Map
+     * @return 差异
+     */
+    public ToolDiff diffServerTools(String serverKey, String url, String transportType,
+                                    List<McpSchema.Tool> serverTools, List<McpToolData> dbTools,
+                                    Map<String, McpToolData> legacyTools) throws JsonProcessingException {
+        Map<String, McpToolData> dbToolMap = dbTools.stream()
+                .filter(tool -> serverKey.equals(tool.getServerKey()))
+                .collect(Collectors.toMap(McpToolData::getName, tool -> tool, (a, b) -> a));
+
+        Set<String> serverToolNames = new HashSet<>();
+        List<McpToolData> inserts = new ArrayList<>();
+        List<McpToolData> updates = new ArrayList<>();
+        int disabledCount = 0;
+        LocalDateTime now = LocalDateTime.now();
+
+        for (McpSchema.Tool serverTool : serverTools) {
+            String toolName = serverTool.name();
+            if (!serverToolNames.add(toolName)) {
+                continue;
+            }
+
+            String paramSchema = serverTool.inputSchema() != null
+                    ? objectMapper.writeValueAsString(serverTool.inputSchema())
+                    : null;
+            String schemaHash = paramSchema != null
+                    ? DigestUtils.md5DigestAsHex(paramSchema.getBytes(StandardCharsets.UTF_8))
+                    : null;
+
+            McpToolData dbTool = dbToolMap.get(toolName);
+            boolean adopted = false;
+            if (dbTool == null) {
+                dbTool = legacyTools.remove(toolName);
+                if (dbTool != null) {
+                    log.info("  [归属] 旧工具归属到服务器 {}: {}", serverKey, toolName);
+                    dbTool.setServerKey(serverKey);
+                    if (url != null) {
+                        dbTool.setConfigJson(buildRemoteToolConfig(serverTool, url, transportType));
+                    }
+                    adopted = true;
+                }
+            }
+
+            if (dbTool == null) {
+                log.info("  [新增] 工具: {}", toolName);
+                inserts.add(buildNewTool(serverKey, url, transportType, serverTool, paramSchema, schemaHash, now));
+            } else if (applyToolDiff(dbTool, serverTool, paramSchema, schemaHash) || adopted) {
+                log.info("  [更新] 工具: {}", toolName);
+                dbTool.setUpdateTime(now);
+                updates.add(dbTool);
+            } else {
+                log.debug("  [跳过] 工具无变化: {}", toolName);
+            }
+        }
+
+        // 数据库中存在但服务端已移除的工具
+        for (McpToolData dbTool : dbToolMap.values()) {
+            if (!serverToolNames.contains(dbTool.getName())
+                    && !McpToolData.Status.DISABLED.equals(dbTool.getStatus())) {
+                log.info("  [禁用] 工具已从服务端移除: {}", dbTool.getName());
+                dbTool.setStatus(McpToolData.Status.DISABLED);
+                dbTool.setUpdateTime(now);
+                updates.add(dbTool);
+                disabledCount++;
+            }
+        }
+
+        return new ToolDiff(inserts, updates, disabledCount);
+    }
+
+    private McpToolData buildNewTool(String serverKey, String url, String transportType, McpSchema.Tool serverTool,
+                                     String paramSchema, String schemaHash, LocalDateTime now) {
+        McpToolData newTool = new McpToolData();
+        newTool.setName(serverTool.name());
+        newTool.setDisplayName(serverTool.name());
+        newTool.setDescription(serverTool.description());
+        newTool.setType(McpToolData.Type.REMOTE);
+        newTool.setServerKey(serverKey);
+        newTool.setStatus(McpToolData.Status.ENABLED);
+        newTool.setParamSchema(paramSchema);
+        newTool.setSchemaHash(schemaHash);
+        // 已知来源服务器时写入传输配置，否则留空
+        newTool.setConfigJson(url != null ? buildRemoteToolConfig(serverTool, url, transportType) : "{}");
+        newTool.setCreateTime(now);
+        newTool.setUpdateTime(now);
+        return newTool;
+    }
+
+    /**
+     * 将服务端工具的变化应用到数据库快照上
+     *
+     * <p>快照不含 param_schema、config_json，只有发生变化时才设置，
+     * 因此 updateById 只会写入真正变化的大字段。</p>
+     *
+     * @return 是否有变化
+     */
+    private boolean applyToolDiff(McpToolData dbTool, McpSchema.Tool serverTool, String paramSchema,
+                                  String schemaHash) {
+        boolean changed = false;
+
+        // 描述变化
+        if (!Objects.equals(dbTool.getDescription(), serverTool.description())) {
+            dbTool.setDescription(serverTool.description());
+            changed = true;
+        }
+
+        // 参数 schema 变化（按摘要比对）
+        if (paramSchema != null && !Objects.equals(dbTool.getSchemaHash(), schemaHash)) {
+            dbTool.setParamSchema(paramSchema);
+            dbTool.setSchemaHash(schemaHash);
+            changed = true;
+        }
+
+        // 如果工具之前被禁用，重新启用
+        if (McpToolData.Status.DISABLED.equals(dbTool.getStatus())) {
+            dbTool.setStatus(McpToolData.Status.ENABLED);
+            changed = true;
+            log.info("  工具 {} 已重新启用", dbTool.getName());
+        }
+
+        // config_json 不随之刷新：其中的 function 定义仅作展示，而 transport.urls、headers、idempotent
+        // 等字段可能由用户手工维护，重新生成会覆盖它们
+        return changed;
+    }
+
+    /**
+     * 构建远程工具的配置 JSON
+     * 包含 transport 和 function 定义
+     *
+     * @param tool          远程工具信息
+     * @param url           服务器地址
+     * @param transportType 传输类型
+     * @return 配置 JSON
+     */
+    public String buildRemoteToolConfig(McpSchema.Tool tool, String url, String transportType) {
+        try {
+            Map<String, Object> config = new HashMap<>();
+            config.put("tool_name", tool.name());
+            config.put("tool_type", "REMOTE");
+
+            // 传输配置
+            config.put("transport", Map.of(
+                    "type", transportType,
+                    "url", url
+            ));
+
+            // 函数定义 - 从远端工具信息获取
+            Map<String, Object> function = new HashMap<>();
+            function.put("name", tool.name());
+            function.put("description", tool.description());
+
+            // 参数 schema - 从远端获取
+            if (tool.inputSchema() != null) {
+                function.put("parameters", tool.inputSchema());
+            }
+
+            config.put("function", function);
+
+            return objectMapper.writeValueAsString(config);
+        } catch (Exception e) {
+            log.error("构建工具配置失败: {}", tool.name(), e);
+            return "{}";
+        }
+    }
+
+    /**
+     * 在同一个事务中批量写入工具变更（JDBC 批处理）
+     * 任一语句失败整体回滚；事务提交后再刷新全文检索索引
+     *
+     * @param inserts 新增的工具
+     * @param updates 需要更新的工具（只更新非空字段）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void applyToolChanges(List<McpToolData> inserts, List<McpToolData> updates) {
+        if (!inserts.isEmpty()) {
+            Db.saveBatch(inserts, BATCH_SIZE);
+        }
+        if (!updates.isEmpty()) {
+            Db.updateBatchById(updates, BATCH_SIZE);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    inserts.forEach(searchIndexService::indexTool);
+                    updates.forEach(searchIndexService::indexTool);
+                    eventPublisher.publishEvent(McpToolCatalogChangedEvent.of(inserts, updates));
+                }
+            });
+        } else {
+            inserts.forEach(searchIndexService::indexTool);
+            updates.forEach(searchIndexService::indexTool);
+            eventPublisher.publishEvent(McpToolCatalogChangedEvent.of(inserts, updates));
+        }
+    }
+
     /**
      * 保存工具到数据库
      * 
@@ -213,6 +524,8 @@ public class McpToolRegistryService {
     public boolean saveTool(McpToolData tool) {
         try {
             int result = mcpToolMapper.insert(tool);
+            searchIndexService.indexTool(tool);
+            eventPublisher.publishEvent(McpToolCatalogChangedEvent.of(List.of(tool), List.of()));
             return result > 0;
         } catch (Exception e) {
             log.error("保存工具到数据库失败: {}", tool.getName(), e);
@@ -229,6 +542,8 @@ public class McpToolRegistryService {
     public boolean updateTool(McpToolData tool) {
         try {
             int result = mcpToolMapper.updateById(tool);
+            searchIndexService.indexTool(tool);
+            eventPublisher.publishEvent(McpToolCatalogChangedEvent.of(List.of(), List.of(tool)));
             return result > 0;
         } catch (Exception e) {
             log.error("更新工具失败: {}", tool.getName(), e);
@@ -236,18 +551,6 @@ public class McpToolRegistryService {
         }
     }
 
-    /**
-     * 根据名称查询工具
-     * 
-     * @param toolName 工具名称
-     * @return 工具实体
-     */
-    public McpToolData getToolByName(String toolName) {
-        LambdaQueryWrapper<McpToolData> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(McpToolData::getName, toolName);
-        return mcpToolMapper.selectOne(queryWrapper);
-    }
-
     /**
      * 根据ID查询工具
      * 
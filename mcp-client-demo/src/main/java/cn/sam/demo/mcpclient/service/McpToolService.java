@@ -3,6 +3,7 @@ package cn.sam.demo.mcpclient.service;
 import cn.sam.demo.mcpclient.entity.McpToolData;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * MCP 工具服务接口
@@ -27,6 +28,14 @@ public interface McpToolService {
      */
     McpToolData getById(Long id);
 
+    /**
+     * 根据ID列表批量获取工具
+     *
+     * @param ids 工具ID列表
+     * @return 工具列表（不存在的ID忽略）
+     */
+    List<McpToolData> getByIds(List<Long> ids);
+
     /**
      * 查询所有工具
      *
@@ -68,6 +77,38 @@ public interface McpToolService {
      */
     List<McpToolData> searchByName(String name);
 
+    /**
+     * 全文检索工具（名称、显示名称、描述），按相关度排序并分页
+     *
+     * @param keyword 关键字
+     * @param type    工具类型（可选）
+     * @param status  状态（可选）
+     * @param page    页码（从1开始）
+     * @param size    每页大小
+     * @return 分页结果，包含 data、scores、total、page、size、pages
+     */
+    Map<String, Object> search(String keyword, String type, String status, Integer page, Integer size);
+
+    /**
+     * 分页查询工具列表（精简视图，不含参数结构和配置信息）
+     *
+     * @param type   工具类型（可选）
+     * @param status 状态（可选）
+     * @param page   页码（从1开始）
+     * @param size   每页大小
+     * @param sort   排序字段：id、name、type、status、createTime、updateTime，默认 createTime
+     * @param order  排序方向：asc、desc，默认 desc
+     * @return 分页结果，包含 data、total、page、size、pages
+     */
+    Map<String, Object> listPage(String type, String status, Integer page, Integer size, String sort, String order);
+
+    /**
+     * 获取工具表的数据版本（目录变更版本号 + 记录数 + 最大更新时间），用于列表接口生成 ETag
+     *
+     * @return 数据版本
+     */
+    String getListVersion();
+
     /**
      * 删除工具
      *
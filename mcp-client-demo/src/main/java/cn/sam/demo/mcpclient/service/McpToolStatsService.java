@@ -0,0 +1,347 @@
+package cn.sam.demo.mcpclient.service;
+
+import cn.sam.demo.mcpclient.entity.McpToolStats;
+import cn.sam.demo.mcpclient.mapper.McpToolStatsMapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * MCP 工具调用统计服务
+ *
+ * <p>按工具（服务器标识 + 工具名称，不同服务器的同名工具分开统计）维护滚动窗口内的调用次数、错误率和耗时分位数：调用路径上只做无锁记录
+ * （HdrHistogram 的 {@link Recorder} 加 {@link LongAdder}），每个时间片结束时把区间直方图放入环形队列，
+ * 合并窗口内的时间片得到 p50/p95/p99，读取时直接返回已合并的结果。窗口统计定期写入 mcp_tool_stats，
+ * 重启后在工具产生新调用之前返回数据库中的最近快照，用于在工具列表中发现并降低慢工具、易失败工具的优先级。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Service
+public class McpToolStatsService {
+
+    /**
+     * 直方图精度（有效数字位数）
+     */
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    @Resource
+    private McpToolStatsMapper mcpToolStatsMapper;
+
+    /**
+     * 是否启用工具调用统计
+     */
+    @Value("${mcp.client.tool-stats.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 统计窗口（秒）
+     */
+    @Value("${mcp.client.tool-stats.window-seconds:300}")
+    private int windowSeconds;
+
+    /**
+     * 每个工具的实时统计
+     */
+    private final Map<ToolKey, ToolRecorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * 每个工具最近一次合并的窗口统计（窗口内无调用的工具不在其中）
+     */
+    private final Map<ToolKey, McpToolStats> current = new ConcurrentHashMap<>();
+
+    /**
+     * 最近写入数据库的快照
+     */
+    private final Map<ToolKey, McpToolStats> persisted = new ConcurrentHashMap<>();
+
+    /**
+     * 统计版本，窗口统计有变化时递增，用于工具列表的 ETag
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * 统计键：服务器标识（与 mcp_tool.server_key 一致，本地工具为空字符串）+ 工具名称
+     */
+    private record ToolKey(String serverKey, String toolName) {
+
+        static ToolKey of(String serverKey, String toolName) {
+            return new ToolKey(serverKey == null || McpMetrics.LOCAL_SERVER.equals(serverKey) ? "" : serverKey,
+                    toolName);
+        }
+    }
+
+    /**
+     * 时间片：区间直方图（微秒）和区间内的调用、失败次数
+     */
+    private record Slice(long startMillis, long endMillis, Histogram histogram, long calls, long errors) {
+    }
+
+    private static final class ToolRecorder {
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        /**
+         * 窗口内的时间片，仅由 rotate 访问
+         */
+        private final Deque<Slice> slices = new ArrayDeque<>();
+        private long sliceStartMillis = System.currentTimeMillis();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (McpToolStats stats : mcpToolStatsMapper.selectList(null)) {
+                stats.setSource(McpToolStats.Source.SNAPSHOT);
+                persisted.put(ToolKey.of(stats.getServerKey(), stats.getToolName()), stats);
+            }
+            log.info("加载工具调用统计快照: {} 个工具", persisted.size());
+        } catch (Exception e) {
+            log.warn("加载工具调用统计快照失败（mcp_tool_stats 表是否已创建？）: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录一次工具调用
+     *
+     * @param serverKey  服务器标识（url|传输类型），本地工具为 McpMetrics.LOCAL_SERVER
+     * @param toolName   工具名称
+     * @param startNanos 开始时间（System.nanoTime()）
+     * @param outcome    见 McpMetrics 的 OUTCOME_*，被熔断拒绝的调用只计入失败次数，不计入耗时
+     */
+    public void record(String serverKey, String toolName, long startNanos, String outcome) {
+        if (!enabled || toolName == null) {
+            return;
+        }
+        ToolKey toolKey = ToolKey.of(serverKey, toolName);
+        ToolRecorder toolRecorder = recorders.get(toolKey);
+        if (toolRecorder == null) {
+            toolRecorder = recorders.computeIfAbsent(toolKey, key -> new ToolRecorder());
+        }
+        toolRecorder.calls.increment();
+        if (!McpMetrics.OUTCOME_SUCCESS.equals(outcome)) {
+            toolRecorder.errors.increment();
+        }
+        if (!McpMetrics.OUTCOME_REJECTED.equals(outcome)) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            toolRecorder.recorder.recordValue(Math.max(0, micros));
+        }
+    }
+
+    /**
+     * 获取工具的窗口统计：窗口内有调用时返回内存统计，否则返回最近的数据库快照，都没有时返回 null
+     *
+     * @param serverKey 服务器标识（mcp_tool.server_key，本地工具为空）
+     * @param toolName  工具名称
+     */
+    public McpToolStats getStats(String serverKey, String toolName) {
+        if (!enabled || toolName == null) {
+            return null;
+        }
+        ToolKey toolKey = ToolKey.of(serverKey, toolName);
+        McpToolStats stats = current.get(toolKey);
+        return stats != null ? stats : persisted.get(toolKey);
+    }
+
+    /**
+     * 按指标从高到低列出工具统计，用于找出慢工具和易失败工具
+     *
+     * @param sort  p50 / p95 / p99 / max / errorRate / callCount，其他值按 p95
+     * @param limit 返回条数
+     */
+    public List<McpToolStats> listStats(String sort, int limit) {
+        Map<ToolKey, McpToolStats> merged = new HashMap<>(persisted);
+        merged.putAll(current);
+        Function<McpToolStats, Double> key = switch (sort == null ? "" : sort) {
+            case "p50" -> McpToolStats::getP50Ms;
+            case "p99" -> McpToolStats::getP99Ms;
+            case "max" -> McpToolStats::getMaxMs;
+            case "errorRate" -> McpToolStats::getErrorRate;
+            case "callCount" -> stats -> stats.getCallCount() == null ? null : stats.getCallCount().doubleValue();
+            default -> McpToolStats::getP95Ms;
+        };
+        return merged.values().stream()
+                .sorted(Comparator.comparing(key, Comparator.nullsLast(Comparator.<Double>reverseOrder())))
+                .limit(Math.max(1, limit))
+                .toList();
+    }
+
+    /**
+     * 统计版本，窗口统计有变化时递增
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 结束当前时间片：取出各工具的区间直方图，淘汰窗口外的时间片并重新合并窗口统计
+     */
+    @Scheduled(fixedRateString = "${mcp.client.tool-stats.slice-ms:10000}")
+    public synchronized void rotate() {
+        if (!enabled || recorders.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long windowStart = now - TimeUnit.SECONDS.toMillis(windowSeconds);
+        boolean changed = false;
+        for (Map.Entry<ToolKey, ToolRecorder> entry : recorders.entrySet()) {
+            ToolKey toolKey = entry.getKey();
+            ToolRecorder toolRecorder = entry.getValue();
+            Histogram recycle = null;
+            long evictedCalls = 0;
+            while (!toolRecorder.slices.isEmpty() && toolRecorder.slices.peekFirst().endMillis() <= windowStart) {
+                Slice evicted = toolRecorder.slices.pollFirst();
+                recycle = evicted.histogram();
+                evictedCalls += evicted.calls();
+            }
+            // 复用淘汰的直方图，稳定运行时不再分配新的直方图
+            Histogram interval = toolRecorder.recorder.getIntervalHistogram(recycle);
+            long calls = toolRecorder.calls.sumThenReset();
+            toolRecorder.slices.addLast(new Slice(toolRecorder.sliceStartMillis, now, interval,
+                    calls, toolRecorder.errors.sumThenReset()));
+            toolRecorder.sliceStartMillis = now;
+            if (calls == 0 && evictedCalls == 0) {
+                continue;
+            }
+            changed = true;
+
+            McpToolStats stats = summarize(toolKey, toolRecorder.slices);
+            if (stats != null) {
+                current.put(toolKey, stats);
+            } else {
+                current.remove(toolKey);
+            }
+        }
+        if (changed) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * 定期把窗口统计写入数据库（每个工具一行，按服务器标识 + 工具名称覆盖）
+     */
+    @Scheduled(initialDelayString = "${mcp.client.tool-stats.snapshot-interval-ms:60000}",
+            fixedDelayString = "${mcp.client.tool-stats.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        if (!enabled || current.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int saved = 0;
+        for (McpToolStats stats : List.copyOf(current.values())) {
+            try {
+                int updated = mcpToolStatsMapper.update(null, new LambdaUpdateWrapper<McpToolStats>()
+                        .set(McpToolStats::getCallCount, stats.getCallCount())
+                        .set(McpToolStats::getErrorCount, stats.getErrorCount())
+                        .set(McpToolStats::getErrorRate, stats.getErrorRate())
+                        .set(McpToolStats::getP50Ms, stats.getP50Ms())
+                        .set(McpToolStats::getP95Ms, stats.getP95Ms())
+                        .set(McpToolStats::getP99Ms, stats.getP99Ms())
+                        .set(McpToolStats::getMaxMs, stats.getMaxMs())
+                        .set(McpToolStats::getWindowStart, stats.getWindowStart())
+                        .set(McpToolStats::getWindowEnd, stats.getWindowEnd())
+                        .set(McpToolStats::getUpdateTime, now)
+                        .eq(McpToolStats::getServerKey, stats.getServerKey())
+                        .eq(McpToolStats::getToolName, stats.getToolName()));
+                McpToolStats row = McpToolStats.builder()
+                        .serverKey(stats.getServerKey())
+                        .toolName(stats.getToolName())
+                        .callCount(stats.getCallCount())
+                        .errorCount(stats.getErrorCount())
+                        .errorRate(stats.getErrorRate())
+                        .p50Ms(stats.getP50Ms())
+                        .p95Ms(stats.getP95Ms())
+                        .p99Ms(stats.getP99Ms())
+                        .maxMs(stats.getMaxMs())
+                        .windowStart(stats.getWindowStart())
+                        .windowEnd(stats.getWindowEnd())
+                        .updateTime(now)
+                        .build();
+                if (updated == 0) {
+                    mcpToolStatsMapper.insert(row);
+                }
+                row.setSource(McpToolStats.Source.SNAPSHOT);
+                persisted.put(ToolKey.of(row.getServerKey(), row.getToolName()), row);
+                saved++;
+            } catch (Exception e) {
+                log.warn("保存工具调用统计失败: {}，{}", stats.getToolName(), e.getMessage());
+            }
+        }
+        log.debug("保存工具调用统计: {} 个工具", saved);
+    }
+
+    /**
+     * 停机前合并最后一个时间片并写入数据库
+     */
+    @PreDestroy
+    public void shutdown() {
+        rotate();
+        snapshot();
+    }
+
+    private McpToolStats summarize(ToolKey toolKey, Deque<Slice> slices) {
+        Histogram merged = new Histogram(SIGNIFICANT_DIGITS);
+        long calls = 0;
+        long errors = 0;
+        for (Slice slice : slices) {
+            merged.add(slice.histogram());
+            calls += slice.calls();
+            errors += slice.errors();
+        }
+        if (calls == 0) {
+            return null;
+        }
+        boolean hasLatency = merged.getTotalCount() > 0;
+        return McpToolStats.builder()
+                .serverKey(toolKey.serverKey())
+                .toolName(toolKey.toolName())
+                .callCount(calls)
+                .errorCount(errors)
+                .errorRate(round((double) errors / calls, 10_000))
+                .p50Ms(hasLatency ? toMillis(merged.getValueAtPercentile(50)) : null)
+                .p95Ms(hasLatency ? toMillis(merged.getValueAtPercentile(95)) : null)
+                .p99Ms(hasLatency ? toMillis(merged.getValueAtPercentile(99)) : null)
+                .maxMs(hasLatency ? toMillis(merged.getMaxValue()) : null)
+                .windowStart(toDateTime(slices.peekFirst().startMillis()))
+                .windowEnd(toDateTime(slices.peekLast().endMillis()))
+                .source(McpToolStats.Source.MEMORY)
+                .build();
+    }
+
+    private static double toMillis(long micros) {
+        return round(micros / 1000.0, 1000);
+    }
+
+    private static double round(double value, int scale) {
+        return Math.round(value * scale) / (double) scale;
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
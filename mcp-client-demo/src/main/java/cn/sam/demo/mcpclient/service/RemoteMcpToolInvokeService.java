@@ -35,6 +35,9 @@ public class RemoteMcpToolInvokeService {
     @Resource
     private UniversalMcpClientService universalMcpClientService;
 
+    @Resource
+    private McpEndpointCircuitBreaker circuitBreaker;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final RestTemplate restTemplate = new RestTemplate();
 
@@ -67,7 +70,8 @@ public class RemoteMcpToolInvokeService {
 
             // 使用通用 MCP 客户端服务调用
             log.debug("使用 {} 传输方式调用工具: {} -> {}", normalizedTransportType, url, toolName);
-            return universalMcpClientService.invokeToolSync(url, normalizedTransportType, toolName, params, headers);
+            return universalMcpClientService.invokeToolSync(url, normalizedTransportType, toolName, params, headers,
+                    clientWrapper.isIdempotent());
             
         } catch (Exception e) {
             log.error("调用远程工具失败: {} -> {}", tool.getName(), toolName, e);
@@ -104,7 +108,8 @@ public class RemoteMcpToolInvokeService {
 
             // 使用通用 MCP 客户端服务流式调用
             log.debug("使用 {} 传输方式流式调用工具: {} -> {}", normalizedTransportType, url, toolName);
-            return universalMcpClientService.invokeToolStream(url, normalizedTransportType, toolName, params, headers);
+            return universalMcpClientService.invokeToolStream(url, normalizedTransportType, toolName, params, headers,
+                    clientWrapper.isIdempotent());
             
         } catch (Exception e) {
             log.error("流式调用远程工具失败: {} -> {}", tool.getName(), toolName, e);
@@ -225,9 +230,50 @@ public class RemoteMcpToolInvokeService {
         }
     }
 
+    /**
+     * 获取远程工具所在端点的标识（url|传输类型），工具未注册时返回 null
+     *
+     * @param tool 工具实体
+     * @return 端点标识
+     */
+    public String getServerKey(McpToolData tool) {
+        McpToolRegistryService.RemoteMcpClientWrapper clientWrapper = getClientWrapper(tool);
+        if (clientWrapper == null) {
+            return null;
+        }
+        return UniversalMcpClientService.buildServerKey(clientWrapper.url(),
+                normalizeTransportType(clientWrapper.transportType()));
+    }
+
+    /**
+     * 对远程工具所在端点发起一次 ping（经端点熔断器）
+     * 批量测试时同一端点的工具共享一次检查结果
+     *
+     * @param tool 工具实体
+     * @return 端点是否健康
+     */
+    public boolean pingEndpoint(McpToolData tool) {
+        McpToolRegistryService.RemoteMcpClientWrapper clientWrapper = getClientWrapper(tool);
+        if (clientWrapper == null) {
+            return false;
+        }
+        return universalMcpClientService.ping(clientWrapper.url(),
+                normalizeTransportType(clientWrapper.transportType()), clientWrapper.headers());
+    }
+
+    /**
+     * 获取已注册远程工具的客户端包装器，未注册时返回 null
+     */
+    private McpToolRegistryService.RemoteMcpClientWrapper getClientWrapper(McpToolData tool) {
+        if (!mcpToolRegistryService.isRegistered(tool.getId())) {
+            return null;
+        }
+        return applicationContext.getBean("mcpClient_" + tool.getId(), McpToolRegistryService.RemoteMcpClientWrapper.class);
+    }
+
     /**
      * 检查远程工具是否可用
-     * 使用 UniversalMcpClientService 进行健康检查，支持 SSE 和 Streamable HTTP
+     * 根据端点熔断状态判断，不再每次发起 ping；熔断中（且未到半开探测时间）视为不可用
      *
      * @param tool 工具实体
      * @return 是否可用
@@ -241,23 +287,15 @@ public class RemoteMcpToolInvokeService {
 
             String beanName = "mcpClient_" + tool.getId();
             McpToolRegistryService.RemoteMcpClientWrapper clientWrapper = applicationContext.getBean(beanName, McpToolRegistryService.RemoteMcpClientWrapper.class);
-            
-            String url = clientWrapper.url();
-            String transportType = clientWrapper.transportType();
-            Map<String, String> headers = clientWrapper.headers();
 
             // 标准化传输类型
-            String normalizedTransportType = normalizeTransportType(transportType);
+            String normalizedTransportType = normalizeTransportType(clientWrapper.transportType());
+            String serverKey = UniversalMcpClientService.buildServerKey(clientWrapper.url(), normalizedTransportType);
 
-            // 使用 UniversalMcpClientService 进行 ping 测试
-            // 它会根据传输类型自动选择正确的端点（SSE: /sse, Streamable HTTP: /mcp）
-            log.debug("检查工具可用性: {} (传输类型: {}, URL: {})", tool.getName(), normalizedTransportType, url);
-            boolean available = universalMcpClientService.ping(url, normalizedTransportType, headers);
-            
+            boolean available = circuitBreaker.isCallPermitted(serverKey);
             if (!available) {
-                log.debug("工具健康检查失败: {} - Ping 返回 false", tool.getName());
+                log.debug("工具不可用: {} - 端点熔断中 ({})", tool.getName(), serverKey);
             }
-            
             return available;
             
         } catch (Exception e) {
@@ -1,5 +1,8 @@
 package cn.sam.demo.mcpclient.service;
 
+import cn.sam.demo.mcpclient.listener.McpPromptListChangedEvent;
+import cn.sam.demo.mcpclient.listener.McpResourceListChangedEvent;
+import cn.sam.demo.mcpclient.listener.McpToolListChangedEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.modelcontextprotocol.client.McpClient;
 import io.modelcontextprotocol.client.McpSyncClient;
@@ -8,21 +11,47 @@ import io.modelcontextprotocol.client.transport.HttpClientStreamableHttpTranspor
 import io.modelcontextprotocol.client.transport.customizer.McpSyncHttpClientRequestCustomizer;
 import io.modelcontextprotocol.common.McpTransportContext;
 import io.modelcontextprotocol.spec.McpClientTransport;
+import io.modelcontextprotocol.spec.McpError;
 import io.modelcontextprotocol.spec.McpSchema;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.RequestReplySenderContext;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.InterruptedIOException;
+import java.net.Authenticator;
+import java.net.ConnectException;
+import java.net.CookieHandler;
+import java.net.NoRouteToHostException;
+import java.net.ProxySelector;
 import java.net.URI;
+import java.net.UnknownHostException;
 import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
 import java.net.http.HttpRequest;
+import java.nio.channels.ClosedByInterruptException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 通用 MCP 客户端服务
@@ -37,29 +66,171 @@ public class UniversalMcpClientService {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * McpTransportContext 中保存链路请求头的键
+     */
+    private static final String TRACE_HEADERS_KEY = "mcp.trace-headers";
+
+    /**
+     * 当前线程正在发出的工具调用的链路请求头，经 transportContextProvider 传给请求自定义器
+     */
+    private static final ThreadLocal<Map<String, String>> TRACE_HEADERS = new ThreadLocal<>();
+
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    @Resource
+    private McpEndpointCircuitBreaker circuitBreaker;
+
+    @Resource
+    private McpRequestHedgingService hedgingService;
+
+    @Resource
+    private McpReplicaBalancer replicaBalancer;
+
+    @Resource
+    private McpMetrics mcpMetrics;
+
+    @Resource
+    private McpToolStatsService toolStatsService;
+
+    @Resource
+    private ObservationRegistry observationRegistry;
+
+    /**
+     * 所有传输层共享的 HttpClient（见 McpHttpClientConfig）
+     */
+    @Resource(name = "mcpHttpClient")
+    private HttpClient mcpHttpClient;
+
+    /**
+     * 关闭客户端时等待优雅关闭（及停机时等待进行中调用结束）的超时时间（毫秒）
+     */
+    @Value("${mcp.client.lifecycle.close-timeout-ms:5000}")
+    private long closeTimeoutMs;
+
+    /**
+     * 客户端空闲多久后回收（毫秒），0 表示不回收
+     */
+    @Value("${mcp.client.lifecycle.idle-timeout-ms:600000}")
+    private long idleTimeoutMs;
+
+    /**
+     * 是否保留订阅变更通知的主客户端（回收后在下次使用前收不到工具列表变更通知）
+     */
+    @Value("${mcp.client.lifecycle.keep-notification-clients:true}")
+    private boolean keepNotificationClients;
+
+    /**
+     * 客户端初始化超时（毫秒），与 HttpClient 的连接超时一致
+     */
+    @Value("${mcp.client.http.connect-timeout-ms:10000}")
+    private long connectTimeoutMs;
+
     // 存储已创建的客户端实例
     private final Map<String, ClientWrapper> clientCache = new ConcurrentHashMap<>();
 
+    // 对冲请求使用的第二个客户端（按需创建）
+    private final Map<String, ClientWrapper> hedgeClientCache = new ConcurrentHashMap<>();
+
+    /**
+     * 已知的服务器（工具注册或连接主地址时登记）及其连接信息，按服务器标识读取资源、提示词时只连接这些服务器
+     */
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private final AtomicInteger callThreadIndex = new AtomicInteger();
+
+    /**
+     * 执行远程调用的线程池，调用方按自适应超时等待结果
+     */
+    private final ExecutorService callExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "mcp-call-" + callThreadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicInteger catalogThreadIndex = new AtomicInteger();
+
+    /**
+     * 新连接建立后拉取资源和提示词列表的线程池，不占用触发连接的那次调用的超时时间
+     */
+    private final ExecutorService catalogExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "mcp-catalog-" + catalogThreadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
     @PostConstruct
     public void init() {
+        mcpMetrics.gauge("mcp.client.pool.clients", "缓存的 MCP 客户端数", clientCache::size);
+        mcpMetrics.gauge("mcp.client.pool.hedge_clients", "缓存的对冲客户端数", hedgeClientCache::size);
+        mcpMetrics.gauge("mcp.client.pool.in_flight", "进行中的 MCP 请求数", this::inFlightCount);
+        mcpMetrics.gauge("mcp.client.pool.call_threads", "远程调用线程池的活跃线程数",
+                () -> ((ThreadPoolExecutor) callExecutor).getActiveCount());
         log.info("UniversalMcpClientService 初始化完成");
     }
 
     @PreDestroy
     public void destroy() {
-        // 清理所有客户端连接
-        clientCache.values().forEach(wrapper -> {
+        List<ClientWrapper> wrappers = new ArrayList<>(clientCache.values());
+        wrappers.addAll(hedgeClientCache.values());
+        clientCache.clear();
+        hedgeClientCache.clear();
+        wrappers.forEach(wrapper -> wrapper.retired = true);
+
+        // 等待进行中的调用结束（最多 close-timeout-ms），然后优雅关闭所有客户端
+        long deadline = System.currentTimeMillis() + closeTimeoutMs;
+        while (System.currentTimeMillis() < deadline
+                && wrappers.stream().anyMatch(wrapper -> wrapper.inFlight.get() > 0)) {
             try {
-                if (wrapper.client != null && wrapper.client.isInitialized()) {
-                    // MCP 客户端没有显式的关闭方法，这里只是清理缓存
-                    log.debug("清理 MCP 客户端: {}", wrapper.url);
-                }
-            } catch (Exception e) {
-                log.warn("清理客户端时出错: {}", wrapper.url, e);
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             }
-        });
-        clientCache.clear();
-        log.info("UniversalMcpClientService 已清理");
+        }
+        CompletableFuture<?>[] closing = wrappers.stream().map(this::closeAsync).toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(closing).get(closeTimeoutMs + 1000, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("部分 MCP 客户端未能在超时时间内关闭", e);
+        }
+        callExecutor.shutdownNow();
+        catalogExecutor.shutdownNow();
+        log.info("UniversalMcpClientService 已清理，关闭客户端 {} 个", wrappers.size());
+    }
+
+    private int inFlightCount() {
+        int count = 0;
+        for (ClientWrapper wrapper : clientCache.values()) {
+            count += wrapper.inFlight.get();
+        }
+        for (ClientWrapper wrapper : hedgeClientCache.values()) {
+            count += wrapper.inFlight.get();
+        }
+        return count;
+    }
+
+    /**
+     * 回收空闲客户端，避免长时间运行后积累大量连接
+     */
+    @Scheduled(fixedDelayString = "${mcp.client.lifecycle.idle-check-interval-ms:60000}")
+    public void reclaimIdleClients() {
+        if (idleTimeoutMs <= 0) {
+            return;
+        }
+        long idleBefore = System.currentTimeMillis() - idleTimeoutMs;
+        for (Map<String, ClientWrapper> cache : List.of(clientCache, hedgeClientCache)) {
+            cache.forEach((key, wrapper) -> {
+                if (wrapper.inFlight.get() == 0 && wrapper.lastUsedAt < idleBefore
+                        && !(keepNotificationClients && wrapper.notifications)
+                        && cache.remove(key, wrapper)) {
+                    log.info("回收空闲 MCP 客户端: {}", key);
+                    mcpMetrics.countClientEvent("reclaimed");
+                    retire(wrapper);
+                }
+            });
+        }
     }
 
     /**
@@ -71,45 +242,205 @@ public class UniversalMcpClientService {
      * @return 客户端包装器
      */
     public ClientWrapper getOrCreateClient(String url, String transportType, Map<String, String> headers) {
+        return getOrCreateClient(url, transportType, headers, true);
+    }
+
+    /**
+     * 创建或获取 MCP 客户端
+     *
+     * @param notifications 是否订阅变更通知（非主地址的副本不订阅，避免以副本地址重复同步工具）
+     */
+    private ClientWrapper getOrCreateClient(String url, String transportType, Map<String, String> headers,
+                                            boolean notifications) {
         String cacheKey = buildCacheKey(url, transportType);
+        if (notifications) {
+            endpoints.put(cacheKey, new Endpoint(url, transportType, headers));
+        }
 
-        return clientCache.computeIfAbsent(cacheKey, key -> {
-            try {
-                log.info("创建新的 MCP 客户端: {} (传输类型: {})", url, transportType);
+        ClientWrapper cached = clientCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        boolean[] created = {false};
+        ClientWrapper wrapper = clientCache.computeIfAbsent(cacheKey, key -> {
+            ClientWrapper newWrapper = createClient(key, url, transportType, headers, notifications);
+            created[0] = true;
+            return newWrapper;
+        });
 
-                McpClientTransport transport = createTransport(url, transportType, headers);
-                McpSyncClient client = McpClient.sync(transport)
-                        .loggingConsumer(message -> log.debug("MCP Client Log: {}", message))
-                        .build();
+        if (created[0] && notifications) {
+            fetchInitialCatalogAsync(cacheKey, wrapper);
+        }
+        return wrapper;
+    }
 
-                // 初始化客户端
-                client.initialize();
+    /**
+     * 获取用于对冲请求的第二个客户端（同一服务器的另一条连接，不订阅变更通知）
+     */
+    private ClientWrapper getOrCreateHedgeClient(String url, String transportType, Map<String, String> headers) {
+        String cacheKey = buildCacheKey(url, transportType);
+        ClientWrapper cached = hedgeClientCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        return hedgeClientCache.computeIfAbsent(cacheKey,
+                key -> createClient(key, url, transportType, headers, false));
+    }
 
-                log.info("MCP 客户端初始化成功: {}", url);
+    /**
+     * 创建并初始化客户端
+     *
+     * @param notifications 是否订阅变更通知（每个服务器只有主客户端订阅，避免重复同步）
+     */
+    private ClientWrapper createClient(String key, String url, String transportType, Map<String, String> headers,
+                                       boolean notifications) {
+        try {
+            log.info("创建新的 MCP 客户端: {} (传输类型: {})", url, transportType);
 
-                return new ClientWrapper(url, transportType, client, transport);
+            McpClientTransport transport = createTransport(url, transportType, headers);
+            McpClient.SyncSpec spec = McpClient.sync(transport)
+                    .loggingConsumer(message -> log.debug("MCP Client Log: {}", message))
+                    .transportContextProvider(UniversalMcpClientService::currentTransportContext)
+                    // SSE 连接失败时 SDK 只能等到初始化超时，按连接超时尽快失败，以便转移到其他副本
+                    .initializationTimeout(Duration.ofMillis(connectTimeoutMs));
+            if (notifications) {
+                // 工具列表变更时发布带服务器标识的事件，只同步该服务器的工具
+                spec.toolsChangeConsumer(tools -> eventPublisher.publishEvent(
+                                new McpToolListChangedEvent(key, url, transportType, tools)))
+                        .resourcesChangeConsumer(resources -> eventPublisher.publishEvent(
+                                new McpResourceListChangedEvent(key, resources)))
+                        .promptsChangeConsumer(prompts -> eventPublisher.publishEvent(
+                                new McpPromptListChangedEvent(key, prompts)));
+            }
+            McpSyncClient client = spec.build();
+
+            // 初始化客户端
+            client.initialize();
+
+            log.info("MCP 客户端初始化成功: {}", url);
+            mcpMetrics.countClientEvent("created");
+
+            return new ClientWrapper(url, transportType, client, transport, notifications);
+        } catch (Exception e) {
+            log.error("创建 MCP 客户端失败: {} ({})", url, transportType, e);
+            throw new McpConnectException("创建 MCP 客户端失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 创建并初始化独立客户端：不进入客户端缓存、不订阅变更通知、调用不经熔断器，由调用方负责关闭
+     * 用于压测远程 MCP 服务器，避免熔断、对冲和连接池影响测量结果
+     *
+     * @param url           服务器地址
+     * @param transportType 传输类型
+     * @param headers       请求头
+     * @return 已初始化的客户端
+     */
+    public McpSyncClient createStandaloneClient(String url, String transportType, Map<String, String> headers) {
+        McpSyncClient client = McpClient.sync(createTransport(url, transportType, headers))
+                .loggingConsumer(message -> log.debug("MCP Client Log: {}", message))
+                .build();
+        try {
+            client.initialize();
+            return client;
+        } catch (Exception e) {
+            client.close();
+            throw new RuntimeException("创建 MCP 客户端失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在后台拉取新连接的资源和提示词列表，分页较多或较慢时不影响首次工具调用的耗时和超时；
+     * 拉取期间借用客户端，客户端被移除时等拉取结束再关闭
+     */
+    private void fetchInitialCatalogAsync(String serverKey, ClientWrapper wrapper) {
+        wrapper.inFlight.incrementAndGet();
+        try {
+            catalogExecutor.execute(() -> {
+                try {
+                    if (!wrapper.retired) {
+                        publishInitialCatalog(serverKey, wrapper.client);
+                    }
+                } finally {
+                    release(wrapper);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release(wrapper);
+        }
+    }
+
+    /**
+     * 连接成功后拉取资源和提示词列表，发布事件填充缓存
+     */
+    private void publishInitialCatalog(String serverKey, McpSyncClient client) {
+        McpSchema.ServerCapabilities capabilities = client.getServerCapabilities();
+        if (capabilities == null) {
+            return;
+        }
+        if (capabilities.resources() != null) {
+            try {
+                eventPublisher.publishEvent(new McpResourceListChangedEvent(serverKey, listAllResources(client)));
             } catch (Exception e) {
-                log.error("创建 MCP 客户端失败: {} ({})", url, transportType, e);
-                throw new RuntimeException("创建 MCP 客户端失败: " + e.getMessage(), e);
+                log.warn("获取资源列表失败: {}", serverKey, e);
             }
-        });
+        }
+        if (capabilities.prompts() != null) {
+            try {
+                eventPublisher.publishEvent(new McpPromptListChangedEvent(serverKey, listAllPrompts(client)));
+            } catch (Exception e) {
+                log.warn("获取提示词列表失败: {}", serverKey, e);
+            }
+        }
+    }
+
+    /**
+     * 分页获取全部资源
+     */
+    private List<McpSchema.Resource> listAllResources(McpSyncClient client) {
+        List<McpSchema.Resource> resources = new ArrayList<>();
+        String cursor = null;
+        do {
+            McpSchema.ListResourcesResult result = client.listResources(cursor);
+            if (result.resources() != null) {
+                resources.addAll(result.resources());
+            }
+            cursor = result.nextCursor();
+        } while (cursor != null);
+        return resources;
+    }
+
+    /**
+     * 分页获取全部提示词
+     */
+    private List<McpSchema.Prompt> listAllPrompts(McpSyncClient client) {
+        List<McpSchema.Prompt> prompts = new ArrayList<>();
+        String cursor = null;
+        do {
+            McpSchema.ListPromptsResult result = client.listPrompts(cursor);
+            if (result.prompts() != null) {
+                prompts.addAll(result.prompts());
+            }
+            cursor = result.nextCursor();
+        } while (cursor != null);
+        return prompts;
     }
 
     /**
      * 创建传输层
      */
     private McpClientTransport createTransport(String url, String transportType, Map<String, String> headers) {
-        HttpClient.Builder clientBuilder = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_1_1)
-                .followRedirects(HttpClient.Redirect.NORMAL)
-                .connectTimeout(Duration.ofSeconds(10));
+        // 传输层的 Builder 只接受 HttpClient.Builder，这里传入始终返回共享实例的 Builder
+        HttpClient.Builder clientBuilder = new SharedHttpClientBuilder(mcpHttpClient);
 
-        // 创建请求头自定义器（如果需要）
-        McpSyncHttpClientRequestCustomizer headerCustomizer = null;
-        if (headers != null && !headers.isEmpty()) {
-            final Map<String, String> finalHeaders = headers;
-            headerCustomizer = (builder, method, endpoint, body, context) -> finalHeaders.forEach(builder::header);
-        }
+        // 创建请求头自定义器：固定请求头 + 工具调用的链路请求头（traceparent 等）
+        final Map<String, String> finalHeaders = headers != null ? headers : Map.of();
+        McpSyncHttpClientRequestCustomizer headerCustomizer = (builder, method, endpoint, body, context) -> {
+            finalHeaders.forEach(builder::header);
+            if (context != null && context.get(TRACE_HEADERS_KEY) instanceof Map<?, ?> traceHeaders) {
+                traceHeaders.forEach((name, value) -> builder.header(String.valueOf(name), String.valueOf(value)));
+            }
+        };
 
         // 根据传输类型创建不同的传输层
         if ("sse".equalsIgnoreCase(transportType) || "server-sent-events".equalsIgnoreCase(transportType)) {
@@ -119,9 +450,7 @@ public class UniversalMcpClientService {
                     .clientBuilder(clientBuilder);
 
             // 添加自定义请求头
-            if (headerCustomizer != null) {
-                builder.httpRequestCustomizer(headerCustomizer);
-            }
+            builder.httpRequestCustomizer(headerCustomizer);
 
             return builder.build();
         } else {
@@ -131,14 +460,23 @@ public class UniversalMcpClientService {
                     .clientBuilder(clientBuilder);
 
             // 添加自定义请求头
-            if (headerCustomizer != null) {
-                builder.httpRequestCustomizer(headerCustomizer);
-            }
+            builder.httpRequestCustomizer(headerCustomizer);
 
             return builder.build();
         }
     }
 
+    /**
+     * 供 McpSyncClient 在发起请求的线程上读取链路请求头
+     */
+    private static McpTransportContext currentTransportContext() {
+        Map<String, String> traceHeaders = TRACE_HEADERS.get();
+        if (traceHeaders == null || traceHeaders.isEmpty()) {
+            return McpTransportContext.EMPTY;
+        }
+        return McpTransportContext.create(Map.of(TRACE_HEADERS_KEY, traceHeaders));
+    }
+
     /**
      * 同步调用工具
      *
@@ -151,31 +489,142 @@ public class UniversalMcpClientService {
      */
     public Object invokeToolSync(String url, String transportType, String toolName,
                                  Map<String, Object> arguments, Map<String, String> headers) {
-        try {
-            ClientWrapper wrapper = getOrCreateClient(url, transportType, headers);
-            McpSyncClient client = wrapper.client;
+        return invokeToolSync(url, transportType, toolName, arguments, headers, false);
+    }
 
-            if (!client.isInitialized()) {
-                client.initialize();
-            }
+    /**
+     * 同步调用工具
+     *
+     * @param url           服务器地址
+     * @param transportType 传输类型
+     * @param toolName      工具名称
+     * @param arguments     工具参数
+     * @param headers       请求头
+     * @param idempotent    工具是否幂等，幂等工具超过 p95 耗时未返回时发送对冲请求
+     * @return 调用结果
+     */
+    public Object invokeToolSync(String url, String transportType, String toolName,
+                                 Map<String, Object> arguments, Map<String, String> headers, boolean idempotent) {
+        String serverKey = buildServerKey(url, transportType);
+        long startNanos = System.nanoTime();
+        String outcome = McpMetrics.OUTCOME_ERROR;
+        // 客户端 span：启动时把链路上下文写入 traceHeaders，随 MCP 请求头发给服务端
+        Map<String, String> traceHeaders = new HashMap<>();
+        RequestReplySenderContext<Map<String, String>, Object> senderContext =
+                new RequestReplySenderContext<>((carrier, key, value) -> carrier.put(key, value));
+        senderContext.setCarrier(traceHeaders);
+        senderContext.setRemoteServiceAddress(url);
+        Observation observation = Observation.createNotStarted("mcp.client.tool", () -> senderContext,
+                        observationRegistry)
+                .contextualName("mcp call " + toolName)
+                .lowCardinalityKeyValue("mcp.tool", toolName)
+                .lowCardinalityKeyValue("mcp.server", serverKey)
+                .start();
+        // 构建 CallToolRequest
+        McpSchema.CallToolRequest request = McpSchema.CallToolRequest.builder()
+                .name(toolName)
+                .arguments(arguments != null ? arguments : Map.of())
+                .build();
+        try (Observation.Scope scope = observation.openScope()) {
+            // 配置了副本时按负载选择副本，对冲请求优先发往另一个副本
+            String replicaUrl = replicaBalancer.choose(serverKey, url, null);
+            Supplier<Object> hedgeCall = idempotent ? () -> {
+                String hedgeUrl = replicaBalancer.choose(serverKey, url, replicaUrl);
+                return hedgeUrl != null
+                        ? callReplica(serverKey, url, hedgeUrl, transportType, headers, request, traceHeaders, false)
+                        : callReplica(serverKey, url, replicaUrl, transportType, headers, request, traceHeaders, true);
+            } : null;
+            // 连接失败（请求未到达服务端）的调用都可以换副本重试；已发出的请求只有幂等工具才重试
+            Function<Throwable, Supplier<Object>> failover = error -> {
+                if (!isConnectFailure(error) && !idempotent) {
+                    return null;
+                }
+                String failoverUrl = replicaBalancer.chooseFailover(serverKey, replicaUrl);
+                if (failoverUrl == null) {
+                    return null;
+                }
+                log.info("副本调用失败，转移到 {}: {} -> {}", failoverUrl, replicaUrl, toolName);
+                return () -> callReplica(serverKey, url, failoverUrl, transportType, headers, request, traceHeaders,
+                        false);
+            };
+            Object result = callWithBreaker(serverKey, toolName,
+                    () -> callReplica(serverKey, url, replicaUrl, transportType, headers, request, traceHeaders, false),
+                    hedgeCall, failover);
+            outcome = McpMetrics.OUTCOME_SUCCESS;
+            return result;
 
-            log.debug("同步调用工具: {} -> {}", url, toolName);
+        } catch (McpEndpointCircuitBreaker.CircuitOpenException e) {
+            log.warn("同步调用工具被拒绝: {} -> {}，{}", url, toolName, e.getMessage());
+            outcome = McpMetrics.OUTCOME_REJECTED;
+            observation.error(e);
+            throw e;
+        } catch (Exception e) {
+            log.error("同步调用工具失败: {} -> {}", url, toolName, e);
+            observation.error(e);
+            throw new RuntimeException("调用工具失败: " + e.getMessage(), e);
+        } finally {
+            observation.stop();
+            mcpMetrics.recordToolCall(toolName, serverKey, startNanos, outcome);
+            toolStatsService.record(serverKey, toolName, startNanos, outcome);
+        }
+    }
 
-            // 构建 CallToolRequest
-            McpSchema.CallToolRequest request = McpSchema.CallToolRequest.builder()
-                    .name(toolName)
-                    .arguments(arguments != null ? arguments : Map.of())
-                    .build();
+    /**
+     * 在指定副本上调用工具，并记录副本的进行中请求数和健康状态
+     *
+     * @param url          服务器主地址
+     * @param replicaUrl   实际调用的副本地址
+     * @param traceHeaders 链路请求头
+     * @param hedge        是否使用对冲客户端（没有其他副本时对冲请求走同一副本的第二条连接）
+     */
+    private Object callReplica(String serverKey, String url, String replicaUrl, String transportType,
+                               Map<String, String> headers, McpSchema.CallToolRequest request,
+                               Map<String, String> traceHeaders, boolean hedge) {
+        replicaBalancer.onStart(serverKey, replicaUrl);
+        long startNanos = System.nanoTime();
+        Boolean success = false;
+        try {
+            Object result = withClient(hedge
+                            ? () -> getOrCreateHedgeClient(replicaUrl, transportType, headers)
+                            : () -> getOrCreateClient(replicaUrl, transportType, headers, replicaUrl.equals(url)),
+                    wrapper -> callTool(wrapper, request, traceHeaders));
+            success = true;
+            return result;
+        } catch (RuntimeException e) {
+            // 被取消的请求（对冲已返回或调用方断开）不计入副本健康统计；等满超时时间才被取消的计为副本失败，
+            // 否则无响应的副本永远不会被摘除
+            boolean timedOut = System.nanoTime() - startNanos
+                    >= circuitBreaker.getTimeout(serverKey, request.name()).toNanos();
+            success = isCancellation(e) && !timedOut ? null : isMcpError(e);
+            throw e;
+        } finally {
+            if (replicaBalancer.onComplete(serverKey, replicaUrl, success)) {
+                // 副本被摘除，断开连接，恢复后重新建立
+                retire(clientCache, buildCacheKey(replicaUrl, transportType));
+                retire(hedgeClientCache, buildCacheKey(replicaUrl, transportType));
+            }
+        }
+    }
 
-            // 调用工具
-            McpSchema.CallToolResult result = client.callTool(request);
+    private Object callTool(ClientWrapper wrapper, McpSchema.CallToolRequest request, Map<String, String> traceHeaders) {
+        McpSyncClient client = wrapper.client;
 
-            // 提取结果内容
-            return extractToolResult(result);
+        if (!client.isInitialized()) {
+            try {
+                client.initialize();
+            } catch (RuntimeException e) {
+                throw new McpConnectException("连接 MCP 服务器失败: " + wrapper.url, e);
+            }
+        }
 
-        } catch (Exception e) {
-            log.error("同步调用工具失败: {} -> {}", url, toolName, e);
-            throw new RuntimeException("调用工具失败: " + e.getMessage(), e);
+        log.debug("同步调用工具: {} -> {}", wrapper.url, request.name());
+
+        // 调用工具并提取结果内容
+        TRACE_HEADERS.set(traceHeaders);
+        try {
+            return extractToolResult(client.callTool(request));
+        } finally {
+            TRACE_HEADERS.remove();
         }
     }
 
@@ -187,50 +636,17 @@ public class UniversalMcpClientService {
      * @param toolName      工具名称
      * @param arguments     工具参数
      * @param headers       请求头
+     * @param idempotent    工具是否幂等，与同步调用一致，幂等工具允许对冲请求
      * @return 流式响应
      */
     public Flux<Object> invokeToolStream(String url, String transportType, String toolName,
-                                         Map<String, Object> arguments, Map<String, String> headers) {
-        return Flux.create(sink -> {
-            try {
-                ClientWrapper wrapper = getOrCreateClient(url, transportType, headers);
-                McpSyncClient client = wrapper.client;
-
-                if (!client.isInitialized()) {
-                    client.initialize();
-                }
-
-                log.debug("流式调用工具: {} -> {}", url, toolName);
-
-                // 注意：McpSyncClient 是同步客户端，不支持真正的流式调用
-                // 如果需要真正的流式调用，需要使用异步客户端
-                // 这里先使用同步调用，然后包装成 Flux
-                CompletableFuture.supplyAsync(() -> {
-                    try {
-                        // 构建 CallToolRequest
-                        McpSchema.CallToolRequest request = McpSchema.CallToolRequest.builder()
-                                .name(toolName)
-                                .arguments(arguments != null ? arguments : Map.of())
-                                .build();
-
-                        McpSchema.CallToolResult result = client.callTool(request);
-                        return extractToolResult(result);
-                    } catch (Exception e) {
-                        sink.error(e);
-                        return null;
-                    }
-                }).thenAccept(result -> {
-                    if (result != null) {
-                        sink.next(result);
-                        sink.complete();
-                    }
-                });
-
-            } catch (Exception e) {
-                log.error("流式调用工具失败: {} -> {}", url, toolName, e);
-                sink.error(e);
-            }
-        });
+                                         Map<String, Object> arguments, Map<String, String> headers,
+                                         boolean idempotent) {
+        // 注意：McpSyncClient 是同步客户端，不支持真正的流式调用
+        // 这里在弹性线程上执行同步调用（含熔断、超时和对冲），然后包装成 Flux
+        return Mono.fromCallable(() -> invokeToolSync(url, transportType, toolName, arguments, headers, idempotent))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flux();
     }
 
     /**
@@ -243,15 +659,17 @@ public class UniversalMcpClientService {
      */
     public List<McpSchema.Tool> listTools(String url, String transportType, Map<String, String> headers) {
         try {
-            ClientWrapper wrapper = getOrCreateClient(url, transportType, headers);
-            McpSyncClient client = wrapper.client;
+            return callWithBreaker(buildServerKey(url, transportType), McpSchema.METHOD_TOOLS_LIST, () ->
+                    withClient(() -> getOrCreateClient(url, transportType, headers), wrapper -> {
+                        McpSyncClient client = wrapper.client;
 
-            if (!client.isInitialized()) {
-                client.initialize();
-            }
+                        if (!client.isInitialized()) {
+                            client.initialize();
+                        }
 
-            McpSchema.ListToolsResult result = client.listTools();
-            return result.tools();
+                        McpSchema.ListToolsResult result = client.listTools();
+                        return result.tools();
+                    }));
 
         } catch (Exception e) {
             log.error("获取工具列表失败: {}", url, e);
@@ -259,6 +677,68 @@ public class UniversalMcpClientService {
         }
     }
 
+    /**
+     * 读取资源内容
+     *
+     * @param serverKey 服务器标识（url|传输类型）
+     * @param uri       资源 URI
+     * @return 读取结果
+     */
+    public McpSchema.ReadResourceResult readResource(String serverKey, String uri) {
+        try {
+            return withClient(() -> getClientByServerKey(serverKey),
+                    wrapper -> wrapper.client.readResource(new McpSchema.ReadResourceRequest(uri)));
+        } catch (Exception e) {
+            log.error("读取资源失败: {} -> {}", serverKey, uri, e);
+            throw new RuntimeException("读取资源失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取提示词内容
+     *
+     * @param serverKey 服务器标识（url|传输类型）
+     * @param name      提示词名称
+     * @param arguments 提示词参数
+     * @return 提示词结果
+     */
+    public McpSchema.GetPromptResult getPrompt(String serverKey, String name, Map<String, Object> arguments) {
+        try {
+            return withClient(() -> getClientByServerKey(serverKey), wrapper -> wrapper.client.getPrompt(
+                    new McpSchema.GetPromptRequest(name, arguments != null ? arguments : Map.of())));
+        } catch (Exception e) {
+            log.error("获取提示词失败: {} -> {}", serverKey, name, e);
+            throw new RuntimeException("获取提示词失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 根据服务器标识获取客户端，未缓存时按登记的地址、传输类型和请求头创建；
+     * 不接受未登记的服务器，避免调用方借资源、提示词接口让客户端连接任意地址
+     */
+    private ClientWrapper getClientByServerKey(String serverKey) {
+        ClientWrapper wrapper = clientCache.get(serverKey);
+        if (wrapper != null) {
+            return wrapper;
+        }
+        Endpoint endpoint = serverKey != null ? endpoints.get(serverKey) : null;
+        if (endpoint == null) {
+            throw new IllegalArgumentException("未知的服务器: " + serverKey);
+        }
+        return getOrCreateClient(endpoint.url(), endpoint.transportType(), endpoint.headers());
+    }
+
+    /**
+     * 登记服务器（注册远程工具时调用），之后可以按服务器标识读取该服务器的资源和提示词
+     *
+     * @param url           服务器主地址
+     * @param transportType 传输类型
+     * @param headers       请求头
+     */
+    public void registerEndpoint(String url, String transportType, Map<String, String> headers) {
+        endpoints.put(buildServerKey(url, transportType), new Endpoint(url, transportType, headers));
+    }
+
     /**
      * 检查连接是否健康
      *
@@ -269,15 +749,17 @@ public class UniversalMcpClientService {
      */
     public boolean ping(String url, String transportType, Map<String, String> headers) {
         try {
-            ClientWrapper wrapper = getOrCreateClient(url, transportType, headers);
-            McpSyncClient client = wrapper.client;
+            return callWithBreaker(buildServerKey(url, transportType), McpSchema.METHOD_PING, () ->
+                    withClient(() -> getOrCreateClient(url, transportType, headers), wrapper -> {
+                        McpSyncClient client = wrapper.client;
 
-            if (!client.isInitialized()) {
-                client.initialize();
-            }
+                        if (!client.isInitialized()) {
+                            client.initialize();
+                        }
 
-            client.ping();
-            return true;
+                        client.ping();
+                        return true;
+                    }));
 
         } catch (Exception e) {
             log.debug("Ping 失败: {} ({})", url, transportType, e);
@@ -285,6 +767,255 @@ public class UniversalMcpClientService {
         }
     }
 
+    /**
+     * 经熔断器执行远程调用
+     */
+    private <T> T callWithBreaker(String serverKey, String operation, Supplier<T> call) {
+        return callWithBreaker(serverKey, operation, call, null, null);
+    }
+
+    /**
+     * 经熔断器执行远程调用（可选对冲）
+     *
+     * <p>熔断中直接抛出 {@link McpEndpointCircuitBreaker.CircuitOpenException}；否则在调用线程池中执行，
+     * 按该操作的自适应超时等待，超时则中断调用并计为失败。服务端返回的协议错误（McpError）说明端点可用，计为成功。
+     * 熔断时移除该服务器的客户端缓存，半开探测时重新建立连接。</p>
+     *
+     * <p>提供 hedgeCall 时，主请求超过对冲延迟（该工具在端点上的 p95）仍未返回且对冲令牌充足，则发送对冲请求，
+     * 取先成功的结果并取消另一个；两个请求共享同一个超时时间。</p>
+     *
+     * <p>提供 failover 时，所有请求都失败（非协议错误）后按失败原因取得一次故障转移调用（通常发往另一个副本），
+     * 在剩余的超时时间内执行；转移后仍失败才计入熔断，单个副本故障不会熔断整个服务器。</p>
+     *
+     * @param serverKey 服务器标识
+     * @param operation 操作（工具名称，或 tools/list、ping），按操作分别统计耗时和计算超时
+     * @param call      远程调用
+     * @param hedgeCall 对冲调用（使用另一个客户端），不对冲时为 null
+     * @param failover  根据失败原因返回故障转移调用，不转移时返回 null；整个参数可为 null
+     * @return 调用结果
+     */
+    private <T> T callWithBreaker(String serverKey, String operation, Supplier<T> call, Supplier<T> hedgeCall,
+                                  Function<Throwable, Supplier<T>> failover) {
+        boolean probe = circuitBreaker.acquirePermission(serverKey);
+        Duration timeout = circuitBreaker.getTimeout(serverKey, operation);
+        long timeoutNanos = timeout.toNanos();
+
+        Long hedgeDelayMs = null;
+        if (hedgeCall != null) {
+            hedgingService.onEligibleCall(serverKey);
+            hedgeDelayMs = hedgingService.getHedgeDelayMs(serverKey, operation);
+        }
+        long hedgeDelayNanos = hedgeDelayMs != null ? TimeUnit.MILLISECONDS.toNanos(hedgeDelayMs) : -1;
+        boolean hedgePending = hedgeDelayNanos >= 0 && hedgeDelayNanos < timeoutNanos;
+
+        long startNanos = System.nanoTime();
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(callExecutor);
+        List<Future<T>> futures = new ArrayList<>(2);
+        Future<T> hedgeFuture = null;
+        int running = 1;
+        Throwable lastError = null;
+        boolean failedOver = false;
+        // 是否已向熔断器记录结果；未记录就退出（被中断、线程池拒绝）时要归还半开探测名额
+        boolean recorded = false;
+        try {
+            futures.add(completion.submit(call::get));
+            while (running > 0) {
+                long elapsed = System.nanoTime() - startNanos;
+                if (elapsed >= timeoutNanos) {
+                    recorded = true;
+                    circuitBreaker.onTimeout(serverKey, operation, elapsed);
+                    onCallFailure(serverKey);
+                    throw new RuntimeException("调用超时（" + timeout.toMillis() + " ms）: " + serverKey);
+                }
+                long wait = hedgePending
+                        ? Math.max(0, hedgeDelayNanos - elapsed)
+                        : timeoutNanos - elapsed;
+                Future<T> done = completion.poll(wait, TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (hedgePending && System.nanoTime() - startNanos >= hedgeDelayNanos) {
+                        hedgePending = false;
+                        if (hedgingService.tryAcquireHedge(serverKey)) {
+                            log.debug("发送对冲请求: {}（已等待 {} ms）", serverKey, hedgeDelayMs);
+                            hedgeFuture = completion.submit(hedgeCall::get);
+                            futures.add(hedgeFuture);
+                            running++;
+                        }
+                    }
+                    continue;
+                }
+
+                running--;
+                try {
+                    T result = done.get();
+                    recorded = true;
+                    circuitBreaker.onSuccess(serverKey, operation, System.nanoTime() - startNanos);
+                    if (done == hedgeFuture) {
+                        hedgingService.onHedgeWon(serverKey);
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (isMcpError(cause)) {
+                        // 服务端已响应（协议错误），无需等待另一个请求
+                        recorded = true;
+                        circuitBreaker.onSuccess(serverKey, operation, System.nanoTime() - startNanos);
+                        throw asRuntimeException(cause);
+                    }
+                    lastError = cause;
+                    if (running == 0 && failover != null && !failedOver && !isCancellation(cause)) {
+                        failedOver = true;
+                        Supplier<T> failoverCall = failover.apply(cause);
+                        if (failoverCall != null) {
+                            hedgePending = false;
+                            futures.add(completion.submit(failoverCall::get));
+                            running++;
+                        }
+                    }
+                }
+            }
+            recorded = true;
+            onCallFailure(serverKey);
+            throw asRuntimeException(lastError);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("调用被中断: " + serverKey, e);
+        } finally {
+            // 取消仍在执行的请求（超时或另一个请求已返回）
+            futures.forEach(future -> future.cancel(true));
+            if (probe && !recorded) {
+                circuitBreaker.releaseProbe(serverKey);
+            }
+        }
+    }
+
+    private RuntimeException asRuntimeException(Throwable e) {
+        return e instanceof RuntimeException re ? re : new RuntimeException(e.getMessage(), e);
+    }
+
+    private void onCallFailure(String serverKey) {
+        if (circuitBreaker.onFailure(serverKey)) {
+            retire(clientCache, serverKey);
+            retire(hedgeClientCache, serverKey);
+        }
+    }
+
+    /**
+     * 借用客户端执行操作
+     *
+     * <p>借用期间客户端的引用计数加一，被移除的客户端等所有借用归还后才关闭，进行中的调用不会被打断。
+     * 获取到的客户端恰好被移除时重新获取（会创建新客户端）。</p>
+     */
+    private <T> T withClient(Supplier<ClientWrapper> lookup, Function<ClientWrapper, T> action) {
+        ClientWrapper wrapper;
+        while (true) {
+            wrapper = lookup.get();
+            wrapper.inFlight.incrementAndGet();
+            if (!wrapper.retired) {
+                break;
+            }
+            release(wrapper);
+        }
+        try {
+            return action.apply(wrapper);
+        } finally {
+            release(wrapper);
+        }
+    }
+
+    private void release(ClientWrapper wrapper) {
+        wrapper.lastUsedAt = System.currentTimeMillis();
+        if (wrapper.inFlight.decrementAndGet() == 0 && wrapper.retired) {
+            closeAsync(wrapper);
+        }
+    }
+
+    /**
+     * 从缓存中移除并关闭客户端（有进行中的调用时，等最后一个调用结束后关闭）
+     */
+    private void retire(Map<String, ClientWrapper> cache, String cacheKey) {
+        ClientWrapper wrapper = cache.remove(cacheKey);
+        if (wrapper != null) {
+            retire(wrapper);
+        }
+    }
+
+    private void retire(ClientWrapper wrapper) {
+        wrapper.retired = true;
+        if (wrapper.inFlight.get() == 0) {
+            closeAsync(wrapper);
+        }
+    }
+
+    /**
+     * 优雅关闭客户端（发送关闭并释放传输层连接），超时后强制关闭
+     */
+    private CompletableFuture<Void> closeAsync(ClientWrapper wrapper) {
+        if (!wrapper.closed.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        mcpMetrics.countClientEvent("closed");
+        try {
+            return CompletableFuture.supplyAsync(wrapper.client::closeGracefully, callExecutor)
+                    .orTimeout(closeTimeoutMs, TimeUnit.MILLISECONDS)
+                    .handle((graceful, e) -> {
+                        if (e != null || !Boolean.TRUE.equals(graceful)) {
+                            log.debug("MCP 客户端未能优雅关闭，强制关闭: {}", wrapper.url, e);
+                            try {
+                                wrapper.client.close();
+                            } catch (Exception ex) {
+                                log.debug("关闭客户端失败: {}", wrapper.url, ex);
+                            }
+                        } else {
+                            log.debug("MCP 客户端已关闭: {}", wrapper.url);
+                        }
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            // 线程池已关闭（停机过程中）
+            wrapper.client.close();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * 是否为取消导致的失败（线程被中断，或中断被底层转换成了其他异常）
+     */
+    private boolean isCancellation(Throwable e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException || t instanceof InterruptedIOException
+                    || t instanceof ClosedByInterruptException || t instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否为连接阶段的失败（建立连接或初始化失败），此时请求还没有到达服务端
+     */
+    private boolean isConnectFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof McpConnectException || t instanceof ConnectException
+                    || t instanceof UnknownHostException || t instanceof NoRouteToHostException
+                    || t instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isMcpError(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof McpError) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 移除客户端缓存
      *
@@ -293,7 +1024,8 @@ public class UniversalMcpClientService {
      */
     public void removeClient(String url, String transportType) {
         String cacheKey = buildCacheKey(url, transportType);
-        clientCache.remove(cacheKey);
+        retire(clientCache, cacheKey);
+        retire(hedgeClientCache, cacheKey);
         log.info("已移除客户端缓存: {}", cacheKey);
     }
 
@@ -329,7 +1061,92 @@ public class UniversalMcpClientService {
      * 构建缓存键
      */
     private String buildCacheKey(String url, String transportType) {
-        return url + "|" + (transportType != null ? transportType.toLowerCase() : "streamable-http");
+        return buildServerKey(url, transportType);
+    }
+
+    /**
+     * 构建 MCP 服务器标识：url|传输类型（sse 或 streamable-http）
+     * 同时用作客户端缓存键和 mcp_tool.server_key
+     *
+     * @param url           服务器地址
+     * @param transportType 传输类型
+     * @return 服务器标识
+     */
+    public static String buildServerKey(String url, String transportType) {
+        String type = transportType != null ? transportType.toLowerCase() : "";
+        boolean sse = "sse".equals(type) || "server-sent-events".equals(type);
+        return url + "|" + (sse ? "sse" : "streamable-http");
+    }
+
+    /**
+     * 返回共享 HttpClient 的 Builder
+     *
+     * <p>MCP SDK 的传输层每次 build 都会调用 {@code clientBuilder.build()} 创建新的 HttpClient
+     * （各自持有连接池和线程）。这里忽略传输层对 Builder 的设置（版本、连接超时等以共享实例的配置为准），
+     * 让所有传输层复用同一个 HttpClient。</p>
+     */
+    private static final class SharedHttpClientBuilder implements HttpClient.Builder {
+
+        private final HttpClient httpClient;
+
+        private SharedHttpClientBuilder(HttpClient httpClient) {
+            this.httpClient = httpClient;
+        }
+
+        @Override
+        public HttpClient.Builder cookieHandler(CookieHandler cookieHandler) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder connectTimeout(Duration duration) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder sslContext(SSLContext sslContext) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder sslParameters(SSLParameters sslParameters) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder executor(Executor executor) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder followRedirects(HttpClient.Redirect policy) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder version(HttpClient.Version version) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder priority(int priority) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder proxy(ProxySelector proxySelector) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder authenticator(Authenticator authenticator) {
+            return this;
+        }
+
+        @Override
+        public HttpClient build() {
+            return httpClient;
+        }
     }
 
     /**
@@ -341,14 +1158,40 @@ public class UniversalMcpClientService {
         public final McpSyncClient client;
         public final McpClientTransport transport;
         public final long createdAt;
+        // 是否订阅变更通知
+        public final boolean notifications;
+        // 进行中的调用数（引用计数）
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // 已从缓存移除，等待关闭
+        private volatile boolean retired;
+        private volatile long lastUsedAt;
 
-        public ClientWrapper(String url, String transportType, McpSyncClient client, McpClientTransport transport) {
+        public ClientWrapper(String url, String transportType, McpSyncClient client, McpClientTransport transport,
+                             boolean notifications) {
             this.url = url;
             this.transportType = transportType;
             this.client = client;
             this.transport = transport;
+            this.notifications = notifications;
             this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = this.createdAt;
         }
     }
-}
 
+    /**
+     * 已登记服务器的连接信息
+     */
+    private record Endpoint(String url, String transportType, Map<String, String> headers) {
+    }
+
+    /**
+     * 连接或初始化 MCP 服务器失败（请求尚未到达服务端，可以安全地转移到其他副本）
+     */
+    private static class McpConnectException extends RuntimeException {
+
+        McpConnectException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
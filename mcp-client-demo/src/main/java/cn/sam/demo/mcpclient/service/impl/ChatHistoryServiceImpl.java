@@ -3,7 +3,11 @@ package cn.sam.demo.mcpclient.service.impl;
 import cn.sam.demo.mcpclient.entity.ChatHistory;
 import cn.sam.demo.mcpclient.mapper.ChatHistoryMapper;
 import cn.sam.demo.mcpclient.service.ChatHistoryService;
+import cn.sam.demo.mcpclient.service.McpMetrics;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -16,6 +20,12 @@ import java.util.List;
 @Service
 public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatHistory> implements ChatHistoryService {
 
+    @Resource
+    private McpMetrics mcpMetrics;
+
+    @Resource
+    private ObservationRegistry observationRegistry;
+
     @Override
     public ChatHistory saveInfo(ChatHistory chatHistory) {
         if (chatHistory.getCreateTime() == null) {
@@ -25,7 +35,14 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
             chatHistory.setUpdateTime(LocalDateTime.now());
         }
         // 使用 MyBatis Plus 的 saveInfo 方法
-        super.save(chatHistory);
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            historyObservation("write").observe(() -> super.save(chatHistory));
+            success = true;
+        } finally {
+            mcpMetrics.recordHistoryWrite(startNanos, success);
+        }
         return chatHistory;
     }
 
@@ -36,7 +53,16 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
 
     @Override
     public List<ChatHistory> getRecentHistoryBySessionId(String sessionId, Integer limit) {
-        return baseMapper.selectRecentBySessionId(sessionId, limit);
+        return historyObservation("read").observe(() -> baseMapper.selectRecentBySessionId(sessionId, limit));
+    }
+
+    /**
+     * 历史记录读写的链路 span，用于区分对话耗时中数据库所占部分
+     */
+    private Observation historyObservation(String operation) {
+        return Observation.createNotStarted("mcp.chat.history", observationRegistry)
+                .contextualName("chat history " + operation)
+                .lowCardinalityKeyValue("operation", operation);
     }
 
     @Override
@@ -1,16 +1,23 @@
 package cn.sam.demo.mcpclient.service.impl;
 
+import cn.sam.demo.mcpclient.dto.McpMarketListItem;
 import cn.sam.demo.mcpclient.dto.McpServerListResponse;
 import cn.sam.demo.mcpclient.entity.McpMarket;
+import cn.sam.demo.mcpclient.entity.McpMarketRefreshLog;
 import cn.sam.demo.mcpclient.entity.McpMarketTool;
 import cn.sam.demo.mcpclient.entity.McpToolData;
 import cn.sam.demo.mcpclient.mapper.McpMarketMapper;
+import cn.sam.demo.mcpclient.mapper.McpMarketRefreshLogMapper;
 import cn.sam.demo.mcpclient.mapper.McpMarketToolMapper;
 import cn.sam.demo.mcpclient.service.McpMarketService;
+import cn.sam.demo.mcpclient.service.McpMetrics;
+import cn.sam.demo.mcpclient.service.McpSearchIndexService;
 import cn.sam.demo.mcpclient.service.McpToolRegistryService;
 import cn.sam.demo.mcpclient.service.McpToolService;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -23,11 +30,15 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * MCP 市场服务实现类
@@ -47,8 +58,40 @@ public class McpMarketServiceImpl extends ServiceImpl<McpMarketMapper, McpMarket
     @Resource
     private ApplicationContext applicationContext;
 
+    @Resource
+    private McpSearchIndexService searchIndexService;
+
+    @Resource
+    private McpMarketRefreshLogMapper refreshLogMapper;
+
+    @Resource
+    private McpMetrics mcpMetrics;
+
+    /**
+     * 正在刷新的市场ID，同一市场同一时间只允许一个刷新任务
+     */
+    private final Set<Long> refreshingMarkets = ConcurrentHashMap.newKeySet();
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * 服务启动纪元与市场写入版本号，每次写入市场后递增，用于列表 ETag（update_time 只有秒级精度）
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis());
+
+    private final AtomicLong listVersion = new AtomicLong();
+
+    /**
+     * 列表允许的排序字段（白名单，防止任意列排序）
+     */
+    private static final Map<String, SFunction<McpMarket, ?>> SORT_COLUMNS = Map.of(
+            "id", McpMarket::getId,
+            "name", McpMarket::getName,
+            "status", McpMarket::getStatus,
+            "createTime", McpMarket::getCreateTime,
+            "updateTime", McpMarket::getUpdateTime
+    );
+
     @Override
     public McpMarket saveOrUpdateInfo(McpMarket market) {
         if (market.getId() == null) {
@@ -59,6 +102,8 @@ public class McpMarketServiceImpl extends ServiceImpl<McpMarketMapper, McpMarket
             market.setStatus(McpMarket.Status.ENABLED);
         }
         super.saveOrUpdate(market);
+        listVersion.incrementAndGet();
+        searchIndexService.indexMarket(market);
         return market;
     }
 
@@ -82,9 +127,55 @@ public class McpMarketServiceImpl extends ServiceImpl<McpMarketMapper, McpMarket
         return baseMapper.selectByNameLike(name);
     }
 
+    @Override
+    public Map<String, Object> search(String keyword, String status, Integer page, Integer size) {
+        return searchIndexService.searchMarkets(keyword, status, page, size);
+    }
+
+    @Override
+    public Map<String, Object> listPage(String status, Integer page, Integer size, String sort, String order) {
+        Page<McpMarket> pageObj = new Page<>(page, size);
+
+        // 只查询列表展示需要的列，auth_config 通过详情接口获取
+        LambdaQueryWrapper<McpMarket> wrapper = new LambdaQueryWrapper<McpMarket>()
+                .select(McpMarket::getId, McpMarket::getName, McpMarket::getUrl,
+                        McpMarket::getDescription, McpMarket::getStatus,
+                        McpMarket::getCreateTime, McpMarket::getUpdateTime)
+                .eq(status != null && !status.isEmpty(), McpMarket::getStatus, status)
+                .orderBy(true, "asc".equalsIgnoreCase(order),
+                        SORT_COLUMNS.getOrDefault(sort, McpMarket::getCreateTime))
+                .orderByDesc(McpMarket::getId);
+
+        IPage<McpMarket> pageResult = baseMapper.selectPage(pageObj, wrapper);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", pageResult.getRecords().stream().map(McpMarketListItem::from).toList());
+        result.put("total", pageResult.getTotal());
+        result.put("page", pageResult.getCurrent());
+        result.put("size", pageResult.getSize());
+        result.put("pages", pageResult.getPages());
+        return result;
+    }
+
+    @Override
+    public String getListVersion() {
+        // 记录数 + 最大更新时间用于感知其他实例的写入
+        Map<String, Object> row = super.getMap(new QueryWrapper<McpMarket>()
+                .select("COUNT(*) AS cnt", "MAX(update_time) AS ver"));
+        return epoch + ":" + listVersion.get() + "-"
+                + (row == null ? "0" : row.get("cnt") + "-" + row.get("ver"));
+    }
+
     @Override
     public boolean deleteById(Long id) {
-        return super.removeById(id);
+        boolean removed = super.removeById(id);
+        if (removed) {
+            listVersion.incrementAndGet();
+            // 市场工具随市场级联删除
+            searchIndexService.removeMarket(id);
+        }
+        return removed;
     }
 
     @Override
@@ -95,7 +186,12 @@ public class McpMarketServiceImpl extends ServiceImpl<McpMarketMapper, McpMarket
         }
         market.setStatus(status);
         market.setUpdateTime(LocalDateTime.now());
-        return super.updateById(market);
+        boolean updated = super.updateById(market);
+        if (updated) {
+            listVersion.incrementAndGet();
+            searchIndexService.indexMarket(market);
+        }
+        return updated;
     }
 
     @Override
@@ -128,11 +224,95 @@ public class McpMarketServiceImpl extends ServiceImpl<McpMarketMapper, McpMarket
         return result;
     }
 
+    @Override
+    public Map<String, Object> searchMarketTools(Long marketId, String keyword, Integer page, Integer size) {
+        return searchIndexService.searchMarketTools(marketId, keyword, page, size);
+    }
+
     @Override
     public boolean refreshMarketTools(Long marketId) {
+        return refreshMarketTools(marketId, McpMarketRefreshLog.Trigger.MANUAL);
+    }
+
+    @Override
+    public boolean isRefreshing(Long marketId) {
+        return refreshingMarkets.contains(marketId);
+    }
+
+    @Override
+    public boolean refreshMarketTools(Long marketId, String triggerType) {
+        McpMarketRefreshLog runLog = McpMarketRefreshLog.builder()
+                .marketId(marketId)
+                .triggerType(triggerType)
+                .fetchedCount(0)
+                .insertedCount(0)
+                .updatedCount(0)
+                .startTime(LocalDateTime.now())
+                .build();
+
+        // 上一次刷新尚未结束，跳过本次并记录
+        if (!refreshingMarkets.add(marketId)) {
+            log.info("市场 {} 上一次刷新尚未结束，跳过本次{}刷新", marketId, triggerType);
+            runLog.setStatus(McpMarketRefreshLog.Status.SKIPPED);
+            saveRefreshLog(runLog);
+            return false;
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            boolean success = doRefreshMarketTools(marketId, runLog);
+            runLog.setStatus(success ? McpMarketRefreshLog.Status.SUCCESS : McpMarketRefreshLog.Status.FAILED);
+            return success;
+        } finally {
+            refreshingMarkets.remove(marketId);
+            runLog.setEndTime(LocalDateTime.now());
+            long durationNanos = System.nanoTime() - startNanos;
+            runLog.setDurationMs(Duration.ofNanos(durationNanos).toMillis());
+            saveRefreshLog(runLog);
+            mcpMetrics.recordMarketRefresh(triggerType,
+                    runLog.getStatus() != null ? runLog.getStatus() : McpMarketRefreshLog.Status.FAILED, durationNanos);
+            log.info("市场 {} 刷新完成: status={}, fetched={}, inserted={}, updated={}, duration={}ms",
+                    marketId, runLog.getStatus(), runLog.getFetchedCount(), runLog.getInsertedCount(),
+                    runLog.getUpdatedCount(), runLog.getDurationMs());
+        }
+    }
+
+    @Override
+    public Map<String, Object> getRefreshLogsWithPage(Long marketId, Integer page, Integer size) {
+        LambdaQueryWrapper<McpMarketRefreshLog> wrapper = new LambdaQueryWrapper<McpMarketRefreshLog>()
+                .eq(McpMarketRefreshLog::getMarketId, marketId)
+                .orderByDesc(McpMarketRefreshLog::getStartTime);
+        IPage<McpMarketRefreshLog> pageResult = refreshLogMapper.selectPage(new Page<>(page, size), wrapper);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", pageResult.getRecords());
+        result.put("total", pageResult.getTotal());
+        result.put("page", pageResult.getCurrent());
+        result.put("size", pageResult.getSize());
+        result.put("pages", pageResult.getPages());
+        return result;
+    }
+
+    /**
+     * 保存刷新记录，记录失败不影响刷新结果
+     */
+    private void saveRefreshLog(McpMarketRefreshLog runLog) {
+        try {
+            refreshLogMapper.insert(runLog);
+        } catch (Exception e) {
+            log.warn("保存市场刷新记录失败: marketId={}", runLog.getMarketId(), e);
+        }
+    }
+
+    /**
+     * 分页拉取市场服务器列表并写入市场工具表，统计数据写入 runLog
+     */
+    private boolean doRefreshMarketTools(Long marketId, McpMarketRefreshLog runLog) {
         try {
             McpMarket market = getById(marketId);
             if (market == null) {
+                runLog.setErrorMessage("市场不存在");
                 return false;
             }
 
@@ -199,6 +379,7 @@ public class McpMarketServiceImpl extends ServiceImpl<McpMarketMapper, McpMarket
                 if (serverList.isEmpty()) {
                     break;
                 }
+                runLog.setFetchedCount(runLog.getFetchedCount() + serverList.size());
 
                 // 保存或更新当前页的工具
                 for (McpServerListResponse.McpServerInfo serverInfo : serverList) {
@@ -249,6 +430,8 @@ public class McpMarketServiceImpl extends ServiceImpl<McpMarketMapper, McpMarket
                         existingTool.setToolMetadata(metadataJson);
                         // 不更新 isLoaded 和 localToolId，保留原有状态
                         marketToolMapper.updateById(existingTool);
+                        searchIndexService.indexMarketTool(existingTool);
+                        runLog.setUpdatedCount(runLog.getUpdatedCount() + 1);
                     } else {
                         // 添加新工具
                         McpMarketTool tool = McpMarketTool.builder()
@@ -261,6 +444,8 @@ public class McpMarketServiceImpl extends ServiceImpl<McpMarketMapper, McpMarket
                                 .createTime(LocalDateTime.now())
                                 .build();
                         marketToolMapper.insert(tool);
+                        searchIndexService.indexMarketTool(tool);
+                        runLog.setInsertedCount(runLog.getInsertedCount() + 1);
                     }
                 }
 
@@ -277,6 +462,8 @@ public class McpMarketServiceImpl extends ServiceImpl<McpMarketMapper, McpMarket
             return true;
         } catch (Exception e) {
             log.error("刷新市场工具列表失败", e);
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            runLog.setErrorMessage(message.length() > 1000 ? message.substring(0, 1000) : message);
         }
         return false;
     }
@@ -1,14 +1,28 @@
 package cn.sam.demo.mcpclient.service.impl;
 
+import cn.sam.demo.mcpclient.dto.McpToolListItem;
 import cn.sam.demo.mcpclient.entity.McpToolData;
+import cn.sam.demo.mcpclient.listener.McpToolCatalogChangedEvent;
 import cn.sam.demo.mcpclient.mapper.McpToolMapper;
+import cn.sam.demo.mcpclient.service.McpSearchIndexService;
+import cn.sam.demo.mcpclient.service.McpToolCatalogPushService;
 import cn.sam.demo.mcpclient.service.McpToolService;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import jakarta.annotation.Resource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * MCP 工具服务实现类
@@ -18,16 +32,46 @@ import java.util.List;
 @Service
 public class McpToolServiceImpl extends ServiceImpl<McpToolMapper, McpToolData> implements McpToolService {
 
+    @Resource
+    private McpSearchIndexService searchIndexService;
+
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    @Resource
+    private McpToolCatalogPushService catalogPushService;
+
+    /**
+     * 列表允许的排序字段（白名单，防止任意列排序）
+     */
+    private static final Map<String, SFunction<McpToolData, ?>> SORT_COLUMNS = Map.of(
+            "id", McpToolData::getId,
+            "name", McpToolData::getName,
+            "type", McpToolData::getType,
+            "status", McpToolData::getStatus,
+            "createTime", McpToolData::getCreateTime,
+            "updateTime", McpToolData::getUpdateTime
+    );
+
     @Override
     public McpToolData saveOrUpdateInfo(McpToolData tool) {
-        if (tool.getId() == null) {
+        boolean isNew = tool.getId() == null;
+        if (isNew) {
             tool.setCreateTime(LocalDateTime.now());
         }
         tool.setUpdateTime(LocalDateTime.now());
         if (tool.getStatus() == null) {
             tool.setStatus(McpToolData.Status.ENABLED);
         }
+        if (tool.getParamSchema() != null) {
+            // 保持摘要与参数结构一致，变更通知同步时按摘要比对
+            tool.setSchemaHash(DigestUtils.md5DigestAsHex(tool.getParamSchema().getBytes(StandardCharsets.UTF_8)));
+        }
         super.saveOrUpdate(tool);
+        searchIndexService.indexTool(tool);
+        eventPublisher.publishEvent(isNew
+                ? McpToolCatalogChangedEvent.of(List.of(tool), List.of())
+                : McpToolCatalogChangedEvent.of(List.of(), List.of(tool)));
         return tool;
     }
 
@@ -36,6 +80,14 @@ public class McpToolServiceImpl extends ServiceImpl<McpToolMapper, McpToolData>
         return super.getById(id);
     }
 
+    @Override
+    public List<McpToolData> getByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        return super.listByIds(ids);
+    }
+
     @Override
     public List<McpToolData> listAll() {
         return super.list(new LambdaQueryWrapper<McpToolData>().orderByDesc(McpToolData::getCreateTime));
@@ -56,14 +108,66 @@ public class McpToolServiceImpl extends ServiceImpl<McpToolMapper, McpToolData>
         return baseMapper.selectByNameLike(name);
     }
 
+    @Override
+    public Map<String, Object> search(String keyword, String type, String status, Integer page, Integer size) {
+        return searchIndexService.searchTools(keyword, type, status, page, size);
+    }
+
+    @Override
+    public Map<String, Object> listPage(String type, String status, Integer page, Integer size, String sort, String order) {
+        Page<McpToolData> pageObj = new Page<>(page, size);
+
+        // 只查询列表展示需要的列，param_schema、config_json 通过详情接口获取
+        LambdaQueryWrapper<McpToolData> wrapper = new LambdaQueryWrapper<McpToolData>()
+                .select(McpToolData::getId, McpToolData::getName, McpToolData::getDisplayName,
+                        McpToolData::getDescription, McpToolData::getType, McpToolData::getServerKey,
+                        McpToolData::getStatus, McpToolData::getCreateTime, McpToolData::getUpdateTime)
+                .eq(type != null && !type.isEmpty(), McpToolData::getType, type)
+                .eq(status != null && !status.isEmpty(), McpToolData::getStatus, status)
+                .orderBy(true, "asc".equalsIgnoreCase(order),
+                        SORT_COLUMNS.getOrDefault(sort, McpToolData::getCreateTime))
+                .orderByDesc(McpToolData::getId);
+
+        IPage<McpToolData> pageResult = baseMapper.selectPage(pageObj, wrapper);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", pageResult.getRecords().stream().map(McpToolListItem::from).toList());
+        result.put("total", pageResult.getTotal());
+        result.put("page", pageResult.getCurrent());
+        result.put("size", pageResult.getSize());
+        result.put("pages", pageResult.getPages());
+        return result;
+    }
+
+    @Override
+    public String getListVersion() {
+        // 目录版本在每次工具写入后递增（所有写入都会发布目录变更事件），不受 update_time 秒级精度影响；
+        // 记录数 + 最大更新时间用于感知其他实例的写入
+        Map<String, Object> row = super.getMap(new QueryWrapper<McpToolData>()
+                .select("COUNT(*) AS cnt", "MAX(update_time) AS ver"));
+        return catalogPushService.getCurrentVersion() + "-"
+                + (row == null ? "0" : row.get("cnt") + "-" + row.get("ver"));
+    }
+
     @Override
     public boolean deleteById(Long id) {
-        return super.removeById(id);
+        boolean removed = super.removeById(id);
+        if (removed) {
+            searchIndexService.removeTool(id);
+            eventPublisher.publishEvent(McpToolCatalogChangedEvent.removed(List.of(id)));
+        }
+        return removed;
     }
 
     @Override
     public boolean deleteBatch(List<Long> ids) {
-        return super.removeByIds(ids);
+        boolean removed = super.removeByIds(ids);
+        if (removed) {
+            ids.forEach(searchIndexService::removeTool);
+            eventPublisher.publishEvent(McpToolCatalogChangedEvent.removed(ids));
+        }
+        return removed;
     }
 
     @Override
@@ -74,7 +178,12 @@ public class McpToolServiceImpl extends ServiceImpl<McpToolMapper, McpToolData>
         }
         tool.setStatus(status);
         tool.setUpdateTime(LocalDateTime.now());
-        return super.updateById(tool);
+        boolean updated = super.updateById(tool);
+        if (updated) {
+            searchIndexService.indexTool(tool);
+            eventPublisher.publishEvent(McpToolCatalogChangedEvent.of(List.of(), List.of(tool)));
+        }
+        return updated;
     }
 }
 
@@ -25,6 +25,7 @@ CREATE TABLE IF NOT EXISTS `mcp_market` (
   `url` VARCHAR(500) NOT NULL COMMENT '市场URL',
   `description` TEXT COMMENT '市场描述',
   `auth_config` TEXT COMMENT '认证配置（JSON格式）',
+  `refresh_interval` INT DEFAULT NULL COMMENT '自动刷新间隔（分钟），为空使用默认值，<=0 不自动刷新',
   `status` VARCHAR(20) NOT NULL DEFAULT 'ENABLED' COMMENT '状态：ENABLED-启用, DISABLED-禁用',
   `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -51,3 +52,39 @@ CREATE TABLE IF NOT EXISTS `mcp_market_tool` (
   FOREIGN KEY (`market_id`) REFERENCES `mcp_market` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='MCP市场工具表';
 
+-- 创建 MCP 市场刷新记录表
+CREATE TABLE IF NOT EXISTS `mcp_market_refresh_log` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `market_id` BIGINT NOT NULL COMMENT '市场ID',
+  `trigger_type` VARCHAR(20) NOT NULL COMMENT '触发方式：MANUAL-手动, SCHEDULED-定时',
+  `status` VARCHAR(20) NOT NULL COMMENT '执行结果：SUCCESS-成功, FAILED-失败, SKIPPED-跳过',
+  `fetched_count` INT NOT NULL DEFAULT 0 COMMENT '拉取条数',
+  `inserted_count` INT NOT NULL DEFAULT 0 COMMENT '新增条数',
+  `updated_count` INT NOT NULL DEFAULT 0 COMMENT '更新条数',
+  `duration_ms` BIGINT NOT NULL DEFAULT 0 COMMENT '耗时（毫秒）',
+  `error_message` VARCHAR(1000) COMMENT '错误信息',
+  `start_time` DATETIME NOT NULL COMMENT '开始时间',
+  `end_time` DATETIME COMMENT '结束时间',
+  PRIMARY KEY (`id`),
+  INDEX `idx_market_start` (`market_id`, `start_time`),
+  FOREIGN KEY (`market_id`) REFERENCES `mcp_market` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='MCP市场刷新记录表';
+
+-- 创建 MCP 工具调用统计表（滚动窗口统计的定期快照，每个工具一行）
+CREATE TABLE IF NOT EXISTS `mcp_tool_stats` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `server_key` VARCHAR(500) NOT NULL DEFAULT '' COMMENT '所属 MCP 服务器标识（url|传输类型），本地工具为空',
+  `tool_name` VARCHAR(100) NOT NULL COMMENT '工具名称',
+  `call_count` BIGINT NOT NULL DEFAULT 0 COMMENT '窗口内调用次数',
+  `error_count` BIGINT NOT NULL DEFAULT 0 COMMENT '窗口内失败次数（含被熔断拒绝的调用）',
+  `error_rate` DOUBLE NOT NULL DEFAULT 0 COMMENT '错误率（0 ~ 1）',
+  `p50_ms` DOUBLE COMMENT '耗时 p50（毫秒）',
+  `p95_ms` DOUBLE COMMENT '耗时 p95（毫秒）',
+  `p99_ms` DOUBLE COMMENT '耗时 p99（毫秒）',
+  `max_ms` DOUBLE COMMENT '最大耗时（毫秒）',
+  `window_start` DATETIME COMMENT '窗口开始时间',
+  `window_end` DATETIME COMMENT '窗口结束时间',
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '快照时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_server_tool` (`server_key`, `tool_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='MCP工具调用统计表';
@@ -13,13 +13,15 @@ CREATE TABLE IF NOT EXISTS `mcp_tool` (
     `display_name` VARCHAR(200) DEFAULT NULL COMMENT '显示名称',
     `description` VARCHAR(1000) DEFAULT NULL COMMENT '工具描述',
     `param_schema` TEXT DEFAULT NULL COMMENT '参数结构（JSON Schema 格式）',
+    `schema_hash` VARCHAR(32) DEFAULT NULL COMMENT '参数结构摘要（MD5），变更通知同步时用于比对',
     `type` VARCHAR(20) NOT NULL DEFAULT 'LOCAL' COMMENT '工具类型：LOCAL-本地, REMOTE-远程',
+    `server_key` VARCHAR(500) NOT NULL DEFAULT '' COMMENT '所属 MCP 服务器标识（url|传输类型），本地工具为空',
     `status` VARCHAR(20) NOT NULL DEFAULT 'ENABLED' COMMENT '状态：ENABLED-启用, DISABLED-禁用',
     `config_json` TEXT DEFAULT NULL COMMENT '配置信息（JSON格式，包含transport等）',
     `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     PRIMARY KEY (`id`),
-    UNIQUE KEY `uk_name` (`name`),
+    UNIQUE KEY `uk_server_name` (`server_key`, `name`),
     KEY `idx_type` (`type`),
     KEY `idx_status` (`status`),
     KEY `idx_type_status` (`type`, `status`)
@@ -40,9 +42,12 @@ ALTER TABLE `mcp_tool`
 ADD COLUMN `param_schema` TEXT DEFAULT NULL COMMENT '参数结构（JSON Schema 格式）' 
 AFTER `description`;
 
--- 添加 name 唯一索引（如果不存在）
+-- 添加 schema_hash 字段
 ALTER TABLE `mcp_tool` 
-ADD UNIQUE INDEX `uk_name` (`name`);
+ADD COLUMN `schema_hash` VARCHAR(32) DEFAULT NULL COMMENT '参数结构摘要（MD5），变更通知同步时用于比对' 
+AFTER `param_schema`;
+
+-- 添加 server_key 字段及 服务器 + 名称 唯一索引（见 migration_tool_server_key.sql）
 
 
 -- =========================================================
@@ -83,6 +88,23 @@ PREPARE stmt FROM @sql;
 EXECUTE stmt;
 DEALLOCATE PREPARE stmt;
 
+-- 检查并添加 schema_hash 字段
+SET @column_exists = (
+    SELECT COUNT(*) 
+    FROM INFORMATION_SCHEMA.COLUMNS 
+    WHERE TABLE_SCHEMA = DATABASE() 
+    AND TABLE_NAME = 'mcp_tool' 
+    AND COLUMN_NAME = 'schema_hash'
+);
+
+SET @sql = IF(@column_exists = 0, 
+    'ALTER TABLE mcp_tool ADD COLUMN schema_hash VARCHAR(32) DEFAULT NULL COMMENT ''参数结构摘要（MD5），变更通知同步时用于比对'' AFTER param_schema', 
+    'SELECT ''schema_hash column already exists'' AS message'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
 
 -- =========================================================
 -- 验证表结构
@@ -103,11 +125,13 @@ SHOW CREATE TABLE mcp_tool;
 | Field       | Type         | Null | Key | Default           | Extra                                         |
 +-------------+--------------+------+-----+-------------------+-----------------------------------------------+
 | id          | bigint       | NO   | PRI | NULL              | auto_increment                                |
-| name        | varchar(100) | NO   | UNI | NULL              |                                               |
+| name        | varchar(100) | NO   |     | NULL              |                                               |
 | display_name| varchar(200) | YES  |     | NULL              |                                               |
 | description | varchar(1000)| YES  |     | NULL              |                                               |
 | param_schema| text         | YES  |     | NULL              |                                               |
+| schema_hash | varchar(32)  | YES  |     | NULL              |                                               |
 | type        | varchar(20)  | NO   |     | LOCAL             |                                               |
+| server_key  | varchar(500) | NO   | MUL |                   |                                               |
 | status      | varchar(20)  | NO   |     | ENABLED           |                                               |
 | config_json | text         | YES  |     | NULL              |                                               |
 | create_time | datetime     | YES  |     | CURRENT_TIMESTAMP |                                               |
@@ -127,7 +151,9 @@ SHOW CREATE TABLE mcp_tool;
 | display_name| VARCHAR(200)  | 显示名称（用于前端展示）                  | 获取当前时间, 加法计算                    |
 | description | VARCHAR(1000) | 工具描述                                  | 获取当前系统时间，支持多种格式            |
 | param_schema| TEXT          | 参数 JSON Schema                          | {"type":"object","properties":{...}}      |
+| schema_hash | VARCHAR(32)   | 参数 JSON Schema 的 MD5 摘要              | 9e107d9d372bb6826bd81d3542a419d6         |
 | type        | VARCHAR(20)   | 工具类型                                  | LOCAL / REMOTE                           |
+| server_key  | VARCHAR(500)  | 所属 MCP 服务器（与 name 组成唯一键）     | http://127.0.0.1:9899|sse                |
 | status      | VARCHAR(20)   | 工具状态                                  | ENABLED / DISABLED                       |
 | config_json | TEXT          | 配置信息（远程工具需要）                  | {"transport":{"type":"sse","url":"..."}} |
 | create_time | DATETIME      | 创建时间                                  | 2024-12-04 10:00:00                      |
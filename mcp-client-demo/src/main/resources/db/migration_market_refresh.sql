@@ -0,0 +1,29 @@
+-- =========================================================
+-- MCP 市场定时刷新迁移 SQL 脚本
+-- 功能：为市场表增加刷新间隔字段，并创建刷新记录表
+-- =========================================================
+
+-- 市场表增加自动刷新间隔（分钟），为空使用 mcp.market.refresh.default-interval-minutes
+ALTER TABLE `mcp_market`
+    ADD COLUMN `refresh_interval` INT DEFAULT NULL COMMENT '自动刷新间隔（分钟），为空使用默认值，<=0 不自动刷新' AFTER `auth_config`;
+
+-- 创建 MCP 市场刷新记录表
+CREATE TABLE IF NOT EXISTS `mcp_market_refresh_log` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `market_id` BIGINT NOT NULL COMMENT '市场ID',
+  `trigger_type` VARCHAR(20) NOT NULL COMMENT '触发方式：MANUAL-手动, SCHEDULED-定时',
+  `status` VARCHAR(20) NOT NULL COMMENT '执行结果：SUCCESS-成功, FAILED-失败, SKIPPED-跳过',
+  `fetched_count` INT NOT NULL DEFAULT 0 COMMENT '拉取条数',
+  `inserted_count` INT NOT NULL DEFAULT 0 COMMENT '新增条数',
+  `updated_count` INT NOT NULL DEFAULT 0 COMMENT '更新条数',
+  `duration_ms` BIGINT NOT NULL DEFAULT 0 COMMENT '耗时（毫秒）',
+  `error_message` VARCHAR(1000) COMMENT '错误信息',
+  `start_time` DATETIME NOT NULL COMMENT '开始时间',
+  `end_time` DATETIME COMMENT '结束时间',
+  PRIMARY KEY (`id`),
+  INDEX `idx_market_start` (`market_id`, `start_time`),
+  FOREIGN KEY (`market_id`) REFERENCES `mcp_market` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='MCP市场刷新记录表';
+
+-- 示例：为某个市场设置每 2 小时刷新一次
+-- UPDATE mcp_market SET refresh_interval = 120 WHERE name = 'mcpservers.cn';
@@ -0,0 +1,33 @@
+-- =========================================================
+-- MCP 工具按服务器归属迁移 SQL 脚本
+-- 功能：工具表增加 server_key（url|传输类型），唯一键由 name 改为 server_key + name，
+--      变更通知同步只处理发出通知的服务器的工具
+-- =========================================================
+
+-- 1. 增加 server_key 字段
+ALTER TABLE `mcp_tool`
+    ADD COLUMN `server_key` VARCHAR(500) NOT NULL DEFAULT '' COMMENT '所属 MCP 服务器标识（url|传输类型），本地工具为空' AFTER `type`;
+
+-- 2. 根据远程工具配置中的 transport 回填 server_key（与 UniversalMcpClientService.buildServerKey 保持一致）
+UPDATE mcp_tool
+SET server_key = CONCAT(
+    JSON_UNQUOTE(JSON_EXTRACT(config_json, '$.transport.url')),
+    '|',
+    CASE
+        WHEN LOWER(JSON_UNQUOTE(JSON_EXTRACT(config_json, '$.transport.type'))) IN ('sse', 'server-sent-events') THEN 'sse'
+        ELSE 'streamable-http'
+    END
+)
+WHERE type = 'REMOTE'
+  AND JSON_VALID(config_json)
+  AND JSON_EXTRACT(config_json, '$.transport.url') IS NOT NULL;
+
+-- 3. 唯一键改为 server_key + name
+ALTER TABLE `mcp_tool` DROP INDEX `uk_name`;
+ALTER TABLE `mcp_tool` ADD UNIQUE INDEX `uk_server_name` (`server_key`, `name`);
+
+-- 验证：查看各服务器的工具数量
+SELECT server_key, type, status, COUNT(*) AS tool_count
+FROM mcp_tool
+GROUP BY server_key, type, status
+ORDER BY server_key;
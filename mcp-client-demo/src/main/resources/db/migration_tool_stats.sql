@@ -0,0 +1,32 @@
+-- =========================================================
+-- MCP 工具调用统计迁移 SQL 脚本
+-- 功能：创建工具调用统计表，保存每个工具滚动窗口内的调用次数、错误率和耗时分位数
+-- =========================================================
+
+-- 创建 MCP 工具调用统计表（由 mcp.client.tool-stats.snapshot-interval-ms 定期覆盖写入）
+CREATE TABLE IF NOT EXISTS `mcp_tool_stats` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `server_key` VARCHAR(500) NOT NULL DEFAULT '' COMMENT '所属 MCP 服务器标识（url|传输类型），本地工具为空',
+  `tool_name` VARCHAR(100) NOT NULL COMMENT '工具名称',
+  `call_count` BIGINT NOT NULL DEFAULT 0 COMMENT '窗口内调用次数',
+  `error_count` BIGINT NOT NULL DEFAULT 0 COMMENT '窗口内失败次数（含被熔断拒绝的调用）',
+  `error_rate` DOUBLE NOT NULL DEFAULT 0 COMMENT '错误率（0 ~ 1）',
+  `p50_ms` DOUBLE COMMENT '耗时 p50（毫秒）',
+  `p95_ms` DOUBLE COMMENT '耗时 p95（毫秒）',
+  `p99_ms` DOUBLE COMMENT '耗时 p99（毫秒）',
+  `max_ms` DOUBLE COMMENT '最大耗时（毫秒）',
+  `window_start` DATETIME COMMENT '窗口开始时间',
+  `window_end` DATETIME COMMENT '窗口结束时间',
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '快照时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_server_tool` (`server_key`, `tool_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='MCP工具调用统计表';
+
+-- 已按旧版本（唯一键只有 tool_name）建表时执行：不同服务器的同名工具分开统计
+-- ALTER TABLE `mcp_tool_stats`
+--     ADD COLUMN `server_key` VARCHAR(500) NOT NULL DEFAULT '' COMMENT '所属 MCP 服务器标识（url|传输类型），本地工具为空' AFTER `id`,
+--     DROP INDEX `uk_tool_name`,
+--     ADD UNIQUE INDEX `uk_server_tool` (`server_key`, `tool_name`);
+
+-- 示例：查看 p95 耗时最高的工具
+-- SELECT server_key, tool_name, call_count, error_rate, p95_ms FROM mcp_tool_stats ORDER BY p95_ms DESC LIMIT 10;
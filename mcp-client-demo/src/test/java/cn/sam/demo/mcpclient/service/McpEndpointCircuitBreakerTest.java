@@ -0,0 +1,183 @@
+package cn.sam.demo.mcpclient.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 端点熔断器状态机测试
+ */
+class McpEndpointCircuitBreakerTest {
+
+    private static final String SERVER = "http://127.0.0.1:9899|sse";
+
+    private static final String TOOL = "echo";
+
+    private McpEndpointCircuitBreaker breaker(long openDurationMs) {
+        McpEndpointCircuitBreaker breaker = new McpEndpointCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "windowSize", 10);
+        ReflectionTestUtils.setField(breaker, "minimumCalls", 4);
+        ReflectionTestUtils.setField(breaker, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(breaker, "openDurationMs", openDurationMs);
+        ReflectionTestUtils.setField(breaker, "timeoutPercentile", 99.0);
+        ReflectionTestUtils.setField(breaker, "timeoutMultiplier", 2.0);
+        ReflectionTestUtils.setField(breaker, "minTimeoutMs", 100L);
+        ReflectionTestUtils.setField(breaker, "maxTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(breaker, "minLatencySamples", 10);
+        return breaker;
+    }
+
+    private void open(McpEndpointCircuitBreaker breaker) {
+        for (int i = 0; i < 4; i++) {
+            breaker.acquirePermission(SERVER);
+            breaker.onFailure(SERVER);
+        }
+        assertEquals(McpEndpointCircuitBreaker.State.OPEN, breaker.getSnapshot().get(SERVER).get("state"));
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        McpEndpointCircuitBreaker breaker = breaker(60000);
+        for (int i = 0; i < 3; i++) {
+            assertFalse(breaker.acquirePermission(SERVER));
+            assertFalse(breaker.onFailure(SERVER));
+        }
+        assertEquals(McpEndpointCircuitBreaker.State.CLOSED, breaker.getSnapshot().get(SERVER).get("state"));
+    }
+
+    @Test
+    void opensAtFailureRateThresholdAndRejects() {
+        McpEndpointCircuitBreaker breaker = breaker(60000);
+        breaker.onSuccess(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(10));
+        breaker.onSuccess(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(10));
+        assertFalse(breaker.onFailure(SERVER));
+        assertTrue(breaker.onFailure(SERVER), "2/4 失败达到 50% 阈值");
+
+        assertThrows(McpEndpointCircuitBreaker.CircuitOpenException.class, () -> breaker.acquirePermission(SERVER));
+        assertFalse(breaker.isCallPermitted(SERVER));
+        assertEquals(1L, breaker.getSnapshot().get(SERVER).get("rejectedCalls"));
+    }
+
+    @Test
+    void halfOpenAdmitsSingleProbe() {
+        McpEndpointCircuitBreaker breaker = breaker(0);
+        open(breaker);
+
+        assertTrue(breaker.acquirePermission(SERVER), "到期后第一个调用是半开探测");
+        assertThrows(McpEndpointCircuitBreaker.CircuitOpenException.class, () -> breaker.acquirePermission(SERVER));
+        assertFalse(breaker.isCallPermitted(SERVER));
+    }
+
+    @Test
+    void releasedProbeLetsNextCallProbe() {
+        McpEndpointCircuitBreaker breaker = breaker(0);
+        open(breaker);
+        assertTrue(breaker.acquirePermission(SERVER));
+
+        // 探测调用被中断，没有结果
+        breaker.releaseProbe(SERVER);
+
+        assertEquals(McpEndpointCircuitBreaker.State.HALF_OPEN, breaker.getSnapshot().get(SERVER).get("state"));
+        assertTrue(breaker.isCallPermitted(SERVER));
+        assertTrue(breaker.acquirePermission(SERVER), "归还名额后下一个调用可以继续探测");
+    }
+
+    @Test
+    void releaseProbeDoesNothingWhenClosed() {
+        McpEndpointCircuitBreaker breaker = breaker(0);
+        assertFalse(breaker.acquirePermission(SERVER));
+        breaker.releaseProbe(SERVER);
+        assertEquals(McpEndpointCircuitBreaker.State.CLOSED, breaker.getSnapshot().get(SERVER).get("state"));
+        assertEquals(0L, breaker.getSnapshot().get(SERVER).get("totalCalls"));
+    }
+
+    @Test
+    void probeSuccessClosesAndResetsWindow() {
+        McpEndpointCircuitBreaker breaker = breaker(0);
+        open(breaker);
+        assertTrue(breaker.acquirePermission(SERVER));
+        breaker.onSuccess(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertEquals(McpEndpointCircuitBreaker.State.CLOSED, breaker.getSnapshot().get(SERVER).get("state"));
+        assertEquals(0, breaker.getSnapshot().get(SERVER).get("windowCalls"));
+        // 窗口已清空，单次失败不会再次熔断
+        assertFalse(breaker.onFailure(SERVER));
+    }
+
+    @Test
+    void probeFailureReopens() {
+        McpEndpointCircuitBreaker breaker = breaker(0);
+        open(breaker);
+        assertTrue(breaker.acquirePermission(SERVER));
+        assertTrue(breaker.onFailure(SERVER));
+        assertEquals(McpEndpointCircuitBreaker.State.OPEN, breaker.getSnapshot().get(SERVER).get("state"));
+    }
+
+    @Test
+    void adaptiveTimeoutFollowsLatencyPercentile() {
+        McpEndpointCircuitBreaker breaker = breaker(60000);
+        assertEquals(Duration.ofMillis(5000), breaker.getTimeout(SERVER, TOOL), "无样本时使用上限");
+
+        for (int i = 1; i <= 10; i++) {
+            breaker.onSuccess(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(i * 10L));
+        }
+        // p99 = 100ms，倍数 2
+        assertEquals(Duration.ofMillis(200), breaker.getTimeout(SERVER, TOOL));
+        assertEquals(100L, breaker.getLatencyPercentileMs(SERVER, TOOL, 99));
+        assertEquals(50L, breaker.getLatencyPercentileMs(SERVER, TOOL, 50));
+    }
+
+    @Test
+    void adaptiveTimeoutIsClampedToMinimum() {
+        McpEndpointCircuitBreaker breaker = breaker(60000);
+        for (int i = 0; i < 10; i++) {
+            breaker.onSuccess(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(Duration.ofMillis(100), breaker.getTimeout(SERVER, TOOL));
+    }
+
+    @Test
+    void timeoutIsTrackedPerTool() {
+        McpEndpointCircuitBreaker breaker = breaker(60000);
+        for (int i = 0; i < 10; i++) {
+            breaker.onSuccess(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(10));
+            breaker.onSuccess(SERVER, "report", TimeUnit.MILLISECONDS.toNanos(2000));
+        }
+        assertEquals(Duration.ofMillis(100), breaker.getTimeout(SERVER, TOOL));
+        assertEquals(Duration.ofMillis(4000), breaker.getTimeout(SERVER, "report"), "慢工具不以快工具为基准");
+        assertEquals(Duration.ofMillis(5000), breaker.getTimeout(SERVER, "unknown"), "无样本的工具使用上限");
+        assertEquals(Set.of(TOOL, "report"), breaker.getOperations(SERVER));
+    }
+
+    @Test
+    void timeoutsWidenAdaptiveTimeout() {
+        McpEndpointCircuitBreaker breaker = breaker(60000);
+        for (int i = 0; i < 10; i++) {
+            breaker.onSuccess(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        assertEquals(Duration.ofMillis(100), breaker.getTimeout(SERVER, TOOL));
+
+        breaker.onTimeout(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(Duration.ofMillis(200), breaker.getTimeout(SERVER, TOOL), "超时样本立即放宽超时");
+        breaker.onTimeout(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(Duration.ofMillis(400), breaker.getTimeout(SERVER, TOOL));
+        assertEquals(0, breaker.getSnapshot().get(SERVER).get("failureRate"), "超时样本本身不计为失败");
+    }
+
+    @Test
+    void disabledBreakerAlwaysPermits() {
+        McpEndpointCircuitBreaker breaker = breaker(60000);
+        ReflectionTestUtils.setField(breaker, "enabled", false);
+        for (int i = 0; i < 10; i++) {
+            breaker.onFailure(SERVER);
+        }
+        assertFalse(breaker.acquirePermission(SERVER));
+        assertTrue(breaker.isCallPermitted(SERVER));
+    }
+}
@@ -0,0 +1,135 @@
+package cn.sam.demo.mcpclient.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 副本负载均衡测试：两次随机选择、被动摘除与恢复、故障转移
+ */
+class McpReplicaBalancerTest {
+
+    private static final String URL_A = "http://127.0.0.1:9801/sse";
+
+    private static final String URL_B = "http://127.0.0.1:9802/sse";
+
+    private static final String URL_C = "http://127.0.0.1:9803/sse";
+
+    private static final String SERVER = UniversalMcpClientService.buildServerKey(URL_A, "sse");
+
+    private McpReplicaBalancer balancer(long ejectDurationMs, String... urls) {
+        McpReplicaBalancer balancer = new McpReplicaBalancer();
+        ReflectionTestUtils.setField(balancer, "ejectAfterFailures", 3);
+        ReflectionTestUtils.setField(balancer, "ejectDurationMs", ejectDurationMs);
+        balancer.updateReplicas(URL_A, "sse", List.of(urls));
+        return balancer;
+    }
+
+    private void fail(McpReplicaBalancer balancer, String url, int times) {
+        for (int i = 0; i < times; i++) {
+            balancer.onStart(SERVER, url);
+            balancer.onComplete(SERVER, url, false);
+        }
+    }
+
+    private Map<String, Object> replica(McpReplicaBalancer balancer, String url) {
+        return balancer.getSnapshot().get(SERVER).stream()
+                .filter(r -> url.equals(r.get("url")))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void withoutReplicasUsesDefaultUrl() {
+        McpReplicaBalancer balancer = balancer(30000, URL_A);
+        assertEquals(URL_A, balancer.choose(SERVER, URL_A, null));
+        assertNull(balancer.choose(SERVER, URL_A, URL_A), "排除主地址后没有可选副本");
+        assertNull(balancer.chooseFailover(SERVER, URL_A), "未配置副本时不做故障转移");
+    }
+
+    @Test
+    void twoChoicesPicksLessLoadedReplica() {
+        McpReplicaBalancer balancer = balancer(30000, URL_A, URL_B);
+        balancer.onStart(SERVER, URL_A);
+        balancer.onStart(SERVER, URL_A);
+        // 只有两个副本时两次随机选择必然选中两者，总是取进行中请求较少的一个
+        for (int i = 0; i < 20; i++) {
+            assertEquals(URL_B, balancer.choose(SERVER, URL_A, null));
+        }
+        assertEquals(URL_A, balancer.choose(SERVER, URL_A, URL_B), "对冲排除主请求副本");
+    }
+
+    @Test
+    void ejectsAfterConsecutiveFailures() {
+        McpReplicaBalancer balancer = balancer(60000, URL_A, URL_B);
+        fail(balancer, URL_A, 2);
+        balancer.onStart(SERVER, URL_A);
+        assertTrue(balancer.onComplete(SERVER, URL_A, false), "第 3 次连续失败摘除副本");
+        assertEquals(true, replica(balancer, URL_A).get("ejected"));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(URL_B, balancer.choose(SERVER, URL_A, null));
+        }
+    }
+
+    @Test
+    void successResetsConsecutiveFailures() {
+        McpReplicaBalancer balancer = balancer(60000, URL_A, URL_B);
+        fail(balancer, URL_A, 2);
+        balancer.onStart(SERVER, URL_A);
+        balancer.onComplete(SERVER, URL_A, true);
+        fail(balancer, URL_A, 2);
+        assertEquals(false, replica(balancer, URL_A).get("ejected"));
+    }
+
+    @Test
+    void cancelledCallsDoNotCount() {
+        McpReplicaBalancer balancer = balancer(60000, URL_A, URL_B);
+        for (int i = 0; i < 5; i++) {
+            balancer.onStart(SERVER, URL_A);
+            assertFalse(balancer.onComplete(SERVER, URL_A, null));
+        }
+        Map<String, Object> snapshot = replica(balancer, URL_A);
+        assertEquals(false, snapshot.get("ejected"));
+        assertEquals(0L, snapshot.get("totalFailures"));
+        assertEquals(0, snapshot.get("outstanding"));
+    }
+
+    @Test
+    void readmitsAfterEjectDuration() throws InterruptedException {
+        McpReplicaBalancer balancer = balancer(50, URL_A, URL_B);
+        fail(balancer, URL_A, 3);
+        assertEquals(true, replica(balancer, URL_A).get("ejected"));
+        Thread.sleep(80);
+        assertEquals(false, replica(balancer, URL_A).get("ejected"));
+        assertEquals(URL_A, balancer.chooseFailover(SERVER, URL_B));
+    }
+
+    @Test
+    void allEjectedFallsBackToAllReplicas() {
+        McpReplicaBalancer balancer = balancer(60000, URL_A, URL_B);
+        fail(balancer, URL_A, 3);
+        fail(balancer, URL_B, 3);
+        assertNotNull(balancer.choose(SERVER, URL_A, null));
+    }
+
+    @Test
+    void failoverSkipsFailedAndEjectedReplicas() {
+        McpReplicaBalancer balancer = balancer(60000, URL_A, URL_B, URL_C);
+        fail(balancer, URL_B, 3);
+        assertEquals(URL_C, balancer.chooseFailover(SERVER, URL_A));
+
+        fail(balancer, URL_C, 3);
+        assertNull(balancer.chooseFailover(SERVER, URL_A), "其他副本都已摘除时不转移");
+    }
+
+    @Test
+    void failoverPrefersLeastOutstanding() {
+        McpReplicaBalancer balancer = balancer(60000, URL_A, URL_B, URL_C);
+        balancer.onStart(SERVER, URL_B);
+        assertEquals(URL_C, balancer.chooseFailover(SERVER, URL_A));
+    }
+}
@@ -0,0 +1,122 @@
+package cn.sam.demo.mcpclient.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 请求对冲测试：令牌桶限制对冲比例、对冲延迟取工具在端点上的耗时分位数
+ */
+class McpRequestHedgingServiceTest {
+
+    private static final String SERVER = "http://127.0.0.1:9801/sse|sse";
+
+    private static final String OTHER = "http://127.0.0.1:9802/sse|sse";
+
+    private static final String TOOL = "search";
+
+    private McpEndpointCircuitBreaker breaker() {
+        McpEndpointCircuitBreaker breaker = new McpEndpointCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "windowSize", 10);
+        ReflectionTestUtils.setField(breaker, "minimumCalls", 4);
+        ReflectionTestUtils.setField(breaker, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(breaker, "openDurationMs", 60000L);
+        ReflectionTestUtils.setField(breaker, "timeoutPercentile", 99.0);
+        ReflectionTestUtils.setField(breaker, "timeoutMultiplier", 2.0);
+        ReflectionTestUtils.setField(breaker, "minTimeoutMs", 100L);
+        ReflectionTestUtils.setField(breaker, "maxTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(breaker, "minLatencySamples", 10);
+        return breaker;
+    }
+
+    private McpRequestHedgingService hedging(McpEndpointCircuitBreaker breaker, boolean enabled,
+                                             double maxRatio, double burst) {
+        McpRequestHedgingService hedging = new McpRequestHedgingService();
+        ReflectionTestUtils.setField(hedging, "circuitBreaker", breaker);
+        ReflectionTestUtils.setField(hedging, "enabled", enabled);
+        ReflectionTestUtils.setField(hedging, "percentile", 95.0);
+        ReflectionTestUtils.setField(hedging, "maxRatio", maxRatio);
+        ReflectionTestUtils.setField(hedging, "burst", burst);
+        ReflectionTestUtils.setField(hedging, "minDelayMs", 20L);
+        return hedging;
+    }
+
+    @Test
+    void burstLimitsBackToBackHedges() {
+        McpRequestHedgingService hedging = hedging(breaker(), true, 0.1, 2);
+        assertTrue(hedging.tryAcquireHedge(SERVER));
+        assertTrue(hedging.tryAcquireHedge(SERVER));
+        assertFalse(hedging.tryAcquireHedge(SERVER), "突发对冲数不超过 burst");
+        assertTrue(hedging.tryAcquireHedge(OTHER), "令牌桶按端点独立");
+    }
+
+    @Test
+    void eligibleCallsRefillAtMaxRatio() {
+        McpRequestHedgingService hedging = hedging(breaker(), true, 0.25, 1);
+        assertTrue(hedging.tryAcquireHedge(SERVER));
+
+        for (int i = 0; i < 3; i++) {
+            hedging.onEligibleCall(SERVER);
+        }
+        assertFalse(hedging.tryAcquireHedge(SERVER), "3 次调用只积累 0.75 个令牌");
+        hedging.onEligibleCall(SERVER);
+        assertTrue(hedging.tryAcquireHedge(SERVER));
+    }
+
+    @Test
+    void longRunHedgeRateStaysWithinMaxRatio() {
+        McpRequestHedgingService hedging = hedging(breaker(), true, 0.1, 5);
+        for (int i = 0; i < 1000; i++) {
+            hedging.onEligibleCall(SERVER);
+            // 端点变慢时每次调用都想对冲
+            hedging.tryAcquireHedge(SERVER);
+        }
+        Map<String, Object> snapshot = hedging.getSnapshot().get(SERVER);
+        assertEquals(1000L, snapshot.get("eligibleCalls"));
+        long sent = (Long) snapshot.get("hedgesSent");
+        assertTrue(sent <= 1000 * 0.1 + 5, "对冲数 " + sent + " 超过 max-ratio + burst");
+        assertEquals(1000L - sent, snapshot.get("hedgesRejected"));
+    }
+
+    @Test
+    void tokensCappedAtBurst() {
+        McpRequestHedgingService hedging = hedging(breaker(), true, 0.5, 2);
+        for (int i = 0; i < 100; i++) {
+            hedging.onEligibleCall(SERVER);
+        }
+        assertTrue(hedging.tryAcquireHedge(SERVER));
+        assertTrue(hedging.tryAcquireHedge(SERVER));
+        assertFalse(hedging.tryAcquireHedge(SERVER), "空闲期积累的令牌不超过 burst");
+    }
+
+    @Test
+    void hedgeDelayFollowsEndpointPercentile() {
+        McpEndpointCircuitBreaker breaker = breaker();
+        McpRequestHedgingService hedging = hedging(breaker, true, 0.1, 5);
+        assertNull(hedging.getHedgeDelayMs(SERVER, TOOL), "耗时样本不足时不对冲");
+
+        for (int i = 1; i <= 20; i++) {
+            breaker.onSuccess(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(i * 10L));
+        }
+        assertEquals(190L, hedging.getHedgeDelayMs(SERVER, TOOL));
+
+        for (int i = 0; i < 20; i++) {
+            breaker.onSuccess(OTHER, TOOL, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(20L, hedging.getHedgeDelayMs(OTHER, TOOL), "不低于 min-delay-ms");
+    }
+
+    @Test
+    void disabledReturnsNoDelay() {
+        McpEndpointCircuitBreaker breaker = breaker();
+        for (int i = 0; i < 20; i++) {
+            breaker.onSuccess(SERVER, TOOL, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertNull(hedging(breaker, false, 0.1, 5).getHedgeDelayMs(SERVER, TOOL));
+    }
+}
@@ -0,0 +1,177 @@
+package cn.sam.demo.mcpclient.service;
+
+import cn.sam.demo.mcpclient.entity.McpMarket;
+import cn.sam.demo.mcpclient.entity.McpMarketTool;
+import cn.sam.demo.mcpclient.entity.McpToolData;
+import cn.sam.demo.mcpclient.mapper.McpMarketMapper;
+import cn.sam.demo.mcpclient.mapper.McpMarketToolMapper;
+import cn.sam.demo.mcpclient.mapper.McpToolMapper;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 检索索引测试：中英文分词、字段加权排序、前缀匹配、最少命中比例、增量维护、重建时整体替换
+ */
+class McpSearchIndexServiceTest {
+
+    private static McpSearchIndexService.InvertedIndex index() {
+        return new McpSearchIndexService.InvertedIndex();
+    }
+
+    private static void put(McpSearchIndexService.InvertedIndex index, long id, String name, String description,
+                            String status) {
+        index.put(id, List.of(new McpSearchIndexService.Field(3.0f, name),
+                new McpSearchIndexService.Field(1.0f, description)), Map.of("status", status));
+    }
+
+    private static List<Long> ids(List<McpSearchIndexService.Hit> hits) {
+        return hits.stream().map(McpSearchIndexService.Hit::id).toList();
+    }
+
+    @Test
+    void tokenizesWordsAndCjkBigrams() {
+        assertEquals(List.of("get", "weather", "v2"), McpSearchIndexService.tokenize("Get_Weather-V2"));
+        assertEquals(List.of("天", "气", "查", "询", "天气", "气查", "查询"),
+                McpSearchIndexService.tokenize("天气查询"));
+        assertEquals(List.of("api", "天气", "气查", "查询"), McpSearchIndexService.tokenizeQuery("API 天气查询"));
+        assertEquals(List.of("天"), McpSearchIndexService.tokenizeQuery("天"), "单字查询保留单字");
+    }
+
+    @Test
+    void nameMatchesRankAboveDescriptionMatches() {
+        McpSearchIndexService.InvertedIndex index = index();
+        put(index, 1, "forecast", "weather data for cities", "ENABLED");
+        put(index, 2, "weather", "current conditions", "ENABLED");
+        put(index, 3, "calculator", "basic arithmetic", "ENABLED");
+
+        assertEquals(List.of(2L, 1L), ids(index.search("weather", null)));
+    }
+
+    @Test
+    void prefixMatchesScoreBelowExactMatches() {
+        McpSearchIndexService.InvertedIndex index = index();
+        put(index, 1, "weatherapi", "", "ENABLED");
+        put(index, 2, "wea", "", "ENABLED");
+
+        List<McpSearchIndexService.Hit> hits = index.search("wea", null);
+        assertEquals(List.of(2L, 1L), ids(hits));
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertTrue(index.search("xyz", null).isEmpty());
+    }
+
+    @Test
+    void requiresMostQueryTermsToMatch() {
+        McpSearchIndexService.InvertedIndex index = index();
+        put(index, 1, "天气查询", "", "ENABLED");
+        put(index, 2, "天气预报服务", "", "ENABLED");
+
+        // 查询词 天气、气预、预报，至少命中 2 个
+        assertEquals(List.of(2L), ids(index.search("天气预报", null)));
+        assertEquals(2, index.search("天气", null).size());
+    }
+
+    @Test
+    void filtersByAttributesAndListsAllWithoutKeyword() {
+        McpSearchIndexService.InvertedIndex index = index();
+        put(index, 1, "echo", "", "ENABLED");
+        put(index, 2, "echo", "", "DISABLED");
+        put(index, 3, "time", "", "ENABLED");
+
+        assertEquals(List.of(1L), ids(index.search("echo", attrs -> "ENABLED".equals(attrs.get("status")))));
+        assertEquals(List.of(3L, 2L, 1L), ids(index.search("  ", null)), "无关键字时按ID倒序返回全部");
+    }
+
+    @Test
+    void reindexReplacesOldTermsAndRemoveDropsDocument() {
+        McpSearchIndexService.InvertedIndex index = index();
+        put(index, 1, "weather", "", "ENABLED");
+        put(index, 1, "stock", "", "ENABLED");
+
+        assertTrue(index.search("weather", null).isEmpty(), "重新索引后旧词项不再命中");
+        assertEquals(List.of(1L), ids(index.search("stock", null)));
+
+        index.remove(1L);
+        assertTrue(index.search("stock", null).isEmpty());
+        assertTrue(index.search("", null).isEmpty());
+    }
+
+    @Test
+    void removingMarketDropsItsMarketTools() {
+        McpSearchIndexService service = new McpSearchIndexService();
+        McpSearchIndexService.Indexes indexes = new McpSearchIndexService.Indexes(index(), index(), index());
+        ReflectionTestUtils.setField(service, "indexes", indexes);
+        service.indexMarketTool(McpMarketTool.builder().id(1L).marketId(10L).toolName("weather")
+                .toolMetadata("{\"author\":\"alice\",\"category\":{\"name\":\"生活服务\"}}").build());
+        service.indexMarketTool(McpMarketTool.builder().id(2L).marketId(20L).toolName("weather").build());
+
+        McpSearchIndexService.InvertedIndex marketToolIndex = indexes.marketTools();
+        assertEquals(List.of(1L), ids(marketToolIndex.search("alice 生活", null)), "作者和分类参与检索");
+
+        service.removeMarket(10L);
+        assertEquals(List.of(2L), ids(marketToolIndex.search("weather", null)));
+    }
+
+    private static McpToolData tool(long id, String name) {
+        return McpToolData.builder().id(id).name(name).type("LOCAL").status("ENABLED").build();
+    }
+
+    @Test
+    void rebuildSwapsInCompleteIndexAndReplaysConcurrentChanges() throws Exception {
+        McpToolMapper toolMapper = mock(McpToolMapper.class);
+        McpMarketToolMapper marketToolMapper = mock(McpMarketToolMapper.class);
+        McpMarketMapper marketMapper = mock(McpMarketMapper.class);
+        // 重建时按列查询，需要实体的表信息
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, McpToolData.class);
+        TableInfoHelper.initTableInfo(assistant, McpMarket.class);
+        when(marketToolMapper.selectList(any())).thenReturn(List.of());
+        when(marketMapper.selectList(any())).thenReturn(List.of());
+        McpSearchIndexService service = new McpSearchIndexService();
+        ReflectionTestUtils.setField(service, "mcpToolMapper", toolMapper);
+        ReflectionTestUtils.setField(service, "marketToolMapper", marketToolMapper);
+        ReflectionTestUtils.setField(service, "marketMapper", marketMapper);
+
+        when(toolMapper.selectList(any())).thenReturn(List.of(tool(1, "weather")));
+        service.rebuild();
+        McpSearchIndexService.Indexes before =
+                (McpSearchIndexService.Indexes) ReflectionTestUtils.getField(service, "indexes");
+
+        // 第二次重建读取数据库时阻塞，期间检索仍使用旧索引
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(toolMapper.selectList(any())).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(tool(1, "weather"), tool(2, "stock"));
+        });
+        CompletableFuture<Void> rebuilding = CompletableFuture.runAsync(service::rebuild);
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(1L), ids(before.tools().search("weather", null)), "重建期间旧索引保持完整");
+        // 加载期间的变更（加载读到的是变更前的数据）在替换前重放到新索引
+        service.indexTool(tool(3, "report"));
+        service.removeTool(1L);
+        assertEquals(List.of(3L), ids(before.tools().search("report", null)));
+
+        release.countDown();
+        rebuilding.get(5, TimeUnit.SECONDS);
+        McpSearchIndexService.Indexes after =
+                (McpSearchIndexService.Indexes) ReflectionTestUtils.getField(service, "indexes");
+        assertNotSame(before, after);
+        assertEquals(List.of(3L, 2L), ids(after.tools().search("", null)));
+    }
+}
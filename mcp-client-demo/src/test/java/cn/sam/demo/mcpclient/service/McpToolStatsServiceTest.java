@@ -0,0 +1,133 @@
+package cn.sam.demo.mcpclient.service;
+
+import cn.sam.demo.mcpclient.entity.McpToolStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工具调用统计测试：窗口分位数、按服务器区分同名工具、窗口淘汰
+ */
+class McpToolStatsServiceTest {
+
+    private static final String SERVER_A = "http://127.0.0.1:9801/sse|sse";
+
+    private static final String SERVER_B = "http://127.0.0.1:9802/sse|sse";
+
+    private McpToolStatsService service(int windowSeconds) {
+        McpToolStatsService service = new McpToolStatsService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "windowSeconds", windowSeconds);
+        return service;
+    }
+
+    /**
+     * 记录一次耗时为 millis 毫秒的调用
+     */
+    private void record(McpToolStatsService service, String serverKey, String toolName, long millis, String outcome) {
+        service.record(serverKey, toolName, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis), outcome);
+    }
+
+    @Test
+    void computesWindowPercentiles() {
+        McpToolStatsService service = service(300);
+        for (int i = 1; i <= 100; i++) {
+            record(service, SERVER_A, "echo", i, i % 10 == 0 ? McpMetrics.OUTCOME_ERROR : McpMetrics.OUTCOME_SUCCESS);
+        }
+        assertNull(service.getStats(SERVER_A, "echo"), "时间片结束前不产生统计");
+        long version = service.getVersion();
+
+        service.rotate();
+        McpToolStats stats = service.getStats(SERVER_A, "echo");
+        assertNotNull(stats);
+        assertEquals(100L, stats.getCallCount());
+        assertEquals(10L, stats.getErrorCount());
+        assertEquals(0.1, stats.getErrorRate(), 1e-9);
+        // 直方图两位有效数字，误差在 1% 左右
+        assertEquals(50, stats.getP50Ms(), 1.5);
+        assertEquals(95, stats.getP95Ms(), 1.5);
+        assertEquals(99, stats.getP99Ms(), 1.5);
+        assertEquals(100, stats.getMaxMs(), 1.5);
+        assertEquals(McpToolStats.Source.MEMORY, stats.getSource());
+        assertEquals(version + 1, service.getVersion());
+    }
+
+    @Test
+    void mergesSlicesWithinWindow() {
+        McpToolStatsService service = service(300);
+        for (int i = 0; i < 90; i++) {
+            record(service, SERVER_A, "echo", 10, McpMetrics.OUTCOME_SUCCESS);
+        }
+        service.rotate();
+        for (int i = 0; i < 10; i++) {
+            record(service, SERVER_A, "echo", 200, McpMetrics.OUTCOME_SUCCESS);
+        }
+        service.rotate();
+
+        McpToolStats stats = service.getStats(SERVER_A, "echo");
+        assertEquals(100L, stats.getCallCount());
+        assertEquals(10, stats.getP50Ms(), 0.5);
+        assertEquals(200, stats.getP99Ms(), 3);
+    }
+
+    @Test
+    void keepsSameToolNameOnDifferentServersApart() {
+        McpToolStatsService service = service(300);
+        record(service, SERVER_A, "search", 5, McpMetrics.OUTCOME_SUCCESS);
+        record(service, SERVER_B, "search", 500, McpMetrics.OUTCOME_ERROR);
+        service.rotate();
+
+        McpToolStats a = service.getStats(SERVER_A, "search");
+        McpToolStats b = service.getStats(SERVER_B, "search");
+        assertEquals(SERVER_A, a.getServerKey());
+        assertEquals(0.0, a.getErrorRate());
+        assertEquals(5, a.getP50Ms(), 0.5);
+        assertEquals(SERVER_B, b.getServerKey());
+        assertEquals(1.0, b.getErrorRate());
+        assertEquals(500, b.getP50Ms(), 5);
+
+        List<McpToolStats> ranked = service.listStats("p95", 10);
+        assertEquals(2, ranked.size());
+        assertEquals(SERVER_B, ranked.get(0).getServerKey());
+    }
+
+    @Test
+    void localToolsUseEmptyServerKey() {
+        McpToolStatsService service = service(300);
+        record(service, McpMetrics.LOCAL_SERVER, "calculator", 1, McpMetrics.OUTCOME_SUCCESS);
+        service.rotate();
+
+        assertNotNull(service.getStats("", "calculator"), "与 mcp_tool.server_key 一致，本地工具为空");
+        assertNotNull(service.getStats(null, "calculator"));
+        assertEquals("", service.getStats(McpMetrics.LOCAL_SERVER, "calculator").getServerKey());
+    }
+
+    @Test
+    void rejectedCallsCountAsErrorsWithoutLatency() {
+        McpToolStatsService service = service(300);
+        record(service, SERVER_A, "echo", 1000, McpMetrics.OUTCOME_REJECTED);
+        service.rotate();
+
+        McpToolStats stats = service.getStats(SERVER_A, "echo");
+        assertEquals(1L, stats.getCallCount());
+        assertEquals(1L, stats.getErrorCount());
+        assertNull(stats.getP50Ms());
+        assertNull(stats.getMaxMs());
+    }
+
+    @Test
+    void dropsStatsOnceSlicesLeaveWindow() throws InterruptedException {
+        McpToolStatsService service = service(0);
+        record(service, SERVER_A, "echo", 10, McpMetrics.OUTCOME_SUCCESS);
+        service.rotate();
+        assertNotNull(service.getStats(SERVER_A, "echo"));
+
+        Thread.sleep(5);
+        service.rotate();
+        assertNull(service.getStats(SERVER_A, "echo"), "窗口内没有调用后移除统计");
+    }
+}
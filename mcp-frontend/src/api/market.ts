@@ -6,6 +6,7 @@ export interface McpMarket {
   url: string
   description?: string
   authConfig?: string
+  refreshInterval?: number
   status: 'ENABLED' | 'DISABLED'
   createTime?: string
   updateTime?: string
@@ -23,6 +24,20 @@ export interface McpMarketTool {
   createTime?: string
 }
 
+export interface McpMarketRefreshLog {
+  id: number
+  marketId: number
+  triggerType: 'MANUAL' | 'SCHEDULED'
+  status: 'SUCCESS' | 'FAILED' | 'SKIPPED'
+  fetchedCount: number
+  insertedCount: number
+  updatedCount: number
+  durationMs: number
+  errorMessage?: string
+  startTime: string
+  endTime?: string
+}
+
 export interface ApiResponse<T = any> {
   success: boolean
   message?: string
@@ -33,10 +48,14 @@ export interface ApiResponse<T = any> {
   pages?: number
 }
 
-// 获取市场列表
+// 获取市场列表（分页，仅返回列表字段，详情通过 getMarketById 获取）
 export function getMarketList(params?: {
   status?: string
   keyword?: string
+  page?: number
+  size?: number
+  sort?: string
+  order?: 'asc' | 'desc'
 }) {
   return request.get<ApiResponse<McpMarket[]>>('/mcp/markets', { params })
 }
@@ -90,3 +109,9 @@ export function batchLoadMarketTools(toolIds: number[]) {
   return request.post<ApiResponse>(`/mcp/markets/tools/batch-load`, { toolIds })
 }
 
+// 获取市场刷新记录（分页）
+export function getMarketRefreshLogs(marketId: number, page?: number, size?: number) {
+  return request.get<ApiResponse<McpMarketRefreshLog[]>>(`/mcp/markets/${marketId}/refresh-logs`, {
+    params: { page, size }
+  })
+}
@@ -16,17 +16,56 @@ export interface ApiResponse<T = any> {
   message?: string
   data?: T
   total?: number
+  page?: number
+  size?: number
+  pages?: number
 }
 
-// 获取工具列表
+// 获取工具列表（分页，仅返回列表字段，详情通过 getToolById 获取）
 export function getToolList(params?: {
   type?: string
   status?: string
   keyword?: string
+  page?: number
+  size?: number
+  sort?: string
+  order?: 'asc' | 'desc'
 }) {
   return request.get<ApiResponse<McpToolData[]>>('/mcp/tools', { params })
 }
 
+export interface ToolCatalogDelta {
+  version: number
+  added: number[]
+  updated: number[]
+  disabled: number[]
+  removed: number[]
+  time?: string
+}
+
+// 订阅工具目录变更 - 使用 EventSource (SSE)，断线后浏览器自动重连并携带 Last-Event-ID 补发遗漏的变更
+export function subscribeToolCatalog(
+  onDelta: (delta: ToolCatalogDelta) => void,
+  onReset: () => void
+): () => void {
+  const baseURL = import.meta.env.VITE_API_BASE_URL || 'http://localhost:9898/api'
+  const eventSource = new EventSource(`${baseURL}/mcp/tools/events`)
+
+  eventSource.addEventListener('catalog', (event) => {
+    onDelta(JSON.parse((event as MessageEvent).data))
+  })
+
+  // 服务端无法补发（历史已过期或服务重启），需要全量刷新
+  eventSource.addEventListener('reset', () => {
+    onReset()
+  })
+
+  // 返回关闭函数
+  return () => {
+    eventSource.close()
+  }
+}
+
 // 获取工具详情
 export function getToolById(id: number) {
   return request.get<ApiResponse<McpToolData>>(`/mcp/tools/${id}`)
@@ -0,0 +1,107 @@
+package cn.sam.demo.mcpservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 链路文件导出器
+ *
+ * <p>把服务端结束的 span 按行追加到 JSON 文件，行格式与客户端的本地链路导出器一致，
+ * 两边的文件按 traceId 合并即可看到一次对话从客户端到工具执行的完整链路。未配置文件时不导出。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Component
+public class FileSpanExporter implements SpanExporter {
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 追加写入的文件（每行一个 span 的 JSON），为空时不导出
+     */
+    @Value("${mcp.server.tracing.exporter.file:}")
+    private String file;
+
+    private BufferedWriter writer;
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        if (file.isEmpty()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        try {
+            if (writer == null) {
+                Path path = Path.of(file);
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (SpanData span : spans) {
+                writer.write(objectMapper.writeValueAsString(toMap(span)));
+                writer.newLine();
+            }
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("写入链路文件失败: {}", file, e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.debug("关闭链路文件失败: {}", file, e);
+            }
+            writer = null;
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    private Map<String, Object> toMap(SpanData span) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("traceId", span.getTraceId());
+        record.put("spanId", span.getSpanId());
+        record.put("parentSpanId", span.getParentSpanContext().isValid() ? span.getParentSpanId() : null);
+        record.put("name", span.getName());
+        record.put("service", span.getResource().getAttribute(SERVICE_NAME));
+        record.put("kind", span.getKind().name());
+        record.put("startEpochMicros", TimeUnit.NANOSECONDS.toMicros(span.getStartEpochNanos()));
+        record.put("durationMicros", TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()));
+        record.put("status", span.getStatus().getStatusCode().name());
+        record.put("attributes", attributes);
+        return record;
+    }
+}
@@ -0,0 +1,89 @@
+package cn.sam.demo.mcpservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SSE 会话数限制
+ *
+ * <p>每个 SSE 连接在服务端对应一个 MCP 会话并一直占用连接，这里限制同时在线的会话数，
+ * 超出时新连接直接返回 503，已连接的会话不受影响。指标：mcp.server.sessions.active（在线会话数）、
+ * mcp.server.sessions.rejected（被拒绝的连接数）。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Component
+public class McpSessionLimitFilter implements WebFilter {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 最大在线会话数，0 为不限
+     */
+    @Value("${mcp.server.limits.max-sessions:1000}")
+    private int maxSessions;
+
+    @Value("${spring.ai.mcp.server.sse-endpoint:/sse}")
+    private String sseEndpoint;
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("mcp.server.sessions.active", activeSessions, AtomicInteger::get)
+                .description("在线的 SSE 会话数")
+                .register(meterRegistry);
+        rejected = Counter.builder("mcp.server.sessions.rejected")
+                .description("超出会话数上限被拒绝的连接数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!HttpMethod.GET.equals(exchange.getRequest().getMethod())
+                || !sseEndpoint.equals(exchange.getRequest().getPath().pathWithinApplication().value())) {
+            return chain.filter(exchange);
+        }
+        if (maxSessions > 0 && activeSessions.incrementAndGet() > maxSessions) {
+            activeSessions.decrementAndGet();
+            rejected.increment();
+            log.warn("SSE 会话数已达上限 {}，拒绝连接", maxSessions);
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().setComplete();
+        }
+        if (maxSessions <= 0) {
+            activeSessions.incrementAndGet();
+        }
+        // SSE 流结束（客户端断开或服务端关闭）时整个过滤链才完成
+        return chain.filter(exchange).doFinally(signal -> activeSessions.decrementAndGet());
+    }
+
+    /**
+     * 在线会话数
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+}
@@ -0,0 +1,104 @@
+package cn.sam.demo.mcpservice.config;
+
+import cn.sam.demo.mcpservice.service.ToolCallLimiter;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import lombok.extern.slf4j.Slf4j;
+import org.springaicommunity.mcp.annotation.McpTool;
+import org.springframework.ai.mcp.annotation.spring.SyncMcpAnnotationProviders;
+import org.springframework.ai.mcp.server.common.autoconfigure.annotations.McpServerAnnotationScannerAutoConfiguration.ServerMcpAnnotatedBeans;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * 工具执行配置（ASYNC 服务器）
+ *
+ * <p>服务器以 ASYNC 模式运行时，Spring AI 只注册返回 Mono / Flux 的 @McpTool 方法，这些方法直接在事件循环上组装，
+ * 不占用线程。这里把其余的阻塞式 @McpTool 方法也转换为异步工具，调用时自动切换到有界的工具线程池执行，
+ * 事件循环线程只负责收发消息，慢工具不会拖住其他 SSE 会话。</p>
+ *
+ * <p>线程池满且排队任务也达到上限时，新的调用直接返回错误，不会无限堆积。
+ * 所有工具在进入线程池之前还要经过 {@link ToolCallLimiter} 的会话限速和并发限制。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "ASYNC")
+public class McpToolExecutionConfig {
+
+    /**
+     * 阻塞工具的最大并发线程数
+     */
+    @Value("${mcp.server.tool-execution.thread-cap:64}")
+    private int threadCap;
+
+    /**
+     * 线程全忙时允许排队的最大调用数
+     */
+    @Value("${mcp.server.tool-execution.queued-task-cap:1000}")
+    private int queuedTaskCap;
+
+    /**
+     * 阻塞工具的执行线程池
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler mcpToolScheduler() {
+        log.info("阻塞工具线程池: 最大线程 {}, 最大排队 {}", threadCap, queuedTaskCap);
+        return Schedulers.newBoundedElastic(Math.max(1, threadCap), Math.max(1, queuedTaskCap), "mcp-tool");
+    }
+
+    /**
+     * 阻塞式 @McpTool 方法的异步工具定义，与 Spring AI 生成的响应式工具一起注册到服务器
+     */
+    @Bean
+    public List<McpServerFeatures.AsyncToolSpecification> blockingToolSpecs(ServerMcpAnnotatedBeans beans,
+                                                                           Scheduler mcpToolScheduler) {
+        List<McpServerFeatures.AsyncToolSpecification> specs = SyncMcpAnnotationProviders
+                .toolSpecifications(beans.getBeansByAnnotation(McpTool.class))
+                .stream()
+                .map(spec -> offload(spec, mcpToolScheduler))
+                .toList();
+        log.info("注册阻塞工具 {} 个: {}", specs.size(), specs.stream().map(spec -> spec.tool().name()).toList());
+        return specs;
+    }
+
+    private static McpServerFeatures.AsyncToolSpecification offload(McpServerFeatures.SyncToolSpecification spec,
+                                                                    Scheduler scheduler) {
+        return McpServerFeatures.AsyncToolSpecification.builder()
+                .tool(spec.tool())
+                .callHandler((exchange, request) -> Mono
+                        .fromCallable(() -> spec.callHandler().apply(new McpSyncServerExchange(exchange), request))
+                        .subscribeOn(scheduler))
+                .build();
+    }
+
+    /**
+     * 给注解扫描生成的工具（阻塞工具和响应式工具）加上调用限流
+     */
+    @Bean
+    public static BeanPostProcessor toolCallLimiterPostProcessor(ObjectProvider<ToolCallLimiter> toolCallLimiter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof List<?> list && !list.isEmpty()
+                        && list.stream().allMatch(McpServerFeatures.AsyncToolSpecification.class::isInstance)) {
+                    ToolCallLimiter limiter = toolCallLimiter.getObject();
+                    return list.stream()
+                            .map(spec -> limiter.wrap((McpServerFeatures.AsyncToolSpecification) spec))
+                            .toList();
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,23 +1,28 @@
 package cn.sam.demo.mcpservice.controller;
 
+import cn.sam.demo.mcpservice.config.McpSessionLimitFilter;
+import cn.sam.demo.mcpservice.dto.DynamicToolInfo;
+import cn.sam.demo.mcpservice.service.DynamicToolService;
+import cn.sam.demo.mcpservice.service.ToolCallLimiter;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 动态工具管理控制器
  * 
- * <p>用于演示 MCP 变更通知功能</p>
+ * <p>运行时向 MCP 服务器注册、注销工具，演示 MCP 变更通知功能</p>
  * 
  * <h3>功能：</h3>
  * <ul>
  *   <li>动态注册新工具（触发 tool-change-notification）</li>
  *   <li>动态注销工具（触发 tool-change-notification）</li>
  *   <li>查看当前工具列表</li>
+ *   <li>查看工具调用限流状态</li>
  * </ul>
  * 
  * <h3>使用场景：</h3>
@@ -27,6 +32,20 @@ import java.util.concurrent.ConcurrentHashMap;
  *   <li>客户端接收通知并更新本地工具列表</li>
  *   <li>无需重启客户端 ✅</li>
  * </ol>
+ *
+ * <p>接口没有鉴权，默认关闭，设置 mcp.server.dynamic-tools.enabled=true 后才注册，只应在受信任的网络中开启。
+ * http 处理器还需要配置允许访问的地址前缀（见 {@link cn.sam.demo.mcpservice.tool.HttpProxyToolHandler}）。</p>
+ *
+ * <h3>注册示例：</h3>
+ * <pre>
+ * {
+ *   "name": "weather_query",
+ *   "description": "查询城市天气",
+ *   "handler": "http",
+ *   "config": {"url": "https://wttr.in/${city}?format=3"},
+ *   "parameters": [{"name": "city", "description": "城市名称", "required": true}]
+ * }
+ * </pre>
  * 
  * @author Administrator
  * @since 1.0.0
@@ -34,84 +53,58 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 @RestController
 @RequestMapping("/admin/tools")
+@ConditionalOnProperty(prefix = "mcp.server.dynamic-tools", name = "enabled", havingValue = "true")
 public class DynamicToolController {
 
-    /**
-     * 动态工具存储（用于演示，生产环境应使用数据库）
-     */
-    private static final Map<String, DynamicToolInfo> DYNAMIC_TOOLS = new ConcurrentHashMap<>();
+    @Resource
+    private DynamicToolService dynamicToolService;
+
+    @Resource
+    private ToolCallLimiter toolCallLimiter;
+
+    @Resource
+    private McpSessionLimitFilter mcpSessionLimitFilter;
 
     /**
-     * 模拟注册动态工具
-     * 
-     * <p>注意：实际的工具注册需要通过 MCP Server 的 API，这里仅做演示。
-     * 真实场景下，需要使用 Spring AI MCP 的工具注册机制。</p>
+     * 注册动态工具，同名的动态工具会被替换
      * 
-     * @param toolName 工具名称
-     * @param description 工具描述
-     * @return 注册结果
+     * @param info 工具定义，handler 为处理器类型（template、http）
+     * @return 注册结果，notifyMs 为注册并通知全部会话的耗时
      */
     @PostMapping("/register")
-    public Map<String, Object> registerTool(
-            @RequestParam String toolName,
-            @RequestParam String description) {
-        
-        log.info("========================================");
-        log.info("注册动态工具: {}", toolName);
-        log.info("描述: {}", description);
-        log.info("========================================");
-
-        DynamicToolInfo toolInfo = new DynamicToolInfo();
-        toolInfo.setName(toolName);
-        toolInfo.setDescription(description);
-        toolInfo.setRegisteredAt(LocalDateTime.now());
-
-        DYNAMIC_TOOLS.put(toolName, toolInfo);
-
-        // 注意：这里只是模拟，真实的工具注册应该：
-        // 1. 使用 @McpTool 注解的类
-        // 2. 或者通过 MCP Server 的 API 动态注册
-        // 3. 注册成功后，服务端会自动发送 tools/list_changed 通知
-
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("message", "工具注册成功（演示）");
-        result.put("toolName", toolName);
-        result.put("totalTools", DYNAMIC_TOOLS.size());
-        result.put("note", "实际场景中，服务端会自动向所有连接的客户端发送 tools/list_changed 通知");
-
-        return result;
+    public Mono<Map<String, Object>> registerTool(@RequestBody DynamicToolInfo info) {
+        return dynamicToolService.register(info)
+                .map(registered -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("success", true);
+                    result.put("message", "工具注册成功");
+                    result.put("tool", registered);
+                    result.put("notifyMs", registered.getNotifyMs());
+                    result.put("totalTools", dynamicToolService.list().size());
+                    return result;
+                })
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(failure(e.getMessage())));
     }
 
     /**
-     * 模拟注销动态工具
+     * 注销动态工具
      * 
      * @param toolName 工具名称
      * @return 注销结果
      */
     @DeleteMapping("/unregister")
-    public Map<String, Object> unregisterTool(@RequestParam String toolName) {
-        
-        log.info("========================================");
-        log.info("注销动态工具: {}", toolName);
-        log.info("========================================");
-
-        DynamicToolInfo removed = DYNAMIC_TOOLS.remove(toolName);
-
-        Map<String, Object> result = new HashMap<>();
-        if (removed != null) {
-            result.put("success", true);
-            result.put("message", "工具注销成功（演示）");
-            result.put("toolName", toolName);
-            result.put("totalTools", DYNAMIC_TOOLS.size());
-            result.put("note", "实际场景中，服务端会自动向所有连接的客户端发送 tools/list_changed 通知");
-        } else {
-            result.put("success", false);
-            result.put("message", "工具不存在");
-            result.put("toolName", toolName);
-        }
-
-        return result;
+    public Mono<Map<String, Object>> unregisterTool(@RequestParam String toolName) {
+        return dynamicToolService.unregister(toolName)
+                .map(notifyMs -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("success", true);
+                    result.put("message", "工具注销成功");
+                    result.put("toolName", toolName);
+                    result.put("notifyMs", notifyMs);
+                    result.put("totalTools", dynamicToolService.list().size());
+                    return result;
+                })
+                .defaultIfEmpty(failure("工具不存在: " + toolName));
     }
 
     /**
@@ -121,79 +114,60 @@ public class DynamicToolController {
      */
     @GetMapping("/list")
     public Map<String, Object> listDynamicTools() {
+        List<DynamicToolInfo> tools = dynamicToolService.list();
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
-        result.put("totalTools", DYNAMIC_TOOLS.size());
-        result.put("tools", new ArrayList<>(DYNAMIC_TOOLS.values()));
+        result.put("totalTools", tools.size());
+        result.put("tools", tools);
+        result.put("handlers", dynamicToolService.getHandlerTypes());
         return result;
     }
 
     /**
      * 触发通知测试
      * 
-     * <p>模拟工具列表变更，测试客户端是否能收到通知</p>
+     * <p>不改变工具列表，直接向所有连接的客户端发送一次 tools/list_changed 通知</p>
      * 
-     * @return 测试结果
+     * @return 测试结果，notifyMs 为推送到全部会话的耗时
      */
     @PostMapping("/test-notification")
-    public Map<String, Object> testNotification() {
-        log.info("========================================");
+    public Mono<Map<String, Object>> testNotification() {
         log.info("触发工具列表变更通知测试");
-        log.info("========================================");
-
-        // 注意：实际的通知发送由 MCP Server 自动完成
-        // 这里只是演示API
+        return dynamicToolService.notifyToolsListChanged()
+                .map(notifyMs -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("success", true);
+                    result.put("message", "通知已发送");
+                    result.put("notifyMs", notifyMs);
+                    result.put("info", Map.of(
+                            "notificationType", "tools/list_changed",
+                            "protocol", "SSE",
+                            "endpoint", "/sse",
+                            "description", "客户端应该收到工具列表变更通知"
+                    ));
+                    return result;
+                });
+    }
 
+    /**
+     * 查看工具调用限流状态
+     *
+     * @return 全局和各工具的并发、排队数，在线会话数，被拒绝的调用数
+     */
+    @GetMapping("/limits")
+    public Map<String, Object> getLimits() {
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
-        result.put("message", "通知测试完成");
-        result.put("info", Map.of(
-                "notificationType", "tools/list_changed",
-                "protocol", "SSE",
-                "endpoint", "/sse",
-                "description", "客户端应该收到工具列表变更通知"
-        ));
-
+        result.put("limits", toolCallLimiter.getStatus());
+        result.put("activeSessions", mcpSessionLimitFilter.getActiveSessions());
+        result.put("maxSessions", mcpSessionLimitFilter.getMaxSessions());
         return result;
     }
 
-    /**
-     * 动态工具信息
-     */
-    public static class DynamicToolInfo {
-        private String name;
-        private String description;
-        private LocalDateTime registeredAt;
-
-        public String getName() {
-            return name;
-        }
-
-        public void setName(String name) {
-            this.name = name;
-        }
-
-        public String getDescription() {
-            return description;
-        }
-
-        public void setDescription(String description) {
-            this.description = description;
-        }
-
-        public LocalDateTime getRegisteredAt() {
-            return registeredAt;
-        }
-
-        public void setRegisteredAt(LocalDateTime registeredAt) {
-            this.registeredAt = registeredAt;
-        }
-
-        public String getRegisteredAtFormatted() {
-            return registeredAt != null 
-                    ? registeredAt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
-                    : null;
-        }
+    private Map<String, Object> failure(String message) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("message", message);
+        return result;
     }
 }
-
@@ -0,0 +1,82 @@
+package cn.sam.demo.mcpservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 动态工具信息，同时作为注册请求
+ *
+ * @author Administrator
+ */
+@Data
+public class DynamicToolInfo {
+
+    /**
+     * 工具名称
+     */
+    private String name;
+
+    /**
+     * 工具描述
+     */
+    private String description;
+
+    /**
+     * 处理器类型：template、http，或其他 DynamicToolHandler 实现的类型
+     */
+    private String handler;
+
+    /**
+     * 处理器配置，见各处理器说明
+     */
+    private Map<String, Object> config;
+
+    /**
+     * 工具参数，生成工具的 inputSchema
+     */
+    private List<Parameter> parameters;
+
+    /**
+     * 注册时间
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime registeredAt;
+
+    /**
+     * 注册（含发送 tools/list_changed 通知）耗时（毫秒）
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long notifyMs;
+
+    /**
+     * 调用次数
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long callCount;
+
+    public String getRegisteredAtFormatted() {
+        return registeredAt != null
+                ? registeredAt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
+                : null;
+    }
+
+    @Data
+    public static class Parameter {
+
+        private String name;
+
+        /**
+         * JSON Schema 类型：string、number、integer、boolean，默认 string
+         */
+        private String type;
+
+        private String description;
+
+        private boolean required;
+    }
+}
@@ -0,0 +1,249 @@
+package cn.sam.demo.mcpservice.service;
+
+import cn.sam.demo.mcpservice.dto.DynamicToolInfo;
+import cn.sam.demo.mcpservice.tool.DynamicToolHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.server.McpAsyncServer;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 动态工具服务
+ *
+ * <p>在运行时向 MCP 服务器的工具注册表添加、移除工具，由 MCP 服务器向所有已连接的会话发送
+ * tools/list_changed 通知，客户端收到后重新拉取工具列表，无需重启任何一方。
+ * 工具的执行交给注册时指定的 {@link DynamicToolHandler}。</p>
+ *
+ * <p>每次变更的耗时包含通知推送到全部会话的时间，记录在指标 mcp.server.tools.list_changed
+ * （标签 action：register、unregister、notify）中，用于衡量通知扇出延迟。</p>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Service
+public class DynamicToolService {
+
+    private static final Pattern TOOL_NAME = Pattern.compile("[A-Za-z0-9_\\-]{1,64}");
+
+    private static final Set<String> PARAMETER_TYPES = Set.of("string", "number", "integer", "boolean");
+
+    /**
+     * 延迟注入：MCP 服务器创建时会收集已扫描到的 @McpTool 工具，提前创建会漏掉之后初始化的工具 Bean
+     */
+    @Lazy
+    @Resource
+    private McpAsyncServer mcpAsyncServer;
+
+    @Resource
+    private ToolCallLimiter toolCallLimiter;
+
+    @Resource
+    private List<DynamicToolHandler> handlerList;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Map<String, DynamicToolHandler> handlers;
+
+    /**
+     * 已注册的动态工具（仅内存，服务重启后需重新注册）
+     */
+    private final Map<String, DynamicToolInfo> tools = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> callCounts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        handlers = handlerList.stream().collect(Collectors.toMap(DynamicToolHandler::getType, Function.identity()));
+        log.info("动态工具处理器: {}", handlers.keySet());
+    }
+
+    /**
+     * 注册（或替换）动态工具，完成时通知已推送到全部会话
+     *
+     * @param info 工具定义
+     * @return 注册后的工具信息；定义无效或与内置工具重名时以 IllegalArgumentException 结束
+     */
+    public Mono<DynamicToolInfo> register(DynamicToolInfo info) {
+        return Mono.defer(() -> {
+            DynamicToolHandler handler = validate(info);
+            return mcpAsyncServer.listTools()
+                    .any(tool -> tool.name().equals(info.getName()) && !tools.containsKey(info.getName()))
+                    .flatMap(builtIn -> {
+                        if (builtIn) {
+                            return Mono.error(new IllegalArgumentException("不能覆盖内置工具: " + info.getName()));
+                        }
+                        info.setRegisteredAt(LocalDateTime.now());
+                        info.setCallCount(0);
+                        // 先记录再注册，通知发出后客户端立即调用时也能找到定义
+                        tools.put(info.getName(), info);
+                        callCounts.put(info.getName(), new LongAdder());
+                        return timed("register", mcpAsyncServer.addTool(
+                                        toolCallLimiter.wrap(toSpecification(info, handler))))
+                                .doOnNext(info::setNotifyMs)
+                                .doOnError(e -> {
+                                    tools.remove(info.getName());
+                                    callCounts.remove(info.getName());
+                                })
+                                .thenReturn(info);
+                    });
+        }).doOnNext(registered -> log.info("注册动态工具: {} ({}), 耗时 {}ms",
+                registered.getName(), registered.getHandler(), registered.getNotifyMs()));
+    }
+
+    /**
+     * 注销动态工具
+     *
+     * @param toolName 工具名称
+     * @return 注销（含通知）耗时，工具不存在时为空
+     */
+    public Mono<Long> unregister(String toolName) {
+        return Mono.defer(() -> {
+            if (toolName == null || !tools.containsKey(toolName)) {
+                return Mono.empty();
+            }
+            return timed("unregister", mcpAsyncServer.removeTool(toolName))
+                    .doOnNext(elapsedMs -> {
+                        tools.remove(toolName);
+                        callCounts.remove(toolName);
+                        log.info("注销动态工具: {}, 耗时 {}ms", toolName, elapsedMs);
+                    });
+        });
+    }
+
+    /**
+     * 不改变工具列表，直接向全部会话发送一次 tools/list_changed 通知
+     *
+     * @return 通知耗时（毫秒）
+     */
+    public Mono<Long> notifyToolsListChanged() {
+        return timed("notify", mcpAsyncServer.notifyToolsListChanged());
+    }
+
+    /**
+     * 当前动态工具，按注册时间排序
+     */
+    public List<DynamicToolInfo> list() {
+        List<DynamicToolInfo> result = new ArrayList<>(tools.values());
+        result.forEach(info -> {
+            LongAdder count = callCounts.get(info.getName());
+            info.setCallCount(count != null ? count.sum() : 0);
+        });
+        result.sort(Comparator.comparing(DynamicToolInfo::getRegisteredAt));
+        return result;
+    }
+
+    /**
+     * 处理器类型列表
+     */
+    public Set<String> getHandlerTypes() {
+        return handlers.keySet();
+    }
+
+    private DynamicToolHandler validate(DynamicToolInfo info) {
+        if (info == null || info.getName() == null || !TOOL_NAME.matcher(info.getName()).matches()) {
+            throw new IllegalArgumentException("工具名称只能包含字母、数字、下划线和中划线，长度 1-64");
+        }
+        if (info.getDescription() == null || info.getDescription().isBlank()) {
+            throw new IllegalArgumentException("工具描述不能为空");
+        }
+        DynamicToolHandler handler = handlers.get(info.getHandler());
+        if (handler == null) {
+            throw new IllegalArgumentException("未知的处理器类型: " + info.getHandler() + "，可选: " + handlers.keySet());
+        }
+        if (info.getParameters() != null) {
+            for (DynamicToolInfo.Parameter parameter : info.getParameters()) {
+                if (parameter.getName() == null || parameter.getName().isBlank()) {
+                    throw new IllegalArgumentException("参数名称不能为空");
+                }
+                if (parameter.getType() != null && !PARAMETER_TYPES.contains(parameter.getType())) {
+                    throw new IllegalArgumentException("参数类型只能是 " + PARAMETER_TYPES + ": " + parameter.getName());
+                }
+            }
+        }
+        handler.validate(info.getConfig());
+        return handler;
+    }
+
+    private McpServerFeatures.AsyncToolSpecification toSpecification(DynamicToolInfo info,
+                                                                    DynamicToolHandler handler) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        List<String> required = new ArrayList<>();
+        if (info.getParameters() != null) {
+            for (DynamicToolInfo.Parameter parameter : info.getParameters()) {
+                Map<String, Object> property = new LinkedHashMap<>();
+                property.put("type", parameter.getType() != null ? parameter.getType() : "string");
+                if (parameter.getDescription() != null) {
+                    property.put("description", parameter.getDescription());
+                }
+                properties.put(parameter.getName(), property);
+                if (parameter.isRequired()) {
+                    required.add(parameter.getName());
+                }
+            }
+        }
+        McpSchema.Tool tool = McpSchema.Tool.builder()
+                .name(info.getName())
+                .description(info.getDescription())
+                .inputSchema(new McpSchema.JsonSchema("object", properties, required, null, null, null))
+                .build();
+        Map<String, Object> config = info.getConfig() != null ? Map.copyOf(info.getConfig()) : Map.of();
+
+        return McpServerFeatures.AsyncToolSpecification.builder()
+                .tool(tool)
+                .callHandler((exchange, request) -> {
+                    LongAdder count = callCounts.get(info.getName());
+                    if (count != null) {
+                        count.increment();
+                    }
+                    Map<String, Object> arguments = request.arguments() != null ? request.arguments() : Map.of();
+                    return handler.call(config, arguments)
+                            .map(text -> McpSchema.CallToolResult.builder().addTextContent(text).isError(false).build())
+                            .onErrorResume(e -> {
+                                log.warn("动态工具调用失败: {}, {}", info.getName(), e.getMessage());
+                                return Mono.just(McpSchema.CallToolResult.builder()
+                                        .addTextContent("工具调用失败: " + e.getMessage()).isError(true).build());
+                            });
+                })
+                .build();
+    }
+
+    /**
+     * 记录一次工具列表变更（含通知推送）的耗时
+     */
+    private Mono<Long> timed(String action, Mono<Void> change) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return change.then(Mono.fromSupplier(() -> {
+                long elapsedNanos = System.nanoTime() - startNanos;
+                Timer.builder("mcp.server.tools.list_changed")
+                        .description("动态工具变更及 tools/list_changed 通知推送耗时")
+                        .tag("action", action)
+                        .register(meterRegistry)
+                        .record(elapsedNanos, TimeUnit.NANOSECONDS);
+                return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            }));
+        });
+    }
+}
@@ -0,0 +1,383 @@
+package cn.sam.demo.mcpservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpError;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 工具调用限流服务
+ *
+ * <p>所有工具（注解工具和动态工具）的调用都经过这里，依次检查：</p>
+ * <ol>
+ *   <li>会话限速：每个 MCP 会话按令牌桶限制每秒调用数，超出立即拒绝</li>
+ *   <li>单工具并发：每个工具同时执行的调用数</li>
+ *   <li>全局并发：所有工具同时执行的调用数</li>
+ * </ol>
+ * <p>并发已满的调用进入有界队列等待，队列已满或等待超时时立即以 MCP 错误（code -32000）拒绝，
+ * 不会让一个客户端的突发流量拖慢所有人。指标：</p>
+ * <ul>
+ *   <li>mcp.server.tools.active / mcp.server.tools.queued：执行中和排队中的调用数（tool 标签为 _global 时为全局）</li>
+ *   <li>mcp.server.tools.rejected：被拒绝的调用数（reason：rate_limited、queue_full、queue_timeout）</li>
+ * </ul>
+ *
+ * @author Administrator
+ */
+@Slf4j
+@Service
+public class ToolCallLimiter {
+
+    /**
+     * 服务繁忙的 JSON-RPC 错误码（-32000 ~ -32099 为服务端自定义错误）
+     */
+    public static final int SERVER_BUSY = -32000;
+
+    private static final String GLOBAL = "_global";
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private Environment environment;
+
+    @Value("${mcp.server.limits.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 全局最大并发调用数
+     */
+    @Value("${mcp.server.limits.max-concurrent:64}")
+    private int maxConcurrent;
+
+    /**
+     * 全局最大排队调用数
+     */
+    @Value("${mcp.server.limits.max-queued:200}")
+    private int maxQueued;
+
+    /**
+     * 排队最长等待时间（毫秒），先后等待单工具和全局许可时共用同一个截止时间
+     */
+    @Value("${mcp.server.limits.queue-timeout-ms:5000}")
+    private long queueTimeoutMs;
+
+    /**
+     * 单个工具的默认最大并发调用数，0 为不限（只受全局限制）
+     */
+    @Value("${mcp.server.limits.tool-max-concurrent:16}")
+    private int toolMaxConcurrent;
+
+    /**
+     * 单个工具的最大排队调用数
+     */
+    @Value("${mcp.server.limits.tool-max-queued:50}")
+    private int toolMaxQueued;
+
+    /**
+     * 每个会话每秒允许的调用数，0 为不限（默认）
+     */
+    @Value("${mcp.server.limits.session-rate:0}")
+    private double sessionRate;
+
+    /**
+     * 每个会话允许的突发调用数（令牌桶容量）
+     */
+    @Value("${mcp.server.limits.session-burst:40}")
+    private int sessionBurst;
+
+    /**
+     * 按工具名覆盖的最大并发调用数（mcp.server.limits.tools.工具名）
+     */
+    private Map<String, Integer> toolLimits = Map.of();
+
+    private Bulkhead global;
+
+    private final Map<String, Bulkhead> toolBulkheads = new ConcurrentHashMap<>();
+
+    private final Map<String, TokenBucket> sessionBuckets = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        toolLimits = Binder.get(environment)
+                .bind("mcp.server.limits.tools", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Map.of());
+        global = newBulkhead(GLOBAL, maxConcurrent, maxQueued);
+        log.info("工具调用限流: enabled={}, 全局并发 {}, 排队 {}, 单工具并发 {} (覆盖 {}), 会话限速 {}/s",
+                enabled, maxConcurrent, maxQueued, toolMaxConcurrent, toolLimits, sessionRate);
+    }
+
+    /**
+     * 给工具加上限流，未启用时原样返回
+     *
+     * @param spec 工具定义
+     * @return 限流后的工具定义
+     */
+    public McpServerFeatures.AsyncToolSpecification wrap(McpServerFeatures.AsyncToolSpecification spec) {
+        if (!enabled) {
+            return spec;
+        }
+        String toolName = spec.tool().name();
+        return McpServerFeatures.AsyncToolSpecification.builder()
+                .tool(spec.tool())
+                .callHandler((exchange, request) -> Mono.defer(() -> {
+                    if (!tryAcquireSessionToken(exchange.sessionId())) {
+                        return Mono.error(reject("rate_limited", toolName, "会话调用过于频繁，请稍后重试"));
+                    }
+                    Bulkhead tool = toolBulkhead(toolName);
+                    // 两个许可共用一个截止时间，排队总时长不超过 queue-timeout-ms
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+                    Mono<Void> permits = tool == null ? global.acquire(toolName, deadline)
+                            : tool.acquire(toolName, deadline).then(global.acquire(toolName, deadline)
+                            .doOnError(e -> tool.release())
+                            .doOnCancel(tool::release));
+                    return Mono.usingWhen(permits.thenReturn(Boolean.TRUE),
+                            acquired -> spec.callHandler().apply(exchange, request),
+                            acquired -> release(tool));
+                }))
+                .build();
+    }
+
+    /**
+     * 当前限流状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("global", global.snapshot());
+        Map<String, Object> tools = new LinkedHashMap<>();
+        toolBulkheads.forEach((name, bulkhead) -> tools.put(name, bulkhead.snapshot()));
+        status.put("tools", tools);
+        status.put("sessions", sessionBuckets.size());
+        Map<String, Object> rejected = new LinkedHashMap<>();
+        rejectedCounters.forEach((key, counter) -> rejected.put(key, (long) counter.count()));
+        status.put("rejected", rejected);
+        return status;
+    }
+
+    private Mono<Void> release(Bulkhead tool) {
+        return Mono.fromRunnable(() -> {
+            global.release();
+            if (tool != null) {
+                tool.release();
+            }
+        });
+    }
+
+    private Bulkhead toolBulkhead(String toolName) {
+        int limit = toolLimits.getOrDefault(toolName, toolMaxConcurrent);
+        if (limit <= 0) {
+            return null;
+        }
+        return toolBulkheads.computeIfAbsent(toolName, name -> newBulkhead(name, limit, toolMaxQueued));
+    }
+
+    private Bulkhead newBulkhead(String name, int limit, int queueLimit) {
+        Bulkhead bulkhead = new Bulkhead(name, Math.max(1, limit), Math.max(0, queueLimit));
+        Gauge.builder("mcp.server.tools.active", bulkhead, Bulkhead::getActive)
+                .description("执行中的工具调用数")
+                .tag("tool", name)
+                .register(meterRegistry);
+        Gauge.builder("mcp.server.tools.queued", bulkhead, Bulkhead::getQueued)
+                .description("排队中的工具调用数")
+                .tag("tool", name)
+                .register(meterRegistry);
+        return bulkhead;
+    }
+
+    private boolean tryAcquireSessionToken(String sessionId) {
+        if (sessionRate <= 0 || sessionId == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (sessionBuckets.size() > 1000) {
+            // 清理一分钟未调用的会话
+            sessionBuckets.values().removeIf(bucket -> now - bucket.lastNanos > 60_000_000_000L);
+        }
+        return sessionBuckets.computeIfAbsent(sessionId, id -> new TokenBucket(Math.max(1, sessionBurst), now))
+                .tryAcquire(sessionRate, now);
+    }
+
+    private McpError reject(String reason, String toolName, String message) {
+        rejectedCounters.computeIfAbsent(reason, key -> Counter.builder("mcp.server.tools.rejected")
+                        .description("被限流拒绝的工具调用数")
+                        .tag("reason", key)
+                        .register(meterRegistry))
+                .increment();
+        log.debug("拒绝工具调用: {}, {}", toolName, reason);
+        return McpError.builder(SERVER_BUSY)
+                .message(message)
+                .data(Map.of("reason", reason, "tool", toolName))
+                .build();
+    }
+
+    /**
+     * 并发隔离舱：最多 limit 个调用同时执行，其余最多 queueLimit 个按顺序排队
+     */
+    private final class Bulkhead {
+
+        private final String name;
+
+        private final int limit;
+
+        private final int queueLimit;
+
+        private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+        private int active;
+
+        Bulkhead(String name, int limit, int queueLimit) {
+            this.name = name;
+            this.limit = limit;
+            this.queueLimit = queueLimit;
+        }
+
+        /**
+         * 获取一个执行许可，到截止时间仍在排队或队列已满时以 McpError 结束
+         *
+         * @param deadlineNanos 排队截止时间（System.nanoTime）
+         */
+        Mono<Void> acquire(String toolName, long deadlineNanos) {
+            return Mono.create(sink -> {
+                Waiter waiter = new Waiter(sink);
+                // 取消发生在许可送达之前才会回调
+                sink.onCancel(() -> {
+                    if (waiter.granted.compareAndSet(false, true)) {
+                        synchronized (this) {
+                            waiters.remove(waiter);
+                        }
+                    } else {
+                        // 许可已转交但未送达，继续转交给下一个
+                        release();
+                    }
+                });
+                boolean queued = false;
+                synchronized (this) {
+                    if (active < limit) {
+                        active++;
+                        waiter.granted.set(true);
+                    } else if (waiters.size() < queueLimit) {
+                        waiters.addLast(waiter);
+                        queued = true;
+                    } else {
+                        sink.error(reject("queue_full", toolName, "服务繁忙，请稍后重试"));
+                        return;
+                    }
+                }
+                if (!queued) {
+                    sink.success();
+                    return;
+                }
+                // 排队超时与转交许可竞争同一个标记，许可不会在超时的同时被转交而丢失
+                Disposable timer = Schedulers.parallel().schedule(() -> {
+                    if (waiter.granted.compareAndSet(false, true)) {
+                        synchronized (this) {
+                            waiters.remove(waiter);
+                        }
+                        sink.error(reject("queue_timeout", toolName, "排队超时，服务繁忙，请稍后重试"));
+                    }
+                }, Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sink.onDispose(timer);
+            });
+        }
+
+        /**
+         * 释放许可，有排队的调用时直接转交给队首
+         */
+        void release() {
+            while (true) {
+                Waiter next;
+                synchronized (this) {
+                    next = waiters.pollFirst();
+                    if (next == null) {
+                        active--;
+                        return;
+                    }
+                }
+                if (next.granted.compareAndSet(false, true)) {
+                    next.sink.success();
+                    return;
+                }
+            }
+        }
+
+        synchronized int getActive() {
+            return active;
+        }
+
+        synchronized int getQueued() {
+            return waiters.size();
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("limit", limit);
+            snapshot.put("queueLimit", queueLimit);
+            snapshot.put("active", getActive());
+            snapshot.put("queued", getQueued());
+            return snapshot;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private record Waiter(MonoSink<Void> sink, AtomicBoolean granted) {
+
+        Waiter(MonoSink<Void> sink) {
+            this(sink, new AtomicBoolean());
+        }
+    }
+
+    /**
+     * 会话令牌桶
+     */
+    private static final class TokenBucket {
+
+        private final int capacity;
+
+        private double tokens;
+
+        private volatile long lastNanos;
+
+        TokenBucket(int capacity, long now) {
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastNanos = now;
+        }
+
+        synchronized boolean tryAcquire(double ratePerSecond, long now) {
+            tokens = Math.min(capacity, tokens + (now - lastNanos) / 1_000_000_000.0 * ratePerSecond);
+            lastNanos = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
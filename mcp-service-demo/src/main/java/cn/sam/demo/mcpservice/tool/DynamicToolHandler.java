@@ -0,0 +1,69 @@
+package cn.sam.demo.mcpservice.tool;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 动态工具处理器
+ *
+ * <p>运行时注册的工具没有对应的 Java 方法，调用时交给注册时指定类型的处理器执行。
+ * 新增处理器只需实现本接口并注册为 Spring Bean，类型名在注册请求的 handler 字段中引用。</p>
+ *
+ * @author Administrator
+ */
+public interface DynamicToolHandler {
+
+    /**
+     * 占位符格式：${参数名}
+     */
+    Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)}");
+
+    /**
+     * 处理器类型，对应注册请求的 handler 字段
+     */
+    String getType();
+
+    /**
+     * 注册时校验处理器配置，配置无效时抛出 IllegalArgumentException
+     *
+     * @param config 处理器配置
+     */
+    default void validate(Map<String, Object> config) {
+    }
+
+    /**
+     * 执行工具调用，不应阻塞调用线程
+     *
+     * @param config    处理器配置
+     * @param arguments 工具参数
+     * @return 工具返回的文本，出错时以 error 信号结束
+     */
+    Mono<String> call(Map<String, Object> config, Map<String, Object> arguments);
+
+    /**
+     * 用工具参数替换模板中的 ${参数名} 占位符，缺失的参数替换为空串
+     *
+     * @param template  模板
+     * @param arguments 工具参数
+     * @param encoder   参数值的编码方式（如 URL 编码）
+     * @return 替换后的文本
+     */
+    static String render(String template, Map<String, Object> arguments, Function<String, String> encoder) {
+        if (template == null) {
+            return null;
+        }
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            Object value = arguments != null ? arguments.get(matcher.group(1).trim()) : null;
+            matcher.appendReplacement(result, Matcher.quoteReplacement(
+                    value == null ? "" : encoder.apply(String.valueOf(value))));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+}
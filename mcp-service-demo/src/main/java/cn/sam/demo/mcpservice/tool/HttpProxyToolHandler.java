@@ -0,0 +1,131 @@
+package cn.sam.demo.mcpservice.tool;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * HTTP 代理工具处理器（handler = http）
+ *
+ * <p>把工具调用转发为一次 HTTP 请求，响应体作为工具结果返回，非 2xx 响应按工具错误处理。
+ * 请求基于 WebClient，等待响应期间不占用线程。</p>
+ *
+ * <p>只允许访问 mcp.server.dynamic-tools.http.allowed-url-prefixes 中列出的地址（注册时和每次调用时都检查），
+ * 未配置时禁用该处理器，避免通过动态工具让服务器访问内网地址。配置项：</p>
+ * <ul>
+ *   <li>url：请求地址，必填，占位符的值做 URL 编码</li>
+ *   <li>method：请求方法，默认 GET</li>
+ *   <li>headers：请求头，值支持占位符</li>
+ *   <li>body：请求体模板，默认按 JSON 发送</li>
+ *   <li>contentType：请求体类型，默认 application/json</li>
+ *   <li>timeoutMs：超时时间，默认 10000</li>
+ * </ul>
+ *
+ * @author Administrator
+ */
+@Component
+public class HttpProxyToolHandler implements DynamicToolHandler {
+
+    @Resource
+    private WebClient.Builder webClientBuilder;
+
+    /**
+     * 允许访问的地址前缀（逗号分隔），为空时禁用 http 处理器
+     */
+    @Value("${mcp.server.dynamic-tools.http.allowed-url-prefixes:}")
+    private List<String> allowedUrlPrefixes;
+
+    private WebClient webClient;
+
+    @PostConstruct
+    public void init() {
+        webClient = webClientBuilder.build();
+    }
+
+    @Override
+    public String getType() {
+        return "http";
+    }
+
+    @Override
+    public void validate(Map<String, Object> config) {
+        if (config == null || !(config.get("url") instanceof String url)
+                || !(url.startsWith("http://") || url.startsWith("https://"))) {
+            throw new IllegalArgumentException("http 处理器需要配置以 http:// 或 https:// 开头的 url");
+        }
+        if (allowedUrlPrefixes == null || allowedUrlPrefixes.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "未配置 mcp.server.dynamic-tools.http.allowed-url-prefixes，http 处理器已禁用");
+        }
+        // 占位符之前的固定部分必须落在允许的前缀内，参数无法改变请求的主机
+        int placeholder = url.indexOf("${");
+        if (!isAllowed(placeholder >= 0 ? url.substring(0, placeholder) : url)) {
+            throw new IllegalArgumentException("url 不在允许访问的地址范围内: " + url);
+        }
+        HttpMethod.valueOf(String.valueOf(config.getOrDefault("method", "GET")).toUpperCase());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Mono<String> call(Map<String, Object> config, Map<String, Object> arguments) {
+        String url = DynamicToolHandler.render((String) config.get("url"), arguments,
+                value -> URLEncoder.encode(value, StandardCharsets.UTF_8));
+        if (!isAllowed(url)) {
+            return Mono.error(new IllegalStateException("url 不在允许访问的地址范围内: " + url));
+        }
+        HttpMethod method = HttpMethod.valueOf(String.valueOf(config.getOrDefault("method", "GET")).toUpperCase());
+        long timeoutMs = config.get("timeoutMs") instanceof Number number ? number.longValue() : 10000L;
+
+        WebClient.RequestBodySpec request = webClient.method(method).uri(url);
+        if (config.get("headers") instanceof Map<?, ?> headers) {
+            ((Map<String, Object>) headers).forEach((name, value) -> request.header(name,
+                    DynamicToolHandler.render(String.valueOf(value), arguments, Function.identity())));
+        }
+        String body = DynamicToolHandler.render((String) config.get("body"), arguments, Function.identity());
+        if (body != null) {
+            request.contentType(MediaType.parseMediaType(
+                    String.valueOf(config.getOrDefault("contentType", MediaType.APPLICATION_JSON_VALUE))));
+            request.bodyValue(body);
+        }
+        return request.exchangeToMono(response -> response.bodyToMono(String.class)
+                        .defaultIfEmpty("")
+                        .flatMap(text -> response.statusCode().is2xxSuccessful()
+                                ? Mono.just(text)
+                                : Mono.error(new IllegalStateException(
+                                "HTTP " + response.statusCode().value() + ": " + text))))
+                .timeout(Duration.ofMillis(timeoutMs));
+    }
+
+    /**
+     * 地址是否以允许的前缀开头；前缀不以 / 结尾时，其后只能是路径、查询或片段，
+     * 避免 https://api.example.com 放行 https://api.example.com.evil.net
+     */
+    boolean isAllowed(String url) {
+        if (allowedUrlPrefixes == null) {
+            return false;
+        }
+        for (String prefix : allowedUrlPrefixes) {
+            String trimmed = prefix.trim();
+            if (trimmed.isEmpty() || !url.startsWith(trimmed)) {
+                continue;
+            }
+            if (trimmed.endsWith("/") || url.length() == trimmed.length()
+                    || "/?#".indexOf(url.charAt(trimmed.length())) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,20 +1,28 @@
 package cn.sam.demo.mcpservice.tool;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import jakarta.annotation.Resource;
 import lombok.extern.java.Log;
 import lombok.extern.slf4j.Slf4j;
 import org.springaicommunity.mcp.annotation.McpTool;
 import org.springaicommunity.mcp.annotation.McpToolParam;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 本地 MCP 工具实现
  * 使用 @McpTool 注解定义工具，Spring AI 会自动扫描并注册
+ * 返回 Mono 的工具以响应式执行，不占用线程；其余工具在工具线程池上执行（见 McpToolExecutionConfig）
  *
  * @author Administrator
  */
@@ -22,25 +30,32 @@ import java.util.Map;
 @Service
 public class LocalMcpTools {
 
+    /**
+     * 工具执行的链路 span（mcp.server.tool），父 span 为携带客户端 traceparent 的 HTTP 请求；
+     * 脱离 Spring 容器直接实例化时不记录
+     */
+    @Resource
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
     /**
      * 获取当前时间工具
      */
     @McpTool(name = "get_current_time", description = "获取当前系统时间")
     public String getCurrentTime(
             @McpToolParam(description = "时间格式，可选值：datetime(默认), date, time", required = false) String format) {
-        LocalDateTime now = LocalDateTime.now();
+        return observe("get_current_time", () -> {
+            LocalDateTime now = LocalDateTime.now();
 
-        if (format == null || format.isEmpty()) {
-            format = "datetime";
-        }
+            String pattern = format == null || format.isEmpty() ? "datetime" : format;
 
-        DateTimeFormatter formatter = switch (format.toLowerCase()) {
-            case "date" -> DateTimeFormatter.ofPattern("yyyy-MM-dd");
-            case "time" -> DateTimeFormatter.ofPattern("HH:mm:ss");
-            default -> DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        };
+            DateTimeFormatter formatter = switch (pattern.toLowerCase()) {
+                case "date" -> DateTimeFormatter.ofPattern("yyyy-MM-dd");
+                case "time" -> DateTimeFormatter.ofPattern("HH:mm:ss");
+                default -> DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            };
 
-        return now.format(formatter);
+            return now.format(formatter);
+        });
     }
 
     /**
@@ -49,16 +64,18 @@ public class LocalMcpTools {
     @McpTool(name = "calculator_add", description = "计算两个数字的和")
     public Map<String, Object> calculatorAdd(@McpToolParam(description = "第一个数字") Double a,
                                              @McpToolParam(description = "第二个数字") Double b) {
-        log.info("计算两个数字的和：{} + {}", a, b);
-        log.info("a: {}", a);
-        log.info("b: {}", b);
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "add");
-        result.put("a", a);
-        result.put("b", b);
-        result.put("result", a + b);
-        result.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-        return result;
+        return observe("calculator_add", () -> {
+            log.info("计算两个数字的和：{} + {}", a, b);
+            log.info("a: {}", a);
+            log.info("b: {}", b);
+            Map<String, Object> result = new HashMap<>();
+            result.put("operation", "add");
+            result.put("a", a);
+            result.put("b", b);
+            result.put("result", a + b);
+            result.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            return result;
+        });
     }
 
     /**
@@ -67,14 +84,16 @@ public class LocalMcpTools {
     @McpTool(name = "calculator_multiply", description = "计算两个数字的乘积")
     public Map<String, Object> calculatorMultiply(@McpToolParam(description = "第一个数字") Double a,
                                                   @McpToolParam(description = "第二个数字") Double b) {
-        log.info("计算两个数字的乘积：{} * {}", a, b);
-        Map<String, Object> result = new HashMap<>();
-        result.put("operation", "multiply");
-        result.put("a", a);
-        result.put("b", b);
-        result.put("result", a * b);
-        result.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-        return result;
+        return observe("calculator_multiply", () -> {
+            log.info("计算两个数字的乘积：{} * {}", a, b);
+            Map<String, Object> result = new HashMap<>();
+            result.put("operation", "multiply");
+            result.put("a", a);
+            result.put("b", b);
+            result.put("result", a * b);
+            result.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            return result;
+        });
     }
 
     /**
@@ -82,12 +101,14 @@ public class LocalMcpTools {
      */
     @McpTool(name = "string_reverse", description = "反转字符串")
     public Map<String, Object> stringReverse(@McpToolParam(description = "要反转的字符串") String text) {
-        log.info("反转字符串：{}", text);
-        Map<String, Object> result = new HashMap<>();
-        result.put("original", text);
-        result.put("reversed", new StringBuilder(text).reverse().toString());
-        result.put("length", text.length());
-        return result;
+        return observe("string_reverse", () -> {
+            log.info("反转字符串：{}", text);
+            Map<String, Object> result = new HashMap<>();
+            result.put("original", text);
+            result.put("reversed", new StringBuilder(text).reverse().toString());
+            result.put("length", text.length());
+            return result;
+        });
     }
 
     /**
@@ -95,12 +116,48 @@ public class LocalMcpTools {
      */
     @McpTool(name = "string_uppercase", description = "将字符串转换为大写")
     public Map<String, Object> stringUppercase(@McpToolParam(description = "要转换的字符串") String text) {
-        log.info("将字符串转换为大写：{}", text);
-        Map<String, Object> result = new HashMap<>();
-        result.put("original", text);
-        result.put("uppercase", text.toUpperCase());
-        result.put("length", text.length());
-        return result;
+        return observe("string_uppercase", () -> {
+            log.info("将字符串转换为大写：{}", text);
+            Map<String, Object> result = new HashMap<>();
+            result.put("original", text);
+            result.put("uppercase", text.toUpperCase());
+            result.put("length", text.length());
+            return result;
+        });
+    }
+
+    /**
+     * 延迟回显工具 - 响应式执行，等待期间不占用线程，用于模拟慢速的下游调用
+     */
+    @McpTool(name = "delayed_echo", description = "等待指定毫秒后原样返回字符串")
+    public Mono<Map<String, Object>> delayedEcho(@McpToolParam(description = "要返回的字符串") String text,
+                                                @McpToolParam(description = "等待毫秒数，默认 100，最大 10000", required = false) Integer delayMs) {
+        long delay = delayMs == null ? 100 : Math.max(0, Math.min(delayMs, 10000));
+        return observe("delayed_echo", Mono.delay(Duration.ofMillis(delay)).map(tick -> {
+            Map<String, Object> result = new HashMap<>();
+            result.put("text", text);
+            result.put("delayMs", delay);
+            result.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            return result;
+        }));
+    }
+
+    private <T> T observe(String toolName, Supplier<T> body) {
+        return Observation.createNotStarted("mcp.server.tool", observationRegistry)
+                .contextualName("tool " + toolName)
+                .lowCardinalityKeyValue("mcp.tool", toolName)
+                .observe(body);
     }
-}
 
+    private <T> Mono<T> observe(String toolName, Mono<T> body) {
+        return Mono.defer(() -> {
+            Observation observation = Observation.createNotStarted("mcp.server.tool", observationRegistry)
+                    .contextualName("tool " + toolName)
+                    .lowCardinalityKeyValue("mcp.tool", toolName)
+                    .start();
+            return body.doOnError(observation::error)
+                    .doFinally(signal -> observation.stop())
+                    .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package cn.sam.demo.mcpservice.tool;
+
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 模板工具处理器（handler = template）
+ *
+ * <p>用工具参数填充 config.template 中的 ${参数名} 占位符后直接返回，适合固定话术、
+ * 拼装提示词等不需要外部调用的工具，也可用于压测工具列表变更通知。</p>
+ *
+ * @author Administrator
+ */
+@Component
+public class TemplateToolHandler implements DynamicToolHandler {
+
+    @Override
+    public String getType() {
+        return "template";
+    }
+
+    @Override
+    public void validate(Map<String, Object> config) {
+        if (config == null || !(config.get("template") instanceof String)) {
+            throw new IllegalArgumentException("template 处理器需要配置 template");
+        }
+    }
+
+    @Override
+    public Mono<String> call(Map<String, Object> config, Map<String, Object> arguments) {
+        return Mono.fromSupplier(() -> DynamicToolHandler.render((String) config.get("template"), arguments,
+                Function.identity()));
+    }
+}
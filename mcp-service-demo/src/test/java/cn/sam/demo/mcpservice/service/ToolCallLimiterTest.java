@@ -0,0 +1,197 @@
+package cn.sam.demo.mcpservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.modelcontextprotocol.server.McpAsyncServerExchange;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpError;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工具调用限流测试：许可转交、取消、队列满、排队截止时间和会话限速
+ */
+class ToolCallLimiterTest {
+
+    private static final McpSchema.JsonSchema EMPTY_SCHEMA =
+            new McpSchema.JsonSchema("object", Map.of(), List.of(), null, null, null);
+
+    private ToolCallLimiter limiter(int maxConcurrent, int toolMaxConcurrent, int toolMaxQueued,
+                                    long queueTimeoutMs, double sessionRate) {
+        ToolCallLimiter limiter = new ToolCallLimiter();
+        ReflectionTestUtils.setField(limiter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(limiter, "environment", new MockEnvironment());
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(limiter, "maxQueued", 10);
+        ReflectionTestUtils.setField(limiter, "queueTimeoutMs", queueTimeoutMs);
+        ReflectionTestUtils.setField(limiter, "toolMaxConcurrent", toolMaxConcurrent);
+        ReflectionTestUtils.setField(limiter, "toolMaxQueued", toolMaxQueued);
+        ReflectionTestUtils.setField(limiter, "sessionRate", sessionRate);
+        ReflectionTestUtils.setField(limiter, "sessionBurst", 2);
+        limiter.init();
+        return limiter;
+    }
+
+    /**
+     * 每次调用返回 sinks 中的下一个结果，由测试控制调用何时结束
+     */
+    private McpServerFeatures.AsyncToolSpecification tool(ToolCallLimiter limiter, String name,
+                                                          Sinks.One<McpSchema.CallToolResult> result) {
+        McpServerFeatures.AsyncToolSpecification spec = McpServerFeatures.AsyncToolSpecification.builder()
+                .tool(McpSchema.Tool.builder().name(name).inputSchema(EMPTY_SCHEMA).build())
+                .callHandler((exchange, request) -> result.asMono())
+                .build();
+        return limiter.wrap(spec);
+    }
+
+    private Mono<McpSchema.CallToolResult> call(McpServerFeatures.AsyncToolSpecification spec, String sessionId) {
+        McpAsyncServerExchange exchange = new McpAsyncServerExchange(sessionId, null, null, null, null);
+        return spec.callHandler().apply(exchange, new McpSchema.CallToolRequest(spec.tool().name(), Map.of()));
+    }
+
+    private static McpSchema.CallToolResult ok() {
+        return new McpSchema.CallToolResult("ok", false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int count(ToolCallLimiter limiter, String bulkhead, String key) {
+        Map<String, Object> status = limiter.getStatus();
+        Map<String, Object> snapshot = "_global".equals(bulkhead) ? (Map<String, Object>) status.get("global")
+                : (Map<String, Object>) ((Map<String, Object>) status.get("tools")).get(bulkhead);
+        return (Integer) snapshot.get(key);
+    }
+
+    private static String reason(Throwable e) {
+        assertInstanceOf(McpError.class, e);
+        McpError error = (McpError) e;
+        assertEquals(ToolCallLimiter.SERVER_BUSY, error.getJsonRpcError().code());
+        return (String) ((Map<?, ?>) error.getJsonRpcError().data()).get("reason");
+    }
+
+    @Test
+    void handsPermitToQueuedCall() {
+        ToolCallLimiter limiter = limiter(8, 1, 5, 5000, 0);
+        Sinks.One<McpSchema.CallToolResult> first = Sinks.one();
+        Sinks.One<McpSchema.CallToolResult> second = Sinks.one();
+        AtomicReference<Sinks.One<McpSchema.CallToolResult>> current = new AtomicReference<>(first);
+        McpServerFeatures.AsyncToolSpecification spec = limiter.wrap(McpServerFeatures.AsyncToolSpecification.builder()
+                .tool(McpSchema.Tool.builder().name("slow").inputSchema(EMPTY_SCHEMA).build())
+                .callHandler((exchange, request) -> current.getAndSet(second).asMono())
+                .build());
+
+        AtomicReference<McpSchema.CallToolResult> firstResult = new AtomicReference<>();
+        AtomicReference<McpSchema.CallToolResult> secondResult = new AtomicReference<>();
+        call(spec, "s1").subscribe(firstResult::set);
+        call(spec, "s1").subscribe(secondResult::set);
+        assertEquals(1, count(limiter, "slow", "active"));
+        assertEquals(1, count(limiter, "slow", "queued"));
+
+        first.tryEmitValue(ok());
+        assertNotNull(firstResult.get());
+        assertEquals(1, count(limiter, "slow", "active"), "许可直接转交给排队的调用");
+        assertEquals(0, count(limiter, "slow", "queued"));
+
+        second.tryEmitValue(ok());
+        assertNotNull(secondResult.get());
+        assertEquals(0, count(limiter, "slow", "active"));
+        assertEquals(0, count(limiter, "_global", "active"));
+    }
+
+    @Test
+    void cancelledQueuedCallLeavesQueue() {
+        ToolCallLimiter limiter = limiter(8, 1, 5, 5000, 0);
+        Sinks.One<McpSchema.CallToolResult> result = Sinks.one();
+        McpServerFeatures.AsyncToolSpecification spec = tool(limiter, "slow", result);
+
+        call(spec, "s1").subscribe();
+        Disposable queued = call(spec, "s1").subscribe();
+        assertEquals(1, count(limiter, "slow", "queued"));
+
+        queued.dispose();
+        assertEquals(0, count(limiter, "slow", "queued"));
+        result.tryEmitValue(ok());
+        assertEquals(0, count(limiter, "slow", "active"), "取消的调用不占用许可");
+        assertEquals(0, count(limiter, "_global", "active"));
+    }
+
+    @Test
+    void cancelWhileWaitingForGlobalReleasesToolPermit() {
+        ToolCallLimiter limiter = limiter(1, 1, 5, 5000, 0);
+        Sinks.One<McpSchema.CallToolResult> holder = Sinks.one();
+        call(tool(limiter, "a", holder), "s1").subscribe();
+
+        Disposable waiting = call(tool(limiter, "b", Sinks.one()), "s1").subscribe();
+        assertEquals(1, count(limiter, "b", "active"), "已取得单工具许可，等待全局许可");
+        assertEquals(1, count(limiter, "_global", "queued"));
+
+        waiting.dispose();
+        assertEquals(0, count(limiter, "b", "active"));
+        assertEquals(0, count(limiter, "_global", "queued"));
+        holder.tryEmitValue(ok());
+        assertEquals(0, count(limiter, "_global", "active"));
+    }
+
+    @Test
+    void rejectsWhenQueueFull() {
+        ToolCallLimiter limiter = limiter(8, 1, 0, 5000, 0);
+        McpServerFeatures.AsyncToolSpecification spec = tool(limiter, "slow", Sinks.one());
+        call(spec, "s1").subscribe();
+
+        Throwable error = assertThrows(RuntimeException.class, () -> call(spec, "s1").block(Duration.ofSeconds(1)));
+        assertEquals("queue_full", reason(error));
+        assertEquals(1, count(limiter, "slow", "active"));
+    }
+
+    @Test
+    void toolAndGlobalQueuesShareOneDeadline() {
+        ToolCallLimiter limiter = limiter(1, 1, 5, 300, 0);
+        Sinks.One<McpSchema.CallToolResult> holder = Sinks.one();
+        call(tool(limiter, "a", holder), "s1").subscribe();
+
+        // b1 取得 b 的单工具许可后等待全局许可，b2 先排在 b 的队列里
+        McpServerFeatures.AsyncToolSpecification b = tool(limiter, "b", Sinks.one());
+        call(b, "s1").subscribe(value -> { }, error -> { });
+        long start = System.nanoTime();
+        Throwable error = assertThrows(RuntimeException.class, () -> call(b, "s1").block(Duration.ofSeconds(2)));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("queue_timeout", reason(error));
+        assertTrue(elapsedMs < 500, "排队总时长不超过一个 queue-timeout-ms，实际 " + elapsedMs + " ms");
+        assertEquals(0, count(limiter, "b", "active"));
+        assertEquals(0, count(limiter, "b", "queued"));
+        assertEquals(0, count(limiter, "_global", "queued"));
+        holder.tryEmitValue(ok());
+        assertEquals(0, count(limiter, "_global", "active"));
+    }
+
+    @Test
+    void sessionRateOffByDefaultAndLimitsWhenSet() {
+        ToolCallLimiter unlimited = limiter(8, 0, 5, 5000, 0);
+        Sinks.One<McpSchema.CallToolResult> done = Sinks.one();
+        done.tryEmitValue(ok());
+        McpServerFeatures.AsyncToolSpecification free = tool(unlimited, "echo", done);
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(call(free, "s1").block(Duration.ofSeconds(1)));
+        }
+
+        ToolCallLimiter limited = limiter(8, 0, 5, 5000, 0.001);
+        McpServerFeatures.AsyncToolSpecification spec = tool(limited, "echo", done);
+        assertNotNull(call(spec, "s1").block(Duration.ofSeconds(1)));
+        assertNotNull(call(spec, "s1").block(Duration.ofSeconds(1)));
+        Throwable error = assertThrows(RuntimeException.class, () -> call(spec, "s1").block(Duration.ofSeconds(1)));
+        assertEquals("rate_limited", reason(error));
+        assertNotNull(call(spec, "s2").block(Duration.ofSeconds(1)), "会话之间互不影响");
+    }
+}
@@ -0,0 +1,60 @@
+package cn.sam.demo.mcpservice.tool;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * http 处理器的地址白名单测试
+ */
+class HttpProxyToolHandlerTest {
+
+    private HttpProxyToolHandler handler(String... prefixes) {
+        HttpProxyToolHandler handler = new HttpProxyToolHandler();
+        ReflectionTestUtils.setField(handler, "allowedUrlPrefixes", List.of(prefixes));
+        return handler;
+    }
+
+    @Test
+    void disabledWithoutAllowlist() {
+        HttpProxyToolHandler handler = handler();
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.validate(Map.of("url", "https://wttr.in/${city}")));
+    }
+
+    @Test
+    void acceptsUrlsUnderAllowedPrefix() {
+        HttpProxyToolHandler handler = handler("https://wttr.in/", "http://api.internal.example");
+        assertDoesNotThrow(() -> handler.validate(Map.of("url", "https://wttr.in/${city}?format=3")));
+        assertDoesNotThrow(() -> handler.validate(Map.of("url", "http://api.internal.example/v1/${id}")));
+        assertTrue(handler.isAllowed("http://api.internal.example"));
+        assertTrue(handler.isAllowed("http://api.internal.example?q=1"));
+    }
+
+    @Test
+    void rejectsOtherHosts() {
+        HttpProxyToolHandler handler = handler("https://wttr.in/", "http://api.internal.example");
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.validate(Map.of("url", "http://169.254.169.254/latest/meta-data/")));
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.validate(Map.of("url", "http://api.internal.example.evil.net/")));
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.validate(Map.of("url", "http://api.internal.example:8080/")));
+    }
+
+    @Test
+    void placeholderCannotChooseHost() {
+        HttpProxyToolHandler handler = handler("https://wttr.in/");
+        assertThrows(IllegalArgumentException.class, () -> handler.validate(Map.of("url", "https://${host}/")));
+        // 注册时固定部分合法，但参数拼出的地址越界时在调用时拒绝
+        HttpProxyToolHandler loose = handler("http://api.internal.example");
+        assertDoesNotThrow(() -> loose.validate(Map.of("url", "http://api.internal.example${suffix}")));
+        assertThrows(IllegalStateException.class, () -> loose
+                .call(Map.of("url", "http://api.internal.example${suffix}"), Map.of("suffix", ".evil.net"))
+                .block());
+    }
+}